@@ -2,17 +2,21 @@ package pl.drunkcom.core.configuration;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 
 /**
  * Application configuration class for beans and services.
  * Contains configuration for HTTP clients and other application-wide components.
+ * Scheduling is enabled here for the periodic background jobs, such as the dataset version debounce,
+ * report reloads and the nightly run-time rebuild; the realtime feed poller runs on its own executor.
  *
  * @author Development Team
  * @version 1.0
  * @since 1.0
  */
 @Configuration
+@EnableScheduling
 public class AppConfig {
 
     /**
@@ -59,6 +59,15 @@ public interface RaportRepository extends BaseRepository<Raport> {
      */
     List<Raport> findByTimestampBetween(Timestamp startTime, Timestamp endTime);
 
+    /**
+     * Find reports made since a moment, with their route loaded.
+     *
+     * @param since Start of the time range
+     * @return List of reports made at or after the given moment
+     */
+    @Query("SELECT r FROM Raport r LEFT JOIN FETCH r.route WHERE r.timestamp >= :since")
+    List<Raport> findSinceWithRoute(@Param("since") Timestamp since);
+
     /**
      * Find emergency reports for a specific route.
      *
@@ -0,0 +1,10 @@
+package pl.drunkcom.core.interfaces;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import pl.drunkcom.core.model.gtfs.ShapeCoords;
+
+/**
+ * Per-point shape coordinate rows, only used to delete them once a shape has been packed.
+ */
+public interface ShapeCoordsRepository extends JpaRepository<ShapeCoords, Long> {
+}
@@ -4,5 +4,14 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import pl.drunkcom.core.model.gtfs.Shape;
 
-public interface ShapeRepository extends JpaRepository<Shape, Long>, JpaSpecificationExecutor<Shape> {
+import java.util.List;
+
+public interface ShapeRepository extends JpaRepository<Shape, String>, JpaSpecificationExecutor<Shape> {
+
+    /**
+     * Find all shapes that only have legacy per-point coordinate rows.
+     *
+     * @return List of shapes without packed geometry
+     */
+    List<Shape> findByPackedGeometryIsNull();
 }
@@ -2,7 +2,26 @@ package pl.drunkcom.core.interfaces;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import pl.drunkcom.core.model.gtfs.Stop;
 
+import java.util.List;
+
 public interface StopRepository extends JpaRepository<Stop, String>, JpaSpecificationExecutor<Stop> {
+
+    /**
+     * Loads the location columns of every stop without resolving parent stations.
+     */
+    @Query("SELECT s.stopId AS stopId, s.stopCode AS stopCode, s.stopName AS stopName, " +
+           "s.stopLat AS stopLat, s.stopLon AS stopLon, s.locationType AS locationType FROM Stop s")
+    List<StopLocation> findAllLocations();
+
+    interface StopLocation {
+        String getStopId();
+        String getStopCode();
+        String getStopName();
+        Double getStopLat();
+        Double getStopLon();
+        Integer getLocationType();
+    }
 }
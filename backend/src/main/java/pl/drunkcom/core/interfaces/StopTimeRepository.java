@@ -2,7 +2,46 @@ package pl.drunkcom.core.interfaces;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import pl.drunkcom.core.model.gtfs.StopTime;
 
+import java.util.List;
+
 public interface StopTimeRepository extends JpaRepository<StopTime, Long>, JpaSpecificationExecutor<StopTime> {
+
+    /**
+     * Find the stop times of a trip in travel order, with their stops already loaded.
+     *
+     * @param tripId The trip identifier
+     * @return Stop times of the trip ordered by stop sequence
+     */
+    @Query("SELECT st FROM StopTime st JOIN FETCH st.stop WHERE st.trips.tripId = :tripId ORDER BY st.stopSequence")
+    List<StopTime> findByTripIdOrderByStopSequence(@Param("tripId") String tripId);
+
+    /**
+     * Lists the distinct (stop, route) pairs served by any trip.
+     */
+    @Query("SELECT DISTINCT st.stop.stopId AS stopId, st.trips.route.routeId AS routeId FROM StopTime st")
+    List<StopRoute> findStopRoutes();
+
+    /**
+     * Lists the departures of every trip of a route, grouped by trip in travel order.
+     */
+    @Query("SELECT st.trips.tripId AS tripId, st.trips.shapeId AS shapeId, st.stop.stopId AS stopId, " +
+           "st.departureTime AS departureTime FROM StopTime st WHERE st.trips.route.routeId = :routeId " +
+           "ORDER BY st.trips.tripId, st.stopSequence")
+    List<TripDeparture> findRouteDepartures(@Param("routeId") String routeId);
+
+    interface StopRoute {
+        String getStopId();
+        String getRouteId();
+    }
+
+    interface TripDeparture {
+        String getTripId();
+        String getShapeId();
+        String getStopId();
+        String getDepartureTime();
+    }
 }
@@ -2,7 +2,71 @@ package pl.drunkcom.core.interfaces;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import pl.drunkcom.core.model.gtfs.Trips;
 
+import java.util.List;
+
 public interface TripsRepository extends JpaRepository<Trips, String>, JpaSpecificationExecutor<Trips> {
+
+    /**
+     * Lists the distinct (shape, route) pairs used by trips.
+     */
+    @Query("SELECT DISTINCT t.shapeId AS shapeId, t.route.routeId AS routeId FROM Trips t WHERE t.shapeId IS NOT NULL")
+    List<ShapeRoute> findShapeRoutes();
+
+    /**
+     * Lists every trip with its route, direction, service and the departure time at its first stop.
+     */
+    @Query("SELECT t.tripId AS tripId, t.route.routeId AS routeId, t.directionId AS directionId, " +
+           "t.calendar.serviceId AS serviceId, st.departureTime AS firstDeparture " +
+           "FROM StopTime st JOIN st.trips t " +
+           "WHERE st.stopSequence = (SELECT MIN(s.stopSequence) FROM StopTime s WHERE s.trips = t)")
+    List<TripStart> findTripStarts();
+
+    /**
+     * Lists the shape of every trip that has one.
+     */
+    @Query("SELECT t.tripId AS tripId, t.shapeId AS shapeId FROM Trips t WHERE t.shapeId IS NOT NULL")
+    List<TripShape> findTripShapes();
+
+    /**
+     * Lists every trip with the static details of its route.
+     */
+    @Query("SELECT t.tripId AS tripId, t.tripHeadsign AS headsign, t.directionId AS directionId, t.shapeId AS shapeId, " +
+           "r.routeId AS routeId, r.routeShortName AS routeShortName, r.routeLongName AS routeLongName, " +
+           "r.routeType AS routeType, r.routeColor AS routeColor, r.routeTextColor AS routeTextColor " +
+           "FROM Trips t JOIN t.route r")
+    List<TripDescription> findTripDescriptions();
+
+    interface ShapeRoute {
+        String getShapeId();
+        String getRouteId();
+    }
+
+    interface TripStart {
+        String getTripId();
+        String getRouteId();
+        Integer getDirectionId();
+        String getServiceId();
+        String getFirstDeparture();
+    }
+
+    interface TripShape {
+        String getTripId();
+        String getShapeId();
+    }
+
+    interface TripDescription {
+        String getTripId();
+        String getHeadsign();
+        Integer getDirectionId();
+        String getShapeId();
+        String getRouteId();
+        String getRouteShortName();
+        String getRouteLongName();
+        Integer getRouteType();
+        String getRouteColor();
+        String getRouteTextColor();
+    }
 }
@@ -1,5 +1,7 @@
 package pl.drunkcom.core.model.gtfs;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -11,6 +13,11 @@ import java.util.Set;
  * Represents GTFS shapes (from shapes.txt):
  * According to GTFS specification: https://gtfs.org/documentation/schedule/reference/#shapestxt
  * shape_id,shape_pt_lat,shape_pt_lon,shape_pt_sequence,shape_dist_traveled
+ *
+ * <p>The points of a shape are stored ordered and delta-encoded in a single {@code packed_geometry}
+ * column (see {@code ShapeGeometryCodec}), so a whole shape is read with one row. The per-point
+ * {@link ShapeCoords} are only an import format: they are accepted when a shape is written, packed
+ * by {@code ShapeService}, and never returned. Legacy rows still in the database are packed at startup.
  */
 @Entity
 @Table(name = "gtfs_shapes")
@@ -24,7 +31,15 @@ public class Shape {
     private String shapeId; // Required
 
     @OneToMany
-    private Set<ShapeCoords> coords;
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    private Set<ShapeCoords> coords; // Import format and legacy rows, superseded by packedGeometry
+
+    @Column(name = "packed_geometry", columnDefinition = "bytea")
+    @JsonIgnore
+    private byte[] packedGeometry;
+
+    @Column(name = "point_count")
+    private Integer pointCount;
 
     @Column(name = "shape_dist_traveled")
     private Double shapeDistTraveled; // Optional
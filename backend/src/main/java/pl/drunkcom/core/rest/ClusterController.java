@@ -0,0 +1,136 @@
+package pl.drunkcom.core.rest;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import pl.drunkcom.core.service.cluster.MapCluster;
+import pl.drunkcom.core.service.cluster.ReportClusterService;
+import pl.drunkcom.core.service.cluster.VehicleClusterService;
+
+import java.util.List;
+
+/**
+ * REST API controller returning map markers clustered for a zoom level.
+ *
+ * <p>Vehicles are clustered once per realtime snapshot and active incident reports whenever they
+ * change, for all zoom levels at once; a request only selects the clusters of one level inside the
+ * viewport.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ * @see VehicleClusterService
+ * @see ReportClusterService
+ */
+@RestController
+@RequestMapping("/api/clusters")
+@CrossOrigin
+@Tag(name = "Map Clusters", description = "Server-side clustering of vehicles and incident reports per zoom level.")
+public class ClusterController {
+
+    @Autowired
+    private VehicleClusterService vehicleClusterService;
+
+    @Autowired
+    private ReportClusterService reportClusterService;
+
+    /**
+     * Retrieves vehicle clusters inside a viewport.
+     *
+     * @return Clusters ordered by descending size, 400 for an invalid viewport, or 503 before the first snapshot
+     */
+    @GetMapping("/vehicles")
+    @Operation(
+        summary = "Get vehicle clusters",
+        description = "Returns the vehicles of the latest realtime snapshot inside the bounding box, clustered for the " +
+                     "zoom level. Single vehicles carry their vehicle ID and route ID; clusters only their size and centroid."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved the clusters",
+            content = @Content(array = @ArraySchema(schema = @Schema(implementation = MapCluster.class)))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid bounding box or zoom level"
+        ),
+        @ApiResponse(
+            responseCode = "503",
+            description = "No realtime snapshot has been received yet"
+        )
+    })
+    public ResponseEntity<List<MapCluster>> getVehicleClusters(
+        @Parameter(description = "Southern edge of the viewport", example = "50.00", required = true)
+        @RequestParam double minLat,
+        @Parameter(description = "Western edge of the viewport", example = "19.85", required = true)
+        @RequestParam double minLon,
+        @Parameter(description = "Northern edge of the viewport", example = "50.12", required = true)
+        @RequestParam double maxLat,
+        @Parameter(description = "Eastern edge of the viewport", example = "20.10", required = true)
+        @RequestParam double maxLon,
+        @Parameter(description = "Map zoom level (0-22)", example = "12", required = true)
+        @RequestParam int zoom
+    ) {
+        if (!isValid(minLat, minLon, maxLat, maxLon, zoom)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return vehicleClusterService.clusters(minLat, minLon, maxLat, maxLon, zoom)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+
+    /**
+     * Retrieves clusters of active incident reports inside a viewport.
+     *
+     * @return Clusters ordered by descending size, or 400 for an invalid viewport
+     */
+    @GetMapping("/reports")
+    @Operation(
+        summary = "Get incident report clusters",
+        description = "Returns the active incident reports inside the bounding box, clustered for the zoom level. " +
+                     "Single reports carry their report ID and incident type; clusters only their size and centroid."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved the clusters",
+            content = @Content(array = @ArraySchema(schema = @Schema(implementation = MapCluster.class)))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid bounding box or zoom level"
+        )
+    })
+    public ResponseEntity<List<MapCluster>> getReportClusters(
+        @Parameter(description = "Southern edge of the viewport", example = "50.00", required = true)
+        @RequestParam double minLat,
+        @Parameter(description = "Western edge of the viewport", example = "19.85", required = true)
+        @RequestParam double minLon,
+        @Parameter(description = "Northern edge of the viewport", example = "50.12", required = true)
+        @RequestParam double maxLat,
+        @Parameter(description = "Eastern edge of the viewport", example = "20.10", required = true)
+        @RequestParam double maxLon,
+        @Parameter(description = "Map zoom level (0-22)", example = "12", required = true)
+        @RequestParam int zoom
+    ) {
+        if (!isValid(minLat, minLon, maxLat, maxLon, zoom)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(reportClusterService.clusters(minLat, minLon, maxLat, maxLon, zoom));
+    }
+
+    private static boolean isValid(double minLat, double minLon, double maxLat, double maxLon, int zoom) {
+        return minLat >= -90 && maxLat <= 90 && minLon >= -180 && maxLon <= 180
+                && minLat <= maxLat && minLon <= maxLon && zoom >= 0 && zoom <= 22;
+    }
+}
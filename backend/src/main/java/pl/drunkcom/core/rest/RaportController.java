@@ -7,6 +7,7 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
@@ -15,6 +16,10 @@ import org.springframework.web.bind.annotation.*;
 import pl.drunkcom.core.enums.Incidents;
 import pl.drunkcom.core.model.Raport;
 import pl.drunkcom.core.service.RaportService;
+import pl.drunkcom.core.service.incidents.IncidentImpactService;
+import pl.drunkcom.core.service.incidents.NearbyReport;
+import pl.drunkcom.core.service.incidents.ReportImpact;
+import pl.drunkcom.core.service.incidents.ReportSpatialIndex;
 
 import javax.validation.Valid;
 import java.sql.Timestamp;
@@ -60,6 +65,12 @@ import java.util.List;
 @Tag(name = "Reports", description = "Transit incident report management API. Handles creation, tracking, and management of transit service incidents, disruptions, and emergency situations affecting public transportation.")
 public class RaportController extends BaseGtfsController<Raport, Long, RaportService> {
 
+    @Autowired
+    private ReportSpatialIndex reportSpatialIndex;
+
+    @Autowired
+    private IncidentImpactService incidentImpactService;
+
     /**
      * Retrieves reports filtered by incident type.
      * Returns all reports matching the specified incident type for analysis and monitoring.
@@ -416,4 +427,143 @@ public class RaportController extends BaseGtfsController<Raport, Long, RaportSer
         Raport savedRaport = service.save(raport);
         return ResponseEntity.status(HttpStatus.CREATED).body(savedRaport);
     }
+
+    /**
+     * Retrieves the active reports within a radius of a point.
+     * Served from the in-memory spatial index of active reports.
+     *
+     * @param latitude Latitude of the point
+     * @param longitude Longitude of the point
+     * @param radiusMeters Search radius in meters
+     * @return ResponseEntity containing the nearby reports ordered by distance
+     */
+    @GetMapping("/nearby")
+    @Operation(
+        summary = "Get active reports near a point",
+        description = "Retrieves the currently active incident reports within the given radius of a point, " +
+                     "ordered by distance. Only reports made within the active window are returned."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved nearby reports",
+            content = @Content(schema = @Schema(implementation = NearbyReport.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid coordinates or radius"
+        )
+    })
+    public ResponseEntity<List<NearbyReport>> getReportsNearby(
+        @Parameter(description = "Latitude of the point", example = "50.0647")
+        @RequestParam double latitude,
+        @Parameter(description = "Longitude of the point", example = "19.9450")
+        @RequestParam double longitude,
+        @Parameter(description = "Search radius in meters (up to 50000)", example = "1000")
+        @RequestParam(defaultValue = "1000") double radiusMeters
+    ) {
+        if (latitude < -90.0 || latitude > 90.0 || longitude < -180.0 || longitude > 180.0
+                || !(radiusMeters > 0) || radiusMeters > 50_000) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(reportSpatialIndex.findNear(latitude, longitude, radiusMeters));
+    }
+
+    /**
+     * Retrieves the active reports within a corridor around the shape of a route.
+     *
+     * @param routeId The unique identifier of the route
+     * @param widthMeters Maximum distance between a report and the route's shape
+     * @return ResponseEntity containing the reports along the route
+     */
+    @GetMapping("/route/{routeId}/corridor")
+    @Operation(
+        summary = "Get active reports along a route",
+        description = "Retrieves the currently active incident reports located within the given distance " +
+                     "of the route's shapes, regardless of the route they were reported for. " +
+                     "Reports are ordered by shape and position along the shape."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved reports along the route",
+            content = @Content(schema = @Schema(implementation = NearbyReport.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid corridor width"
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Route with specified ID not found"
+        )
+    })
+    public ResponseEntity<List<NearbyReport>> getReportsAlongRoute(
+        @Parameter(description = "Unique identifier of the transit route", example = "160013")
+        @PathVariable String routeId,
+        @Parameter(description = "Corridor half-width in meters (up to 2000)", example = "150")
+        @RequestParam(defaultValue = "150") double widthMeters
+    ) {
+        if (!(widthMeters > 0) || widthMeters > 2000) {
+            return ResponseEntity.badRequest().build();
+        }
+        return reportSpatialIndex.findAlongRoute(routeId, widthMeters)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Retrieves the live impact of all active reports.
+     *
+     * @return ResponseEntity containing the impacts ordered by report id
+     */
+    @GetMapping("/impacts")
+    @Operation(
+        summary = "Get live impact of active reports",
+        description = "Retrieves, for every active incident report, the vehicles currently near it, the trips " +
+                     "that passed it while it was active and per-route delay comparisons flagging delay spikes. " +
+                     "Computed on every realtime feed refresh."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved report impacts",
+            content = @Content(schema = @Schema(implementation = ReportImpact.class))
+        )
+    })
+    public ResponseEntity<List<ReportImpact>> getImpacts() {
+        return ResponseEntity.ok(incidentImpactService.findAll());
+    }
+
+    /**
+     * Retrieves the live impact of one active report.
+     *
+     * @param id The unique identifier of the report
+     * @return ResponseEntity containing the report's impact
+     */
+    @GetMapping("/{id}/impact")
+    @Operation(
+        summary = "Get live impact of a report",
+        description = "Retrieves the vehicles, trips and routes affected by an active incident report, " +
+                     "as correlated with the latest realtime feed."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved the report's impact",
+            content = @Content(schema = @Schema(implementation = ReportImpact.class))
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Report not found, no longer active, or not correlated with a realtime feed yet"
+        )
+    })
+    public ResponseEntity<ReportImpact> getImpact(
+        @Parameter(description = "Unique identifier of the report", example = "1")
+        @PathVariable Long id
+    ) {
+        return incidentImpactService.find(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
 }
@@ -12,6 +12,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import pl.drunkcom.core.model.gtfs.Route;
 import pl.drunkcom.core.service.RouteService;
+import pl.drunkcom.core.service.analytics.DayType;
+import pl.drunkcom.core.service.analytics.SegmentRunTime;
+import pl.drunkcom.core.service.analytics.SegmentRunTimeService;
 
 import java.util.List;
 
@@ -50,6 +53,9 @@ public class RouteController extends BaseGtfsController<Route, String, RouteServ
     @Autowired
     private RouteService routeService;
 
+    @Autowired
+    private SegmentRunTimeService segmentRunTimeService;
+
     /**
      * Retrieves all routes operated by a specific agency.
      * Returns routes filtered by agency for organizational purposes.
@@ -121,4 +127,45 @@ public class RouteController extends BaseGtfsController<Route, String, RouteServ
         // Implementation would go here - for now returning empty list
         return ResponseEntity.ok(List.of());
     }
+
+    /**
+     * Compares observed and scheduled stop-to-stop run times of a route in one time-of-day bucket.
+     *
+     * @param routeId The GTFS route identifier
+     * @param dayType Day type: WEEKDAY, SATURDAY or SUNDAY
+     * @param hour Local hour of day in which the segments were entered
+     * @return List of observed segments with their scheduled run time
+     */
+    @GetMapping("/{routeId}/run-times")
+    @Operation(
+        summary = "Get observed against scheduled run times of a route",
+        description = "Returns, for every segment between two consecutive stops of each route pattern, the number " +
+                     "of observed runs and their mean, p50 and p90 duration in seconds, together with the median " +
+                     "scheduled run time. Observations come from the position history of the last weeks plus " +
+                     "today's live feed. Segments never observed in the bucket are left out."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully computed run times",
+            content = @Content(schema = @Schema(implementation = SegmentRunTime.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Hour outside 0-23"
+        )
+    })
+    public ResponseEntity<List<SegmentRunTime>> getRunTimes(
+        @Parameter(description = "GTFS route identifier", example = "160013", required = true)
+        @PathVariable String routeId,
+        @Parameter(description = "Day type: WEEKDAY, SATURDAY or SUNDAY", example = "WEEKDAY")
+        @RequestParam(defaultValue = "WEEKDAY") DayType dayType,
+        @Parameter(description = "Local hour of day, 0-23", example = "8", required = true)
+        @RequestParam int hour
+    ) {
+        if (hour < 0 || hour > 23) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(segmentRunTimeService.compareWithSchedule(routeId, dayType, hour));
+    }
 }
@@ -1,9 +1,23 @@
 package pl.drunkcom.core.rest;
 
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import pl.drunkcom.core.model.gtfs.Shape;
 import pl.drunkcom.core.service.ShapeService;
+import pl.drunkcom.core.service.dataset.StaticDatasetVersion;
+import pl.drunkcom.core.service.geo.ShapeGeometry;
+import pl.drunkcom.core.service.geo.ShapeGeometryService;
+import pl.drunkcom.core.service.geo.ShapePolylineService;
 
 /**
  * REST API controller for managing GTFS shapes.
@@ -24,6 +38,11 @@ import pl.drunkcom.core.service.ShapeService;
  *   <li>GET /api/gtfs/shapes/count - Get total shape count</li>
  * </ul>
  *
+ * <p>The points of a shape are served separately by {@code GET /api/gtfs/shapes/{id}/geometry},
+ * read from the packed geometry column and cached in memory. For map display,
+ * {@code GET /api/gtfs/shapes/{id}/polyline} serves the shape simplified for a zoom level
+ * as an encoded polyline.
+ *
  * @author Development Team
  * @version 1.0
  * @since 1.0
@@ -35,5 +54,115 @@ import pl.drunkcom.core.service.ShapeService;
 @RequestMapping("/api/gtfs/shapes")
 @CrossOrigin
 @Tag(name = "Shapes", description = "GTFS Shapes management API. Handles geographic paths and route geometries that define the actual travel paths of vehicles.")
-public class ShapeController extends BaseGtfsController<Shape, Long, ShapeService> {
+public class ShapeController extends BaseGtfsController<Shape, String, ShapeService> {
+
+    @Autowired
+    private ShapeGeometryService shapeGeometryService;
+
+    @Autowired
+    private ShapePolylineService shapePolylineService;
+
+    @Autowired
+    private StaticDatasetVersion datasetVersion;
+
+    /**
+     * Retrieves the ordered points of a shape.
+     *
+     * @param id The GTFS shape identifier
+     * @return The shape geometry, or 404 if the shape does not exist or has no points
+     */
+    @GetMapping("/{id}/geometry")
+    @Operation(
+        summary = "Get shape geometry",
+        description = "Returns the points of a shape in travel order as [latitude, longitude] pairs together with " +
+                     "the total length of the shape. Geometry is read from a single packed row and cached in memory, " +
+                     "so repeated requests do not touch the database."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved the shape geometry",
+            content = @Content(schema = @Schema(implementation = ShapeGeometryResult.class))
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Shape with specified ID not found or has no points"
+        )
+    })
+    public ResponseEntity<ShapeGeometryResult> getGeometry(
+        @Parameter(description = "GTFS shape identifier", example = "shape_001", required = true)
+        @PathVariable String id
+    ) {
+        return shapeGeometryService.find(id)
+                .map(ShapeController::toResult)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Retrieves a shape simplified for a zoom level as a Google encoded polyline.
+     *
+     * @param id The GTFS shape identifier
+     * @param zoom The map zoom level the shape is drawn at
+     * @param version Static dataset version the client expects, enables long-term caching
+     * @return The encoded polyline, 400 for an invalid zoom level, or 404 if the shape does not exist
+     */
+    @GetMapping("/{id}/polyline")
+    @Operation(
+        summary = "Get simplified shape polyline",
+        description = "Returns the shape in Google encoded polyline format, simplified with Douglas-Peucker to about " +
+                     "half a pixel at the requested zoom level. Responses carry an ETag of the static dataset version; " +
+                     "when the request's 'v' parameter matches the current version the response is marked as immutable " +
+                     "and may be cached indefinitely."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved the polyline",
+            content = @Content(schema = @Schema(implementation = ShapePolylineResult.class))
+        ),
+        @ApiResponse(
+            responseCode = "304",
+            description = "Polyline did not change since the version in If-None-Match"
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Zoom level outside of 0-22"
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Shape with specified ID not found or has no points"
+        )
+    })
+    public ResponseEntity<ShapePolylineResult> getPolyline(
+        @Parameter(description = "GTFS shape identifier", example = "shape_001", required = true)
+        @PathVariable String id,
+        @Parameter(description = "Map zoom level (0-22)", example = "14")
+        @RequestParam(defaultValue = "14") int zoom,
+        @Parameter(description = "Static dataset version, as returned in datasetVersion", example = "m2f7k1xq-0")
+        @RequestParam(name = "v", required = false) String version
+    ) {
+        if (zoom < 0 || zoom > 22) {
+            return ResponseEntity.badRequest().build();
+        }
+        String currentVersion = datasetVersion.current();
+        boolean immutable = datasetVersion.isImmutable(version);
+        return shapePolylineService.find(id, zoom)
+                .map(polyline -> ResponseEntity.ok()
+                        .eTag(currentVersion + "-" + ShapePolylineService.band(zoom))
+                        .header(HttpHeaders.CACHE_CONTROL, immutable
+                                ? "public, max-age=31536000, immutable"
+                                : CacheControl.noCache().getHeaderValue())
+                        .body(new ShapePolylineResult(id, zoom, currentVersion, polyline.pointCount(),
+                                polyline.originalPointCount(), polyline.polyline())))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    private static ShapeGeometryResult toResult(ShapeGeometry geometry) {
+        double[][] coordinates = new double[geometry.size()][];
+        for (int i = 0; i < geometry.size(); i++) {
+            coordinates[i] = new double[]{geometry.latitudeAt(i), geometry.longitudeAt(i)};
+        }
+        return new ShapeGeometryResult(geometry.getShapeId(), geometry.size(), geometry.length(), coordinates);
+    }
 }
@@ -0,0 +1,28 @@
+package pl.drunkcom.core.rest;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Ordered geometry of a GTFS shape as returned by the shape geometry endpoint.
+ *
+ * @param shapeId GTFS shape identifier
+ * @param pointCount Number of points of the shape
+ * @param lengthMeters Total length of the shape in meters
+ * @param coordinates Points in travel order as [latitude, longitude] pairs
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Schema(description = "Ordered geometry of a GTFS shape")
+public record ShapeGeometryResult(
+    @Schema(description = "GTFS shape identifier", example = "shape_001")
+    String shapeId,
+    @Schema(description = "Number of points of the shape", example = "412")
+    int pointCount,
+    @Schema(description = "Total length of the shape in meters", example = "8423.5")
+    double lengthMeters,
+    @Schema(description = "Points in travel order as [latitude, longitude] pairs")
+    double[][] coordinates
+) {
+}
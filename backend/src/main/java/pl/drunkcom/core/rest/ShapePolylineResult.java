@@ -0,0 +1,34 @@
+package pl.drunkcom.core.rest;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Shape simplified for a zoom level, as returned by the shape polyline endpoint.
+ *
+ * @param shapeId GTFS shape identifier
+ * @param zoom Requested zoom level
+ * @param datasetVersion Static dataset version the polyline was built from
+ * @param pointCount Number of points kept after simplification
+ * @param originalPointCount Number of points of the full shape
+ * @param polyline Points in travel order in Google encoded polyline format
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Schema(description = "GTFS shape simplified for a zoom level")
+public record ShapePolylineResult(
+    @Schema(description = "GTFS shape identifier", example = "shape_001")
+    String shapeId,
+    @Schema(description = "Requested zoom level", example = "14")
+    int zoom,
+    @Schema(description = "Static dataset version the polyline was built from", example = "m2f7k1xq-0")
+    String datasetVersion,
+    @Schema(description = "Number of points kept after simplification", example = "87")
+    int pointCount,
+    @Schema(description = "Number of points of the full shape", example = "412")
+    int originalPointCount,
+    @Schema(description = "Points in travel order in Google encoded polyline format (precision 5)", example = "_p~iF~ps|U_ulLnnqC_mqNvxq`@")
+    String polyline
+) {
+}
@@ -12,6 +12,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import pl.drunkcom.core.model.gtfs.Stop;
 import pl.drunkcom.core.service.StopService;
+import pl.drunkcom.core.service.StopSummary;
+import pl.drunkcom.core.service.ViewportQueryService;
 
 import java.util.List;
 
@@ -50,6 +52,66 @@ public class StopController extends BaseGtfsController<Stop, String, StopService
     @Autowired
     private StopService stopService;
 
+    @Autowired
+    private ViewportQueryService viewportQueryService;
+
+    /**
+     * Finds stops inside a rectangular map viewport.
+     * Answered from the in-memory stop index, without querying the database.
+     *
+     * @param minLat Southern edge of the viewport
+     * @param minLon Western edge of the viewport
+     * @param maxLat Northern edge of the viewport
+     * @param maxLon Eastern edge of the viewport
+     * @param routeIds Only stops served by one of these routes
+     * @param routeTypes Only stops served by a route of one of these GTFS route types
+     * @param limit Maximum number of stops to return
+     * @return Stops in the viewport closest to its centre first, with the number of all matches
+     */
+    @GetMapping("/bbox")
+    @Operation(
+        summary = "Find stops in a viewport",
+        description = "Finds the stops inside a bounding box, optionally only those served by given routes or route types. " +
+                     "At most 'limit' stops are returned; when more match, the stops closest to the centre of the " +
+                     "viewport are kept (ties broken by stop ID), so results are deterministic. totalCount holds the " +
+                     "number of all matching stops."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved the stops",
+            content = @Content(schema = @Schema(implementation = FilteredResult.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid bounding box or limit"
+        )
+    })
+    public ResponseEntity<FilteredResult<StopSummary>> findStopsInViewport(
+        @Parameter(description = "Southern edge of the viewport", example = "50.04", required = true)
+        @RequestParam double minLat,
+        @Parameter(description = "Western edge of the viewport", example = "19.90", required = true)
+        @RequestParam double minLon,
+        @Parameter(description = "Northern edge of the viewport", example = "50.08", required = true)
+        @RequestParam double maxLat,
+        @Parameter(description = "Eastern edge of the viewport", example = "19.98", required = true)
+        @RequestParam double maxLon,
+        @Parameter(description = "Route IDs to filter by", example = "52")
+        @RequestParam(name = "routeId", required = false) List<String> routeIds,
+        @Parameter(description = "GTFS route types to filter by (0 tram, 3 bus)", example = "0")
+        @RequestParam(name = "routeType", required = false) List<Integer> routeTypes,
+        @Parameter(description = "Maximum number of stops to return", example = "500")
+        @RequestParam(defaultValue = "500") int limit
+    ) {
+        ViewportQueryService.Viewport viewport = new ViewportQueryService.Viewport(minLat, minLon, maxLat, maxLon);
+        if (!viewport.isValid() || limit < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        ViewportQueryService.ViewportResult<StopSummary> stops = viewportQueryService.findStops(viewport,
+                routeIds != null ? routeIds : List.of(), routeTypes != null ? routeTypes : List.of(), limit);
+        return ResponseEntity.ok(new FilteredResult<>(stops.results(), (long) stops.totalCount()));
+    }
+
     /**
      * Finds stops within a specified radius of given coordinates.
      * Essential for mobile apps and location-based services.
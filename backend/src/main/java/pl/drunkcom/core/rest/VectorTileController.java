@@ -0,0 +1,135 @@
+package pl.drunkcom.core.rest;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import pl.drunkcom.core.service.dataset.StaticDatasetVersion;
+import pl.drunkcom.core.service.tiles.StaticTile;
+import pl.drunkcom.core.service.tiles.TileBounds;
+import pl.drunkcom.core.service.tiles.VectorTileService;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * REST API controller serving map data as Mapbox Vector Tiles.
+ *
+ * <p>Every tile contains a {@code shapes} layer with the route geometries and, from zoom 13 on,
+ * a {@code stops} layer. With {@code live=true} a {@code vehicles} layer with the positions of the
+ * latest realtime snapshot is added. Tiles are rendered from in-memory indexes and cached, so map
+ * clients can load just the visible area instead of the full stop and shape lists.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ * @see VectorTileService
+ * @see <a href="https://github.com/mapbox/vector-tile-spec">Mapbox Vector Tile Specification</a>
+ */
+@RestController
+@RequestMapping("/tiles")
+@CrossOrigin
+@Tag(name = "Map Tiles", description = "Mapbox Vector Tiles with stops, route shapes and live vehicle positions.")
+public class VectorTileController {
+
+    private static final Logger log = LoggerFactory.getLogger(VectorTileController.class);
+
+    private static final MediaType MVT = MediaType.parseMediaType("application/vnd.mapbox-vector-tile");
+
+    @Autowired
+    private VectorTileService vectorTileService;
+
+    @Autowired
+    private StaticDatasetVersion datasetVersion;
+
+    /**
+     * Renders one vector tile.
+     *
+     * @param z Zoom level
+     * @param x Tile column
+     * @param y Tile row
+     * @param live Whether to add the live vehicle layer
+     * @param version Static dataset version the client expects, enables long-term caching of static tiles
+     * @return The encoded tile, or 400 for tile coordinates that do not exist
+     */
+    @GetMapping("/{z}/{x}/{y}.mvt")
+    @Operation(
+        summary = "Get vector tile",
+        description = "Returns a Mapbox Vector Tile (protobuf) with the 'shapes' layer (route geometries simplified for " +
+                     "the zoom level), the 'stops' layer from zoom 13 on and, with live=true, the 'vehicles' layer of the " +
+                     "latest realtime snapshot. Static tiles carry an ETag of the dataset version they were rendered from " +
+                     "and are immutable when that is the current version and requested in 'v'; live tiles change with " +
+                     "every snapshot."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully rendered the tile (may be empty)"
+        ),
+        @ApiResponse(
+            responseCode = "304",
+            description = "Tile did not change since the version in If-None-Match"
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Tile coordinates do not exist at the given zoom level"
+        ),
+        @ApiResponse(
+            responseCode = "500",
+            description = "Internal server error while rendering the tile"
+        )
+    })
+    public ResponseEntity<byte[]> getTile(
+        @Parameter(description = "Zoom level (0-22)", example = "14", required = true)
+        @PathVariable int z,
+        @Parameter(description = "Tile column", example = "9099", required = true)
+        @PathVariable int x,
+        @Parameter(description = "Tile row", example = "5556", required = true)
+        @PathVariable int y,
+        @Parameter(description = "Include the live vehicle layer", example = "false")
+        @RequestParam(defaultValue = "false") boolean live,
+        @Parameter(description = "Static dataset version", example = "m2f7k1xq-0")
+        @RequestParam(name = "v", required = false) String version
+    ) {
+        if (!TileBounds.isValid(z, x, y)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            TileBounds bounds = new TileBounds(z, x, y);
+            // the geo index may still hold the previous dataset while it is rebuilt, so tag by what was rendered
+            StaticTile tile = vectorTileService.staticTile(bounds);
+            boolean immutable = datasetVersion.isImmutable(version) && tile.version().equals(version);
+            if (!live) {
+                return ResponseEntity.ok()
+                        .contentType(MVT)
+                        .eTag(tile.version())
+                        .header(HttpHeaders.CACHE_CONTROL, immutable
+                                ? "public, max-age=31536000, immutable"
+                                : CacheControl.noCache().getHeaderValue())
+                        .body(tile.data());
+            }
+
+            long sequence = vectorTileService.liveSequence();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            body.writeBytes(tile.data());
+            body.writeBytes(vectorTileService.liveTile(bounds));
+            return ResponseEntity.ok()
+                    .contentType(MVT)
+                    .eTag(tile.version() + "-" + sequence)
+                    .cacheControl(CacheControl.noCache())
+                    .body(body.toByteArray());
+        } catch (Exception e) {
+            log.error("Failed to render tile {}/{}/{}", z, x, y, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
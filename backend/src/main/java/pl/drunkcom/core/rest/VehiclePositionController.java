@@ -10,16 +10,59 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import pl.drunkcom.core.service.GtfsRealTimeService;
 import pl.drunkcom.core.service.SimpleVehiclePosition;
 import pl.drunkcom.core.service.SimpleTripUpdate;
 import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.ViewportQueryService;
+import pl.drunkcom.core.service.analytics.DelayAnomaly;
+import pl.drunkcom.core.service.analytics.DelayAnomalyDetector;
+import pl.drunkcom.core.service.analytics.DelayPercentileService;
+import pl.drunkcom.core.service.analytics.DelaySummary;
+import pl.drunkcom.core.service.analytics.DelayWindow;
+import pl.drunkcom.core.service.analytics.HeadwayService;
+import pl.drunkcom.core.service.analytics.HeadwaySummary;
+import pl.drunkcom.core.service.analytics.OnTimePerformanceService;
+import pl.drunkcom.core.service.analytics.OtpReport;
+import pl.drunkcom.core.service.analytics.OtpRouteSummary;
+import pl.drunkcom.core.service.analytics.RouteHeadways;
+import pl.drunkcom.core.service.eta.EtaService;
+import pl.drunkcom.core.service.eta.StopArrival;
+import pl.drunkcom.core.service.eta.TripEta;
+import pl.drunkcom.core.service.history.HistorySinkStats;
+import pl.drunkcom.core.service.history.PositionHistorySink;
+import pl.drunkcom.core.service.history.TrajectoryStore;
+import pl.drunkcom.core.service.history.VehicleStateAt;
+import pl.drunkcom.core.service.history.VehicleTrajectory;
+import pl.drunkcom.core.service.push.PushChannel;
+import pl.drunkcom.core.service.realtime.InterpolatedVehiclePosition;
+import pl.drunkcom.core.service.realtime.MapMatchingService;
+import pl.drunkcom.core.service.realtime.PollingCadence;
+import pl.drunkcom.core.service.realtime.PollingStats;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.pipeline.FeedPipeline;
+import pl.drunkcom.core.service.pipeline.PipelineStats;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshotStore;
+import pl.drunkcom.core.service.realtime.ValidationStats;
+import pl.drunkcom.core.service.realtime.VehicleInterpolationService;
+import pl.drunkcom.core.service.realtime.VehicleProgress;
+import pl.drunkcom.core.service.realtime.VehicleStateValidator;
 
 import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
@@ -57,6 +100,51 @@ public class VehiclePositionController {
     @Autowired
     private GtfsRealTimeService gtfsRealTimeService;
 
+    @Autowired
+    private RealtimeSnapshotStore snapshotStore;
+
+    @Autowired
+    private VehicleInterpolationService interpolationService;
+
+    @Autowired
+    private MapMatchingService mapMatchingService;
+
+    @Autowired
+    private ViewportQueryService viewportQueryService;
+
+    @Autowired
+    private DelayPercentileService delayPercentileService;
+
+    @Autowired
+    private HeadwayService headwayService;
+
+    @Autowired
+    private DelayAnomalyDetector delayAnomalyDetector;
+
+    @Autowired
+    private PushChannel pushChannel;
+
+    @Autowired
+    private PositionHistorySink positionHistorySink;
+
+    @Autowired
+    private TrajectoryStore trajectoryStore;
+
+    @Autowired
+    private EtaService etaService;
+
+    @Autowired
+    private OnTimePerformanceService onTimePerformanceService;
+
+    @Autowired
+    private VehicleStateValidator vehicleStateValidator;
+
+    @Autowired
+    private FeedPipeline feedPipeline;
+
+    @Autowired
+    private PollingCadence pollingCadence;
+
     /**
      * Retrieves current positions of all active vehicles in the transit system.
      * Returns real-time location data including coordinates, vehicle IDs, and trip information.
@@ -516,12 +604,20 @@ public class VehiclePositionController {
                 return ResponseEntity.badRequest().build();
             }
 
-            List<VehicleCurrentState> allStates = gtfsRealTimeService.fetchVehicleCurrentState();
-            List<VehicleCurrentState> nearbyStates = gtfsRealTimeService.filterVehiclesByRadius(
-                allStates, latitude, longitude, radiusKm);
+            Optional<RealtimeSnapshot> snapshot = snapshotStore.current();
+            List<VehicleCurrentState> nearbyStates;
+            int total;
+            if (snapshot.isPresent()) {
+                nearbyStates = snapshot.get().withinRadius(latitude, longitude, radiusKm * 1000.0);
+                total = snapshot.get().size();
+            } else {
+                List<VehicleCurrentState> allStates = gtfsRealTimeService.fetchVehicleCurrentState();
+                nearbyStates = gtfsRealTimeService.filterVehiclesByRadius(allStates, latitude, longitude, radiusKm);
+                total = allStates.size();
+            }
 
             log.info("Found {} nearby vehicles out of {} total within {}km radius",
-                    nearbyStates.size(), allStates.size(), radiusKm);
+                    nearbyStates.size(), total, radiusKm);
             return ResponseEntity.ok(nearbyStates);
 
         } catch (IOException e) {
@@ -589,12 +685,8 @@ public class VehiclePositionController {
             }
 
             List<SimpleVehiclePosition> allPositions = gtfsRealTimeService.fetchVehiclePositions();
-            List<SimpleVehiclePosition> nearbyPositions = allPositions.stream()
-                .filter(position -> {
-                    double distance = calculateDistance(latitude, longitude, position.latitude(), position.longitude());
-                    return distance <= radiusKm;
-                })
-                .collect(Collectors.toList());
+            List<SimpleVehiclePosition> nearbyPositions = gtfsRealTimeService.filterPositionsByRadius(
+                allPositions, latitude, longitude, radiusKm);
 
             log.info("Found {} nearby vehicle positions out of {} total within {}km radius",
                     nearbyPositions.size(), allPositions.size(), radiusKm);
@@ -693,20 +785,728 @@ public class VehiclePositionController {
     }
 
     /**
-     * Helper method to calculate distance between two GPS coordinates using Haversine formula.
+     * Retrieves predicted positions of all vehicles at the requested moment.
+     * Positions are dead-reckoned along each trip's shape from the last two feed observations,
+     * so clients can animate markers smoothly without polling the feed every second.
+     *
+     * @param at Moment to predict for in epoch milliseconds (defaults to now)
+     * @return ResponseEntity containing list of interpolated vehicle positions
+     */
+    @GetMapping("/interpolated")
+    @Operation(
+        summary = "Get interpolated vehicle positions",
+        description = "Returns the predicted position of every tracked vehicle at the requested moment. " +
+                     "Positions are advanced along the trip's shape using the speed observed between the last two " +
+                     "feed refreshes and the trend of the reported delay. Predictions are capped at 45 seconds past " +
+                     "the last observation. Served from memory - no upstream request is made."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully computed interpolated positions",
+            content = @Content(schema = @Schema(implementation = InterpolatedVehiclePosition.class))
+        ),
+        @ApiResponse(
+            responseCode = "503",
+            description = "No realtime snapshot has been received yet"
+        )
+    })
+    public ResponseEntity<List<InterpolatedVehiclePosition>> getInterpolatedPositions(
+        @Parameter(description = "Moment to predict for, in epoch milliseconds. Defaults to the current time.", example = "1735689600000")
+        @RequestParam(required = false) Long at
+    ) {
+        if (snapshotStore.current().isEmpty()) {
+            log.warn("Interpolated positions requested before the first realtime snapshot");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        long atMillis = at != null ? at : System.currentTimeMillis();
+        return ResponseEntity.ok(interpolationService.interpolateAll(atMillis));
+    }
+
+    /**
+     * Retrieves the progress of every vehicle along its trip's shape.
+     * Each vehicle is snapped onto its shape and placed between the two scheduled stops it is travelling between.
+     *
+     * @param routeId Optional route filter
+     * @return ResponseEntity containing list of matched vehicle progress entries
+     */
+    @GetMapping("/progress")
+    @Operation(
+        summary = "Get vehicle progress along route shapes",
+        description = "Returns every vehicle of the latest realtime snapshot snapped onto the shape of its trip, " +
+                     "with the distance travelled along the shape, the distance from the shape and the current stop segment " +
+                     "(previous and next scheduled stop). Vehicles whose trip has no known shape are omitted. " +
+                     "Served from memory - no upstream request is made."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved vehicle progress",
+            content = @Content(schema = @Schema(implementation = VehicleProgress.class))
+        ),
+        @ApiResponse(
+            responseCode = "503",
+            description = "No realtime snapshot has been received yet"
+        )
+    })
+    public ResponseEntity<List<VehicleProgress>> getVehicleProgress(
+        @Parameter(description = "Only return vehicles on this route", example = "160013")
+        @RequestParam(required = false) String routeId
+    ) {
+        if (snapshotStore.current().isEmpty()) {
+            log.warn("Vehicle progress requested before the first realtime snapshot");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        List<VehicleProgress> progress = mapMatchingService.findAll().stream()
+                .filter(entry -> routeId == null || routeId.equals(entry.routeId()))
+                .sorted(Comparator.comparing(VehicleProgress::vehicleId))
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(progress);
+    }
+
+    /**
+     * Finds the vehicles of the latest realtime snapshot inside a rectangular map viewport.
+     *
+     * @param minLat Southern edge of the viewport
+     * @param minLon Western edge of the viewport
+     * @param maxLat Northern edge of the viewport
+     * @param maxLon Eastern edge of the viewport
+     * @param routeIds Only vehicles on one of these routes
+     * @param routeTypes Only vehicles on a route of one of these GTFS route types
+     * @param limit Maximum number of vehicles to return
+     * @return Vehicles in the viewport closest to its centre first, with the number of all matches
+     */
+    @GetMapping("/bbox")
+    @Operation(
+        summary = "Find vehicles in a viewport",
+        description = "Finds the vehicles of the latest realtime snapshot inside a bounding box, optionally only those " +
+                     "on given routes or route types. Answered from an in-memory spatial index rebuilt per snapshot. " +
+                     "At most 'limit' vehicles are returned; when more match, the vehicles closest to the centre of the " +
+                     "viewport are kept (ties broken by vehicle ID). totalCount holds the number of all matching vehicles."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved the vehicles",
+            content = @Content(schema = @Schema(implementation = FilteredResult.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid bounding box or limit"
+        ),
+        @ApiResponse(
+            responseCode = "503",
+            description = "No realtime snapshot has been received yet"
+        )
+    })
+    public ResponseEntity<FilteredResult<VehicleCurrentState>> getVehiclesInViewport(
+        @Parameter(description = "Southern edge of the viewport", example = "50.04", required = true)
+        @RequestParam double minLat,
+        @Parameter(description = "Western edge of the viewport", example = "19.90", required = true)
+        @RequestParam double minLon,
+        @Parameter(description = "Northern edge of the viewport", example = "50.08", required = true)
+        @RequestParam double maxLat,
+        @Parameter(description = "Eastern edge of the viewport", example = "19.98", required = true)
+        @RequestParam double maxLon,
+        @Parameter(description = "Route IDs to filter by", example = "52")
+        @RequestParam(name = "routeId", required = false) List<String> routeIds,
+        @Parameter(description = "GTFS route types to filter by (0 tram, 3 bus)", example = "0")
+        @RequestParam(name = "routeType", required = false) List<Integer> routeTypes,
+        @Parameter(description = "Maximum number of vehicles to return", example = "500")
+        @RequestParam(defaultValue = "500") int limit
+    ) {
+        ViewportQueryService.Viewport viewport = new ViewportQueryService.Viewport(minLat, minLon, maxLat, maxLon);
+        if (!viewport.isValid() || limit < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        return viewportQueryService.findVehicles(viewport, routeIds != null ? routeIds : List.of(),
+                        routeTypes != null ? routeTypes : List.of(), limit)
+                .map(vehicles -> ResponseEntity.ok(new FilteredResult<>(vehicles.results(), (long) vehicles.totalCount())))
+                .orElse(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+
+    /**
+     * Retrieves delay percentiles of every route over a look-back window.
+     *
+     * @param window Look-back window: 15m, 1h or 24h
+     * @return ResponseEntity containing one summary per route with samples in the window
+     */
+    @GetMapping("/delays/percentiles")
+    @Operation(
+        summary = "Get delay percentiles per route",
+        description = "Returns the number of samples, mean, p50, p90 and p99 delay in seconds of every route over " +
+                     "the last 15 minutes, hour or day. Aggregated incrementally from every realtime feed refresh, " +
+                     "each trip contributing at most one sample per minute. Percentiles are accurate to 5 seconds or 6%. " +
+                     "Served from memory - no upstream request is made."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully computed delay percentiles",
+            content = @Content(schema = @Schema(implementation = DelaySummary.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Unknown window"
+        )
+    })
+    public ResponseEntity<List<DelaySummary>> getDelayPercentiles(
+        @Parameter(description = "Look-back window: 15m, 1h or 24h", example = "1h")
+        @RequestParam(defaultValue = "1h") String window
+    ) {
+        return DelayWindow.fromLabel(window)
+                .map(w -> ResponseEntity.ok(delayPercentileService.summarizeRoutes(w)))
+                .orElse(ResponseEntity.badRequest().build());
+    }
+
+    /**
+     * Retrieves delay percentiles of one route over a look-back window.
+     *
+     * @param routeId Route identifier
+     * @param window Look-back window: 15m, 1h or 24h
+     * @return ResponseEntity containing the route's delay summary
+     */
+    @GetMapping("/delays/percentiles/route/{routeId}")
+    @Operation(
+        summary = "Get delay percentiles of a route",
+        description = "Returns the number of samples, mean, p50, p90 and p99 delay in seconds of one route over " +
+                     "the last 15 minutes, hour or day."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully computed delay percentiles",
+            content = @Content(schema = @Schema(implementation = DelaySummary.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Unknown window"
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "No delays were observed on the route in the last day"
+        )
+    })
+    public ResponseEntity<DelaySummary> getRouteDelayPercentiles(
+        @Parameter(description = "Route identifier", example = "160013")
+        @PathVariable String routeId,
+        @Parameter(description = "Look-back window: 15m, 1h or 24h", example = "1h")
+        @RequestParam(defaultValue = "1h") String window
+    ) {
+        Optional<DelayWindow> delayWindow = DelayWindow.fromLabel(window);
+        if (delayWindow.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return delayPercentileService.summarizeRoute(routeId, delayWindow.get())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Retrieves delay percentiles at one stop over a look-back window.
+     *
+     * @param stopId Stop identifier
+     * @param window Look-back window: 15m, 1h or 24h
+     * @return ResponseEntity containing the stop's delay summary
+     */
+    @GetMapping("/delays/percentiles/stop/{stopId}")
+    @Operation(
+        summary = "Get delay percentiles at a stop",
+        description = "Returns the number of samples, mean, p50, p90 and p99 delay in seconds of the vehicles " +
+                     "passing a stop over the last 15 minutes, hour or day. Each trip contributes one sample, " +
+                     "taken when map matching first places it past the stop."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully computed delay percentiles",
+            content = @Content(schema = @Schema(implementation = DelaySummary.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Unknown window"
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "No vehicles were observed passing the stop in the last day"
+        )
+    })
+    public ResponseEntity<DelaySummary> getStopDelayPercentiles(
+        @Parameter(description = "Stop identifier", example = "stop_1_1")
+        @PathVariable String stopId,
+        @Parameter(description = "Look-back window: 15m, 1h or 24h", example = "1h")
+        @RequestParam(defaultValue = "1h") String window
+    ) {
+        Optional<DelayWindow> delayWindow = DelayWindow.fromLabel(window);
+        if (delayWindow.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return delayPercentileService.summarizeStop(stopId, delayWindow.get())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Retrieves live headways and bunching of the vehicles on each route, direction and shape.
+     *
+     * @param routeId Optional route filter
+     * @return ResponseEntity containing the headways of the latest realtime snapshot
+     */
+    @GetMapping("/headways")
+    @Operation(
+        summary = "Get live headways and bunching",
+        description = "Returns the vehicles of every route, direction and shape ordered by progress along the shape, " +
+                     "with the distance to the vehicle ahead and the live time headway - the time since the vehicle " +
+                     "ahead passed the same point. Each vehicle is flagged BUNCHED, GAP or NORMAL against the " +
+                     "scheduled headway of the route around the current time, or UNKNOWN if either is missing. " +
+                     "Updated on every realtime feed refresh."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved headways",
+            content = @Content(schema = @Schema(implementation = RouteHeadways.class))
+        )
+    })
+    public ResponseEntity<List<RouteHeadways>> getHeadways(
+        @Parameter(description = "Route identifier to filter by", example = "1")
+        @RequestParam(required = false) String routeId
+    ) {
+        return ResponseEntity.ok(headwayService.findAll(routeId));
+    }
+
+    /**
+     * Retrieves network-wide headway counters of the latest realtime snapshot.
+     *
+     * @return ResponseEntity containing the headway summary
+     */
+    @GetMapping("/headways/summary")
+    @Operation(
+        summary = "Get headway summary",
+        description = "Returns how many vehicles currently run bunched, with a large gap or without a known headway, " +
+                     "counted over the latest realtime snapshot."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved headway summary",
+            content = @Content(schema = @Schema(implementation = HeadwaySummary.class))
+        )
+    })
+    public ResponseEntity<HeadwaySummary> getHeadwaySummary() {
+        return ResponseEntity.ok(headwayService.getSummary());
+    }
+
+    /**
+     * Retrieves recently detected delay anomalies.
+     *
+     * @param routeId Optional route filter
+     * @param minutes Look-back in minutes
+     * @return ResponseEntity containing the anomalies, newest first
+     */
+    @GetMapping("/anomalies")
+    @Operation(
+        summary = "Get recent delay anomalies",
+        description = "Returns delay spikes detected online from the realtime feed, newest first. A ROUTE anomaly is a " +
+                     "trip running much later than the route usually does at this hour; a SEGMENT anomaly is a trip " +
+                     "that lost much more time between two stops than usual. Baselines are exponentially weighted " +
+                     "per route, segment and hour of day."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved anomalies",
+            content = @Content(schema = @Schema(implementation = DelayAnomaly.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Look-back outside 1-1440 minutes"
+        )
+    })
+    public ResponseEntity<List<DelayAnomaly>> getDelayAnomalies(
+        @Parameter(description = "Route identifier to filter by", example = "1")
+        @RequestParam(required = false) String routeId,
+        @Parameter(description = "Look-back in minutes", example = "60")
+        @RequestParam(defaultValue = "60") int minutes
+    ) {
+        if (minutes < 1 || minutes > 1440) {
+            return ResponseEntity.badRequest().build();
+        }
+        long since = System.currentTimeMillis() - minutes * 60_000L;
+        return ResponseEntity.ok(delayAnomalyDetector.findRecent(routeId, since));
+    }
+
+    /**
+     * Subscribes to delay anomalies as server-sent events.
+     *
+     * @return the event stream
+     */
+    @GetMapping(value = "/anomalies/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+        summary = "Stream delay anomalies",
+        description = "Server-sent events stream emitting a delay-anomaly event with the anomaly as JSON data as soon " +
+                     "as it is detected. The event id is the anomaly id."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Subscribed"
+        )
+    })
+    public SseEmitter streamDelayAnomalies() {
+        return pushChannel.subscribe();
+    }
+
+    /**
+     * Retrieves the counters of the position history sink.
+     *
+     * @return ResponseEntity containing queue depth, drop and write counters
+     */
+    @GetMapping("/history/stats")
+    @Operation(
+        summary = "Get position history sink statistics",
+        description = "Returns the state of the write-behind sink that appends every observed position and delay to " +
+                     "the history table: queued rows and capacity, high-water mark, rows dropped because the queue " +
+                     "was full, rows written and failed, and the size and duration of the last flush."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved statistics",
+            content = @Content(schema = @Schema(implementation = HistorySinkStats.class))
+        )
+    })
+    public ResponseEntity<HistorySinkStats> getHistoryStats() {
+        return ResponseEntity.ok(positionHistorySink.getStats());
+    }
+
+    /**
+     * Retrieves the trail of one vehicle over a time range.
+     *
+     * @param vehicleId Vehicle identifier
+     * @param from Start of the range, defaults to one hour before {@code to}
+     * @param to End of the range, defaults to now
+     * @return ResponseEntity containing the trajectory in columnar form
      */
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int EARTH_RADIUS_KM = 6371;
+    @GetMapping("/{vehicleId}/trajectory")
+    @Operation(
+        summary = "Get vehicle trajectory",
+        description = "Returns every observed position of a vehicle between two instants as parallel arrays of " +
+                     "times (epoch seconds), latitudes, longitudes and delays, plus the trips served along the way. " +
+                     "Served from a compact in-memory store covering the configured retention window " +
+                     "(24 hours by default); ranges of up to 48 hours are accepted."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved trajectory",
+            content = @Content(schema = @Schema(implementation = VehicleTrajectory.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Range is empty or longer than 48 hours"
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "No positions of the vehicle are stored"
+        )
+    })
+    public ResponseEntity<VehicleTrajectory> getTrajectory(
+        @Parameter(description = "Vehicle identifier", example = "1234")
+        @PathVariable String vehicleId,
+        @Parameter(description = "Start of the range, ISO-8601", example = "2024-05-06T06:00:00Z")
+        @RequestParam(required = false) Instant from,
+        @Parameter(description = "End of the range, ISO-8601", example = "2024-05-06T07:00:00Z")
+        @RequestParam(required = false) Instant to
+    ) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(Duration.ofHours(1));
+        if (start.isAfter(end) || Duration.between(start, end).compareTo(Duration.ofHours(48)) > 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return trajectoryStore.trajectory(vehicleId, start.getEpochSecond(), end.getEpochSecond())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
 
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
+    /**
+     * Reconstructs the positions of all vehicles at a past instant.
+     *
+     * @param ts The instant
+     * @param maxAgeSeconds Leave out vehicles not seen within this many seconds before the instant
+     * @return ResponseEntity containing one state per vehicle
+     */
+    @GetMapping("/state-at")
+    @Operation(
+        summary = "Get fleet state at a past instant",
+        description = "Returns, for every vehicle, its last observed position, delay and trip at or before the given " +
+                     "instant. Vehicles not seen within maxAgeSeconds before it are left out. Served from the " +
+                     "in-memory trajectory store, so instants within the retention window answer in milliseconds."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully reconstructed fleet state",
+            content = @Content(schema = @Schema(implementation = VehicleStateAt.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "maxAgeSeconds outside 1-3600"
+        )
+    })
+    public ResponseEntity<List<VehicleStateAt>> getStateAt(
+        @Parameter(description = "Instant, ISO-8601", example = "2024-05-06T06:30:00Z", required = true)
+        @RequestParam Instant ts,
+        @Parameter(description = "Maximum age of the last observation in seconds", example = "300")
+        @RequestParam(defaultValue = "300") long maxAgeSeconds
+    ) {
+        if (maxAgeSeconds < 1 || maxAgeSeconds > 3600) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(trajectoryStore.stateAt(ts.getEpochSecond(), maxAgeSeconds));
+    }
 
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+    /**
+     * Retrieves the predicted arrivals of a running trip at its remaining stops.
+     *
+     * @param tripId GTFS trip identifier
+     * @return ResponseEntity containing the trip's predictions
+     */
+    @GetMapping("/eta/trip/{tripId}")
+    @Operation(
+        summary = "Get predicted arrivals of a trip",
+        description = "Returns, for every stop the trip has not passed yet, the predicted arrival with an 80% " +
+                     "prediction interval and the scheduled arrival, all in epoch seconds. Predictions start from the " +
+                     "vehicle's matched position and add up observed run times of the segments ahead, falling back " +
+                     "to the timetable where a segment has too little history."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved predictions",
+            content = @Content(schema = @Schema(implementation = TripEta.class))
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "The trip is not running or its geometry is not loaded yet"
+        )
+    })
+    public ResponseEntity<TripEta> getTripEta(
+        @Parameter(description = "GTFS trip identifier", example = "block_1_trip_1_service_1")
+        @PathVariable String tripId
+    ) {
+        return etaService.findTrip(tripId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
 
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    /**
+     * Retrieves the next predicted arrivals at a stop.
+     *
+     * @param stopId GTFS stop identifier
+     * @param limit Maximum number of arrivals
+     * @return ResponseEntity containing arrivals ordered by predicted time
+     */
+    @GetMapping("/eta/stop/{stopId}")
+    @Operation(
+        summary = "Get predicted arrivals at a stop",
+        description = "Returns the next arrivals of running trips at a stop, ordered by predicted time, each with " +
+                     "its 80% prediction interval. Only trips with a vehicle in the feed are included."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved arrivals",
+            content = @Content(schema = @Schema(implementation = StopArrival.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "limit outside 1-100"
+        )
+    })
+    public ResponseEntity<List<StopArrival>> getStopEta(
+        @Parameter(description = "GTFS stop identifier", example = "stop_1_12345")
+        @PathVariable String stopId,
+        @Parameter(description = "Maximum number of arrivals", example = "10")
+        @RequestParam(defaultValue = "10") int limit
+    ) {
+        if (limit < 1 || limit > 100) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(etaService.findStop(stopId, Instant.now().getEpochSecond(), limit));
+    }
+
+    /**
+     * Retrieves the outcome of the latest feed validation cycle.
+     *
+     * @return ResponseEntity containing counters and the flagged or dropped reports
+     */
+    @GetMapping("/validation")
+    @Operation(
+        summary = "Get feed validation results",
+        description = "Returns how many vehicle reports of the latest feed refresh were dropped as invalid, as " +
+                     "implausible jumps or as ghosts whose report is no longer refreshed, how many were flagged as " +
+                     "frozen in place, and the affected vehicles."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved validation results",
+            content = @Content(schema = @Schema(implementation = ValidationStats.class))
+        )
+    })
+    public ResponseEntity<ValidationStats> getValidationStats() {
+        return ResponseEntity.ok(vehicleStateValidator.getStats());
+    }
+
+    /**
+     * Retrieves timings and counters of the realtime ingestion pipeline.
+     *
+     * @return ResponseEntity containing per-stage metrics
+     */
+    @GetMapping("/pipeline")
+    @Operation(
+        summary = "Get ingestion pipeline metrics",
+        description = "Returns, for the whole feed refresh cycle and for each stage (fetch, decode, join, validate, enrich, " +
+                     "index, publish, analytics, persist and any added stage), the number of runs and failures, " +
+                     "duration percentiles in microseconds and the number of items handed to and from the stage in " +
+                     "its latest run. Each snapshot listener is also reported on its own; for the analytics listeners " +
+                     "the queue depth is the number of snapshots waiting ahead of the latest one."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved pipeline metrics",
+            content = @Content(schema = @Schema(implementation = PipelineStats.class))
+        )
+    })
+    public ResponseEntity<PipelineStats> getPipelineStats() {
+        return ResponseEntity.ok(feedPipeline.getStats());
+    }
+
+    /**
+     * Retrieves the fetch counters and learned cadence of the realtime feed poller.
+     *
+     * @return ResponseEntity containing the polling statistics
+     */
+    @GetMapping("/polling")
+    @Operation(
+        summary = "Get feed polling cadence",
+        description = "Returns how many feed fetches found a new version, were unchanged or failed, the publishing " +
+                     "period and availability lag learned from the feed header timestamps, the delay scheduled " +
+                     "after the latest fetch and how old new versions were when fetched."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved polling statistics",
+            content = @Content(schema = @Schema(implementation = PollingStats.class))
+        )
+    })
+    public ResponseEntity<PollingStats> getPollingStats() {
+        return ResponseEntity.ok(pollingCadence.getStats());
+    }
+
+    /**
+     * Retrieves the on-time performance of every route over a date range.
+     *
+     * @param from First local date, inclusive
+     * @param to Last local date, inclusive
+     * @return ResponseEntity containing one summary per route
+     */
+    @GetMapping("/otp/routes")
+    @Operation(
+        summary = "Get on-time performance of all routes",
+        description = "Returns, per route, the number of stop departures that were on time (at most 1 min early " +
+                     "and 3 min late by default), late or early, the number of cancelled stop visits, the on-time " +
+                     "ratio and the mean delay between two local dates. Served from daily rollups, so ranges of up " +
+                     "to 92 days answer in milliseconds; the last minute may not be included yet."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved on-time performance",
+            content = @Content(schema = @Schema(implementation = OtpRouteSummary.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "to before from or range longer than 92 days"
+        ),
+        @ApiResponse(
+            responseCode = "503",
+            description = "Rollup tables unavailable"
+        )
+    })
+    public ResponseEntity<List<OtpRouteSummary>> getRouteOnTimePerformance(
+        @Parameter(description = "First local date, inclusive", example = "2024-05-01", required = true)
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @Parameter(description = "Last local date, inclusive", example = "2024-05-31", required = true)
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        if (!isValidReportRange(from, to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(onTimePerformanceService.summarizeRoutes(from, to));
+        } catch (SQLException e) {
+            log.error("Failed to read on-time rollups", e);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    /**
+     * Retrieves the on-time performance of a route, or one stop on it, per day and hour of day.
+     *
+     * @param routeId Route identifier
+     * @param stopId Optional stop identifier
+     * @param from First local date, inclusive
+     * @param to Last local date, inclusive
+     * @return ResponseEntity containing the report
+     */
+    @GetMapping("/otp/route/{routeId}")
+    @Operation(
+        summary = "Get on-time performance of a route",
+        description = "Returns the on-time, late, early and cancelled counts of a route, or of one stop on it, in " +
+                     "total, per local date and per hour of day between two local dates. Served from the rollup " +
+                     "tables, so ranges of up to 92 days answer in milliseconds."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved the report",
+            content = @Content(schema = @Schema(implementation = OtpReport.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "to before from or range longer than 92 days"
+        ),
+        @ApiResponse(
+            responseCode = "503",
+            description = "Rollup tables unavailable"
+        )
+    })
+    public ResponseEntity<OtpReport> getRouteOnTimeReport(
+        @Parameter(description = "Route identifier", example = "160013")
+        @PathVariable String routeId,
+        @Parameter(description = "Stop identifier, omit for the whole route", example = "stop_1_12345")
+        @RequestParam(required = false) String stopId,
+        @Parameter(description = "First local date, inclusive", example = "2024-05-01", required = true)
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @Parameter(description = "Last local date, inclusive", example = "2024-05-31", required = true)
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        if (!isValidReportRange(from, to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(onTimePerformanceService.report(routeId, stopId, from, to));
+        } catch (SQLException e) {
+            log.error("Failed to read on-time rollups of route {}", routeId, e);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
 
-        return EARTH_RADIUS_KM * c;
+    private static boolean isValidReportRange(LocalDate from, LocalDate to) {
+        return !to.isBefore(from) && ChronoUnit.DAYS.between(from, to) < 92;
     }
 }
@@ -1,11 +1,14 @@
 package pl.drunkcom.core.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.ResolvableType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import pl.drunkcom.core.service.dataset.GtfsDataChangedEvent;
 
 import java.util.List;
 import java.util.Optional;
@@ -15,12 +18,19 @@ public abstract class BaseGtfsService<T, ID, R extends JpaRepository<T, ID> & Jp
     @Autowired
     protected R repository;
 
+    @Autowired
+    protected ApplicationEventPublisher eventPublisher;
+
     public T save(T entity) {
-        return repository.save(entity);
+        T saved = repository.save(entity);
+        afterSave(List.of(saved));
+        return saved;
     }
 
     public List<T> saveAll(List<T> entities) {
-        return repository.saveAll(entities);
+        List<T> saved = repository.saveAll(entities);
+        afterSave(saved);
+        return saved;
     }
 
     public Optional<T> findById(ID id) {
@@ -62,17 +72,43 @@ public abstract class BaseGtfsService<T, ID, R extends JpaRepository<T, ID> & Jp
 
     public void deleteById(ID id) {
         repository.deleteById(id);
+        afterDelete();
     }
 
     public void delete(T entity) {
         repository.delete(entity);
+        afterDelete();
     }
 
     public void deleteAll() {
         repository.deleteAll();
+        afterDelete();
     }
 
     public void deleteAll(List<T> entities) {
         repository.deleteAll(entities);
+        afterDelete();
+    }
+
+    /**
+     * Called after entities were saved. By default the entities belong to the static GTFS dataset,
+     * so a {@link GtfsDataChangedEvent} is published to invalidate everything derived from it.
+     *
+     * @param saved the saved entities
+     */
+    protected void afterSave(List<T> saved) {
+        publishDataChanged();
+    }
+
+    /**
+     * Called after entities were deleted. Publishes a {@link GtfsDataChangedEvent} by default.
+     */
+    protected void afterDelete() {
+        publishDataChanged();
+    }
+
+    private void publishDataChanged() {
+        Class<?> entityType = ResolvableType.forClass(getClass()).as(BaseGtfsService.class).getGeneric(0).resolve();
+        eventPublisher.publishEvent(new GtfsDataChangedEvent(entityType));
     }
 }
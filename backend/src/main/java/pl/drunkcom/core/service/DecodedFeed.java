@@ -0,0 +1,21 @@
+package pl.drunkcom.core.service;
+
+import java.util.List;
+
+/**
+ * Entities decoded from one GTFS Real-Time feed message, together with the time the producer
+ * generated the message.
+ *
+ * @param headerTimestamp {@code FeedHeader.timestamp} in epoch seconds, 0 if the feed does not carry it
+ * @param entities the decoded entities, in feed order
+ * @param <T> type of the decoded entities
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record DecodedFeed<T>(
+    long headerTimestamp,
+    List<T> entities
+) {
+}
@@ -1,13 +1,19 @@
 package pl.drunkcom.core.service;
 
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
 import com.google.transit.realtime.GtfsRealtime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
+import pl.drunkcom.core.service.geo.DistanceKernel;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -19,35 +25,124 @@ public class GtfsRealTimeService {
     private static final String KRAKOW_VEHICLE_POSITIONS_URL = "https://gtfs.ztp.krakow.pl/VehiclePositions.pb";
     private static final String KRAKOW_TRIP_UPDATES_URL = "https://gtfs.ztp.krakow.pl/TripUpdates.pb";
 
+    /** Default time a fetched and parsed feed is reused for, absorbing bursts of requests. */
+    static final long DEFAULT_REUSE_WINDOW_MILLIS = 2_000L;
+
     private final RestTemplate restTemplate;
+    private final SingleFlight<List<SimpleVehiclePosition>> vehiclePositionsFlight;
+    private final SingleFlight<List<SimpleTripUpdate>> tripUpdatesFlight;
 
-    // Use constructor injection for dependencies - it's a best practice.
     public GtfsRealTimeService(RestTemplate restTemplate) {
+        this(restTemplate, DEFAULT_REUSE_WINDOW_MILLIS);
+    }
+
+    // Use constructor injection for dependencies - it's a best practice.
+    @Autowired
+    public GtfsRealTimeService(RestTemplate restTemplate,
+                               @Value("${realtime.fetch.reuse-window-ms:2000}") long reuseWindowMillis) {
         this.restTemplate = restTemplate;
+        this.vehiclePositionsFlight = new SingleFlight<>(reuseWindowMillis);
+        this.tripUpdatesFlight = new SingleFlight<>(reuseWindowMillis);
     }
 
     /**
      * Fetches and parses the live vehicle positions.
-     * @return A list of simplified vehicle position objects.
+     * Concurrent callers share one download and parse, whose result is also reused for
+     * {@code realtime.fetch.reuse-window-ms} after it completed.
+     * @return An unmodifiable list of simplified vehicle position objects.
      * @throws IOException if the binary data cannot be parsed.
      */
     public List<SimpleVehiclePosition> fetchVehiclePositions() throws IOException {
-        log.info("Fetching vehicle positions from: {}", KRAKOW_VEHICLE_POSITIONS_URL);
+        return vehiclePositionsFlight.get(() ->
+                Collections.unmodifiableList(decodeVehiclePositions(fetchVehiclePositionsFeed())));
+    }
+
+    /**
+     * Fetches and parses the live trip updates (delays and schedule changes).
+     * Concurrent callers share one download and parse, like {@link #fetchVehiclePositions()}.
+     * @return An unmodifiable list of simplified trip update objects.
+     * @throws IOException if the binary data cannot be parsed.
+     */
+    public List<SimpleTripUpdate> fetchTripUpdates() throws IOException {
+        return tripUpdatesFlight.get(() -> Collections.unmodifiableList(decodeTripUpdates(fetchTripUpdatesFeed())));
+    }
+
+    /**
+     * Fetches and combines vehicle positions with trip updates to create comprehensive current state data.
+     * @return A list of vehicle current state objects combining position and delay information.
+     * @throws IOException if the data cannot be fetched or parsed.
+     */
+    public List<VehicleCurrentState> fetchVehicleCurrentState() throws IOException {
+        log.info("Fetching comprehensive vehicle current state data");
+        return join(fetchVehiclePositions(), fetchTripUpdates());
+    }
 
-        // 1. Fetch the raw binary data from the URL.
+    /**
+     * Downloads the raw vehicle positions feed.
+     * @return The protobuf payload, empty if the response had no body.
+     */
+    public byte[] fetchVehiclePositionsFeed() {
+        log.info("Fetching vehicle positions from: {}", KRAKOW_VEHICLE_POSITIONS_URL);
         byte[] gtfsRtData = restTemplate.getForObject(KRAKOW_VEHICLE_POSITIONS_URL, byte[].class);
+        return gtfsRtData == null ? new byte[0] : gtfsRtData;
+    }
+
+    /**
+     * Downloads the raw trip updates feed.
+     * @return The protobuf payload, empty if the response had no body.
+     */
+    public byte[] fetchTripUpdatesFeed() {
+        log.info("Fetching trip updates from: {}", KRAKOW_TRIP_UPDATES_URL);
+        byte[] gtfsRtData = restTemplate.getForObject(KRAKOW_TRIP_UPDATES_URL, byte[].class);
+        return gtfsRtData == null ? new byte[0] : gtfsRtData;
+    }
+
+    /**
+     * Parses a vehicle positions feed.
+     * @param gtfsRtData The protobuf payload.
+     * @return A list of simplified vehicle position objects.
+     * @throws IOException if the binary data cannot be parsed.
+     */
+    public List<SimpleVehiclePosition> decodeVehiclePositions(byte[] gtfsRtData) throws IOException {
+        return decodeVehiclePositionsFeed(gtfsRtData).entities();
+    }
+
+    /**
+     * Reads only the header timestamp of a feed, skipping its entities.
+     * @param gtfsRtData The protobuf payload.
+     * @return The time the feed was generated in epoch seconds, 0 if the payload is empty or has none.
+     * @throws IOException if the binary data cannot be parsed.
+     */
+    public long decodeHeaderTimestamp(byte[] gtfsRtData) throws IOException {
+        if (gtfsRtData.length == 0) {
+            return 0;
+        }
+        CodedInputStream input = CodedInputStream.newInstance(gtfsRtData);
+        for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            if (WireFormat.getTagFieldNumber(tag) == GtfsRealtime.FeedMessage.HEADER_FIELD_NUMBER) {
+                return GtfsRealtime.FeedHeader.parseFrom(input.readBytes()).getTimestamp();
+            }
+            input.skipField(tag);
+        }
+        return 0;
+    }
 
-        if (gtfsRtData == null || gtfsRtData.length == 0) {
+    /**
+     * Parses a vehicle positions feed, keeping the time the feed was generated.
+     * @param gtfsRtData The protobuf payload.
+     * @return The simplified vehicle positions and the feed header timestamp.
+     * @throws IOException if the binary data cannot be parsed.
+     */
+    public DecodedFeed<SimpleVehiclePosition> decodeVehiclePositionsFeed(byte[] gtfsRtData) throws IOException {
+        if (gtfsRtData.length == 0) {
             log.warn("Failed to fetch data, response was empty.");
-            return List.of(); // Return an empty list to avoid nulls.
+            return new DecodedFeed<>(0, List.of()); // Return an empty list to avoid nulls.
         }
 
-        // 2. Parse the binary data using the GTFS-RT bindings library.
         GtfsRealtime.FeedMessage feedMessage = GtfsRealtime.FeedMessage.parseFrom(gtfsRtData);
 
         List<SimpleVehiclePosition> positions = new ArrayList<>();
 
-        // 3. Loop through the results and extract the useful information.
         for (GtfsRealtime.FeedEntity entity : feedMessage.getEntityList()) {
             // Check if this entity actually contains vehicle position information.
             if (entity.hasVehicle()) {
@@ -57,36 +152,33 @@ public class GtfsRealTimeService {
                 String tripId = vehicle.getTrip().getTripId();
                 float latitude = vehicle.getPosition().getLatitude();
                 float longitude = vehicle.getPosition().getLongitude();
+                long timestamp = vehicle.hasTimestamp() ? vehicle.getTimestamp() : feedMessage.getHeader().getTimestamp();
+                float bearing = vehicle.getPosition().hasBearing() ? vehicle.getPosition().getBearing() : Float.NaN;
+                float speed = vehicle.getPosition().hasSpeed() ? vehicle.getPosition().getSpeed() : Float.NaN;
 
-                positions.add(new SimpleVehiclePosition(vehicleId, tripId, latitude, longitude));
+                positions.add(new SimpleVehiclePosition(vehicleId, tripId, latitude, longitude, timestamp, bearing, speed));
             }
         }
         log.info("Successfully parsed {} vehicle positions.", positions.size());
-        return positions;
+        return new DecodedFeed<>(feedMessage.getHeader().getTimestamp(), positions);
     }
 
     /**
-     * Fetches and parses the live trip updates (delays and schedule changes).
+     * Parses a trip updates feed.
+     * @param gtfsRtData The protobuf payload.
      * @return A list of simplified trip update objects.
      * @throws IOException if the binary data cannot be parsed.
      */
-    public List<SimpleTripUpdate> fetchTripUpdates() throws IOException {
-        log.info("Fetching trip updates from: {}", KRAKOW_TRIP_UPDATES_URL);
-
-        // 1. Fetch the raw binary data from the URL.
-        byte[] gtfsRtData = restTemplate.getForObject(KRAKOW_TRIP_UPDATES_URL, byte[].class);
-
-        if (gtfsRtData == null || gtfsRtData.length == 0) {
+    public List<SimpleTripUpdate> decodeTripUpdates(byte[] gtfsRtData) throws IOException {
+        if (gtfsRtData.length == 0) {
             log.warn("Failed to fetch trip updates data, response was empty.");
             return List.of(); // Return an empty list to avoid nulls.
         }
 
-        // 2. Parse the binary data using the GTFS-RT bindings library.
         GtfsRealtime.FeedMessage feedMessage = GtfsRealtime.FeedMessage.parseFrom(gtfsRtData);
 
         List<SimpleTripUpdate> tripUpdates = new ArrayList<>();
 
-        // 3. Loop through the results and extract the useful information.
         for (GtfsRealtime.FeedEntity entity : feedMessage.getEntityList()) {
             // Check if this entity actually contains trip update information.
             if (entity.hasTripUpdate()) {
@@ -119,17 +211,12 @@ public class GtfsRealTimeService {
     }
 
     /**
-     * Fetches and combines vehicle positions with trip updates to create comprehensive current state data.
-     * @return A list of vehicle current state objects combining position and delay information.
-     * @throws IOException if the data cannot be fetched or parsed.
+     * Combines vehicle positions with the trip updates of their trips.
+     * @param positions Decoded vehicle positions.
+     * @param tripUpdates Decoded trip updates.
+     * @return The valid vehicle current states, in feed order.
      */
-    public List<VehicleCurrentState> fetchVehicleCurrentState() throws IOException {
-        log.info("Fetching comprehensive vehicle current state data");
-
-        // Fetch both position and trip update data
-        List<SimpleVehiclePosition> positions = fetchVehiclePositions();
-        List<SimpleTripUpdate> tripUpdates = fetchTripUpdates();
-
+    public List<VehicleCurrentState> join(List<SimpleVehiclePosition> positions, List<SimpleTripUpdate> tripUpdates) {
         // Create a map of trip updates indexed by trip ID for fast lookup
         Map<String, SimpleTripUpdate> tripUpdateMap = tripUpdates.stream()
                 .collect(Collectors.toMap(SimpleTripUpdate::tripId, update -> update, (existing, replacement) -> existing));
@@ -162,34 +249,21 @@ public class GtfsRealTimeService {
      */
     public List<VehicleCurrentState> filterVehiclesByRadius(List<VehicleCurrentState> vehicles,
                                                            double userLat, double userLon, double radiusKm) {
-        return vehicles.stream()
-                .filter(vehicle -> {
-                    double distance = calculateDistance(userLat, userLon, vehicle.latitude(), vehicle.longitude());
-                    return distance <= radiusKm;
-                })
-                .collect(Collectors.toList());
+        return DistanceKernel.filter(vehicles, VehicleCurrentState::latitude, VehicleCurrentState::longitude,
+                userLat, userLon, radiusKm * 1000.0);
     }
 
     /**
-     * Calculates the distance between two GPS coordinates using the Haversine formula.
-     * @param lat1 First latitude
-     * @param lon1 First longitude
-     * @param lat2 Second latitude
-     * @param lon2 Second longitude
-     * @return Distance in kilometers
+     * Filters vehicle positions within a specified radius from given coordinates.
+     * @param positions List of positions to filter
+     * @param userLat User's latitude
+     * @param userLon User's longitude
+     * @param radiusKm Radius in kilometers
+     * @return Filtered list of positions within the radius
      */
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int EARTH_RADIUS_KM = 6371;
-
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-
-        return EARTH_RADIUS_KM * c;
+    public List<SimpleVehiclePosition> filterPositionsByRadius(List<SimpleVehiclePosition> positions,
+                                                              double userLat, double userLon, double radiusKm) {
+        return DistanceKernel.filter(positions, SimpleVehiclePosition::latitude, SimpleVehiclePosition::longitude,
+                userLat, userLon, radiusKm * 1000.0);
     }
 }
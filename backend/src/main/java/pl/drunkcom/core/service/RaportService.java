@@ -8,6 +8,7 @@ import pl.drunkcom.core.enums.Incidents;
 import pl.drunkcom.core.interfaces.RaportRepository;
 import pl.drunkcom.core.model.Raport;
 import pl.drunkcom.core.model.gtfs.Route;
+import pl.drunkcom.core.service.incidents.RaportChangedEvent;
 
 import java.sql.Timestamp;
 import java.util.List;
@@ -41,6 +42,19 @@ public class RaportService extends BaseGtfsService<Raport, Long, RaportRepositor
     @Autowired
     private RouteService routeService;
 
+    /**
+     * Reports are not part of the static dataset; announces the saved reports instead.
+     */
+    @Override
+    protected void afterSave(List<Raport> saved) {
+        eventPublisher.publishEvent(new RaportChangedEvent(saved));
+    }
+
+    @Override
+    protected void afterDelete() {
+        eventPublisher.publishEvent(new RaportChangedEvent(List.of()));
+    }
+
     public List<Raport> findByType(Incidents type) {
         return repository.findByType(type);
     }
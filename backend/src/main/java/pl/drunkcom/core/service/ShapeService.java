@@ -1,9 +1,74 @@
 package pl.drunkcom.core.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.drunkcom.core.interfaces.ShapeCoordsRepository;
 import pl.drunkcom.core.interfaces.ShapeRepository;
 import pl.drunkcom.core.model.gtfs.Shape;
+import pl.drunkcom.core.service.geo.ShapeGeometryService;
+
+import java.util.List;
+import java.util.Optional;
 
 @Service
-public class ShapeService extends BaseGtfsService<Shape, Long, ShapeRepository> {
+public class ShapeService extends BaseGtfsService<Shape, String, ShapeRepository> {
+
+    @Autowired
+    private ShapeGeometryService shapeGeometryService;
+
+    @Autowired
+    private ShapeCoordsRepository shapeCoordsRepository;
+
+    /**
+     * Saves a shape, packing any per-point coordinates it carries into the packed geometry column.
+     * The coordinates are not kept as rows once packed, and rows still linked to the stored shape are
+     * deleted. The packed geometry is not part of the JSON
+     * representation, so an update without coordinates keeps the geometry already stored for the shape.
+     */
+    @Override
+    @Transactional
+    public Shape save(Shape shape) {
+        Shape saved = super.save(prepare(shape));
+        shapeGeometryService.evict(saved.getShapeId());
+        return saved;
+    }
+
+    /**
+     * Saves shapes, packing their coordinates like {@link #save(Shape)}.
+     */
+    @Override
+    @Transactional
+    public List<Shape> saveAll(List<Shape> shapes) {
+        shapes.forEach(this::prepare);
+        List<Shape> saved = super.saveAll(shapes);
+        saved.forEach(shape -> shapeGeometryService.evict(shape.getShapeId()));
+        return saved;
+    }
+
+    private Shape prepare(Shape shape) {
+        Optional<Shape> stored = shape.getShapeId() != null ? repository.findById(shape.getShapeId()) : Optional.empty();
+        if (shapeGeometryService.pack(shape)) {
+            shape.setCoords(null);
+        } else if (shape.getPackedGeometry() == null) {
+            stored.ifPresent(existing -> {
+                if (existing.getPackedGeometry() == null) {
+                    shapeGeometryService.pack(existing);
+                }
+                shape.setPackedGeometry(existing.getPackedGeometry());
+                shape.setPointCount(existing.getPointCount());
+            });
+        }
+        // Saving unlinks the stored coordinate rows; delete them rather than leave them orphaned
+        stored.map(Shape::getCoords)
+                .filter(coords -> !coords.isEmpty())
+                .ifPresent(shapeCoordsRepository::deleteAll);
+        return shape;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        super.deleteById(id);
+        shapeGeometryService.evict(id);
+    }
 }
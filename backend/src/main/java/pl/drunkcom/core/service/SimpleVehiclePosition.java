@@ -10,12 +10,17 @@ package pl.drunkcom.core.service;
  *   <li>tripId - Identifier for the current trip/route assignment</li>
  *   <li>latitude - GPS latitude coordinate</li>
  *   <li>longitude - GPS longitude coordinate</li>
+ *   <li>timestamp - Moment the position was measured (epoch seconds)</li>
+ *   <li>bearing, speed - Heading and speed reported by the vehicle, if any</li>
  * </ul>
  *
  * @param vehicleId Unique identifier for the vehicle
  * @param tripId Identifier for the trip
  * @param latitude GPS latitude coordinate
  * @param longitude GPS longitude coordinate
+ * @param timestamp Measurement time in epoch seconds (falls back to the feed header timestamp)
+ * @param bearing Heading in degrees clockwise from north, {@code NaN} if not reported
+ * @param speed Speed in meters per second, {@code NaN} if not reported
  *
  * @author Development Team
  * @version 1.0
@@ -25,7 +30,10 @@ public record SimpleVehiclePosition(
     String vehicleId,
     String tripId,
     float latitude,
-    float longitude
+    float longitude,
+    long timestamp,
+    float bearing,
+    float speed
 ) {
     /**
      * Validates that the position data is complete and coordinates are valid.
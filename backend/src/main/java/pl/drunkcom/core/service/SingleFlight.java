@@ -0,0 +1,116 @@
+package pl.drunkcom.core.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces concurrent calls of one expensive load, such as downloading and parsing a feed.
+ *
+ * <p>The first caller runs the load; callers arriving while it is in flight wait for it and receive
+ * the same result or failure. A successful result is also handed out without loading again for the
+ * reuse window after it completed. Failures are not reused, so the next caller after a failure loads
+ * again. Results are shared between threads and must therefore not be modified by callers.
+ *
+ * @param <T> type of the loaded value
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+final class SingleFlight<T> {
+
+    @FunctionalInterface
+    interface Loader<T> {
+        T load() throws IOException;
+    }
+
+    private final long reuseNanos;
+
+    private CompletableFuture<T> inFlight;
+    private T last;
+    private long lastCompletedNanos;
+    private long loads;
+    private long coalesced;
+
+    SingleFlight(long reuseWindowMillis) {
+        this.reuseNanos = TimeUnit.MILLISECONDS.toNanos(reuseWindowMillis);
+    }
+
+    T get(Loader<T> loader) throws IOException {
+        CompletableFuture<T> future;
+        boolean leader = false;
+        synchronized (this) {
+            if (last != null && System.nanoTime() - lastCompletedNanos < reuseNanos) {
+                coalesced++;
+                return last;
+            }
+            if (inFlight == null) {
+                inFlight = new CompletableFuture<>();
+                leader = true;
+                loads++;
+            } else {
+                coalesced++;
+            }
+            future = inFlight;
+        }
+        return leader ? lead(loader, future) : await(future);
+    }
+
+    /**
+     * Number of loads run.
+     */
+    synchronized long loads() {
+        return loads;
+    }
+
+    /**
+     * Number of calls answered by another caller's load, in flight or within the reuse window.
+     */
+    synchronized long coalesced() {
+        return coalesced;
+    }
+
+    private T lead(Loader<T> loader, CompletableFuture<T> future) throws IOException {
+        T value;
+        try {
+            value = loader.load();
+        } catch (Throwable t) {
+            synchronized (this) {
+                inFlight = null;
+            }
+            future.completeExceptionally(t);
+            throw t;
+        }
+        synchronized (this) {
+            last = value;
+            lastCompletedNanos = System.nanoTime();
+            inFlight = null;
+        }
+        future.complete(value);
+        return value;
+    }
+
+    private T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a shared load");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package pl.drunkcom.core.service;
+
+import java.util.List;
+
+/**
+ * Location and routes of a stop, as served from the in-memory stop index.
+ *
+ * @param stopId GTFS stop identifier
+ * @param stopCode short code shown to riders, may be null
+ * @param stopName stop name
+ * @param latitude stop latitude
+ * @param longitude stop longitude
+ * @param locationType GTFS location type (0 stop, 1 station, ...)
+ * @param routeIds routes serving the stop, ordered by id
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record StopSummary(String stopId, String stopCode, String stopName, double latitude, double longitude,
+                          int locationType, List<String> routeIds) {
+}
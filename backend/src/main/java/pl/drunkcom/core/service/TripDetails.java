@@ -0,0 +1,31 @@
+package pl.drunkcom.core.service;
+
+/**
+ * Static GTFS description of a trip and its route, attached to live vehicles by the enrichment stage.
+ *
+ * @param routeId GTFS route identifier
+ * @param routeShortName short route name shown to riders, e.g. "52"
+ * @param routeLongName full route name, may be null
+ * @param routeType GTFS route type (0 tram, 3 bus, ...)
+ * @param routeColor route colour as a hex string without '#', may be null
+ * @param routeTextColor text colour on the route colour, may be null
+ * @param headsign destination shown on the vehicle, may be null
+ * @param directionId GTFS direction, may be null
+ * @param shapeId shape of the trip, may be null
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record TripDetails(
+    String routeId,
+    String routeShortName,
+    String routeLongName,
+    Integer routeType,
+    String routeColor,
+    String routeTextColor,
+    String headsign,
+    Integer directionId,
+    String shapeId
+) {
+}
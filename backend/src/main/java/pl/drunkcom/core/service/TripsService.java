@@ -1,9 +1,36 @@
 package pl.drunkcom.core.service;
 
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import pl.drunkcom.core.interfaces.TripsRepository;
 import pl.drunkcom.core.model.gtfs.Trips;
+import pl.drunkcom.core.service.dataset.StaticDatasetChangedEvent;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class TripsService extends BaseGtfsService<Trips, String, TripsRepository> {
+
+    private final Map<String, Optional<String>> shapeIdByTrip = new ConcurrentHashMap<>();
+
+    /**
+     * Resolves the shape a trip runs on. Results (including misses) are cached,
+     * since realtime processing asks for the same trips on every feed refresh.
+     *
+     * @param tripId GTFS trip identifier
+     * @return the trip's shape ID, or empty if the trip is unknown or has no shape
+     */
+    public Optional<String> findShapeId(String tripId) {
+        if (tripId == null || tripId.isBlank()) {
+            return Optional.empty();
+        }
+        return shapeIdByTrip.computeIfAbsent(tripId, id -> repository.findById(id).map(Trips::getShapeId));
+    }
+
+    @EventListener
+    public void onDatasetChanged(StaticDatasetChangedEvent event) {
+        shapeIdByTrip.clear();
+    }
 }
@@ -1,5 +1,7 @@
 package pl.drunkcom.core.service;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 /**
  * A comprehensive record combining vehicle position and trip update data from GTFS Real-Time feeds.
  * This immutable data class provides a complete view of a vehicle's current state including
@@ -15,8 +17,14 @@ package pl.drunkcom.core.service;
  *   <li>delay - Delay in seconds (positive = late, negative = early, 0 = on time)</li>
  *   <li>scheduleRelationship - Relationship to the static schedule</li>
  *   <li>delayDescription - Human-readable delay description</li>
+ *   <li>timestamp - Moment the position was measured (epoch seconds)</li>
+ *   <li>feedBearing, feedSpeed - Heading and speed as reported by the vehicle, if the feed carries them</li>
+ *   <li>trip - Route and trip details from the static dataset, once enriched</li>
  * </ul>
  *
+ * <p>Consumers read speed and heading from the realtime snapshot, whose estimates fall back to the
+ * reported values; the raw values are therefore not serialized.
+ *
  * @param vehicleId Unique identifier for the vehicle
  * @param tripId Identifier for the trip
  * @param routeId Identifier for the route
@@ -25,6 +33,10 @@ package pl.drunkcom.core.service;
  * @param delay Delay in seconds
  * @param scheduleRelationship Schedule relationship status
  * @param delayDescription Human-readable delay description
+ * @param timestamp Position measurement time in epoch seconds
+ * @param feedBearing Reported heading in degrees clockwise from north, {@code NaN} if absent
+ * @param feedSpeed Reported speed in meters per second, {@code NaN} if absent
+ * @param trip Static trip and route details, or null if the trip is unknown or not yet enriched
  *
  * @author Development Team
  * @version 1.0
@@ -38,8 +50,45 @@ public record VehicleCurrentState(
     float longitude,
     int delay,
     String scheduleRelationship,
-    String delayDescription
+    String delayDescription,
+    long timestamp,
+    @JsonIgnore float feedBearing,
+    @JsonIgnore float feedSpeed,
+    TripDetails trip
 ) {
+    /** Schedule relationship of a vehicle for which the feed carried no trip update. */
+    public static final String NO_TRIP_UPDATE = "UNKNOWN";
+
+    /**
+     * Creates a vehicle state without reported heading and speed.
+     */
+    public VehicleCurrentState(String vehicleId, String tripId, String routeId, float latitude, float longitude,
+                               int delay, String scheduleRelationship, String delayDescription, long timestamp) {
+        this(vehicleId, tripId, routeId, latitude, longitude, delay, scheduleRelationship, delayDescription,
+                timestamp, Float.NaN, Float.NaN, null);
+    }
+
+    /**
+     * Returns a copy described by the given static trip details. A missing route, as left when no
+     * trip update matched the position, is taken from them; the delay stays unknown, see
+     * {@link #hasDelayData()}.
+     */
+    public VehicleCurrentState withTrip(TripDetails details) {
+        String route = routeId == null || routeId.isEmpty() ? details.routeId() : routeId;
+        return new VehicleCurrentState(vehicleId, tripId, route, latitude, longitude, delay, scheduleRelationship,
+                delayDescription, timestamp, feedBearing, feedSpeed, details);
+    }
+
+    /**
+     * Checks whether the delay fields come from a trip update. Without one, the delay, schedule
+     * relationship and description are placeholders and must not be taken as punctuality data.
+     *
+     * @return true if a trip update matched the position
+     */
+    public boolean hasDelayData() {
+        return !NO_TRIP_UPDATE.equals(scheduleRelationship);
+    }
+
     /**
      * Validates that the vehicle state data is complete and valid.
      *
@@ -100,7 +149,11 @@ public record VehicleCurrentState(
                 position.longitude(),
                 tripUpdate.delay(),
                 tripUpdate.scheduleRelationship(),
-                tripUpdate.getDelayDescription()
+                tripUpdate.getDelayDescription(),
+                position.timestamp(),
+                position.bearing(),
+                position.speed(),
+                null
             );
         } else {
             // No trip update data available, assume on time
@@ -111,8 +164,12 @@ public record VehicleCurrentState(
                 position.latitude(),
                 position.longitude(),
                 0, // No delay info
-                "UNKNOWN",
-                "On time"
+                NO_TRIP_UPDATE,
+                "On time",
+                position.timestamp(),
+                position.bearing(),
+                position.speed(),
+                null
             );
         }
     }
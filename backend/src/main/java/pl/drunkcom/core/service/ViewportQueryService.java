@@ -0,0 +1,148 @@
+package pl.drunkcom.core.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.service.dataset.RouteInfo;
+import pl.drunkcom.core.service.geo.StaticGeoIndex;
+import pl.drunkcom.core.service.geo.StaticGeoIndexService;
+import pl.drunkcom.core.service.realtime.VehicleSpatialIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Answers rectangular viewport queries for vehicles and stops from the in-memory spatial indexes.
+ *
+ * <p>Results can be filtered by route id and GTFS route type and are capped. When more items match
+ * than the cap allows, the ones closest to the centre of the viewport are kept (ties broken by id),
+ * so the same request always returns the same items and a zoomed-out map shows the middle of the
+ * screen first.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class ViewportQueryService {
+
+    private final VehicleSpatialIndex vehicleSpatialIndex;
+    private final StaticGeoIndexService staticGeoIndexService;
+    private final int maxResults;
+
+    public ViewportQueryService(VehicleSpatialIndex vehicleSpatialIndex, StaticGeoIndexService staticGeoIndexService,
+                                @Value("${viewport.max-results:5000}") int maxResults) {
+        this.vehicleSpatialIndex = vehicleSpatialIndex;
+        this.staticGeoIndexService = staticGeoIndexService;
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Finds the vehicles of the latest snapshot inside a viewport.
+     *
+     * @param viewport the bounding box
+     * @param routeIds route ids to keep, or empty for all
+     * @param routeTypes GTFS route types to keep, or empty for all
+     * @param limit maximum number of results, capped at {@code viewport.max-results}
+     * @return the matches, or empty before the first snapshot
+     */
+    public Optional<ViewportResult<VehicleCurrentState>> findVehicles(Viewport viewport, Collection<String> routeIds,
+                                                                      Collection<Integer> routeTypes, int limit) {
+        VehicleSpatialIndex.IndexedSnapshot snapshot = vehicleSpatialIndex.current();
+        if (snapshot == null) {
+            return Optional.empty();
+        }
+        StaticGeoIndex index = routeTypes.isEmpty() ? null : staticGeoIndexService.current();
+        List<Ranked<VehicleCurrentState>> matches = new ArrayList<>();
+        snapshot.forEachInBox(viewport.minLat(), viewport.minLon(), viewport.maxLat(), viewport.maxLon(), vehicle -> {
+            if (!routeIds.isEmpty() && !routeIds.contains(vehicle.routeId())) {
+                return;
+            }
+            if (index != null) {
+                RouteInfo route = index.route(vehicle.routeId());
+                if (route == null || !routeTypes.contains(route.routeType())) {
+                    return;
+                }
+            }
+            matches.add(new Ranked<>(vehicle, vehicle.vehicleId(),
+                    viewport.distanceToCenter(vehicle.latitude(), vehicle.longitude())));
+        });
+        return Optional.of(truncate(matches, limit));
+    }
+
+    /**
+     * Finds the stops inside a viewport.
+     *
+     * @param viewport the bounding box
+     * @param routeIds keep stops served by any of these routes, or empty for all
+     * @param routeTypes keep stops served by any route of these GTFS route types, or empty for all
+     * @param limit maximum number of results, capped at {@code viewport.max-results}
+     * @return the matches
+     */
+    public ViewportResult<StopSummary> findStops(Viewport viewport, Collection<String> routeIds,
+                                                 Collection<Integer> routeTypes, int limit) {
+        StaticGeoIndex index = staticGeoIndexService.current();
+        List<Ranked<Integer>> matches = new ArrayList<>();
+        index.forEachStopInBox(viewport.minLat(), viewport.minLon(), viewport.maxLat(), viewport.maxLon(), stop -> {
+            RouteInfo[] routes = index.stopRoutes(stop);
+            if (!routeIds.isEmpty() && Arrays.stream(routes).noneMatch(route -> routeIds.contains(route.routeId()))) {
+                return;
+            }
+            if (!routeTypes.isEmpty() && Arrays.stream(routes).noneMatch(route -> routeTypes.contains(route.routeType()))) {
+                return;
+            }
+            matches.add(new Ranked<>(stop, index.stopId(stop),
+                    viewport.distanceToCenter(index.stopLatitude(stop), index.stopLongitude(stop))));
+        });
+        ViewportResult<Integer> stops = truncate(matches, limit);
+        List<StopSummary> results = stops.results().stream()
+                .map(stop -> new StopSummary(index.stopId(stop), index.stopCode(stop), index.stopName(stop),
+                        index.stopLatitude(stop), index.stopLongitude(stop), index.stopLocationType(stop),
+                        Arrays.stream(index.stopRoutes(stop)).map(RouteInfo::routeId).toList()))
+                .toList();
+        return new ViewportResult<>(results, stops.totalCount());
+    }
+
+    private <T> ViewportResult<T> truncate(List<Ranked<T>> matches, int limit) {
+        int cap = Math.max(0, Math.min(limit, maxResults));
+        matches.sort(Comparator.<Ranked<T>>comparingDouble(Ranked::distance)
+                .thenComparing(Ranked::id, Comparator.nullsLast(Comparator.naturalOrder())));
+        List<T> results = matches.stream().limit(cap).map(Ranked::item).toList();
+        return new ViewportResult<>(results, matches.size());
+    }
+
+    /**
+     * A rectangular viewport.
+     */
+    public record Viewport(double minLat, double minLon, double maxLat, double maxLon) {
+
+        public boolean isValid() {
+            return minLat >= -90 && maxLat <= 90 && minLon >= -180 && maxLon <= 180
+                    && minLat <= maxLat && minLon <= maxLon;
+        }
+
+        /**
+         * Squared equirectangular distance to the centre; only meaningful for ranking.
+         */
+        double distanceToCenter(double latitude, double longitude) {
+            double dLat = latitude - (minLat + maxLat) / 2;
+            double dLon = (longitude - (minLon + maxLon) / 2) * Math.cos(Math.toRadians((minLat + maxLat) / 2));
+            return dLat * dLat + dLon * dLon;
+        }
+    }
+
+    /**
+     * Items of a viewport query after truncation.
+     *
+     * @param results the returned items
+     * @param totalCount number of items that matched before truncation
+     */
+    public record ViewportResult<T>(List<T> results, int totalCount) {
+    }
+
+    private record Ranked<T>(T item, String id, double distance) {
+    }
+}
@@ -0,0 +1,24 @@
+package pl.drunkcom.core.service.analytics;
+
+import java.time.DayOfWeek;
+
+/**
+ * Day classes with distinct traffic patterns. Public holidays are not distinguished.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public enum DayType {
+    WEEKDAY,
+    SATURDAY,
+    SUNDAY;
+
+    public static DayType of(DayOfWeek day) {
+        return switch (day) {
+            case SATURDAY -> SATURDAY;
+            case SUNDAY -> SUNDAY;
+            default -> WEEKDAY;
+        };
+    }
+}
@@ -0,0 +1,29 @@
+package pl.drunkcom.core.service.analytics;
+
+/**
+ * A delay observation that deviates strongly from its seasonal baseline.
+ *
+ * @param id increasing identifier, usable as an event id by push clients
+ * @param detectedAtMillis epoch millis of the snapshot the anomaly was detected in
+ * @param scope route-wide or segment observation
+ * @param routeId GTFS route identifier
+ * @param tripId trip the observation came from
+ * @param vehicleId vehicle serving the trip
+ * @param fromStopId segment start, null for route anomalies
+ * @param toStopId segment end, null for route anomalies
+ * @param hourOfDay local hour the baseline belongs to
+ * @param observedSeconds observed delay, or delay gained on the segment
+ * @param expectedSeconds baseline mean for the key
+ * @param zScore standard deviations above the baseline
+ * @param speedMetersPerSecond estimated speed of the vehicle when detected, null if unknown; near zero
+ *                             tells a vehicle stuck in place from one running slowly
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record DelayAnomaly(long id, long detectedAtMillis, DelayAnomalyScope scope, String routeId, String tripId,
+                           String vehicleId, String fromStopId, String toStopId, int hourOfDay,
+                           double observedSeconds, double expectedSeconds, double zScore,
+                           Double speedMetersPerSecond) {
+}
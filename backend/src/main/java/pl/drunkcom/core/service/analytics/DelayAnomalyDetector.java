@@ -0,0 +1,257 @@
+package pl.drunkcom.core.service.analytics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.realtime.MapMatchingService;
+import pl.drunkcom.core.service.realtime.RealtimeAnalyticsListener;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.VehicleProgress;
+import pl.drunkcom.core.service.warmstart.WarmState;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Online detection of delay spikes, run on every realtime snapshot.
+ *
+ * <p>Two seasonal series are tracked, each keyed by local hour of day:
+ * <ul>
+ *   <li>per route, the delay of each trip, sampled at most once per minute per trip;</li>
+ *   <li>per route segment between two consecutive stops, the delay a trip gained while running it.</li>
+ * </ul>
+ * Each key holds an {@link EwmaBaseline}, a handful of doubles, so memory grows with the number of
+ * route segments, not with traffic. An observation is anomalous once the key has seen
+ * {@code anomalies.warmup-samples} values, lies {@code anomalies.z-threshold} standard deviations and at
+ * least {@code anomalies.min-excess-seconds} above the mean. A key alerts at most once per
+ * {@code anomalies.cooldown-ms}.
+ *
+ * <p>Each anomaly carries the speed estimated for the vehicle in the snapshot, so that a vehicle stuck in
+ * place can be told from one running slowly. Anomalies are published as {@link DelayAnomalyEvent} and the last {@code anomalies.retention-minutes}
+ * are kept for queries.
+ *
+ * <p>The baselines are kept across restarts, so detection does not have to warm up again; the retained
+ * anomalies and the per-trip state are not.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+@Order(92)
+public class DelayAnomalyDetector implements RealtimeAnalyticsListener, WarmState {
+
+    private static final Logger log = LoggerFactory.getLogger(DelayAnomalyDetector.class);
+
+    private static final long SAMPLE_INTERVAL_MILLIS = 60_000L;
+    private static final long TRIP_STATE_TTL_MILLIS = 30 * 60_000L;
+    private static final int MAX_RETAINED = 1000;
+
+    private final MapMatchingService mapMatchingService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ZoneId zone;
+    private final double alpha;
+    private final double zThreshold;
+    private final double minExcessSeconds;
+    private final double minStdDevSeconds;
+    private final int warmupSamples;
+    private final long cooldownMillis;
+    private final long retentionMillis;
+
+    private final Map<String, EwmaBaseline> baselines = new HashMap<>();
+    private final Map<String, TripState> trips = new HashMap<>();
+    private final Deque<DelayAnomaly> recent = new ArrayDeque<>();
+    private long nextId = 1;
+    private long lastPruneMillis;
+
+    public DelayAnomalyDetector(MapMatchingService mapMatchingService, ApplicationEventPublisher eventPublisher,
+                                @Value("${gtfs.timezone:Europe/Warsaw}") String timezone,
+                                @Value("${anomalies.alpha:0.05}") double alpha,
+                                @Value("${anomalies.z-threshold:3.0}") double zThreshold,
+                                @Value("${anomalies.min-excess-seconds:120}") double minExcessSeconds,
+                                @Value("${anomalies.min-stddev-seconds:30}") double minStdDevSeconds,
+                                @Value("${anomalies.warmup-samples:20}") int warmupSamples,
+                                @Value("${anomalies.cooldown-ms:300000}") long cooldownMillis,
+                                @Value("${anomalies.retention-minutes:60}") long retentionMinutes) {
+        this.mapMatchingService = mapMatchingService;
+        this.eventPublisher = eventPublisher;
+        this.zone = ZoneId.of(timezone);
+        this.alpha = alpha;
+        this.zThreshold = zThreshold;
+        this.minExcessSeconds = minExcessSeconds;
+        this.minStdDevSeconds = minStdDevSeconds;
+        this.warmupSamples = warmupSamples;
+        this.cooldownMillis = cooldownMillis;
+        this.retentionMillis = retentionMinutes * 60_000L;
+    }
+
+    @Override
+    public void onSnapshot(RealtimeSnapshot snapshot) {
+        long started = System.nanoTime();
+        long now = snapshot.getPublishedAtMillis();
+        int hour = Instant.ofEpochMilli(now).atZone(zone).getHour();
+        int detected = 0;
+        List<VehicleCurrentState> vehicles = snapshot.getVehicles();
+        for (int i = 0; i < vehicles.size(); i++) {
+            VehicleCurrentState vehicle = vehicles.get(i);
+            float speed = snapshot.speedAt(i);
+            if (vehicle.tripId() == null || vehicle.routeId() == null || vehicle.routeId().isEmpty()
+                    || !vehicle.hasDelayData()) {
+                continue;
+            }
+            TripState state = trips.computeIfAbsent(vehicle.tripId(), id -> new TripState());
+            state.lastSeenMillis = now;
+            if (now - state.lastRouteSampleMillis >= SAMPLE_INTERVAL_MILLIS) {
+                state.lastRouteSampleMillis = now;
+                Deviation deviation = observe(vehicle.routeId() + "|" + hour, vehicle.delay(), now);
+                if (deviation != null) {
+                    publish(now, DelayAnomalyScope.ROUTE, vehicle, speed, null, null, hour, vehicle.delay(), deviation);
+                    detected++;
+                }
+            }
+            Optional<VehicleProgress> progress = mapMatchingService.find(vehicle.vehicleId());
+            if (progress.isEmpty() || progress.get().previousStopId() == null
+                    || !vehicle.tripId().equals(progress.get().tripId())) {
+                continue;
+            }
+            String stopId = progress.get().previousStopId();
+            if (!stopId.equals(state.lastStopId)) {
+                if (state.lastStopId != null) {
+                    int gained = vehicle.delay() - state.delayAtLastStop;
+                    String key = vehicle.routeId() + "|" + state.lastStopId + ">" + stopId + "|" + hour;
+                    Deviation deviation = observe(key, gained, now);
+                    if (deviation != null) {
+                        publish(now, DelayAnomalyScope.SEGMENT, vehicle, speed, state.lastStopId, stopId, hour,
+                                gained, deviation);
+                        detected++;
+                    }
+                }
+                state.lastStopId = stopId;
+                state.delayAtLastStop = vehicle.delay();
+            }
+        }
+        if (now - lastPruneMillis >= SAMPLE_INTERVAL_MILLIS) {
+            trips.values().removeIf(state -> now - state.lastSeenMillis > TRIP_STATE_TTL_MILLIS);
+            synchronized (recent) {
+                recent.removeIf(anomaly -> now - anomaly.detectedAtMillis() > retentionMillis);
+            }
+            lastPruneMillis = now;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Anomaly detection on {} vehicles: {} anomalies, {} baselines, {} µs",
+                    snapshot.getVehicles().size(), detected, baselines.size(), (System.nanoTime() - started) / 1000);
+        }
+    }
+
+    @Override
+    public void onRestoredSnapshot(RealtimeSnapshot snapshot) {
+        // its samples are already in the restored baselines
+    }
+
+    @Override
+    public String stateName() {
+        return "delay-anomaly-baselines";
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(baselines.size());
+        for (Map.Entry<String, EwmaBaseline> entry : baselines.entrySet()) {
+            out.writeUTF(entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        int count = in.readInt();
+        Map<String, EwmaBaseline> restored = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String key = in.readUTF();
+            restored.put(key, EwmaBaseline.readFrom(in, alpha, minStdDevSeconds));
+        }
+        baselines.clear();
+        baselines.putAll(restored);
+    }
+
+    /**
+     * Returns the anomalies detected within the last minutes, newest first.
+     *
+     * @param routeId route filter, or null for all routes
+     * @param sinceMillis only anomalies detected at or after this epoch millis
+     */
+    public List<DelayAnomaly> findRecent(String routeId, long sinceMillis) {
+        List<DelayAnomaly> result = new ArrayList<>();
+        synchronized (recent) {
+            for (DelayAnomaly anomaly : recent) {
+                if (anomaly.detectedAtMillis() >= sinceMillis
+                        && (routeId == null || routeId.equals(anomaly.routeId()))) {
+                    result.add(anomaly);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Scores a value against its key's baseline and folds it in.
+     *
+     * @return the deviation if the value is anomalous, otherwise null
+     */
+    private Deviation observe(String key, double value, long now) {
+        EwmaBaseline baseline = baselines.computeIfAbsent(key, k -> new EwmaBaseline(alpha, minStdDevSeconds));
+        Deviation deviation = null;
+        if (baseline.count() >= warmupSamples) {
+            double z = baseline.score(value);
+            double mean = baseline.mean();
+            if (z >= zThreshold && value - mean >= minExcessSeconds
+                    && now - baseline.lastAlertMillis() >= cooldownMillis) {
+                baseline.alerted(now);
+                deviation = new Deviation(z, mean);
+            }
+        }
+        baseline.update(value);
+        return deviation;
+    }
+
+    private void publish(long now, DelayAnomalyScope scope, VehicleCurrentState vehicle, float speed,
+                         String fromStopId, String toStopId, int hour, double observed, Deviation deviation) {
+        DelayAnomaly anomaly = new DelayAnomaly(nextId++, now, scope, vehicle.routeId(), vehicle.tripId(),
+                vehicle.vehicleId(), fromStopId, toStopId, hour, observed, deviation.mean(), deviation.zScore(),
+                Float.isNaN(speed) ? null : (double) speed);
+        synchronized (recent) {
+            recent.addFirst(anomaly);
+            if (recent.size() > MAX_RETAINED) {
+                recent.removeLast();
+            }
+        }
+        log.info("Delay anomaly on route {} ({}{}): {} s against {} s expected, z={}",
+                anomaly.routeId(), scope, fromStopId != null ? " " + fromStopId + ">" + toStopId : "",
+                Math.round(observed), Math.round(deviation.mean()), String.format("%.1f", deviation.zScore()));
+        eventPublisher.publishEvent(new DelayAnomalyEvent(anomaly));
+    }
+
+    private record Deviation(double zScore, double mean) {
+    }
+
+    private static final class TripState {
+        private long lastSeenMillis;
+        private long lastRouteSampleMillis = Long.MIN_VALUE / 2;
+        private String lastStopId;
+        private int delayAtLastStop;
+    }
+}
@@ -0,0 +1,13 @@
+package pl.drunkcom.core.service.analytics;
+
+/**
+ * Published by {@link DelayAnomalyDetector} for every detected anomaly.
+ *
+ * @param anomaly the detected anomaly
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record DelayAnomalyEvent(DelayAnomaly anomaly) {
+}
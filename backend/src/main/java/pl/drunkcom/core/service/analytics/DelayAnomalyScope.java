@@ -0,0 +1,15 @@
+package pl.drunkcom.core.service.analytics;
+
+/**
+ * What a {@link DelayAnomaly} was measured on.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public enum DelayAnomalyScope {
+    /** Delay of a trip against the route's usual delay at that hour. */
+    ROUTE,
+    /** Delay gained by a trip between two consecutive stops against the segment's usual gain at that hour. */
+    SEGMENT
+}
@@ -0,0 +1,211 @@
+package pl.drunkcom.core.service.analytics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Mergeable histogram of delays in seconds with log-linear bins and sparse storage. Also used for other
+ * durations such as segment run times.
+ *
+ * <p>Bins are 5 s wide up to one minute either side of zero and then grow by about 6% each, up to
+ * two hours late and one hour early; values beyond are clamped into the outermost bins. Quantiles
+ * are therefore accurate to 5 s or 6%, whichever is larger. Only occupied bins are stored, as
+ * parallel sorted arrays, so a histogram of a few dozen samples costs a few hundred bytes at most
+ * and never more than {@link #binCount()} entries.
+ *
+ * <p>Histograms are merged by adding their counts into a dense {@code long[]} of {@link #binCount()}
+ * entries, which {@link #quantile(long[], long, double)} then reads. Instances are not thread-safe.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public final class DelayHistogram {
+
+    static final int MAX_LATE_SECONDS = 7200;
+    static final int MAX_EARLY_SECONDS = 3600;
+
+    /** Lower bound of every bin in seconds, ascending. */
+    private static final int[] LOWER_BOUNDS = buildBounds();
+
+    private short[] bins = new short[4];
+    private int[] counts = new int[4];
+    private int size;
+    private long total;
+    private long sum;
+
+    /**
+     * Adds one delay sample.
+     */
+    public void record(int delaySeconds) {
+        int bin = binOf(delaySeconds);
+        int position = Arrays.binarySearch(bins, 0, size, (short) bin);
+        if (position >= 0) {
+            counts[position]++;
+        } else {
+            int insert = -position - 1;
+            if (size == bins.length) {
+                bins = Arrays.copyOf(bins, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            System.arraycopy(bins, insert, bins, insert + 1, size - insert);
+            System.arraycopy(counts, insert, counts, insert + 1, size - insert);
+            bins[insert] = (short) bin;
+            counts[insert] = 1;
+            size++;
+        }
+        total++;
+        sum += delaySeconds;
+    }
+
+    /**
+     * Adds all samples of another histogram to this one.
+     */
+    public void merge(DelayHistogram other) {
+        short[] mergedBins = new short[size + other.size];
+        int[] mergedCounts = new int[size + other.size];
+        int i = 0, j = 0, n = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && bins[i] < other.bins[j])) {
+                mergedBins[n] = bins[i];
+                mergedCounts[n++] = counts[i++];
+            } else if (i == size || other.bins[j] < bins[i]) {
+                mergedBins[n] = other.bins[j];
+                mergedCounts[n++] = other.counts[j++];
+            } else {
+                mergedBins[n] = bins[i];
+                mergedCounts[n++] = counts[i++] + other.counts[j++];
+            }
+        }
+        bins = mergedBins.length == 0 ? new short[4] : mergedBins;
+        counts = mergedCounts.length == 0 ? new int[4] : mergedCounts;
+        size = n;
+        total += other.total;
+        sum += other.sum;
+    }
+
+    /**
+     * Writes the occupied bins, count and sum; read back with {@link #readFrom(DataInput)}.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeShort(size);
+        for (int i = 0; i < size; i++) {
+            out.writeShort(bins[i]);
+            out.writeInt(counts[i]);
+        }
+        out.writeLong(total);
+        out.writeLong(sum);
+    }
+
+    public static DelayHistogram readFrom(DataInput in) throws IOException {
+        DelayHistogram histogram = new DelayHistogram();
+        int size = in.readUnsignedShort();
+        histogram.bins = new short[Math.max(4, size)];
+        histogram.counts = new int[Math.max(4, size)];
+        for (int i = 0; i < size; i++) {
+            histogram.bins[i] = in.readShort();
+            histogram.counts[i] = in.readInt();
+        }
+        histogram.size = size;
+        histogram.total = in.readLong();
+        histogram.sum = in.readLong();
+        return histogram;
+    }
+
+    /**
+     * Adds the counts of this histogram to a dense array of {@link #binCount()} entries.
+     */
+    public void addTo(long[] dense) {
+        for (int i = 0; i < size; i++) {
+            dense[bins[i]] += counts[i];
+        }
+    }
+
+    /**
+     * Number of samples recorded.
+     */
+    public long count() {
+        return total;
+    }
+
+    /**
+     * Sum of all recorded delays in seconds, without clamping.
+     */
+    public long sum() {
+        return sum;
+    }
+
+    /**
+     * Approximate heap footprint of the bin arrays in bytes.
+     */
+    public long estimatedBytes() {
+        return 2L * bins.length + 4L * counts.length;
+    }
+
+    /**
+     * Number of bins, i.e. the length of the dense arrays used for merging.
+     */
+    public static int binCount() {
+        return LOWER_BOUNDS.length;
+    }
+
+    /**
+     * Estimates a quantile from merged counts, interpolating linearly within the bin it falls into.
+     *
+     * @param dense merged counts, see {@link #addTo(long[])}
+     * @param total sum of {@code dense}
+     * @param quantile quantile between 0 and 1
+     * @return the estimated delay in seconds, or NaN if there are no samples
+     */
+    public static double quantile(long[] dense, long total, double quantile) {
+        if (total == 0) {
+            return Double.NaN;
+        }
+        double rank = quantile * total;
+        long seen = 0;
+        for (int bin = 0; bin < dense.length; bin++) {
+            if (dense[bin] == 0) {
+                continue;
+            }
+            if (seen + dense[bin] >= rank) {
+                double lower = LOWER_BOUNDS[bin];
+                if (bin == dense.length - 1) {
+                    return lower;
+                }
+                double fraction = (rank - seen) / dense[bin];
+                return lower + fraction * (LOWER_BOUNDS[bin + 1] - lower);
+            }
+            seen += dense[bin];
+        }
+        return LOWER_BOUNDS[LOWER_BOUNDS.length - 1];
+    }
+
+    static int binOf(int delaySeconds) {
+        int position = Arrays.binarySearch(LOWER_BOUNDS, delaySeconds);
+        return position >= 0 ? position : Math.max(0, -position - 2);
+    }
+
+    private static int[] buildBounds() {
+        List<Integer> magnitudes = new ArrayList<>();
+        for (int m = 0; m < 60; m += 5) {
+            magnitudes.add(m);
+        }
+        for (int m = 60; m < MAX_LATE_SECONDS; m = Math.max(m + 1, (int) Math.ceil(m * 1.06))) {
+            magnitudes.add(m);
+        }
+        magnitudes.add(MAX_LATE_SECONDS);
+
+        List<Integer> bounds = new ArrayList<>();
+        for (int i = magnitudes.size() - 1; i > 0; i--) {
+            if (magnitudes.get(i) <= MAX_EARLY_SECONDS) {
+                bounds.add(-magnitudes.get(i));
+            }
+        }
+        bounds.addAll(magnitudes);
+        return bounds.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
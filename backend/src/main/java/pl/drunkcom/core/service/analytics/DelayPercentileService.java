@@ -0,0 +1,205 @@
+package pl.drunkcom.core.service.analytics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.realtime.MapMatchingService;
+import pl.drunkcom.core.service.realtime.RealtimeAnalyticsListener;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.VehicleProgress;
+import pl.drunkcom.core.service.warmstart.WarmState;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rolling delay percentiles per route and per stop, fed incrementally by every realtime snapshot.
+ *
+ * <p>Samples are deduplicated so that frequent polling does not skew the distribution:
+ * <ul>
+ *   <li>per route, a trip contributes its current delay at most once per minute;</li>
+ *   <li>per stop, a trip contributes its delay once, when map matching first places it past the stop.</li>
+ * </ul>
+ * Each route and stop keeps a {@link DelaySketch} of mergeable histograms, so a summary merges at most
+ * 25 small histograms and never touches raw history. Keys without samples for a day are dropped.
+ *
+ * <p>The sketches are kept across restarts; the per-trip deduplication state is not, so a trip may
+ * contribute one extra sample right after a restart.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+@Order(90)
+public class DelayPercentileService implements RealtimeAnalyticsListener, WarmState {
+
+    private static final Logger log = LoggerFactory.getLogger(DelayPercentileService.class);
+
+    private static final long SAMPLE_INTERVAL_MILLIS = 60_000L;
+    private static final long TRIP_STATE_TTL_MILLIS = 30 * 60_000L;
+
+    private final MapMatchingService mapMatchingService;
+
+    private final Map<String, DelaySketch> routes = new ConcurrentHashMap<>();
+    private final Map<String, DelaySketch> stops = new ConcurrentHashMap<>();
+    private final Map<String, TripState> trips = new HashMap<>();
+    private long lastPruneMillis;
+
+    public DelayPercentileService(MapMatchingService mapMatchingService) {
+        this.mapMatchingService = mapMatchingService;
+    }
+
+    @Override
+    public void onSnapshot(RealtimeSnapshot snapshot) {
+        long now = snapshot.getPublishedAtMillis();
+        for (VehicleCurrentState vehicle : snapshot.getVehicles()) {
+            if (!vehicle.hasDelayData()) {
+                continue;
+            }
+            String tripKey = vehicle.tripId() != null ? vehicle.tripId() : vehicle.vehicleId();
+            TripState state = trips.computeIfAbsent(tripKey, key -> new TripState());
+            state.lastSeenMillis = now;
+            if (vehicle.routeId() != null && !vehicle.routeId().isEmpty()
+                    && now - state.lastRouteSampleMillis >= SAMPLE_INTERVAL_MILLIS) {
+                routes.computeIfAbsent(vehicle.routeId(), id -> new DelaySketch()).record(now, vehicle.delay());
+                state.lastRouteSampleMillis = now;
+            }
+            Optional<VehicleProgress> progress = mapMatchingService.find(vehicle.vehicleId());
+            if (progress.isPresent() && progress.get().previousStopId() != null
+                    && tripKey.equals(progress.get().tripId())
+                    && !progress.get().previousStopId().equals(state.lastStopId)) {
+                state.lastStopId = progress.get().previousStopId();
+                stops.computeIfAbsent(state.lastStopId, id -> new DelaySketch()).record(now, vehicle.delay());
+            }
+        }
+        if (now - lastPruneMillis >= DelaySketch.FINE_BUCKET_MILLIS) {
+            prune(now);
+            lastPruneMillis = now;
+        }
+    }
+
+    @Override
+    public void onRestoredSnapshot(RealtimeSnapshot snapshot) {
+        // its samples are already in the restored sketches
+    }
+
+    @Override
+    public String stateName() {
+        return "delay-percentiles";
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        writeSketches(out, routes);
+        writeSketches(out, stops);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        Map<String, DelaySketch> restoredRoutes = readSketches(in);
+        Map<String, DelaySketch> restoredStops = readSketches(in);
+        routes.clear();
+        routes.putAll(restoredRoutes);
+        stops.clear();
+        stops.putAll(restoredStops);
+    }
+
+    /**
+     * Summarizes the delays of one route.
+     *
+     * @return the summary, or empty if the route has no samples in the last day
+     */
+    public Optional<DelaySummary> summarizeRoute(String routeId, DelayWindow window) {
+        return summarize(routes, routeId, window, System.currentTimeMillis());
+    }
+
+    /**
+     * Summarizes the delays of one stop.
+     *
+     * @return the summary, or empty if the stop has no samples in the last day
+     */
+    public Optional<DelaySummary> summarizeStop(String stopId, DelayWindow window) {
+        return summarize(stops, stopId, window, System.currentTimeMillis());
+    }
+
+    /**
+     * Summarizes the delays of every route with samples in the window, ordered by route id.
+     */
+    public List<DelaySummary> summarizeRoutes(DelayWindow window) {
+        long now = System.currentTimeMillis();
+        List<DelaySummary> summaries = new ArrayList<>();
+        for (String routeId : routes.keySet()) {
+            summarize(routes, routeId, window, now)
+                    .filter(summary -> summary.samples() > 0)
+                    .ifPresent(summaries::add);
+        }
+        summaries.sort(Comparator.comparing(DelaySummary::key));
+        return summaries;
+    }
+
+    static Optional<DelaySummary> summarize(Map<String, DelaySketch> sketches, String key,
+                                            DelayWindow window, long nowMillis) {
+        DelaySketch sketch = sketches.get(key);
+        if (sketch == null) {
+            return Optional.empty();
+        }
+        long[] dense = new long[DelayHistogram.binCount()];
+        long[] totals = sketch.merge(window, nowMillis, dense);
+        long count = totals[0];
+        if (count == 0) {
+            return Optional.of(new DelaySummary(key, window.getLabel(), 0, null, null, null, null));
+        }
+        return Optional.of(new DelaySummary(key, window.getLabel(), count, (double) totals[1] / count,
+                DelayHistogram.quantile(dense, count, 0.50),
+                DelayHistogram.quantile(dense, count, 0.90),
+                DelayHistogram.quantile(dense, count, 0.99)));
+    }
+
+    private void prune(long now) {
+        trips.values().removeIf(state -> now - state.lastSeenMillis > TRIP_STATE_TTL_MILLIS);
+        routes.values().removeIf(sketch -> now - sketch.getLastRecordedMillis() > DelayWindow.DAY_1.getMillis());
+        stops.values().removeIf(sketch -> now - sketch.getLastRecordedMillis() > DelayWindow.DAY_1.getMillis());
+        if (log.isDebugEnabled()) {
+            long bytes = routes.values().stream().mapToLong(DelaySketch::estimatedBytes).sum()
+                    + stops.values().stream().mapToLong(DelaySketch::estimatedBytes).sum();
+            log.debug("Delay sketches: {} routes, {} stops, {} trips tracked, ~{} KiB",
+                    routes.size(), stops.size(), trips.size(), bytes / 1024);
+        }
+    }
+
+    private static void writeSketches(DataOutput out, Map<String, DelaySketch> sketches) throws IOException {
+        Map<String, DelaySketch> copy = new HashMap<>(sketches);
+        out.writeInt(copy.size());
+        for (Map.Entry<String, DelaySketch> entry : copy.entrySet()) {
+            out.writeUTF(entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+    }
+
+    private static Map<String, DelaySketch> readSketches(DataInput in) throws IOException {
+        int count = in.readInt();
+        Map<String, DelaySketch> sketches = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String key = in.readUTF();
+            sketches.put(key, DelaySketch.readFrom(in));
+        }
+        return sketches;
+    }
+
+    private static final class TripState {
+        private long lastSeenMillis;
+        private long lastRouteSampleMillis = Long.MIN_VALUE / 2;
+        private String lastStopId;
+    }
+}
@@ -0,0 +1,146 @@
+package pl.drunkcom.core.service.analytics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Time-bucketed delay histograms of one route or stop, covering the last 24 hours in bounded memory.
+ *
+ * <p>Every sample goes into the current five-minute bucket and the current hourly bucket. The
+ * {@link DelayWindow#MINUTES_15} and {@link DelayWindow#HOUR_1} windows are answered from the
+ * five-minute ring, {@link DelayWindow#DAY_1} from the hourly ring. The current bucket is only
+ * partially filled, so a window spans its nominal length plus up to one bucket width. Buckets are
+ * recycled in place when their slot comes round again.
+ *
+ * <p>All methods are synchronized: the snapshot analytics thread records, request threads summarize.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+final class DelaySketch {
+
+    static final long FINE_BUCKET_MILLIS = 5 * 60_000L;
+    static final long COARSE_BUCKET_MILLIS = 60 * 60_000L;
+    private static final int FINE_BUCKETS = 13;
+    private static final int COARSE_BUCKETS = 25;
+
+    private final Ring fine = new Ring(FINE_BUCKETS, FINE_BUCKET_MILLIS);
+    private final Ring coarse = new Ring(COARSE_BUCKETS, COARSE_BUCKET_MILLIS);
+    private long lastRecordedMillis;
+
+    synchronized void record(long nowMillis, int delaySeconds) {
+        fine.bucket(nowMillis).record(delaySeconds);
+        coarse.bucket(nowMillis).record(delaySeconds);
+        lastRecordedMillis = Math.max(lastRecordedMillis, nowMillis);
+    }
+
+    /**
+     * Merges the buckets of a window ending at {@code nowMillis}.
+     *
+     * @param dense receives the merged counts; must hold {@link DelayHistogram#binCount()} entries
+     * @return {count, sum of delays} of the merged buckets
+     */
+    synchronized long[] merge(DelayWindow window, long nowMillis, long[] dense) {
+        Ring ring = window == DelayWindow.DAY_1 ? coarse : fine;
+        return ring.merge(nowMillis, window.getMillis(), dense);
+    }
+
+    synchronized long getLastRecordedMillis() {
+        return lastRecordedMillis;
+    }
+
+    synchronized long estimatedBytes() {
+        return fine.estimatedBytes() + coarse.estimatedBytes();
+    }
+
+    /**
+     * Writes the occupied buckets of both rings; read back with {@link #readFrom(DataInput)}.
+     */
+    synchronized void writeTo(DataOutput out) throws IOException {
+        out.writeLong(lastRecordedMillis);
+        fine.writeTo(out);
+        coarse.writeTo(out);
+    }
+
+    static DelaySketch readFrom(DataInput in) throws IOException {
+        DelaySketch sketch = new DelaySketch();
+        sketch.lastRecordedMillis = in.readLong();
+        sketch.fine.readFrom(in);
+        sketch.coarse.readFrom(in);
+        return sketch;
+    }
+
+    private static final class Ring {
+        private final long bucketMillis;
+        private final long[] epochs;
+        private final DelayHistogram[] histograms;
+
+        private Ring(int buckets, long bucketMillis) {
+            this.bucketMillis = bucketMillis;
+            this.epochs = new long[buckets];
+            this.histograms = new DelayHistogram[buckets];
+        }
+
+        private DelayHistogram bucket(long nowMillis) {
+            long epoch = nowMillis / bucketMillis;
+            int slot = (int) Math.floorMod(epoch, (long) epochs.length);
+            if (histograms[slot] == null || epochs[slot] != epoch) {
+                histograms[slot] = new DelayHistogram();
+                epochs[slot] = epoch;
+            }
+            return histograms[slot];
+        }
+
+        private long[] merge(long nowMillis, long windowMillis, long[] dense) {
+            long current = nowMillis / bucketMillis;
+            long oldest = current - (windowMillis + bucketMillis - 1) / bucketMillis - 1;
+            long count = 0;
+            long sum = 0;
+            for (int slot = 0; slot < epochs.length; slot++) {
+                DelayHistogram histogram = histograms[slot];
+                if (histogram != null && epochs[slot] > oldest && epochs[slot] <= current) {
+                    histogram.addTo(dense);
+                    count += histogram.count();
+                    sum += histogram.sum();
+                }
+            }
+            return new long[]{count, sum};
+        }
+
+        private void writeTo(DataOutput out) throws IOException {
+            out.writeByte(epochs.length);
+            for (int slot = 0; slot < epochs.length; slot++) {
+                out.writeBoolean(histograms[slot] != null);
+                if (histograms[slot] != null) {
+                    out.writeLong(epochs[slot]);
+                    histograms[slot].writeTo(out);
+                }
+            }
+        }
+
+        private void readFrom(DataInput in) throws IOException {
+            int buckets = in.readUnsignedByte();
+            if (buckets != epochs.length) {
+                throw new IOException("Expected " + epochs.length + " buckets, found " + buckets);
+            }
+            for (int slot = 0; slot < buckets; slot++) {
+                if (in.readBoolean()) {
+                    epochs[slot] = in.readLong();
+                    histograms[slot] = DelayHistogram.readFrom(in);
+                }
+            }
+        }
+
+        private long estimatedBytes() {
+            long bytes = 0;
+            for (DelayHistogram histogram : histograms) {
+                if (histogram != null) {
+                    bytes += histogram.estimatedBytes();
+                }
+            }
+            return bytes;
+        }
+    }
+}
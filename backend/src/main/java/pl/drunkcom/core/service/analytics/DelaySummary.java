@@ -0,0 +1,20 @@
+package pl.drunkcom.core.service.analytics;
+
+/**
+ * Delay distribution of a route or stop over a look-back window.
+ *
+ * @param key route or stop identifier
+ * @param window window label, e.g. {@code 1h}
+ * @param samples number of delay samples in the window
+ * @param meanSeconds mean delay, null without samples
+ * @param p50Seconds median delay, null without samples
+ * @param p90Seconds 90th percentile delay, null without samples
+ * @param p99Seconds 99th percentile delay, null without samples
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record DelaySummary(String key, String window, long samples, Double meanSeconds,
+                           Double p50Seconds, Double p90Seconds, Double p99Seconds) {
+}
@@ -0,0 +1,41 @@
+package pl.drunkcom.core.service.analytics;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Look-back windows for which delay percentiles are kept.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public enum DelayWindow {
+
+    MINUTES_15("15m", 15 * 60_000L),
+    HOUR_1("1h", 60 * 60_000L),
+    DAY_1("24h", 24 * 60 * 60_000L);
+
+    private final String label;
+    private final long millis;
+
+    DelayWindow(String label, long millis) {
+        this.label = label;
+        this.millis = millis;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Looks a window up by its label, e.g. {@code 15m}, {@code 1h} or {@code 24h}.
+     */
+    public static Optional<DelayWindow> fromLabel(String label) {
+        return Arrays.stream(values()).filter(window -> window.label.equalsIgnoreCase(label)).findFirst();
+    }
+}
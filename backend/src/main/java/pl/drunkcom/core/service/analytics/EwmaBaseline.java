@@ -0,0 +1,95 @@
+package pl.drunkcom.core.service.analytics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Exponentially weighted mean and variance of one delay series, in constant memory.
+ *
+ * <p>{@link #score(double)} compares a value with the baseline before {@link #update(double)} folds it
+ * in. Updates are winsorized at {@link #CLAMP_SIGMAS} standard deviations so that a burst of anomalous
+ * values shifts the baseline only slowly and keeps being reported.
+ *
+ * <p>Not thread-safe; owned by the snapshot analytics thread.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+final class EwmaBaseline {
+
+    static final double CLAMP_SIGMAS = 3.0;
+
+    private final double alpha;
+    private final double minStdDev;
+    private double mean;
+    private double variance;
+    private long count;
+    private long lastAlertMillis = Long.MIN_VALUE / 2;
+
+    EwmaBaseline(double alpha, double minStdDev) {
+        this.alpha = alpha;
+        this.minStdDev = minStdDev;
+    }
+
+    /**
+     * Returns the number of standard deviations {@code value} lies above the mean.
+     */
+    double score(double value) {
+        return (value - mean) / stdDev();
+    }
+
+    void update(double value) {
+        if (count == 0) {
+            mean = value;
+        } else {
+            double limit = CLAMP_SIGMAS * stdDev();
+            double clamped = Math.max(mean - limit, Math.min(mean + limit, value));
+            double diff = clamped - mean;
+            double increment = alpha * diff;
+            mean += increment;
+            variance = (1 - alpha) * (variance + diff * increment);
+        }
+        count++;
+    }
+
+    double stdDev() {
+        return Math.max(minStdDev, Math.sqrt(variance));
+    }
+
+    double mean() {
+        return mean;
+    }
+
+    long count() {
+        return count;
+    }
+
+    long lastAlertMillis() {
+        return lastAlertMillis;
+    }
+
+    void alerted(long nowMillis) {
+        lastAlertMillis = nowMillis;
+    }
+
+    /**
+     * Writes the running statistics; the smoothing parameters are configuration and not written.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeDouble(mean);
+        out.writeDouble(variance);
+        out.writeLong(count);
+        out.writeLong(lastAlertMillis);
+    }
+
+    static EwmaBaseline readFrom(DataInput in, double alpha, double minStdDev) throws IOException {
+        EwmaBaseline baseline = new EwmaBaseline(alpha, minStdDev);
+        baseline.mean = in.readDouble();
+        baseline.variance = in.readDouble();
+        baseline.count = in.readLong();
+        baseline.lastAlertMillis = in.readLong();
+        return baseline;
+    }
+}
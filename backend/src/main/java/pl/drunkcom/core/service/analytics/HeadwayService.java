@@ -0,0 +1,214 @@
+package pl.drunkcom.core.service.analytics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.dataset.StaticDatasetChangedEvent;
+import pl.drunkcom.core.service.realtime.MapMatchingService;
+import pl.drunkcom.core.service.realtime.RealtimeAnalyticsListener;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.VehicleProgress;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live headways and bunching per route, direction and shape, updated on every realtime snapshot.
+ *
+ * <p>Every shape keeps a passage log: the last time any vehicle crossed each checkpoint placed every
+ * {@link #CHECKPOINT_METERS} along it, interpolated between consecutive map-matched positions. The
+ * time headway of a vehicle is then simply the time since the checkpoint just ahead of it was last
+ * crossed, i.e. since the vehicle in front was where this one is now. The log costs one {@code long}
+ * per checkpoint and shape, independent of the number of vehicles. Until the checkpoint ahead has been
+ * crossed since startup, the headway of a moving vehicle is estimated as the distance to the vehicle
+ * ahead over its estimated speed.
+ *
+ * <p>Headways are compared with {@link ScheduledHeadwayService}: below {@code headways.bunching-ratio}
+ * of the scheduled headway a vehicle is {@link HeadwayStatus#BUNCHED}, above {@code headways.gap-ratio}
+ * it runs with a {@link HeadwayStatus#GAP}.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+@Order(95)
+public class HeadwayService implements RealtimeAnalyticsListener {
+
+    private static final Logger log = LoggerFactory.getLogger(HeadwayService.class);
+
+    static final double CHECKPOINT_METERS = 100.0;
+    private static final long MAX_HEADWAY_SECONDS = 2 * 3600;
+    private static final long FORGET_VEHICLE_SECONDS = 10 * 60;
+    /** Below this speed a vehicle is taken to stand, and its speed says nothing about its headway. */
+    private static final double MIN_MOVING_SPEED = 1.0;
+
+    private final MapMatchingService mapMatchingService;
+    private final ScheduledHeadwayService scheduledHeadwayService;
+    private final double bunchingRatio;
+    private final double gapRatio;
+
+    private final Map<String, long[]> passagesByShape = new ConcurrentHashMap<>();
+    private final Map<String, VehicleProgress> lastProgress = new HashMap<>();
+
+    private volatile List<RouteHeadways> headways = List.of();
+    private volatile HeadwaySummary summary = new HeadwaySummary(0, 0, 0, 0, 0, 0);
+
+    public HeadwayService(MapMatchingService mapMatchingService, ScheduledHeadwayService scheduledHeadwayService,
+                          @Value("${headways.bunching-ratio:0.25}") double bunchingRatio,
+                          @Value("${headways.gap-ratio:2.0}") double gapRatio) {
+        this.mapMatchingService = mapMatchingService;
+        this.scheduledHeadwayService = scheduledHeadwayService;
+        this.bunchingRatio = bunchingRatio;
+        this.gapRatio = gapRatio;
+    }
+
+    @Override
+    public void onSnapshot(RealtimeSnapshot snapshot) {
+        long nowMillis = snapshot.getPublishedAtMillis();
+        Map<String, List<MovingVehicle>> byShape = new HashMap<>();
+        List<VehicleCurrentState> vehicleStates = snapshot.getVehicles();
+        for (int i = 0; i < vehicleStates.size(); i++) {
+            VehicleCurrentState vehicle = vehicleStates.get(i);
+            Optional<VehicleProgress> matched = mapMatchingService.find(vehicle.vehicleId());
+            if (matched.isEmpty() || matched.get().shapeId() == null
+                    || !matched.get().tripId().equals(vehicle.tripId())) {
+                continue;
+            }
+            VehicleProgress progress = matched.get();
+            recordPassages(lastProgress.put(progress.vehicleId(), progress), progress);
+            byShape.computeIfAbsent(progress.shapeId(), id -> new ArrayList<>())
+                    .add(new MovingVehicle(progress, snapshot.speedAt(i)));
+        }
+        lastProgress.values().removeIf(progress -> nowMillis / 1000 - progress.timestamp() > FORGET_VEHICLE_SECONDS);
+
+        List<RouteHeadways> computed = new ArrayList<>(byShape.size());
+        int vehicles = 0, bunched = 0, gaps = 0, unknown = 0;
+        for (Map.Entry<String, List<MovingVehicle>> entry : byShape.entrySet()) {
+            RouteHeadways route = computeShape(entry.getKey(), entry.getValue(), nowMillis);
+            computed.add(route);
+            vehicles += route.vehicles().size();
+            bunched += route.bunched();
+            gaps += route.gaps();
+            unknown += (int) route.vehicles().stream().filter(v -> v.status() == HeadwayStatus.UNKNOWN).count();
+        }
+        computed.sort(Comparator.comparing(RouteHeadways::routeId)
+                .thenComparing(RouteHeadways::directionId, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(RouteHeadways::shapeId));
+        headways = List.copyOf(computed);
+        summary = new HeadwaySummary(snapshot.getSequence(), computed.size(), vehicles, bunched, gaps, unknown);
+        if (bunched > 0 || gaps > 0) {
+            log.debug("Snapshot {}: {} bunched and {} gapped vehicles", snapshot.getSequence(), bunched, gaps);
+        }
+    }
+
+    /**
+     * Returns the live headways of the latest snapshot, optionally restricted to one route.
+     *
+     * @param routeId route filter, or null for all routes
+     * @return headways ordered by route, direction and shape
+     */
+    public List<RouteHeadways> findAll(String routeId) {
+        List<RouteHeadways> current = headways;
+        return routeId == null ? current : current.stream().filter(route -> routeId.equals(route.routeId())).toList();
+    }
+
+    public HeadwaySummary getSummary() {
+        return summary;
+    }
+
+    @EventListener
+    public void onDatasetChanged(StaticDatasetChangedEvent event) {
+        passagesByShape.clear();
+    }
+
+    private void recordPassages(VehicleProgress previous, VehicleProgress current) {
+        if (previous == null || !previous.tripId().equals(current.tripId())
+                || !current.shapeId().equals(previous.shapeId())
+                || current.timestamp() <= previous.timestamp()
+                || current.distanceAlongMeters() <= previous.distanceAlongMeters()) {
+            return;
+        }
+        long[] passages = passagesByShape.computeIfAbsent(current.shapeId(),
+                id -> new long[(int) (current.shapeLengthMeters() / CHECKPOINT_METERS) + 2]);
+        double from = previous.distanceAlongMeters();
+        double travelled = current.distanceAlongMeters() - from;
+        long elapsed = current.timestamp() - previous.timestamp();
+        int first = (int) (from / CHECKPOINT_METERS) + 1;
+        int last = Math.min(passages.length - 1, (int) (current.distanceAlongMeters() / CHECKPOINT_METERS));
+        for (int checkpoint = first; checkpoint <= last; checkpoint++) {
+            double fraction = (checkpoint * CHECKPOINT_METERS - from) / travelled;
+            long crossed = previous.timestamp() + Math.round(fraction * elapsed);
+            passages[checkpoint] = Math.max(passages[checkpoint], crossed);
+        }
+    }
+
+    private RouteHeadways computeShape(String shapeId, List<MovingVehicle> vehicles, long nowMillis) {
+        vehicles.sort(Comparator.comparingDouble((MovingVehicle v) -> v.progress().distanceAlongMeters()).reversed()
+                .thenComparing(v -> v.progress().vehicleId()));
+        VehicleProgress lead = vehicles.get(0).progress();
+        Integer direction = scheduledHeadwayService.directionOf(lead.tripId(), nowMillis);
+        Integer scheduled = scheduledHeadwayService.scheduledHeadway(lead.routeId(), direction, nowMillis);
+        long[] passages = passagesByShape.get(shapeId);
+
+        List<VehicleHeadway> result = new ArrayList<>(vehicles.size());
+        int bunched = 0, gaps = 0;
+        for (int i = 0; i < vehicles.size(); i++) {
+            VehicleProgress vehicle = vehicles.get(i).progress();
+            Double gapAhead = i == 0 ? null
+                    : vehicles.get(i - 1).progress().distanceAlongMeters() - vehicle.distanceAlongMeters();
+            Long headway = null;
+            int checkpoint = (int) (vehicle.distanceAlongMeters() / CHECKPOINT_METERS) + 1;
+            if (passages != null && checkpoint < passages.length && passages[checkpoint] > 0) {
+                long seconds = vehicle.timestamp() - passages[checkpoint];
+                if (seconds >= 0 && seconds <= MAX_HEADWAY_SECONDS) {
+                    headway = seconds;
+                }
+            }
+            float speed = vehicles.get(i).speed();
+            if (headway == null && gapAhead != null && speed >= MIN_MOVING_SPEED) {
+                long seconds = Math.round(gapAhead / speed);
+                if (seconds <= MAX_HEADWAY_SECONDS) {
+                    headway = seconds;
+                }
+            }
+            HeadwayStatus status = classify(headway, scheduled);
+            if (status == HeadwayStatus.BUNCHED) {
+                bunched++;
+            } else if (status == HeadwayStatus.GAP) {
+                gaps++;
+            }
+            result.add(new VehicleHeadway(vehicle.vehicleId(), vehicle.tripId(), vehicle.distanceAlongMeters(),
+                    gapAhead, headway, status));
+        }
+        return new RouteHeadways(lead.routeId(), direction, shapeId, scheduled, bunched, gaps, List.copyOf(result));
+    }
+
+    HeadwayStatus classify(Long headwaySeconds, Integer scheduledSeconds) {
+        if (headwaySeconds == null || scheduledSeconds == null || scheduledSeconds <= 0) {
+            return HeadwayStatus.UNKNOWN;
+        }
+        if (headwaySeconds < bunchingRatio * scheduledSeconds) {
+            return HeadwayStatus.BUNCHED;
+        }
+        if (headwaySeconds > gapRatio * scheduledSeconds) {
+            return HeadwayStatus.GAP;
+        }
+        return HeadwayStatus.NORMAL;
+    }
+
+    /**
+     * A map-matched vehicle with the speed estimated for the snapshot, {@code NaN} if unknown.
+     */
+    private record MovingVehicle(VehicleProgress progress, float speed) {
+    }
+}
@@ -0,0 +1,19 @@
+package pl.drunkcom.core.service.analytics;
+
+/**
+ * Classification of a live headway against the scheduled one.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public enum HeadwayStatus {
+    /** Headway within the configured tolerance of the schedule. */
+    NORMAL,
+    /** Vehicle runs much closer behind the one ahead than scheduled. */
+    BUNCHED,
+    /** Vehicle runs much further behind the one ahead than scheduled. */
+    GAP,
+    /** No live or no scheduled headway is known. */
+    UNKNOWN
+}
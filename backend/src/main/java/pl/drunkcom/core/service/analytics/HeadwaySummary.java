@@ -0,0 +1,18 @@
+package pl.drunkcom.core.service.analytics;
+
+/**
+ * Network-wide headway counters of the latest realtime snapshot.
+ *
+ * @param snapshotSequence snapshot the headways were computed from
+ * @param shapes number of route shapes with vehicles
+ * @param vehicles number of vehicles with a known shape position
+ * @param bunched vehicles running bunched
+ * @param gaps vehicles running with a large gap ahead
+ * @param unknown vehicles without a live or scheduled headway
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record HeadwaySummary(long snapshotSequence, int shapes, int vehicles, int bunched, int gaps, int unknown) {
+}
@@ -0,0 +1,262 @@
+package pl.drunkcom.core.service.analytics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.dataset.GtfsTime;
+import pl.drunkcom.core.service.geo.TripStopPattern;
+import pl.drunkcom.core.service.realtime.MapMatchingService;
+import pl.drunkcom.core.service.realtime.RealtimeAnalyticsListener;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.TripGeometry;
+import pl.drunkcom.core.service.realtime.VehicleProgress;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Incremental on-time performance rollups per route, stop, local date and hour.
+ *
+ * <p>Each time a vehicle passes a stop, the delay reported at that moment classifies the departure as
+ * early (more than {@code otp.early-seconds} ahead), late (more than {@code otp.late-seconds} behind) or
+ * on time. A trip's first stop is counted when the vehicle leaves it, since it may wait there before
+ * departure. A trip reported as cancelled counts once for every stop of its pattern, in the hour the
+ * stop was scheduled.
+ *
+ * <p>Counters are added to an in-memory delta map and flushed every {@code otp.flush-interval-ms} to
+ * the rollup tables of {@link OtpRollupStore} as batched upserts, so the cost of a snapshot and of a
+ * flush follows the number of buckets touched, not the history. Reports read the rollup tables only:
+ * the current minute is not included until it is flushed. A failed flush is retried with the next one.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+@Order(96)
+public class OnTimePerformanceService implements RealtimeAnalyticsListener {
+
+    private static final Logger log = LoggerFactory.getLogger(OnTimePerformanceService.class);
+
+    private static final long TRIP_STATE_TTL_SECONDS = 30 * 60;
+    private static final long PRUNE_INTERVAL_SECONDS = 60;
+
+    private final MapMatchingService mapMatchingService;
+    private final OtpRollupStore store;
+    private final ZoneId zone;
+    private final boolean enabled;
+    private final int earlySeconds;
+    private final int lateSeconds;
+
+    private Map<OtpRollupStore.Key, long[]> pending = new HashMap<>();
+    private final Map<String, TripState> trips = new HashMap<>();
+    private final Map<String, LocalDate> cancelledTrips = new HashMap<>();
+    private boolean schemaReady;
+    private long lastPruneSeconds;
+
+    public OnTimePerformanceService(DataSource dataSource, MapMatchingService mapMatchingService,
+                                    @Value("${gtfs.timezone:Europe/Warsaw}") String timezone,
+                                    @Value("${otp.enabled:true}") boolean enabled,
+                                    @Value("${otp.early-seconds:60}") int earlySeconds,
+                                    @Value("${otp.late-seconds:180}") int lateSeconds) {
+        this.mapMatchingService = mapMatchingService;
+        this.store = new OtpRollupStore(dataSource);
+        this.zone = ZoneId.of(timezone);
+        this.enabled = enabled;
+        this.earlySeconds = earlySeconds;
+        this.lateSeconds = lateSeconds;
+    }
+
+    @Override
+    public void onRestoredSnapshot(RealtimeSnapshot snapshot) {
+        // a departure seen before a restart must not be counted again
+    }
+
+    @Override
+    public void onSnapshot(RealtimeSnapshot snapshot) {
+        if (!enabled) {
+            return;
+        }
+        long fallback = snapshot.getPublishedAtMillis() / 1000;
+        for (VehicleCurrentState vehicle : snapshot.getVehicles()) {
+            if (vehicle.tripId() == null || vehicle.routeId() == null || vehicle.routeId().isEmpty()
+                    || !vehicle.hasDelayData()) {
+                continue;
+            }
+            long time = vehicle.timestamp() > 0 ? vehicle.timestamp() : fallback;
+            if ("CANCELED".equals(vehicle.scheduleRelationship()) || "DELETED".equals(vehicle.scheduleRelationship())) {
+                countCancellation(vehicle, time);
+                continue;
+            }
+            Optional<VehicleProgress> progress = mapMatchingService.find(vehicle.vehicleId())
+                    .filter(p -> vehicle.tripId().equals(p.tripId()) && p.previousStopId() != null);
+            if (progress.isEmpty()) {
+                continue;
+            }
+            String stopId = progress.get().previousStopId();
+            TripState state = trips.computeIfAbsent(vehicle.tripId(), id -> new TripState());
+            state.lastSeen = time;
+            if (stopId.equals(state.lastStopId)) {
+                continue;
+            }
+            if (state.lastStopId == null) {
+                // first sighting, possibly mid-segment: only a vehicle at its first stop is counted, once it leaves
+                state.atFirstStop = mapMatchingService.findTripGeometry(vehicle.tripId())
+                        .map(trip -> trip.stops() != null && stopId.equals(trip.stops().stopIdAt(0)))
+                        .orElse(false);
+            } else {
+                if (state.atFirstStop) {
+                    countDeparture(vehicle, state.lastStopId, time);
+                    state.atFirstStop = false;
+                }
+                countDeparture(vehicle, stopId, time);
+            }
+            state.lastStopId = stopId;
+        }
+        if (fallback - lastPruneSeconds >= PRUNE_INTERVAL_SECONDS) {
+            trips.values().removeIf(state -> fallback - state.lastSeen > TRIP_STATE_TTL_SECONDS);
+            LocalDate yesterday = Instant.ofEpochSecond(fallback).atZone(zone).toLocalDate().minusDays(1);
+            cancelledTrips.values().removeIf(date -> date.isBefore(yesterday));
+            lastPruneSeconds = fallback;
+        }
+    }
+
+    /**
+     * Writes the counters accumulated since the last flush.
+     */
+    @Scheduled(fixedDelayString = "${otp.flush-interval-ms:60000}", initialDelayString = "${otp.flush-interval-ms:60000}")
+    @PreDestroy
+    public void flush() {
+        Map<OtpRollupStore.Key, long[]> deltas;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            deltas = pending;
+            pending = new HashMap<>();
+        }
+        long started = System.nanoTime();
+        try {
+            ensureSchema();
+            int[] rows = store.upsert(deltas);
+            log.debug("Flushed on-time rollups: {} stop rows, {} route rows in {} ms", rows[0], rows[1],
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Failed to flush {} on-time rollup rows, retrying with the next flush: {}",
+                    deltas.size(), e.getMessage());
+            synchronized (this) {
+                deltas.forEach((key, counters) -> add(pending, key, counters));
+            }
+        }
+    }
+
+    /**
+     * Summarizes the on-time performance of every route over a date range.
+     *
+     * @return one summary per route with any activity, ordered by route
+     */
+    public List<OtpRouteSummary> summarizeRoutes(LocalDate from, LocalDate to) throws SQLException {
+        ensureSchema();
+        List<OtpRouteSummary> summaries = new ArrayList<>();
+        store.routeTotals(from, to).forEach((routeId, counters) ->
+                summaries.add(new OtpRouteSummary(routeId, counts(counters))));
+        return summaries;
+    }
+
+    /**
+     * Reports the on-time performance of a route, or of one stop on it, per day and per hour of day.
+     *
+     * @param stopId stop filter, or null for the whole route
+     */
+    public OtpReport report(String routeId, String stopId, LocalDate from, LocalDate to) throws SQLException {
+        ensureSchema();
+        long[] total = new long[OtpRollupStore.COUNTERS];
+        List<OtpDay> days = new ArrayList<>();
+        store.days(routeId, stopId, from, to).forEach((date, counters) -> {
+            days.add(new OtpDay(date, counts(counters)));
+            for (int i = 0; i < total.length; i++) {
+                total[i] += counters[i];
+            }
+        });
+        List<OtpHour> hours = new ArrayList<>();
+        store.hours(routeId, stopId, from, to).forEach((hour, counters) ->
+                hours.add(new OtpHour(hour, counts(counters))));
+        return new OtpReport(routeId, stopId, from, to, counts(total), days, hours);
+    }
+
+    private void countDeparture(VehicleCurrentState vehicle, String stopId, long time) {
+        ZonedDateTime local = Instant.ofEpochSecond(time).atZone(zone);
+        int delay = vehicle.delay();
+        long[] counters = new long[OtpRollupStore.COUNTERS];
+        counters[delay < -earlySeconds ? OtpRollupStore.EARLY
+                : delay > lateSeconds ? OtpRollupStore.LATE : OtpRollupStore.ON_TIME] = 1;
+        counters[OtpRollupStore.DELAY_SUM] = delay;
+        synchronized (this) {
+            add(pending, new OtpRollupStore.Key(local.toLocalDate(), local.getHour(), vehicle.routeId(), stopId),
+                    counters);
+        }
+    }
+
+    private void countCancellation(VehicleCurrentState vehicle, long time) {
+        if (cancelledTrips.containsKey(vehicle.tripId())) {
+            return;
+        }
+        // the stop pattern is loaded in the background once map matching has seen the trip; retried until then
+        Optional<TripStopPattern> stops = mapMatchingService.findTripGeometry(vehicle.tripId()).map(TripGeometry::stops);
+        if (stops.isEmpty()) {
+            return;
+        }
+        LocalDate serviceDate = Instant.ofEpochSecond(time).atZone(zone).toLocalDate();
+        cancelledTrips.put(vehicle.tripId(), serviceDate);
+        long[] counters = new long[OtpRollupStore.COUNTERS];
+        counters[OtpRollupStore.CANCELLED] = 1;
+        synchronized (this) {
+            for (int i = 0; i < stops.get().size(); i++) {
+                int scheduled = stops.get().scheduledArrivalAt(i);
+                LocalDate date = scheduled >= 0 ? serviceDate.plusDays(scheduled / GtfsTime.SECONDS_PER_DAY) : serviceDate;
+                int hour = scheduled >= 0 ? scheduled % GtfsTime.SECONDS_PER_DAY / 3600
+                        : Instant.ofEpochSecond(time).atZone(zone).getHour();
+                add(pending, new OtpRollupStore.Key(date, hour, vehicle.routeId(), stops.get().stopIdAt(i)), counters);
+            }
+        }
+    }
+
+    private synchronized void ensureSchema() throws SQLException {
+        if (!schemaReady) {
+            store.ensureSchema();
+            schemaReady = true;
+        }
+    }
+
+    private static void add(Map<OtpRollupStore.Key, long[]> target, OtpRollupStore.Key key, long[] counters) {
+        long[] sum = target.computeIfAbsent(key, k -> new long[OtpRollupStore.COUNTERS]);
+        for (int i = 0; i < sum.length; i++) {
+            sum[i] += counters[i];
+        }
+    }
+
+    private static OtpCounts counts(long[] counters) {
+        return OtpCounts.of(counters[OtpRollupStore.ON_TIME], counters[OtpRollupStore.LATE],
+                counters[OtpRollupStore.EARLY], counters[OtpRollupStore.CANCELLED], counters[OtpRollupStore.DELAY_SUM]);
+    }
+
+    private static final class TripState {
+        private long lastSeen;
+        private String lastStopId;
+        private boolean atFirstStop;
+    }
+}
@@ -0,0 +1,26 @@
+package pl.drunkcom.core.service.analytics;
+
+/**
+ * On-time performance counters of one bucket.
+ *
+ * @param onTime stop departures within the on-time window
+ * @param late stop departures later than the window
+ * @param early stop departures earlier than the window
+ * @param cancelled scheduled stop visits of cancelled trips
+ * @param onTimeRatio share of observed departures that were on time, null if none was observed
+ * @param meanDelaySeconds mean delay of the observed departures, null if none was observed
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record OtpCounts(long onTime, long late, long early, long cancelled, Double onTimeRatio,
+                        Double meanDelaySeconds) {
+
+    static OtpCounts of(long onTime, long late, long early, long cancelled, long delaySum) {
+        long observed = onTime + late + early;
+        return new OtpCounts(onTime, late, early, cancelled,
+                observed > 0 ? (double) onTime / observed : null,
+                observed > 0 ? (double) delaySum / observed : null);
+    }
+}
@@ -0,0 +1,16 @@
+package pl.drunkcom.core.service.analytics;
+
+import java.time.LocalDate;
+
+/**
+ * On-time performance of one local day.
+ *
+ * @param date local date
+ * @param counts counters of that day
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record OtpDay(LocalDate date, OtpCounts counts) {
+}
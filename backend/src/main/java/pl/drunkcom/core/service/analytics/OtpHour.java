@@ -0,0 +1,14 @@
+package pl.drunkcom.core.service.analytics;
+
+/**
+ * On-time performance of one local hour of day, summed over a date range.
+ *
+ * @param hour local hour of day, 0-23
+ * @param counts counters of that hour
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record OtpHour(int hour, OtpCounts counts) {
+}
@@ -0,0 +1,23 @@
+package pl.drunkcom.core.service.analytics;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * On-time performance of a route, or of one stop on it, over a date range.
+ *
+ * @param routeId GTFS route identifier
+ * @param stopId GTFS stop identifier, null for the whole route
+ * @param from first local date, inclusive
+ * @param to last local date, inclusive
+ * @param total counters over the whole range
+ * @param days counters per day with any activity, ascending
+ * @param hours counters per hour of day with any activity, ascending
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record OtpReport(String routeId, String stopId, LocalDate from, LocalDate to, OtpCounts total,
+                        List<OtpDay> days, List<OtpHour> hours) {
+}
@@ -0,0 +1,226 @@
+package pl.drunkcom.core.service.analytics;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * On-time performance rollup tables and their upserts.
+ *
+ * <p>{@code otp_stop_hourly} holds the counters per route, stop, local date and hour;
+ * {@code otp_route_daily} the same counters per route and date, so that month-scale route queries read
+ * a few dozen rows. Both are keyed by their natural key, route first. Counter deltas are added with
+ * {@code INSERT ... ON CONFLICT DO UPDATE} on PostgreSQL and the standard {@code MERGE} elsewhere,
+ * sent in JDBC batches within one transaction.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+final class OtpRollupStore {
+
+    static final String STOP_TABLE = "otp_stop_hourly";
+    static final String ROUTE_TABLE = "otp_route_daily";
+
+    static final int ON_TIME = 0;
+    static final int LATE = 1;
+    static final int EARLY = 2;
+    static final int CANCELLED = 3;
+    static final int DELAY_SUM = 4;
+    static final int COUNTERS = 5;
+
+    private static final List<String> COUNTER_COLUMNS = List.of("on_time", "late", "early", "cancelled", "delay_sum");
+    private static final List<String> STOP_KEY = List.of("route_id", "stop_id", "service_date", "hour_of_day");
+    private static final List<String> ROUTE_KEY = List.of("route_id", "service_date");
+    private static final int BATCH_SIZE = 1000;
+
+    private final DataSource dataSource;
+    private boolean postgres;
+
+    OtpRollupStore(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Counters of one route and stop in one local hour.
+     */
+    record Key(LocalDate date, int hour, String routeId, String stopId) {
+    }
+
+    void ensureSchema() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            postgres = "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+            String counters = "on_time INTEGER NOT NULL, late INTEGER NOT NULL, early INTEGER NOT NULL, "
+                    + "cancelled INTEGER NOT NULL, delay_sum BIGINT NOT NULL";
+            statement.execute("CREATE TABLE IF NOT EXISTS " + STOP_TABLE + " (route_id VARCHAR(64) NOT NULL, "
+                    + "stop_id VARCHAR(64) NOT NULL, service_date DATE NOT NULL, hour_of_day SMALLINT NOT NULL, "
+                    + counters + ", PRIMARY KEY (" + String.join(", ", STOP_KEY) + "))");
+            statement.execute("CREATE TABLE IF NOT EXISTS " + ROUTE_TABLE + " (route_id VARCHAR(64) NOT NULL, "
+                    + "service_date DATE NOT NULL, " + counters + ", PRIMARY KEY (" + String.join(", ", ROUTE_KEY) + "))");
+            statement.execute("CREATE INDEX IF NOT EXISTS " + ROUTE_TABLE + "_date ON " + ROUTE_TABLE + " (service_date)");
+        }
+    }
+
+    /**
+     * Adds counter deltas to both tables in one transaction.
+     *
+     * @return the number of stop rows and route rows upserted
+     */
+    int[] upsert(Map<Key, long[]> deltas) throws SQLException {
+        Map<List<Object>, long[]> routeDeltas = new HashMap<>();
+        for (Map.Entry<Key, long[]> entry : deltas.entrySet()) {
+            long[] sum = routeDeltas.computeIfAbsent(List.of(entry.getKey().routeId(), entry.getKey().date()),
+                    key -> new long[COUNTERS]);
+            for (int i = 0; i < COUNTERS; i++) {
+                sum[i] += entry.getValue()[i];
+            }
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement stops = connection.prepareStatement(upsertSql(STOP_TABLE, STOP_KEY));
+                 PreparedStatement routes = connection.prepareStatement(upsertSql(ROUTE_TABLE, ROUTE_KEY))) {
+                int pending = 0;
+                for (Map.Entry<Key, long[]> entry : deltas.entrySet()) {
+                    Key key = entry.getKey();
+                    bind(stops, entry.getValue(), key.routeId(), key.stopId(), key.date(), key.hour());
+                    if (++pending % BATCH_SIZE == 0) {
+                        stops.executeBatch();
+                    }
+                }
+                stops.executeBatch();
+                pending = 0;
+                for (Map.Entry<List<Object>, long[]> entry : routeDeltas.entrySet()) {
+                    bind(routes, entry.getValue(), entry.getKey().get(0), entry.getKey().get(1));
+                    if (++pending % BATCH_SIZE == 0) {
+                        routes.executeBatch();
+                    }
+                }
+                routes.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        return new int[]{deltas.size(), routeDeltas.size()};
+    }
+
+    /**
+     * Sums the counters of every route over a date range.
+     */
+    Map<String, long[]> routeTotals(LocalDate from, LocalDate to) throws SQLException {
+        Map<String, long[]> totals = new TreeMap<>();
+        try (Connection connection = dataSource.getConnection()) {
+            query(connection, "SELECT route_id, " + sums() + " FROM " + ROUTE_TABLE
+                    + " WHERE service_date BETWEEN ? AND ? GROUP BY route_id", totals, rows -> rows.getString(1), from, to);
+        }
+        return totals;
+    }
+
+    /**
+     * Sums the counters of a route, or one stop on it, per date.
+     */
+    Map<LocalDate, long[]> days(String routeId, String stopId, LocalDate from, LocalDate to) throws SQLException {
+        Map<LocalDate, long[]> days = new TreeMap<>();
+        KeyReader<LocalDate> date = rows -> rows.getObject(1, LocalDate.class);
+        try (Connection connection = dataSource.getConnection()) {
+            if (stopId == null) {
+                query(connection, "SELECT service_date, " + sums() + " FROM " + ROUTE_TABLE + " WHERE route_id = ? "
+                        + "AND service_date BETWEEN ? AND ? GROUP BY service_date", days, date, routeId, from, to);
+            } else {
+                query(connection, "SELECT service_date, " + sums() + " FROM " + STOP_TABLE + " WHERE route_id = ? "
+                        + "AND stop_id = ? AND service_date BETWEEN ? AND ? GROUP BY service_date", days, date,
+                        routeId, stopId, from, to);
+            }
+        }
+        return days;
+    }
+
+    /**
+     * Sums the counters of a route, or one stop on it, per hour of day.
+     */
+    Map<Integer, long[]> hours(String routeId, String stopId, LocalDate from, LocalDate to) throws SQLException {
+        Map<Integer, long[]> hours = new TreeMap<>();
+        KeyReader<Integer> hour = rows -> rows.getInt(1);
+        try (Connection connection = dataSource.getConnection()) {
+            if (stopId == null) {
+                query(connection, "SELECT hour_of_day, " + sums() + " FROM " + STOP_TABLE + " WHERE route_id = ? "
+                        + "AND service_date BETWEEN ? AND ? GROUP BY hour_of_day", hours, hour, routeId, from, to);
+            } else {
+                query(connection, "SELECT hour_of_day, " + sums() + " FROM " + STOP_TABLE + " WHERE route_id = ? "
+                        + "AND stop_id = ? AND service_date BETWEEN ? AND ? GROUP BY hour_of_day", hours, hour,
+                        routeId, stopId, from, to);
+            }
+        }
+        return hours;
+    }
+
+    private String upsertSql(String table, List<String> key) {
+        List<String> columns = new ArrayList<>(key);
+        columns.addAll(COUNTER_COLUMNS);
+        String placeholders = columns.stream().map(column -> "?").collect(Collectors.joining(", "));
+        if (postgres) {
+            return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (" + placeholders + ") "
+                    + "ON CONFLICT (" + String.join(", ", key) + ") DO UPDATE SET "
+                    + COUNTER_COLUMNS.stream().map(c -> c + " = " + table + "." + c + " + EXCLUDED." + c)
+                    .collect(Collectors.joining(", "));
+        }
+        return "MERGE INTO " + table + " t USING (VALUES (" + placeholders + ")) s (" + String.join(", ", columns)
+                + ") ON " + key.stream().map(c -> "t." + c + " = s." + c).collect(Collectors.joining(" AND "))
+                + " WHEN MATCHED THEN UPDATE SET "
+                + COUNTER_COLUMNS.stream().map(c -> c + " = t." + c + " + s." + c).collect(Collectors.joining(", "))
+                + " WHEN NOT MATCHED THEN INSERT (" + String.join(", ", columns) + ") VALUES ("
+                + columns.stream().map(c -> "s." + c).collect(Collectors.joining(", ")) + ")";
+    }
+
+    private static void bind(PreparedStatement statement, long[] counters, Object... key) throws SQLException {
+        int index = 1;
+        for (Object value : key) {
+            statement.setObject(index++, value);
+        }
+        for (int i = 0; i < COUNTERS; i++) {
+            statement.setLong(index++, counters[i]);
+        }
+        statement.addBatch();
+    }
+
+    private static String sums() {
+        return COUNTER_COLUMNS.stream().map(c -> "SUM(" + c + ")").collect(Collectors.joining(", "));
+    }
+
+    private static <K> void query(Connection connection, String sql, Map<K, long[]> result, KeyReader<K> keyReader,
+                                  Object... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    long[] counters = new long[COUNTERS];
+                    for (int i = 0; i < COUNTERS; i++) {
+                        counters[i] = rows.getLong(i + 2);
+                    }
+                    result.put(keyReader.read(rows), counters);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface KeyReader<K> {
+        K read(ResultSet rows) throws SQLException;
+    }
+}
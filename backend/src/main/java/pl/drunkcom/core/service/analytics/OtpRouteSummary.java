@@ -0,0 +1,14 @@
+package pl.drunkcom.core.service.analytics;
+
+/**
+ * On-time performance of one route over a date range.
+ *
+ * @param routeId GTFS route identifier
+ * @param counts counters over the range
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record OtpRouteSummary(String routeId, OtpCounts counts) {
+}
@@ -0,0 +1,22 @@
+package pl.drunkcom.core.service.analytics;
+
+import java.util.List;
+
+/**
+ * Live headways of the vehicles running on one shape of a route and direction.
+ *
+ * @param routeId GTFS route identifier
+ * @param directionId GTFS direction, may be null
+ * @param shapeId shape the vehicles are ordered along
+ * @param scheduledHeadwaySeconds scheduled headway around the current time, null if unknown
+ * @param bunched number of vehicles flagged {@link HeadwayStatus#BUNCHED}
+ * @param gaps number of vehicles flagged {@link HeadwayStatus#GAP}
+ * @param vehicles vehicles ordered from the front of the shape to the back
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record RouteHeadways(String routeId, Integer directionId, String shapeId, Integer scheduledHeadwaySeconds,
+                            int bunched, int gaps, List<VehicleHeadway> vehicles) {
+}
@@ -0,0 +1,19 @@
+package pl.drunkcom.core.service.analytics;
+
+/**
+ * Identifies the run times between two consecutive stops of a route pattern in one time-of-day bucket.
+ *
+ * @param routeId GTFS route identifier
+ * @param patternId route pattern, the trip's shape id or the route id if the trip has no shape
+ * @param fromStopId stop the segment starts at
+ * @param toStopId stop the segment ends at
+ * @param dayType day class
+ * @param hour local hour in which the segment was entered
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record RunTimeKey(String routeId, String patternId, String fromStopId, String toStopId,
+                         DayType dayType, int hour) {
+}
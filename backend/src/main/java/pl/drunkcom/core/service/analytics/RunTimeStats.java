@@ -0,0 +1,21 @@
+package pl.drunkcom.core.service.analytics;
+
+/**
+ * Observed run time distribution of a segment.
+ *
+ * @param samples number of observed runs
+ * @param meanSeconds mean run time
+ * @param p50Seconds median run time
+ * @param p90Seconds 90th percentile run time
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record RunTimeStats(long samples, double meanSeconds, double p50Seconds, double p90Seconds) {
+
+    static RunTimeStats of(long[] dense, long count, long sum) {
+        return new RunTimeStats(count, (double) sum / count, DelayHistogram.quantile(dense, count, 0.50),
+                DelayHistogram.quantile(dense, count, 0.90));
+    }
+}
@@ -0,0 +1,187 @@
+package pl.drunkcom.core.service.analytics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.interfaces.TripsRepository;
+import pl.drunkcom.core.service.dataset.GtfsTime;
+import pl.drunkcom.core.service.dataset.ServiceCalendar;
+import pl.drunkcom.core.service.dataset.StaticDatasetVersion;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Scheduled headways per route and direction, derived from the departure times of today's trips at
+ * their first stop.
+ *
+ * <p>The scheduled headway at a moment is the median gap between consecutive departures within
+ * {@link #WINDOW_SECONDS} either side of it. Trips of yesterday's services running past midnight are
+ * included. The timetable is rebuilt lazily when the day or the static dataset version changes; while a
+ * rebuild is running the previous timetable keeps being served.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class ScheduledHeadwayService {
+
+    private static final Logger log = LoggerFactory.getLogger(ScheduledHeadwayService.class);
+
+    static final int WINDOW_SECONDS = 30 * 60;
+
+    private final TripsRepository tripsRepository;
+    private final ServiceCalendar serviceCalendar;
+    private final StaticDatasetVersion datasetVersion;
+    private final ZoneId zone;
+    private final ReentrantLock buildLock = new ReentrantLock();
+
+    private volatile Timetable timetable;
+
+    public ScheduledHeadwayService(TripsRepository tripsRepository, ServiceCalendar serviceCalendar,
+                                   StaticDatasetVersion datasetVersion,
+                                   @Value("${gtfs.timezone:Europe/Warsaw}") String timezone) {
+        this.tripsRepository = tripsRepository;
+        this.serviceCalendar = serviceCalendar;
+        this.datasetVersion = datasetVersion;
+        this.zone = ZoneId.of(timezone);
+    }
+
+    /**
+     * Scheduled headway of a route and direction around a moment.
+     *
+     * @param routeId GTFS route identifier
+     * @param directionId GTFS direction, may be null
+     * @param epochMillis the moment
+     * @return the headway in seconds, or null if fewer than two trips depart around that time
+     */
+    public Integer scheduledHeadway(String routeId, Integer directionId, long epochMillis) {
+        ZonedDateTime time = ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), zone);
+        return timetable(time.toLocalDate()).headway(routeId, directionId, time.toLocalTime().toSecondOfDay());
+    }
+
+    /**
+     * GTFS direction of a trip.
+     *
+     * @return the direction, or null if the trip is unknown or has none
+     */
+    public Integer directionOf(String tripId, long epochMillis) {
+        ZonedDateTime time = ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), zone);
+        return timetable(time.toLocalDate()).directions().get(tripId);
+    }
+
+    private Timetable timetable(LocalDate date) {
+        Timetable current = timetable;
+        String version = datasetVersion.current();
+        if (current != null && current.matches(version, date)) {
+            return current;
+        }
+        if (current != null) {
+            if (!buildLock.tryLock()) {
+                return current;
+            }
+        } else {
+            buildLock.lock();
+        }
+        try {
+            current = timetable;
+            if (current == null || !current.matches(version, date)) {
+                current = build(version, date);
+                timetable = current;
+            }
+            return current;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    private Timetable build(String version, LocalDate date) {
+        long started = System.nanoTime();
+        Set<String> today = serviceCalendar.activeServiceIds(date);
+        Set<String> yesterday = serviceCalendar.activeServiceIds(date.minusDays(1));
+
+        Map<String, Integer> directions = new HashMap<>();
+        Map<String, List<Integer>> departures = new HashMap<>();
+        for (TripsRepository.TripStart trip : tripsRepository.findTripStarts()) {
+            if (trip.getDirectionId() != null) {
+                directions.put(trip.getTripId(), trip.getDirectionId());
+            }
+            int seconds = GtfsTime.toSeconds(trip.getFirstDeparture());
+            if (seconds < 0 || trip.getRouteId() == null) {
+                continue;
+            }
+            String key = key(trip.getRouteId(), trip.getDirectionId());
+            if (today.contains(trip.getServiceId())) {
+                departures.computeIfAbsent(key, k -> new ArrayList<>()).add(seconds);
+            }
+            if (seconds >= GtfsTime.SECONDS_PER_DAY && yesterday.contains(trip.getServiceId())) {
+                departures.computeIfAbsent(key, k -> new ArrayList<>()).add(seconds - GtfsTime.SECONDS_PER_DAY);
+            }
+        }
+        Map<String, int[]> sorted = new HashMap<>();
+        departures.forEach((key, list) -> {
+            int[] times = list.stream().mapToInt(Integer::intValue).toArray();
+            Arrays.sort(times);
+            sorted.put(key, times);
+        });
+        log.info("Built scheduled headways for {} route directions on {} in {} ms",
+                sorted.size(), date, (System.nanoTime() - started) / 1_000_000);
+        return new Timetable(version, date, Map.copyOf(sorted), Map.copyOf(directions));
+    }
+
+    static String key(String routeId, Integer directionId) {
+        return routeId + "|" + (directionId != null ? directionId : "");
+    }
+
+    /**
+     * Sorted departure times (seconds of the service day) per route and direction.
+     */
+    record Timetable(String version, LocalDate date, Map<String, int[]> departures, Map<String, Integer> directions) {
+
+        boolean matches(String otherVersion, LocalDate otherDate) {
+            return version.equals(otherVersion) && date.equals(otherDate);
+        }
+
+        Integer headway(String routeId, Integer directionId, int secondOfDay) {
+            int[] times = departures.get(key(routeId, directionId));
+            if (times == null || times.length < 2) {
+                return null;
+            }
+            int from = lowerBound(times, secondOfDay - WINDOW_SECONDS);
+            int to = lowerBound(times, secondOfDay + WINDOW_SECONDS + 1);
+            if (to - from < 2) {
+                return null;
+            }
+            int[] gaps = new int[to - from - 1];
+            for (int i = from + 1; i < to; i++) {
+                gaps[i - from - 1] = times[i] - times[i - 1];
+            }
+            Arrays.sort(gaps);
+            return gaps[gaps.length / 2];
+        }
+
+        private static int lowerBound(int[] sorted, int value) {
+            int low = 0, high = sorted.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sorted[mid] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package pl.drunkcom.core.service.analytics;
+
+/**
+ * Observed against scheduled run time between two consecutive stops of a route pattern.
+ *
+ * @param patternId route pattern (shape) identifier
+ * @param fromStopId segment start
+ * @param toStopId segment end
+ * @param observed observed run times in the requested bucket
+ * @param scheduledSeconds median scheduled run time of the trips entering the segment in the requested hour,
+ *                         null if none does
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record SegmentRunTime(String patternId, String fromStopId, String toStopId, RunTimeStats observed,
+                             Integer scheduledSeconds) {
+}
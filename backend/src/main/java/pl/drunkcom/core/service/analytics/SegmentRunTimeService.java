@@ -0,0 +1,486 @@
+package pl.drunkcom.core.service.analytics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.interfaces.StopTimeRepository;
+import pl.drunkcom.core.interfaces.TripsRepository;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.dataset.GtfsTime;
+import pl.drunkcom.core.service.realtime.MapMatchingService;
+import pl.drunkcom.core.service.realtime.RealtimeAnalyticsListener;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.VehicleProgress;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Observed stop-to-stop run times per route pattern, segment, day type and hour, derived from the
+ * position history and kept up to date from the live feed.
+ *
+ * <p>A nightly batch rebuilds the base statistics from the last {@code runtimes.lookback-days} complete
+ * days of {@code vehicle_position_history}: one fork-join task per day reads that day's rows in vehicle
+ * and time order, runs them through a {@link StopPassageTracker} and yields a map of histograms; the
+ * per-day maps are merged pairwise. The result is persisted to {@code segment_run_times}, one compact
+ * serialized {@link DelayHistogram} per key, and loaded at startup. Between rebuilds every run observed
+ * in the live feed is added to a per-day incremental layer, which the next rebuild supersedes.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+@Order(93)
+public class SegmentRunTimeService implements RealtimeAnalyticsListener {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentRunTimeService.class);
+
+    static final String TABLE = "segment_run_times";
+    static final int MIN_SAMPLES = 5;
+    private static final long TRACKER_TTL_SECONDS = 30 * 60;
+    private static final long RESOLVED_TTL_MILLIS = 5 * 60_000L;
+
+    private final DataSource dataSource;
+    private final TripsRepository tripsRepository;
+    private final StopTimeRepository stopTimeRepository;
+    private final MapMatchingService mapMatchingService;
+    private final ZoneId zone;
+    private final boolean enabled;
+    private final int lookbackDays;
+    private final int parallelism;
+
+    private volatile Map<RunTimeKey, DelayHistogram> base = Map.of();
+    private volatile LocalDate baseThrough;
+    private final Map<LocalDate, Map<RunTimeKey, DelayHistogram>> live = new ConcurrentHashMap<>();
+    private final Map<String, StopPassageTracker> trackers = new HashMap<>();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final Map<RunTimeKey, Optional<RunTimeStats>> resolved = new ConcurrentHashMap<>();
+    private volatile long resolvedAtMillis;
+
+    public SegmentRunTimeService(DataSource dataSource, TripsRepository tripsRepository,
+                                 StopTimeRepository stopTimeRepository, MapMatchingService mapMatchingService,
+                                 @Value("${gtfs.timezone:Europe/Warsaw}") String timezone,
+                                 @Value("${runtimes.enabled:true}") boolean enabled,
+                                 @Value("${runtimes.lookback-days:28}") int lookbackDays,
+                                 @Value("${runtimes.parallelism:4}") int parallelism) {
+        this.dataSource = dataSource;
+        this.tripsRepository = tripsRepository;
+        this.stopTimeRepository = stopTimeRepository;
+        this.mapMatchingService = mapMatchingService;
+        this.zone = ZoneId.of(timezone);
+        this.enabled = enabled;
+        this.lookbackDays = lookbackDays;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public void onRestoredSnapshot(RealtimeSnapshot snapshot) {
+        // a run measured across the restart would include the downtime
+    }
+
+    @Override
+    public void onSnapshot(RealtimeSnapshot snapshot) {
+        long fallback = snapshot.getPublishedAtMillis() / 1000;
+        for (VehicleCurrentState vehicle : snapshot.getVehicles()) {
+            Optional<VehicleProgress> matched = mapMatchingService.find(vehicle.vehicleId());
+            if (matched.isEmpty() || vehicle.tripId() == null || !vehicle.tripId().equals(matched.get().tripId())) {
+                continue;
+            }
+            VehicleProgress progress = matched.get();
+            String routeId = vehicle.routeId();
+            String patternId = progress.shapeId() != null ? progress.shapeId() : routeId;
+            long time = vehicle.timestamp() > 0 ? vehicle.timestamp() : fallback;
+            trackers.computeIfAbsent(vehicle.vehicleId(), id -> new StopPassageTracker())
+                    .observe(vehicle.tripId(), progress.previousStopId(), time, (from, to, enteredAt, seconds) -> {
+                        ZonedDateTime entered = Instant.ofEpochSecond(enteredAt).atZone(zone);
+                        recordLive(entered.toLocalDate(), new RunTimeKey(routeId, patternId, from, to,
+                                DayType.of(entered.getDayOfWeek()), entered.getHour()), seconds);
+                    });
+        }
+        trackers.values().removeIf(tracker -> fallback - tracker.getLastTime() > TRACKER_TTL_SECONDS);
+    }
+
+    /**
+     * Observed run time of a segment entered at a given moment, widening the time bucket to the
+     * neighbouring hours and then the whole day type while fewer than {@link #MIN_SAMPLES} runs are known.
+     * Answers are cached for a few minutes, so runs observed live show up with that lag.
+     *
+     * @return the statistics, or empty if the segment was hardly ever observed on that day type
+     */
+    public Optional<RunTimeStats> runTime(String routeId, String patternId, String fromStopId, String toStopId,
+                                          long epochMillis) {
+        ZonedDateTime time = Instant.ofEpochMilli(epochMillis).atZone(zone);
+        RunTimeKey key = new RunTimeKey(routeId, patternId, fromStopId, toStopId,
+                DayType.of(time.getDayOfWeek()), time.getHour());
+        long now = System.currentTimeMillis();
+        if (now - resolvedAtMillis > RESOLVED_TTL_MILLIS) {
+            resolved.clear();
+            resolvedAtMillis = now;
+        }
+        return resolved.computeIfAbsent(key, this::resolve);
+    }
+
+    private Optional<RunTimeStats> resolve(RunTimeKey key) {
+        for (int spread : new int[]{0, 1, 12}) {
+            long[] dense = new long[DelayHistogram.binCount()];
+            long[] totals = new long[2];
+            for (int h = key.hour() - spread; h <= key.hour() + spread; h++) {
+                collect(new RunTimeKey(key.routeId(), key.patternId(), key.fromStopId(), key.toStopId(),
+                        key.dayType(), Math.floorMod(h, 24)), dense, totals);
+            }
+            if (totals[0] >= MIN_SAMPLES) {
+                return Optional.of(RunTimeStats.of(dense, totals[0], totals[1]));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Observed against scheduled run times of every segment of a route in one time-of-day bucket.
+     *
+     * @return segments ordered by pattern and first scheduled departure, observed ones only
+     */
+    public List<SegmentRunTime> compareWithSchedule(String routeId, DayType dayType, int hour) {
+        Map<List<String>, long[]> dense = new HashMap<>();
+        Map<List<String>, long[]> totals = new HashMap<>();
+        for (RunTimeKey key : allKeys()) {
+            if (routeId.equals(key.routeId()) && key.dayType() == dayType && key.hour() == hour) {
+                List<String> segment = List.of(key.patternId(), key.fromStopId(), key.toStopId());
+                collect(key, dense.computeIfAbsent(segment, s -> new long[DelayHistogram.binCount()]),
+                        totals.computeIfAbsent(segment, s -> new long[2]));
+            }
+        }
+        Map<List<String>, List<Integer>> scheduled = new HashMap<>();
+        Map<List<String>, Integer> order = new HashMap<>();
+        List<StopTimeRepository.TripDeparture> departures = stopTimeRepository.findRouteDepartures(routeId);
+        for (int i = 1; i < departures.size(); i++) {
+            StopTimeRepository.TripDeparture from = departures.get(i - 1);
+            StopTimeRepository.TripDeparture to = departures.get(i);
+            if (!from.getTripId().equals(to.getTripId())) {
+                continue;
+            }
+            int departed = GtfsTime.toSeconds(from.getDepartureTime());
+            int arrived = GtfsTime.toSeconds(to.getDepartureTime());
+            List<String> segment = List.of(from.getShapeId() != null ? from.getShapeId() : routeId,
+                    from.getStopId(), to.getStopId());
+            order.merge(segment, departed, Math::min);
+            if (departed >= 0 && arrived >= departed && (departed / 3600) % 24 == hour) {
+                scheduled.computeIfAbsent(segment, s -> new ArrayList<>()).add(arrived - departed);
+            }
+        }
+        List<SegmentRunTime> result = new ArrayList<>();
+        dense.forEach((segment, counts) -> {
+            long[] total = totals.get(segment);
+            List<Integer> planned = scheduled.get(segment);
+            Integer median = null;
+            if (planned != null) {
+                planned.sort(null);
+                median = planned.get(planned.size() / 2);
+            }
+            result.add(new SegmentRunTime(segment.get(0), segment.get(1), segment.get(2),
+                    RunTimeStats.of(counts, total[0], total[1]), median));
+        });
+        result.sort(Comparator.comparing(SegmentRunTime::patternId)
+                .thenComparing(run -> order.getOrDefault(List.of(run.patternId(), run.fromStopId(), run.toStopId()),
+                        Integer.MAX_VALUE)));
+        return result;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startUp() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            load();
+            LocalDate yesterday = LocalDate.now(zone).minusDays(1);
+            if (baseThrough == null || baseThrough.isBefore(yesterday)) {
+                rebuild();
+            }
+        }, "run-time-startup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts the nightly rebuild on a thread of its own, so the shared scheduler thread is not held for
+     * the whole history scan and the other scheduled jobs keep running.
+     */
+    @Scheduled(cron = "${runtimes.rebuild-cron:0 30 3 * * *}", zone = "${gtfs.timezone:Europe/Warsaw}")
+    public void scheduleRebuild() {
+        if (!enabled || rebuilding.get()) {
+            return;
+        }
+        Thread thread = new Thread(this::rebuild, "run-time-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Rebuilds the base statistics from the position history of the last complete days and persists them.
+     * Days of the incremental layer before the lookback window are dropped whether or not it succeeds.
+     */
+    public void rebuild() {
+        if (!enabled || !rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        long started = System.nanoTime();
+        LocalDate last = LocalDate.now(zone).minusDays(1);
+        LocalDate first = last.minusDays(lookbackDays - 1L);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            Map<String, String> tripShapes = new HashMap<>();
+            tripsRepository.findTripShapes().forEach(trip -> tripShapes.put(trip.getTripId(), trip.getShapeId()));
+            Map<RunTimeKey, DelayHistogram> rebuilt = pool.invoke(new DaysTask(first, last, tripShapes));
+            base = Map.copyOf(rebuilt);
+            baseThrough = last;
+            resolved.clear();
+            live.keySet().removeIf(day -> !day.isAfter(last));
+            persist(rebuilt, last);
+            log.info("Rebuilt run times of {} segment buckets from {} to {} in {} ms",
+                    rebuilt.size(), first, last, (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException | SQLException e) {
+            log.warn("Run time rebuild failed: {}", e.getMessage());
+        } finally {
+            pool.shutdown();
+            // without a successful rebuild nothing supersedes the live days, they must not pile up
+            live.keySet().removeIf(day -> day.isBefore(first));
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Adds a run observed in the live feed to the incremental layer of the day it was entered on.
+     */
+    void recordLive(LocalDate day, RunTimeKey key, int seconds) {
+        DelayHistogram histogram = live.computeIfAbsent(day, d -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key, k -> new DelayHistogram());
+        synchronized (histogram) {
+            histogram.record(seconds);
+        }
+    }
+
+    /**
+     * Number of days held in the incremental layer.
+     */
+    int liveDays() {
+        return live.size();
+    }
+
+    /**
+     * Reads one day of the position history and derives its runs.
+     */
+    Map<RunTimeKey, DelayHistogram> scanDay(LocalDate day, Map<String, String> tripShapes) {
+        Map<RunTimeKey, DelayHistogram> result = new HashMap<>();
+        DayType dayType = DayType.of(day.getDayOfWeek());
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement query = connection.prepareStatement("SELECT vehicle_id, recorded_at, trip_id, "
+                    + "route_id, previous_stop_id FROM vehicle_position_history WHERE recorded_at >= ? "
+                    + "AND recorded_at < ? AND trip_id IS NOT NULL ORDER BY vehicle_id, recorded_at")) {
+                query.setFetchSize(10_000);
+                query.setObject(1, day.atStartOfDay(zone).toOffsetDateTime());
+                query.setObject(2, day.plusDays(1).atStartOfDay(zone).toOffsetDateTime());
+                try (ResultSet rows = query.executeQuery()) {
+                    String vehicleId = null;
+                    StopPassageTracker tracker = null;
+                    while (rows.next()) {
+                        if (!rows.getString(1).equals(vehicleId)) {
+                            vehicleId = rows.getString(1);
+                            tracker = new StopPassageTracker();
+                        }
+                        String tripId = rows.getString(3);
+                        String routeId = rows.getString(4);
+                        String patternId = tripShapes.getOrDefault(tripId, routeId);
+                        tracker.observe(tripId, rows.getString(5),
+                                rows.getObject(2, OffsetDateTime.class).toEpochSecond(),
+                                (from, to, enteredAt, seconds) -> result.computeIfAbsent(
+                                        new RunTimeKey(routeId, patternId, from, to, dayType,
+                                                Instant.ofEpochSecond(enteredAt).atZone(zone).getHour()),
+                                        key -> new DelayHistogram()).record(seconds));
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot read position history of " + day + ": " + e.getMessage(), e);
+        }
+        return result;
+    }
+
+    private void collect(RunTimeKey key, long[] dense, long[] totals) {
+        DelayHistogram histogram = base.get(key);
+        if (histogram != null) {
+            histogram.addTo(dense);
+            totals[0] += histogram.count();
+            totals[1] += histogram.sum();
+        }
+        LocalDate through = baseThrough;
+        for (Map.Entry<LocalDate, Map<RunTimeKey, DelayHistogram>> day : live.entrySet()) {
+            DelayHistogram recent = through == null || day.getKey().isAfter(through) ? day.getValue().get(key) : null;
+            if (recent != null) {
+                synchronized (recent) {
+                    recent.addTo(dense);
+                    totals[0] += recent.count();
+                    totals[1] += recent.sum();
+                }
+            }
+        }
+    }
+
+    private List<RunTimeKey> allKeys() {
+        List<RunTimeKey> keys = new ArrayList<>(base.keySet());
+        live.values().forEach(day -> day.keySet().stream().filter(key -> !base.containsKey(key)).forEach(keys::add));
+        return keys;
+    }
+
+    void load() {
+        long started = System.nanoTime();
+        Map<RunTimeKey, DelayHistogram> loaded = new HashMap<>();
+        LocalDate through = null;
+        try (Connection connection = dataSource.getConnection()) {
+            ensureTable(connection);
+            try (Statement statement = connection.createStatement();
+                 ResultSet rows = statement.executeQuery("SELECT route_id, pattern_id, from_stop_id, to_stop_id, "
+                         + "day_type, hour_of_day, histogram, built_through FROM " + TABLE)) {
+                while (rows.next()) {
+                    RunTimeKey key = new RunTimeKey(rows.getString(1), rows.getString(2), rows.getString(3),
+                            rows.getString(4), DayType.valueOf(rows.getString(5)), rows.getInt(6));
+                    loaded.put(key, DelayHistogram.readFrom(new DataInputStream(
+                            new ByteArrayInputStream(rows.getBytes(7)))));
+                    through = rows.getObject(8, LocalDate.class);
+                }
+            }
+            base = Map.copyOf(loaded);
+            baseThrough = through;
+            resolved.clear();
+            log.info("Loaded run times of {} segment buckets through {} in {} ms",
+                    loaded.size(), through, (System.nanoTime() - started) / 1_000_000);
+        } catch (SQLException | IOException | IllegalArgumentException e) {
+            log.warn("Could not load stored run times: {}", e.getMessage());
+        }
+    }
+
+    private void persist(Map<RunTimeKey, DelayHistogram> histograms, LocalDate through) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            ensureTable(connection);
+            connection.setAutoCommit(false);
+            try (Statement delete = connection.createStatement();
+                 PreparedStatement insert = connection.prepareStatement("INSERT INTO " + TABLE + " (route_id, "
+                         + "pattern_id, from_stop_id, to_stop_id, day_type, hour_of_day, samples, histogram, "
+                         + "built_through) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                delete.executeUpdate("DELETE FROM " + TABLE);
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+                int pending = 0;
+                for (Map.Entry<RunTimeKey, DelayHistogram> entry : histograms.entrySet()) {
+                    RunTimeKey key = entry.getKey();
+                    bytes.reset();
+                    entry.getValue().writeTo(new DataOutputStream(bytes));
+                    insert.setString(1, key.routeId());
+                    insert.setString(2, key.patternId());
+                    insert.setString(3, key.fromStopId());
+                    insert.setString(4, key.toStopId());
+                    insert.setString(5, key.dayType().name());
+                    insert.setInt(6, key.hour());
+                    insert.setLong(7, entry.getValue().count());
+                    insert.setBytes(8, bytes.toByteArray());
+                    insert.setObject(9, through);
+                    insert.addBatch();
+                    if (++pending == 1000) {
+                        insert.executeBatch();
+                        pending = 0;
+                    }
+                }
+                insert.executeBatch();
+                connection.commit();
+            } catch (SQLException | IOException e) {
+                connection.rollback();
+                throw e instanceof SQLException sql ? sql : new SQLException(e);
+            }
+        }
+    }
+
+    private static void ensureTable(Connection connection) throws SQLException {
+        boolean postgres = "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " (route_id VARCHAR(64), "
+                    + "pattern_id VARCHAR(64), from_stop_id VARCHAR(64) NOT NULL, to_stop_id VARCHAR(64) NOT NULL, "
+                    + "day_type VARCHAR(8) NOT NULL, hour_of_day SMALLINT NOT NULL, samples BIGINT NOT NULL, "
+                    + "histogram " + (postgres ? "BYTEA" : "VARBINARY") + " NOT NULL, built_through DATE NOT NULL)");
+        }
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+    }
+
+    /**
+     * Scans a range of days, splitting it in halves until single days remain.
+     */
+    private final class DaysTask extends RecursiveTask<Map<RunTimeKey, DelayHistogram>> {
+        private final LocalDate first;
+        private final LocalDate last;
+        private final Map<String, String> tripShapes;
+
+        private DaysTask(LocalDate first, LocalDate last, Map<String, String> tripShapes) {
+            this.first = first;
+            this.last = last;
+            this.tripShapes = tripShapes;
+        }
+
+        @Override
+        protected Map<RunTimeKey, DelayHistogram> compute() {
+            if (first.equals(last)) {
+                return scanDay(first, tripShapes);
+            }
+            LocalDate middle = first.plusDays((last.toEpochDay() - first.toEpochDay()) / 2);
+            DaysTask left = new DaysTask(first, middle, tripShapes);
+            DaysTask right = new DaysTask(middle.plusDays(1), last, tripShapes);
+            right.fork();
+            Map<RunTimeKey, DelayHistogram> merged = left.compute();
+            Map<RunTimeKey, DelayHistogram> other = right.join();
+            if (other.size() > merged.size()) {
+                Map<RunTimeKey, DelayHistogram> swap = merged;
+                merged = other;
+                other = swap;
+            }
+            for (Map.Entry<RunTimeKey, DelayHistogram> entry : other.entrySet()) {
+                DelayHistogram existing = merged.putIfAbsent(entry.getKey(), entry.getValue());
+                if (existing != null) {
+                    existing.merge(entry.getValue());
+                }
+            }
+            return merged;
+        }
+    }
+}
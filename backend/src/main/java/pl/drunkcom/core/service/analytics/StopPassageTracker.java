@@ -0,0 +1,70 @@
+package pl.drunkcom.core.service.analytics;
+
+import java.util.Objects;
+
+/**
+ * Derives stop-to-stop run times from the successive observations of one vehicle.
+ *
+ * <p>A stop is passed between the last observation placing the vehicle before it and the first one
+ * placing it past it; the passage time is estimated as the midpoint of the two, so it is off by at
+ * most half the observation interval and the estimate is unbiased. A run is reported between two
+ * consecutive passages of the same trip. Passages across an observation gap longer than
+ * {@link #MAX_GAP_SECONDS} are not trusted.
+ *
+ * <p>Used for both the live feed and the batch over the position history, so both yield the same
+ * samples. Not thread-safe.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+final class StopPassageTracker {
+
+    static final long MAX_GAP_SECONDS = 120;
+    static final int MAX_RUN_SECONDS = 3600;
+
+    private String tripId;
+    private String stopId;
+    private long lastTime = Long.MIN_VALUE;
+    private long passedAt = Long.MIN_VALUE;
+
+    /**
+     * Receives the observed runs.
+     */
+    @FunctionalInterface
+    interface RunSink {
+        void run(String fromStopId, String toStopId, long enteredAt, int seconds);
+    }
+
+    /**
+     * Feeds one observation; observations not newer than the previous one are ignored.
+     *
+     * @param previousStopId last stop passed according to map matching
+     * @param time observation time, epoch seconds
+     */
+    void observe(String tripId, String previousStopId, long time, RunSink sink) {
+        if (time <= lastTime && Objects.equals(tripId, this.tripId)) {
+            return;
+        }
+        if (!Objects.equals(tripId, this.tripId)) {
+            this.tripId = tripId;
+            this.stopId = previousStopId;
+            this.passedAt = Long.MIN_VALUE;
+        } else if (!Objects.equals(previousStopId, stopId)) {
+            long passage = time - lastTime <= MAX_GAP_SECONDS ? (lastTime + time) / 2 : Long.MIN_VALUE;
+            if (passage != Long.MIN_VALUE && passedAt != Long.MIN_VALUE && stopId != null && previousStopId != null) {
+                long seconds = passage - passedAt;
+                if (seconds > 0 && seconds <= MAX_RUN_SECONDS) {
+                    sink.run(stopId, previousStopId, passedAt, (int) seconds);
+                }
+            }
+            stopId = previousStopId;
+            passedAt = passage;
+        }
+        lastTime = time;
+    }
+
+    long getLastTime() {
+        return lastTime;
+    }
+}
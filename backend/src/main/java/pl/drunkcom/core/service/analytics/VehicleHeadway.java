@@ -0,0 +1,19 @@
+package pl.drunkcom.core.service.analytics;
+
+/**
+ * Live headway of one vehicle to the vehicle ahead of it on the same shape.
+ *
+ * @param vehicleId vehicle identifier
+ * @param tripId trip the vehicle is serving
+ * @param distanceAlongMeters distance travelled along the shape
+ * @param gapAheadMeters distance along the shape to the next vehicle ahead, null for the leading vehicle
+ * @param headwaySeconds time since the vehicle ahead passed this vehicle's position, null if unknown
+ * @param status headway compared with the scheduled headway
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record VehicleHeadway(String vehicleId, String tripId, double distanceAlongMeters, Double gapAheadMeters,
+                             Long headwaySeconds, HeadwayStatus status) {
+}
@@ -0,0 +1,380 @@
+package pl.drunkcom.core.service.cluster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Hierarchical point clustering with one precomputed level per zoom, in the style of supercluster.
+ *
+ * <p>Points are projected to Web Mercator in {@code [0, 1]}. Level {@code maxZoom + 1} holds the raw
+ * points; every lower level is built from the one above by greedily merging all not yet assigned
+ * neighbours within {@code radius} pixels (of a {@link #EXTENT}-pixel tile) into a weighted centroid.
+ * Every item keeps a link to its parent one level down, so a new point can also be added
+ * incrementally: it joins the nearest cluster within the radius on the first level that has one,
+ * and that cluster and its ancestors absorb it, instead of the whole hierarchy being rebuilt.
+ *
+ * <p>Bounding-box queries visit only the hash grid cells of the level that overlap the box, or, when
+ * the box spans more cells than the level has occupied, the occupied cells.
+ *
+ * <p>Not thread-safe; callers either rebuild a fresh index or guard it.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public final class ClusterIndex {
+
+    static final int EXTENT = 512;
+
+    private final int minZoom;
+    private final int maxZoom;
+    private final double radius;
+    private final Level[] levels;
+
+    /**
+     * Creates an empty index.
+     *
+     * @param minZoom lowest zoom level with clusters
+     * @param maxZoom highest zoom level with clusters; above it points are returned unclustered
+     * @param radiusPixels cluster radius in pixels
+     */
+    public ClusterIndex(int minZoom, int maxZoom, double radiusPixels) {
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+        this.radius = radiusPixels;
+        this.levels = new Level[maxZoom - minZoom + 2];
+        for (int z = minZoom; z <= maxZoom + 1; z++) {
+            levels[z - minZoom] = new Level(radiusAt(Math.min(z, maxZoom)));
+        }
+    }
+
+    /**
+     * Builds an index over a set of points in one pass per zoom level.
+     *
+     * @param ids point identifiers, returned for unclustered points
+     * @param latitudes point latitudes
+     * @param longitudes point longitudes
+     */
+    public static ClusterIndex build(int minZoom, int maxZoom, double radiusPixels,
+                                     long[] ids, double[] latitudes, double[] longitudes) {
+        ClusterIndex index = new ClusterIndex(minZoom, maxZoom, radiusPixels);
+        Level raw = index.level(maxZoom + 1);
+        for (int i = 0; i < ids.length; i++) {
+            raw.add(projectX(longitudes[i]), projectY(latitudes[i]), 1, ids[i]);
+        }
+        for (int z = maxZoom; z >= minZoom; z--) {
+            index.clusterLevel(z);
+        }
+        return index;
+    }
+
+    /**
+     * Adds a point to every level, merging it into existing clusters where possible.
+     *
+     * @param id point identifier
+     * @param latitude point latitude
+     * @param longitude point longitude
+     */
+    public void add(long id, double latitude, double longitude) {
+        double x = projectX(longitude);
+        double y = projectY(latitude);
+        Level child = level(maxZoom + 1);
+        int childIndex = child.add(x, y, 1, id);
+        for (int z = maxZoom; z >= minZoom; z--) {
+            Level level = level(z);
+            int nearest = level.nearest(x, y, radiusAt(z));
+            if (nearest >= 0) {
+                child.parent[childIndex] = nearest;
+                // The cluster and all of its ancestors absorb the point
+                int index = nearest;
+                for (int ancestor = z; ancestor >= minZoom && index >= 0; ancestor--) {
+                    Level ancestorLevel = level(ancestor);
+                    ancestorLevel.absorb(index, x, y);
+                    index = ancestorLevel.parent[index];
+                }
+                return;
+            }
+            int created = level.add(x, y, 1, id);
+            child.parent[childIndex] = created;
+            child = level;
+            childIndex = created;
+        }
+    }
+
+    /**
+     * Number of points in the index.
+     */
+    public int size() {
+        return level(maxZoom + 1).size;
+    }
+
+    /**
+     * Returns the clusters and single points of a zoom level inside a bounding box.
+     *
+     * @param zoom map zoom level; clamped to the levels of the index
+     * @return clusters ordered by descending point count, then by position
+     */
+    public List<Cluster> clusters(double minLat, double minLon, double maxLat, double maxLon, int zoom) {
+        Level level = level(Math.max(minZoom, Math.min(maxZoom + 1, zoom)));
+        double minX = projectX(minLon), maxX = projectX(maxLon);
+        double minY = projectY(maxLat), maxY = projectY(minLat);
+        List<Cluster> result = new ArrayList<>();
+        level.forEachInBox(minX, minY, maxX, maxY, i -> result.add(new Cluster(unprojectY(level.y[i]),
+                unprojectX(level.x[i]), level.count[i], level.count[i] == 1 ? level.id[i] : -1)));
+        result.sort((a, b) -> a.count() != b.count() ? Integer.compare(b.count(), a.count())
+                : a.latitude() != b.latitude() ? Double.compare(b.latitude(), a.latitude())
+                : Double.compare(a.longitude(), b.longitude()));
+        return result;
+    }
+
+    private void clusterLevel(int z) {
+        Level source = level(z + 1);
+        Level target = level(z);
+        double r = radiusAt(z);
+        int[] neighbours = new int[16];
+        for (int i = 0; i < source.size; i++) {
+            if (source.parent[i] >= 0) {
+                continue;
+            }
+            int found = source.within(source.x[i], source.y[i], r, neighbours);
+            if (found > neighbours.length) {
+                neighbours = new int[found * 2];
+                found = source.within(source.x[i], source.y[i], r, neighbours);
+            }
+            double weightedX = source.x[i] * source.count[i];
+            double weightedY = source.y[i] * source.count[i];
+            int count = source.count[i];
+            for (int n = 0; n < found; n++) {
+                int j = neighbours[n];
+                if (j != i && source.parent[j] < 0) {
+                    weightedX += source.x[j] * source.count[j];
+                    weightedY += source.y[j] * source.count[j];
+                    count += source.count[j];
+                }
+            }
+            long id = count == source.count[i] ? source.id[i] : -1;
+            int cluster = target.add(weightedX / count, weightedY / count, count, id);
+            source.parent[i] = cluster;
+            for (int n = 0; n < found; n++) {
+                int j = neighbours[n];
+                if (source.parent[j] < 0) {
+                    source.parent[j] = cluster;
+                }
+            }
+        }
+    }
+
+    private Level level(int zoom) {
+        return levels[zoom - minZoom];
+    }
+
+    private double radiusAt(int zoom) {
+        return radius / (EXTENT * Math.pow(2, zoom));
+    }
+
+    static double projectX(double longitude) {
+        return longitude / 360 + 0.5;
+    }
+
+    static double projectY(double latitude) {
+        double sin = Math.sin(Math.toRadians(latitude));
+        double y = 0.5 - 0.25 * Math.log((1 + sin) / (1 - sin)) / Math.PI;
+        return Math.max(0, Math.min(1, y));
+    }
+
+    static double unprojectX(double x) {
+        return (x - 0.5) * 360;
+    }
+
+    static double unprojectY(double y) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+    }
+
+    /**
+     * A cluster or a single point.
+     *
+     * @param latitude centroid latitude
+     * @param longitude centroid longitude
+     * @param count number of points
+     * @param pointId identifier of the point when {@code count == 1}, otherwise -1
+     */
+    public record Cluster(double latitude, double longitude, int count, long pointId) {
+    }
+
+    /**
+     * Items of one zoom level in growable parallel arrays, with a hash grid for neighbour lookups.
+     */
+    private static final class Level {
+        private final double cellSize;
+        private final Map<Long, int[]> cells = new HashMap<>();
+        private double[] x = new double[16];
+        private double[] y = new double[16];
+        private int[] count = new int[16];
+        private long[] id = new long[16];
+        private int[] parent = new int[16];
+        private int size;
+
+        private Level(double cellSize) {
+            this.cellSize = cellSize;
+        }
+
+        private int add(double px, double py, int weight, long pointId) {
+            if (size == x.length) {
+                int capacity = size * 2;
+                x = Arrays.copyOf(x, capacity);
+                y = Arrays.copyOf(y, capacity);
+                count = Arrays.copyOf(count, capacity);
+                id = Arrays.copyOf(id, capacity);
+                parent = Arrays.copyOf(parent, capacity);
+            }
+            x[size] = px;
+            y[size] = py;
+            count[size] = weight;
+            id[size] = pointId;
+            parent[size] = -1;
+            insert(size);
+            return size++;
+        }
+
+        /**
+         * Adds one point at (px, py) to an item, moving its centroid.
+         */
+        private void absorb(int item, double px, double py) {
+            remove(item);
+            int weight = count[item];
+            x[item] = (x[item] * weight + px) / (weight + 1);
+            y[item] = (y[item] * weight + py) / (weight + 1);
+            count[item] = weight + 1;
+            id[item] = -1;
+            insert(item);
+        }
+
+        /**
+         * Collects the items within distance r of a position.
+         *
+         * @return the number of items found; if larger than the buffer, only the buffer was filled
+         */
+        private int within(double px, double py, double r, int[] buffer) {
+            int reach = (int) Math.ceil(r / cellSize);
+            long column = (long) Math.floor(px / cellSize);
+            long row = (long) Math.floor(py / cellSize);
+            double r2 = r * r;
+            int found = 0;
+            for (long cy = row - reach; cy <= row + reach; cy++) {
+                for (long cx = column - reach; cx <= column + reach; cx++) {
+                    int[] items = cells.get(key(cx, cy));
+                    if (items == null) {
+                        continue;
+                    }
+                    for (int k = 1; k <= items[0]; k++) {
+                        int item = items[k];
+                        double dx = x[item] - px, dy = y[item] - py;
+                        if (dx * dx + dy * dy <= r2) {
+                            if (found < buffer.length) {
+                                buffer[found] = item;
+                            }
+                            found++;
+                        }
+                    }
+                }
+            }
+            return found;
+        }
+
+        /**
+         * Visits the items inside a box of projected coordinates, edges included.
+         */
+        private void forEachInBox(double minX, double minY, double maxX, double maxY, IntConsumer visitor) {
+            if (minX > maxX || minY > maxY) {
+                return;
+            }
+            long fromColumn = (long) Math.floor(minX / cellSize), toColumn = (long) Math.floor(maxX / cellSize);
+            long fromRow = (long) Math.floor(minY / cellSize), toRow = (long) Math.floor(maxY / cellSize);
+            if ((double) (toColumn - fromColumn + 1) * (toRow - fromRow + 1) > cells.size()) {
+                for (int[] items : cells.values()) {
+                    visitInBox(items, minX, minY, maxX, maxY, visitor);
+                }
+                return;
+            }
+            for (long cy = fromRow; cy <= toRow; cy++) {
+                for (long cx = fromColumn; cx <= toColumn; cx++) {
+                    int[] items = cells.get(key(cx, cy));
+                    if (items != null) {
+                        visitInBox(items, minX, minY, maxX, maxY, visitor);
+                    }
+                }
+            }
+        }
+
+        private void visitInBox(int[] items, double minX, double minY, double maxX, double maxY, IntConsumer visitor) {
+            for (int k = 1; k <= items[0]; k++) {
+                int item = items[k];
+                if (x[item] >= minX && x[item] <= maxX && y[item] >= minY && y[item] <= maxY) {
+                    visitor.accept(item);
+                }
+            }
+        }
+
+        private int nearest(double px, double py, double r) {
+            int reach = (int) Math.ceil(r / cellSize);
+            long column = (long) Math.floor(px / cellSize);
+            long row = (long) Math.floor(py / cellSize);
+            double best = r * r;
+            int nearest = -1;
+            for (long cy = row - reach; cy <= row + reach; cy++) {
+                for (long cx = column - reach; cx <= column + reach; cx++) {
+                    int[] items = cells.get(key(cx, cy));
+                    if (items == null) {
+                        continue;
+                    }
+                    for (int k = 1; k <= items[0]; k++) {
+                        int item = items[k];
+                        double dx = x[item] - px, dy = y[item] - py;
+                        double d2 = dx * dx + dy * dy;
+                        if (d2 <= best && (nearest < 0 || d2 < best || item < nearest)) {
+                            best = d2;
+                            nearest = item;
+                        }
+                    }
+                }
+            }
+            return nearest;
+        }
+
+        private void insert(int item) {
+            // Cell lists store their length in slot 0
+            cells.compute(cellOf(item), (k, items) -> {
+                if (items == null) {
+                    items = new int[4];
+                } else if (items[0] + 1 == items.length) {
+                    items = Arrays.copyOf(items, items.length * 2);
+                }
+                items[++items[0]] = item;
+                return items;
+            });
+        }
+
+        private void remove(int item) {
+            int[] items = cells.get(cellOf(item));
+            for (int k = 1; k <= items[0]; k++) {
+                if (items[k] == item) {
+                    items[k] = items[items[0]];
+                    items[0]--;
+                    return;
+                }
+            }
+        }
+
+        private long cellOf(int item) {
+            return key((long) Math.floor(x[item] / cellSize), (long) Math.floor(y[item] / cellSize));
+        }
+
+        private static long key(long column, long row) {
+            return (row << 32) ^ column;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package pl.drunkcom.core.service.cluster;
+
+/**
+ * A marker to draw on the map: either a cluster of several items or a single item.
+ *
+ * @param latitude centroid latitude
+ * @param longitude centroid longitude
+ * @param count number of items in the cluster
+ * @param id identifier of the item (vehicle id, report id) when {@code count == 1}, otherwise null
+ * @param label short label of a single item (route id, incident type), otherwise null
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record MapCluster(double latitude, double longitude, int count, String id, String label) {
+}
@@ -0,0 +1,79 @@
+package pl.drunkcom.core.service.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.service.incidents.ActiveReport;
+import pl.drunkcom.core.service.incidents.ActiveReportsChangedEvent;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Clusters the active incident reports for all zoom levels.
+ *
+ * <p>New reports are added to the existing {@link ClusterIndex} incrementally; the index is only
+ * rebuilt from scratch when {@link pl.drunkcom.core.service.incidents.ActiveReportService} reloads
+ * the reports (expiry, updates, deletions).
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class ReportClusterService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportClusterService.class);
+
+    private ClusterIndex index = new ClusterIndex(VehicleClusterService.MIN_ZOOM, VehicleClusterService.MAX_ZOOM,
+            VehicleClusterService.RADIUS_PIXELS);
+    private final Map<Long, ActiveReport> reportsById = new HashMap<>();
+
+    @EventListener
+    public synchronized void onReportsChanged(ActiveReportsChangedEvent event) {
+        if (event.reloaded()) {
+            List<ActiveReport> reports = event.reports();
+            long[] ids = new long[reports.size()];
+            double[] latitudes = new double[reports.size()];
+            double[] longitudes = new double[reports.size()];
+            reportsById.clear();
+            for (int i = 0; i < reports.size(); i++) {
+                ActiveReport report = reports.get(i);
+                ids[i] = report.id();
+                latitudes[i] = report.latitude();
+                longitudes[i] = report.longitude();
+                reportsById.put(report.id(), report);
+            }
+            index = ClusterIndex.build(VehicleClusterService.MIN_ZOOM, VehicleClusterService.MAX_ZOOM,
+                    VehicleClusterService.RADIUS_PIXELS, ids, latitudes, longitudes);
+            log.debug("Rebuilt report clusters for {} reports", reports.size());
+            return;
+        }
+        for (ActiveReport report : event.added()) {
+            if (reportsById.putIfAbsent(report.id(), report) == null) {
+                index.add(report.id(), report.latitude(), report.longitude());
+            }
+        }
+    }
+
+    /**
+     * Returns the clusters of active reports inside a bounding box.
+     *
+     * @param zoom map zoom level
+     * @return clusters ordered by descending size
+     */
+    public synchronized List<MapCluster> clusters(double minLat, double minLon, double maxLat, double maxLon, int zoom) {
+        return index.clusters(minLat, minLon, maxLat, maxLon, zoom).stream()
+                .map(cluster -> {
+                    ActiveReport report = cluster.pointId() < 0 ? null : reportsById.get(cluster.pointId());
+                    if (report == null) {
+                        return new MapCluster(cluster.latitude(), cluster.longitude(), cluster.count(), null, null);
+                    }
+                    return new MapCluster(report.latitude(), report.longitude(), 1, String.valueOf(report.id()),
+                            report.type() != null ? report.type().name() : null);
+                })
+                .toList();
+    }
+}
@@ -0,0 +1,70 @@
+package pl.drunkcom.core.service.cluster;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshotListener;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Clusters the vehicles of every realtime snapshot for all zoom levels at once, so map clients
+ * zoomed out over the city get a handful of markers instead of every vehicle.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+@Order(70)
+public class VehicleClusterService implements RealtimeSnapshotListener {
+
+    static final int MIN_ZOOM = 0;
+    static final int MAX_ZOOM = 16;
+    static final double RADIUS_PIXELS = 40;
+
+    private volatile ClusteredSnapshot current;
+
+    @Override
+    public void onSnapshot(RealtimeSnapshot snapshot) {
+        List<VehicleCurrentState> vehicles = snapshot.getVehicles();
+        long[] ids = new long[vehicles.size()];
+        double[] latitudes = new double[vehicles.size()];
+        double[] longitudes = new double[vehicles.size()];
+        for (int i = 0; i < vehicles.size(); i++) {
+            ids[i] = i;
+            latitudes[i] = vehicles.get(i).latitude();
+            longitudes[i] = vehicles.get(i).longitude();
+        }
+        current = new ClusteredSnapshot(snapshot,
+                ClusterIndex.build(MIN_ZOOM, MAX_ZOOM, RADIUS_PIXELS, ids, latitudes, longitudes));
+    }
+
+    /**
+     * Returns the vehicle clusters of the latest snapshot inside a bounding box.
+     *
+     * @param zoom map zoom level
+     * @return clusters ordered by descending size, or empty before the first snapshot
+     */
+    public Optional<List<MapCluster>> clusters(double minLat, double minLon, double maxLat, double maxLon, int zoom) {
+        ClusteredSnapshot clustered = current;
+        if (clustered == null) {
+            return Optional.empty();
+        }
+        List<VehicleCurrentState> vehicles = clustered.snapshot().getVehicles();
+        return Optional.of(clustered.index().clusters(minLat, minLon, maxLat, maxLon, zoom).stream()
+                .map(cluster -> {
+                    if (cluster.pointId() < 0) {
+                        return new MapCluster(cluster.latitude(), cluster.longitude(), cluster.count(), null, null);
+                    }
+                    VehicleCurrentState vehicle = vehicles.get((int) cluster.pointId());
+                    return new MapCluster(vehicle.latitude(), vehicle.longitude(), 1, vehicle.vehicleId(), vehicle.routeId());
+                })
+                .toList());
+    }
+
+    private record ClusteredSnapshot(RealtimeSnapshot snapshot, ClusterIndex index) {
+    }
+}
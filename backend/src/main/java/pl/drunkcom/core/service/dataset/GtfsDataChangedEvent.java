@@ -0,0 +1,14 @@
+package pl.drunkcom.core.service.dataset;
+
+/**
+ * Published whenever static GTFS data (routes, trips, stops, shapes, ...) is created, updated or deleted
+ * through the application.
+ *
+ * @param entityType the type of the changed entity
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record GtfsDataChangedEvent(Class<?> entityType) {
+}
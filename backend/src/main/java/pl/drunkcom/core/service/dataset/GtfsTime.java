@@ -0,0 +1,48 @@
+package pl.drunkcom.core.service.dataset;
+
+/**
+ * Parsing of GTFS {@code HH:MM:SS} times.
+ *
+ * <p>GTFS times are measured from noon minus twelve hours of the service day and may exceed
+ * {@code 24:00:00} for trips running past midnight; hours may have a single digit.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public final class GtfsTime {
+
+    public static final int SECONDS_PER_DAY = 24 * 3600;
+
+    private GtfsTime() {
+    }
+
+    /**
+     * Converts a GTFS time to seconds since the start of the service day.
+     *
+     * @param time time such as {@code 7:05:00} or {@code 25:10:30}
+     * @return the number of seconds, or -1 if the time is missing or malformed
+     */
+    public static int toSeconds(String time) {
+        if (time == null) {
+            return -1;
+        }
+        String trimmed = time.trim();
+        int first = trimmed.indexOf(':');
+        int second = trimmed.indexOf(':', first + 1);
+        if (first <= 0 || second < 0 || second != first + 3 || trimmed.length() != second + 3) {
+            return -1;
+        }
+        try {
+            int hours = Integer.parseInt(trimmed.substring(0, first));
+            int minutes = Integer.parseInt(trimmed.substring(first + 1, second));
+            int seconds = Integer.parseInt(trimmed.substring(second + 1));
+            if (hours < 0 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) {
+                return -1;
+            }
+            return hours * 3600 + minutes * 60 + seconds;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package pl.drunkcom.core.service.dataset;
+
+import pl.drunkcom.core.model.gtfs.Route;
+
+/**
+ * Display attributes of a route, detached from the JPA entity so it can be shared by in-memory indexes.
+ *
+ * @param routeId GTFS route identifier
+ * @param shortName route short name, e.g. "52"
+ * @param longName route long name
+ * @param routeType GTFS route type (0 tram, 3 bus, ...)
+ * @param color route colour as hex without '#', may be null
+ * @param textColor route text colour as hex without '#', may be null
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record RouteInfo(String routeId, String shortName, String longName, Integer routeType,
+                        String color, String textColor) {
+
+    public static RouteInfo from(Route route) {
+        return new RouteInfo(route.getRouteId(), route.getRouteShortName(), route.getRouteLongName(),
+                route.getRouteType(), route.getRouteColor(), route.getRouteTextColor());
+    }
+}
@@ -0,0 +1,104 @@
+package pl.drunkcom.core.service.dataset;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.interfaces.CalendarDatesRepository;
+import pl.drunkcom.core.interfaces.CalendarRepository;
+import pl.drunkcom.core.model.gtfs.Calendar;
+import pl.drunkcom.core.model.gtfs.CalendarDates;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Resolves which GTFS services run on a given day from {@code calendar} and {@code calendar_dates}.
+ *
+ * <p>The answer for the most recently requested day is cached until the static dataset version changes.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class ServiceCalendar {
+
+    private static final Logger log = LoggerFactory.getLogger(ServiceCalendar.class);
+    private static final DateTimeFormatter GTFS_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final CalendarRepository calendarRepository;
+    private final CalendarDatesRepository calendarDatesRepository;
+    private final StaticDatasetVersion datasetVersion;
+
+    private volatile Cached cached;
+
+    public ServiceCalendar(CalendarRepository calendarRepository, CalendarDatesRepository calendarDatesRepository,
+                           StaticDatasetVersion datasetVersion) {
+        this.calendarRepository = calendarRepository;
+        this.calendarDatesRepository = calendarDatesRepository;
+        this.datasetVersion = datasetVersion;
+    }
+
+    /**
+     * Returns the identifiers of the services running on a day.
+     *
+     * @param date service day
+     * @return immutable set of service identifiers
+     */
+    public Set<String> activeServiceIds(LocalDate date) {
+        String version = datasetVersion.current();
+        Cached current = cached;
+        if (current != null && current.date.equals(date) && current.version.equals(version)) {
+            return current.serviceIds;
+        }
+        Set<String> active = new HashSet<>();
+        for (Calendar calendar : calendarRepository.findAll()) {
+            if (runsOn(calendar, date)) {
+                active.add(calendar.getServiceId());
+            }
+        }
+        String day = date.format(GTFS_DATE);
+        for (CalendarDates exception : calendarDatesRepository.findAll()) {
+            if (!day.equals(exception.getDate()) || exception.getExceptionType() == null) {
+                continue;
+            }
+            String serviceId = exception.getServiceId();
+            if (exception.getExceptionType() == 1) {
+                active.add(serviceId);
+            } else if (exception.getExceptionType() == 2) {
+                active.remove(serviceId);
+            }
+        }
+        Set<String> serviceIds = Set.copyOf(active);
+        cached = new Cached(version, date, serviceIds);
+        log.debug("{} services run on {}", serviceIds.size(), date);
+        return serviceIds;
+    }
+
+    private static boolean runsOn(Calendar calendar, LocalDate date) {
+        if (calendar.getStartDate() == null || calendar.getEndDate() == null
+                || date.isBefore(toLocalDate(calendar.getStartDate())) || date.isAfter(toLocalDate(calendar.getEndDate()))) {
+            return false;
+        }
+        Integer flag = switch (date.getDayOfWeek()) {
+            case MONDAY -> calendar.getMonday();
+            case TUESDAY -> calendar.getTuesday();
+            case WEDNESDAY -> calendar.getWednesday();
+            case THURSDAY -> calendar.getThursday();
+            case FRIDAY -> calendar.getFriday();
+            case SATURDAY -> calendar.getSaturday();
+            case SUNDAY -> calendar.getSunday();
+        };
+        return flag != null && flag == 1;
+    }
+
+    private static LocalDate toLocalDate(java.util.Date date) {
+        // Calendar dates are read as java.sql.Date, whose toInstant() is unsupported
+        return new java.sql.Date(date.getTime()).toLocalDate();
+    }
+
+    private record Cached(String version, LocalDate date, Set<String> serviceIds) {
+    }
+}
@@ -0,0 +1,14 @@
+package pl.drunkcom.core.service.dataset;
+
+/**
+ * Published after {@link StaticDatasetVersion} moved to a new version. Caches derived from the
+ * static GTFS data should be dropped when this event is received.
+ *
+ * @param version the new dataset version
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record StaticDatasetChangedEvent(String version) {
+}
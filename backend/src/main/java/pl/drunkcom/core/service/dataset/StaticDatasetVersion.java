@@ -0,0 +1,82 @@
+package pl.drunkcom.core.service.dataset;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the static GTFS dataset, used to key caches and HTTP validators of anything derived
+ * from it (simplified shapes, tiles, trip indexes).
+ *
+ * <p>The version is made of the application start time and a generation counter. Every start gets
+ * a fresh version, so data imported directly into the database between restarts can never be served
+ * from a stale cache entry. Changes made through the API raise {@link GtfsDataChangedEvent}s; they are
+ * debounced and bump the generation at most once per check interval, so a bulk import results in a
+ * single new version. While a change is pending, {@link #isPending()} returns true and responses
+ * should not be marked as immutable.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class StaticDatasetVersion {
+
+    private static final Logger log = LoggerFactory.getLogger(StaticDatasetVersion.class);
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private volatile String version = epoch + "-0";
+
+    public StaticDatasetVersion(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Returns the current dataset version, e.g. {@code "lx1k2a9c-3"}.
+     */
+    public String current() {
+        return version;
+    }
+
+    /**
+     * Whether a change to the static data has been seen but not yet turned into a new version.
+     */
+    public boolean isPending() {
+        return pending.get();
+    }
+
+    /**
+     * Checks whether the given version is current and settled, i.e. content served for it will never change.
+     *
+     * @param candidate version supplied by a client, may be null
+     * @return true if responses for this version may be cached as immutable
+     */
+    public boolean isImmutable(String candidate) {
+        return candidate != null && candidate.equals(version) && !pending.get();
+    }
+
+    @EventListener
+    public void onDataChanged(GtfsDataChangedEvent event) {
+        pending.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${gtfs.dataset.version-check-interval-ms:5000}")
+    public void publishPendingChanges() {
+        if (!pending.getAndSet(false)) {
+            return;
+        }
+        String next = epoch + "-" + generation.incrementAndGet();
+        version = next;
+        log.info("Static GTFS dataset changed, new version {}", next);
+        eventPublisher.publishEvent(new StaticDatasetChangedEvent(next));
+    }
+}
@@ -0,0 +1,120 @@
+package pl.drunkcom.core.service.dataset;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.interfaces.TripsRepository;
+import pl.drunkcom.core.service.TripDetails;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory index of the static details of every trip, keyed by trip id.
+ *
+ * <p>The index is built with one projection query joining trips to their routes, off the calling
+ * thread, at startup and after every {@link StaticDatasetChangedEvent}. A new index replaces the
+ * previous one only once complete, so lookups always see one whole dataset version and never block.
+ * Repeated strings such as route names and headsigns are shared between trips.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class TripDetailsIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(TripDetailsIndex.class);
+
+    private final TripsRepository tripsRepository;
+    private final StaticDatasetVersion datasetVersion;
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "trip-details-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Index index = new Index(null, Map.of());
+
+    public TripDetailsIndex(TripsRepository tripsRepository, StaticDatasetVersion datasetVersion) {
+        this.tripsRepository = tripsRepository;
+        this.datasetVersion = datasetVersion;
+    }
+
+    /**
+     * Looks up the static details of a trip.
+     *
+     * @return the details, or empty if the trip is unknown or the index is not loaded yet
+     */
+    public Optional<TripDetails> find(String tripId) {
+        return tripId == null ? Optional.empty() : Optional.ofNullable(index.trips().get(tripId));
+    }
+
+    /**
+     * Dataset version the current index was built from, or null before the first load.
+     */
+    public String getVersion() {
+        return index.version();
+    }
+
+    public int size() {
+        return index.trips().size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        loader.execute(this::reload);
+    }
+
+    @EventListener
+    public void onDatasetChanged(StaticDatasetChangedEvent event) {
+        loader.execute(this::reload);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        loader.shutdownNow();
+        loader.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    void reload() {
+        long started = System.nanoTime();
+        String version = datasetVersion.current();
+        try {
+            Map<String, String> strings = new HashMap<>();
+            Map<String, TripDetails> trips = new HashMap<>();
+            for (TripsRepository.TripDescription trip : tripsRepository.findTripDescriptions()) {
+                trips.put(trip.getTripId(), new TripDetails(
+                        shared(strings, trip.getRouteId()),
+                        shared(strings, trip.getRouteShortName()),
+                        shared(strings, trip.getRouteLongName()),
+                        trip.getRouteType(),
+                        shared(strings, trip.getRouteColor()),
+                        shared(strings, trip.getRouteTextColor()),
+                        shared(strings, trip.getHeadsign()),
+                        trip.getDirectionId(),
+                        shared(strings, trip.getShapeId())));
+            }
+            index = new Index(version, Map.copyOf(trips));
+            log.info("Indexed static details of {} trips for dataset version {} in {} ms", trips.size(), version,
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Failed to index trip details for dataset version {}, keeping version {}: {}",
+                    version, index.version(), e.getMessage());
+        }
+    }
+
+    private static String shared(Map<String, String> strings, String value) {
+        return value == null ? null : strings.computeIfAbsent(value, v -> v);
+    }
+
+    private record Index(String version, Map<String, TripDetails> trips) {
+    }
+}
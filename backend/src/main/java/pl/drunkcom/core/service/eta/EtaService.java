@@ -0,0 +1,265 @@
+package pl.drunkcom.core.service.eta;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.analytics.RunTimeStats;
+import pl.drunkcom.core.service.analytics.SegmentRunTimeService;
+import pl.drunkcom.core.service.geo.TripStopPattern;
+import pl.drunkcom.core.service.realtime.MapMatchingService;
+import pl.drunkcom.core.service.realtime.RealtimeAnalyticsListener;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.TripGeometry;
+import pl.drunkcom.core.service.realtime.VehicleProgress;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Predicts the arrival of every running trip at its downstream stops, with 80% prediction intervals.
+ *
+ * <p>Predictions start from the vehicle's matched position at its feed timestamp. The remaining part
+ * of the current segment and every further segment contribute their expected run time and its
+ * variance, taken in order of preference from the observed run times of the segment in that hour
+ * ({@link SegmentRunTimeService}), from the timetable, or from the segment length at
+ * {@code eta.fallback-speed-mps}. Segments are assumed independent, so means and variances add up and
+ * the interval widens with the distance ahead. A vehicle that has not reached its first stop waits
+ * there until the scheduled departure. Trips whose vehicle is not map-matched yet fall back to the
+ * timetable shifted by the reported delay.
+ *
+ * <p>A trip is only predicted again when its vehicle's trip, feed timestamp, delay or matched position
+ * changed since the previous snapshot, so the work per cycle follows the number of fresh reports
+ * rather than the fleet size.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+@Order(94)
+public class EtaService implements RealtimeAnalyticsListener {
+
+    private static final Logger log = LoggerFactory.getLogger(EtaService.class);
+
+    /** Standard normal quantile of 0.9, the half width of an 80% interval in standard deviations. */
+    static final double Z_80 = 1.2816;
+    private static final double MIN_SEGMENT_SIGMA_SECONDS = 5;
+    private static final double SCHEDULE_SIGMA_RATIO = 0.25;
+    private static final double DELAY_SIGMA_SECONDS = 30;
+    private static final double DELAY_SIGMA_RATIO = 0.1;
+
+    private final MapMatchingService mapMatchingService;
+    private final SegmentRunTimeService runTimeService;
+    private final ZoneId zone;
+    private final double fallbackSpeedMps;
+
+    private final Map<String, TripEta> predictions = new ConcurrentHashMap<>();
+    private final Map<String, Inputs> inputsByVehicle = new HashMap<>();
+
+    public EtaService(MapMatchingService mapMatchingService, SegmentRunTimeService runTimeService,
+                      @Value("${gtfs.timezone:Europe/Warsaw}") String timezone,
+                      @Value("${eta.fallback-speed-mps:6.0}") double fallbackSpeedMps) {
+        this.mapMatchingService = mapMatchingService;
+        this.runTimeService = runTimeService;
+        this.zone = ZoneId.of(timezone);
+        this.fallbackSpeedMps = fallbackSpeedMps;
+    }
+
+    @Override
+    public void onSnapshot(RealtimeSnapshot snapshot) {
+        long started = System.nanoTime();
+        long fallback = snapshot.getPublishedAtMillis() / 1000;
+        Map<String, Inputs> seen = new HashMap<>(snapshot.getVehicles().size() * 2);
+        int recomputed = 0;
+        for (VehicleCurrentState vehicle : snapshot.getVehicles()) {
+            if (vehicle.tripId() == null) {
+                continue;
+            }
+            Optional<TripGeometry> trip = mapMatchingService.findTripGeometry(vehicle.tripId());
+            if (trip.isEmpty() || trip.get().stops() == null) {
+                continue;
+            }
+            VehicleProgress progress = mapMatchingService.find(vehicle.vehicleId())
+                    .filter(p -> vehicle.tripId().equals(p.tripId()))
+                    .orElse(null);
+            long observedAt = vehicle.timestamp() > 0 ? vehicle.timestamp() : fallback;
+            Inputs inputs = new Inputs(vehicle.tripId(), observedAt, vehicle.delay(),
+                    progress != null ? progress.distanceAlongMeters() : Double.NaN);
+            seen.put(vehicle.vehicleId(), inputs);
+            Inputs previous = inputsByVehicle.get(vehicle.vehicleId());
+            if (inputs.equals(previous) && predictions.containsKey(vehicle.tripId())) {
+                continue;
+            }
+            predictions.put(vehicle.tripId(), predict(vehicle, trip.get(), progress, observedAt));
+            recomputed++;
+        }
+        for (Iterator<Map.Entry<String, Inputs>> it = inputsByVehicle.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Inputs> entry = it.next();
+            Inputs current = seen.get(entry.getKey());
+            if (current == null || !current.tripId().equals(entry.getValue().tripId())) {
+                TripEta stale = predictions.get(entry.getValue().tripId());
+                if (stale != null && stale.vehicleId().equals(entry.getKey())) {
+                    predictions.remove(entry.getValue().tripId(), stale);
+                }
+            }
+            if (current == null) {
+                it.remove();
+            }
+        }
+        inputsByVehicle.putAll(seen);
+        if (log.isDebugEnabled()) {
+            log.debug("ETA cycle: {} of {} trips recomputed in {} µs", recomputed, predictions.size(),
+                    (System.nanoTime() - started) / 1000);
+        }
+    }
+
+    /**
+     * Returns the latest predictions of a running trip.
+     */
+    public Optional<TripEta> findTrip(String tripId) {
+        return Optional.ofNullable(predictions.get(tripId));
+    }
+
+    /**
+     * Returns the next predicted arrivals at a stop.
+     *
+     * @param stopId GTFS stop identifier
+     * @param notBefore only arrivals predicted at or after this instant, epoch seconds
+     * @param limit maximum number of arrivals
+     * @return arrivals ordered by predicted time
+     */
+    public List<StopArrival> findStop(String stopId, long notBefore, int limit) {
+        List<StopArrival> arrivals = new ArrayList<>();
+        for (TripEta trip : predictions.values()) {
+            for (StopEta eta : trip.stops()) {
+                if (eta.stopId().equals(stopId) && eta.predictedArrival() >= notBefore) {
+                    arrivals.add(new StopArrival(trip.tripId(), trip.routeId(), trip.vehicleId(), eta));
+                    break;
+                }
+            }
+        }
+        arrivals.sort(Comparator.comparingLong(arrival -> arrival.eta().predictedArrival()));
+        return arrivals.size() > limit ? List.copyOf(arrivals.subList(0, limit)) : arrivals;
+    }
+
+    TripEta predict(VehicleCurrentState vehicle, TripGeometry trip, VehicleProgress progress, long observedAt) {
+        TripStopPattern stops = trip.stops();
+        int previous = progress != null ? stops.previousStopIndex(progress.distanceAlongMeters()) : -1;
+        long serviceDay = serviceDayStart(stops, Math.max(0, previous), observedAt - vehicle.delay());
+        List<StopEta> etas = new ArrayList<>(stops.size() - Math.max(0, previous));
+
+        if (progress == null) {
+            for (int i = 0; i < stops.size(); i++) {
+                int scheduled = stops.scheduledArrivalAt(i);
+                long predicted = serviceDay + scheduled + vehicle.delay();
+                if (scheduled >= 0 && predicted >= observedAt) {
+                    double sigma = DELAY_SIGMA_SECONDS + DELAY_SIGMA_RATIO * (predicted - observedAt);
+                    etas.add(eta(stops, i, serviceDay, observedAt, predicted - observedAt, sigma * sigma,
+                            EtaSource.DELAY));
+                }
+            }
+            return new TripEta(trip.tripId(), vehicle.routeId(), vehicle.vehicleId(), observedAt, vehicle.delay(),
+                    List.copyOf(etas));
+        }
+
+        double mean = 0;
+        double variance = 0;
+        int next = previous + 1;
+        if (previous < 0) {
+            int departure = stops.scheduledArrivalAt(0);
+            mean = departure >= 0 ? Math.max(0, serviceDay + departure - observedAt) : 0;
+            etas.add(eta(stops, 0, serviceDay, observedAt, mean, 0, EtaSource.SCHEDULE));
+            next = 1;
+        }
+        for (int k = next; k < stops.size(); k++) {
+            double length = stops.distanceAt(k) - stops.distanceAt(k - 1);
+            double fraction = k == previous + 1 && length > 0
+                    ? Math.min(1, Math.max(0, (stops.distanceAt(k) - progress.distanceAlongMeters()) / length))
+                    : 1;
+            long entered = observedAt + Math.round(mean);
+            Optional<RunTimeStats> observed = runTimeService.runTime(vehicle.routeId(), trip.shapeId(),
+                    stops.stopIdAt(k - 1), stops.stopIdAt(k), entered * 1000);
+            int scheduledFrom = stops.scheduledArrivalAt(k - 1);
+            int scheduledTo = stops.scheduledArrivalAt(k);
+            double segmentMean;
+            double segmentSigma;
+            EtaSource source;
+            if (observed.isPresent()) {
+                RunTimeStats stats = observed.get();
+                segmentMean = stats.meanSeconds();
+                segmentSigma = (stats.p90Seconds() - stats.p50Seconds()) / Z_80;
+                source = EtaSource.HISTORY;
+            } else if (scheduledFrom >= 0 && scheduledTo >= scheduledFrom) {
+                segmentMean = scheduledTo - scheduledFrom;
+                segmentSigma = SCHEDULE_SIGMA_RATIO * segmentMean;
+                source = EtaSource.SCHEDULE;
+            } else {
+                segmentMean = Math.max(0, length) / fallbackSpeedMps;
+                segmentSigma = 0.5 * segmentMean;
+                source = EtaSource.DISTANCE;
+            }
+            segmentSigma = Math.max(MIN_SEGMENT_SIGMA_SECONDS, segmentSigma);
+            // the remaining part of a segment is treated as the sum of independent pieces of it
+            mean += fraction * segmentMean;
+            variance += fraction * segmentSigma * segmentSigma;
+            etas.add(eta(stops, k, serviceDay, observedAt, mean, variance, source));
+        }
+        return new TripEta(trip.tripId(), vehicle.routeId(), vehicle.vehicleId(), observedAt, vehicle.delay(),
+                List.copyOf(etas));
+    }
+
+    private static StopEta eta(TripStopPattern stops, int index, long serviceDay, long observedAt, double mean,
+                               double variance, EtaSource source) {
+        long predicted = observedAt + Math.round(mean);
+        long halfWidth = Math.round(Z_80 * Math.sqrt(variance));
+        int scheduled = stops.scheduledArrivalAt(index);
+        return new StopEta(stops.stopIdAt(index), stops.stopSequenceAt(index), predicted,
+                Math.max(observedAt, predicted - halfWidth), predicted + halfWidth,
+                scheduled >= 0 ? serviceDay + scheduled : null, source);
+    }
+
+    /**
+     * Picks the service day, today's or yesterday's, that puts the trip's timetable closest to where the
+     * vehicle is supposed to be; trips running past midnight belong to the previous day.
+     *
+     * @param scheduleTime the moment the timetable is at, i.e. the observation time minus the delay
+     * @return start of the service day (noon minus twelve hours), epoch seconds
+     */
+    private long serviceDayStart(TripStopPattern stops, int around, long scheduleTime) {
+        int reference = -1;
+        for (int i = around; i < stops.size() && reference < 0; i++) {
+            reference = stops.scheduledArrivalAt(i);
+        }
+        LocalDate today = Instant.ofEpochSecond(scheduleTime).atZone(zone).toLocalDate();
+        long best = startOf(today);
+        if (reference >= 0) {
+            long yesterday = startOf(today.minusDays(1));
+            if (Math.abs(yesterday + reference - scheduleTime) < Math.abs(best + reference - scheduleTime)) {
+                best = yesterday;
+            }
+        }
+        return best;
+    }
+
+    private long startOf(LocalDate serviceDate) {
+        return serviceDate.atTime(12, 0).atZone(zone).minusHours(12).toEpochSecond();
+    }
+
+    /**
+     * Everything a trip's prediction depends on that changes between snapshots.
+     */
+    private record Inputs(String tripId, long observedAt, int delay, double distanceAlongMeters) {
+    }
+}
@@ -0,0 +1,19 @@
+package pl.drunkcom.core.service.eta;
+
+/**
+ * What the run time of the last segment before a predicted stop was estimated from.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public enum EtaSource {
+    /** Observed run times of the segment, see {@link pl.drunkcom.core.service.analytics.SegmentRunTimeService}. */
+    HISTORY,
+    /** Scheduled run time of the segment. */
+    SCHEDULE,
+    /** Segment length at an average speed, when neither observed nor scheduled run times are known. */
+    DISTANCE,
+    /** Scheduled arrival shifted by the vehicle's reported delay, used before the vehicle is map-matched. */
+    DELAY
+}
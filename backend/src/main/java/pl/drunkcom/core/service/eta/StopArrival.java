@@ -0,0 +1,16 @@
+package pl.drunkcom.core.service.eta;
+
+/**
+ * Predicted arrival of one trip at a given stop, for stop departure boards.
+ *
+ * @param tripId GTFS trip identifier
+ * @param routeId GTFS route identifier
+ * @param vehicleId vehicle serving the trip
+ * @param eta the prediction
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record StopArrival(String tripId, String routeId, String vehicleId, StopEta eta) {
+}
@@ -0,0 +1,27 @@
+package pl.drunkcom.core.service.eta;
+
+/**
+ * Predicted arrival of a trip at one downstream stop.
+ *
+ * @param stopId GTFS stop identifier
+ * @param stopSequence GTFS stop sequence
+ * @param predictedArrival expected arrival, epoch seconds
+ * @param earliestArrival lower bound of the 80% prediction interval, epoch seconds
+ * @param latestArrival upper bound of the 80% prediction interval, epoch seconds
+ * @param scheduledArrival scheduled arrival, epoch seconds, or null if the stop has no time
+ * @param source what the last segment's run time was estimated from
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record StopEta(
+    String stopId,
+    int stopSequence,
+    long predictedArrival,
+    long earliestArrival,
+    long latestArrival,
+    Long scheduledArrival,
+    EtaSource source
+) {
+}
@@ -0,0 +1,27 @@
+package pl.drunkcom.core.service.eta;
+
+import java.util.List;
+
+/**
+ * Arrival predictions of a running trip at all stops it has not passed yet.
+ *
+ * @param tripId GTFS trip identifier
+ * @param routeId GTFS route identifier
+ * @param vehicleId vehicle serving the trip
+ * @param observedAt feed timestamp of the position the predictions start from, epoch seconds
+ * @param delaySeconds delay reported by the feed at that moment
+ * @param stops predictions in travel order
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record TripEta(
+    String tripId,
+    String routeId,
+    String vehicleId,
+    long observedAt,
+    int delaySeconds,
+    List<StopEta> stops
+) {
+}
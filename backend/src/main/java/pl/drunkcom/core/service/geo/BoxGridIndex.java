@@ -0,0 +1,154 @@
+package pl.drunkcom.core.service.geo;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable spatial index over a set of bounding boxes for box intersection queries.
+ *
+ * <p>Works like {@link PointGridIndex}, with coarser cells of {@link #CELL_DEGREES}: every box is
+ * entered in each cell it overlaps, the entries are sorted by cell, row-major, and a query walks the
+ * rows of its box and binary-searches the column range of each row. A box overlapping several cells of
+ * the query is reported only from the first of them, so it is visited once without a visited set. The
+ * few boxes spanning more than {@link #MAX_CELLS_PER_BOX} cells are kept aside and always checked.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public final class BoxGridIndex {
+
+    /** Cell size, about 2.2 km north-south, so a city route spans a few dozen cells. */
+    static final double CELL_DEGREES = 0.02;
+    /** Boxes overlapping more cells than this are checked on every query instead. */
+    static final int MAX_CELLS_PER_BOX = 1024;
+
+    private static final int ID_BITS = 24;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+    private static final int COLUMN_BITS = 17;
+
+    /** {minLat, minLon, maxLat, maxLon} of every box. */
+    private final double[] bounds;
+    /** Sorted entries of {@code row << 41 | column << 24 | id}. */
+    private final long[] entries;
+    private final int[] oversized;
+
+    /**
+     * Builds an index over the given boxes. Boxes with coordinates outside of the valid range
+     * (including {@code NaN}) or with a minimum above the maximum are left out. The array is not copied.
+     *
+     * @param bounds four values per box: {minLat, minLon, maxLat, maxLon}
+     */
+    public BoxGridIndex(double[] bounds) {
+        if (bounds.length % 4 != 0) {
+            throw new IllegalArgumentException("Box bounds must come in groups of four");
+        }
+        int count = bounds.length / 4;
+        if (count > ID_MASK) {
+            throw new IllegalArgumentException("Too many boxes for a grid index: " + count);
+        }
+        this.bounds = bounds;
+        long[] keys = new long[count * 4];
+        int keyCount = 0;
+        int[] large = new int[count];
+        int largeCount = 0;
+        for (int id = 0; id < count; id++) {
+            int b = id * 4;
+            if (!(bounds[b] >= -90 && bounds[b + 2] <= 90 && bounds[b + 1] >= -180 && bounds[b + 3] <= 180)
+                    || bounds[b] > bounds[b + 2] || bounds[b + 1] > bounds[b + 3]) {
+                continue;
+            }
+            int fromRow = row(bounds[b]);
+            int toRow = row(bounds[b + 2]);
+            int fromColumn = column(bounds[b + 1]);
+            int toColumn = column(bounds[b + 3]);
+            long cells = (long) (toRow - fromRow + 1) * (toColumn - fromColumn + 1);
+            if (cells > MAX_CELLS_PER_BOX) {
+                large[largeCount++] = id;
+                continue;
+            }
+            if (keyCount + cells > keys.length) {
+                keys = Arrays.copyOf(keys, (int) Math.max(keys.length * 2L, keyCount + cells));
+            }
+            for (int r = fromRow; r <= toRow; r++) {
+                for (int c = fromColumn; c <= toColumn; c++) {
+                    keys[keyCount++] = cellKey(r, c) | id;
+                }
+            }
+        }
+        this.entries = Arrays.copyOf(keys, keyCount);
+        Arrays.sort(entries);
+        this.oversized = Arrays.copyOf(large, largeCount);
+    }
+
+    /**
+     * Visits every box intersecting the query box, edges included, once. Boxes are visited ordered by
+     * cell, which is deterministic for a given index.
+     *
+     * @param minLat southern edge
+     * @param minLon western edge
+     * @param maxLat northern edge
+     * @param maxLon eastern edge
+     * @param visitor receives the array position of every intersecting box
+     */
+    public void forEachIntersecting(double minLat, double minLon, double maxLat, double maxLon, IntConsumer visitor) {
+        if (minLat > maxLat || minLon > maxLon) {
+            return;
+        }
+        if (entries.length > 0) {
+            int fromRow = row(Math.max(-90, minLat));
+            int toRow = row(Math.min(90, maxLat));
+            int fromColumn = column(Math.max(-180, minLon));
+            int toColumn = column(Math.min(180, maxLon));
+            for (int r = fromRow; r <= toRow; r++) {
+                int from = lowerBound(cellKey(r, fromColumn));
+                int to = lowerBound(cellKey(r, toColumn + 1));
+                for (int e = from; e < to; e++) {
+                    int id = (int) (entries[e] & ID_MASK);
+                    int column = (int) (entries[e] >>> ID_BITS) & ((1 << COLUMN_BITS) - 1);
+                    int b = id * 4;
+                    // report a box only from the first cell it shares with the query
+                    if (r == Math.max(fromRow, row(bounds[b])) && column == Math.max(fromColumn, column(bounds[b + 1]))
+                            && intersects(b, minLat, minLon, maxLat, maxLon)) {
+                        visitor.accept(id);
+                    }
+                }
+            }
+        }
+        for (int id : oversized) {
+            if (intersects(id * 4, minLat, minLon, maxLat, maxLon)) {
+                visitor.accept(id);
+            }
+        }
+    }
+
+    private boolean intersects(int b, double minLat, double minLon, double maxLat, double maxLon) {
+        return bounds[b] <= maxLat && bounds[b + 2] >= minLat && bounds[b + 1] <= maxLon && bounds[b + 3] >= minLon;
+    }
+
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = entries.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long cellKey(int row, int column) {
+        return ((long) row << (COLUMN_BITS + ID_BITS)) | ((long) column << ID_BITS);
+    }
+
+    private static int row(double latitude) {
+        return (int) ((latitude + 90) / CELL_DEGREES);
+    }
+
+    private static int column(double longitude) {
+        return (int) ((longitude + 180) / CELL_DEGREES);
+    }
+}
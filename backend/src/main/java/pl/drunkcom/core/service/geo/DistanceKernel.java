@@ -0,0 +1,150 @@
+package pl.drunkcom.core.service.geo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Batch radius filter over coordinates stored as parallel {@code float} arrays.
+ *
+ * <p>Most points of a fleet are far away from the query point, so they are rejected with a cheap
+ * equirectangular bounding test first: squared distance in degrees of latitude, with longitude
+ * differences scaled by the smallest cosine found within the search band. That under-estimates the
+ * true distance, and the threshold is widened by a small margin on top, so no point inside the
+ * radius is ever rejected. Only the survivors get the exact {@link GeoMath#haversineMeters Haversine}
+ * distance, which makes the result identical to filtering every point with Haversine.
+ *
+ * <p>The prefilter runs on the {@code jdk.incubator.vector} API when the module is present at runtime
+ * ({@code --add-modules jdk.incubator.vector}) and falls back to a scalar loop otherwise.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public final class DistanceKernel {
+
+    private static final Logger log = LoggerFactory.getLogger(DistanceKernel.class);
+
+    /** Relative widening of the prefilter radius, covering float rounding of the coordinates. */
+    private static final double PREFILTER_MARGIN = 1.01;
+
+    /** Absolute widening of the prefilter radius in degrees (about 1 m). */
+    private static final double PREFILTER_SLACK_DEGREES = 1e-5;
+
+    private static final boolean VECTORIZED = detectVectorSupport();
+
+    private DistanceKernel() {
+    }
+
+    /**
+     * Whether the prefilter runs on the Vector API in this JVM.
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * Finds the points within {@code radiusMeters} of a coordinate.
+     *
+     * @param latitudes point latitudes in degrees
+     * @param longitudes point longitudes in degrees
+     * @param length number of points to consider, starting at index 0
+     * @param latitude query latitude
+     * @param longitude query longitude
+     * @param radiusMeters search radius
+     * @param result receives the indices of matching points in ascending order; must hold {@code length} entries
+     * @return number of indices written to {@code result}
+     */
+    public static int withinRadius(float[] latitudes, float[] longitudes, int length,
+                                   double latitude, double longitude, double radiusMeters, int[] result) {
+        return withinRadius(latitudes, longitudes, length, latitude, longitude, radiusMeters, result, VECTORIZED);
+    }
+
+    /**
+     * Filters a list of items by the distance of their coordinates from a point, keeping list order.
+     *
+     * @param items items to filter
+     * @param latitude extracts the latitude of an item
+     * @param longitude extracts the longitude of an item
+     * @param centerLatitude query latitude
+     * @param centerLongitude query longitude
+     * @param radiusMeters search radius
+     * @return items within the radius
+     */
+    public static <T> List<T> filter(List<T> items, ToDoubleFunction<T> latitude, ToDoubleFunction<T> longitude,
+                                     double centerLatitude, double centerLongitude, double radiusMeters) {
+        int size = items.size();
+        float[] latitudes = new float[size];
+        float[] longitudes = new float[size];
+        for (int i = 0; i < size; i++) {
+            T item = items.get(i);
+            latitudes[i] = (float) latitude.applyAsDouble(item);
+            longitudes[i] = (float) longitude.applyAsDouble(item);
+        }
+        int[] matches = new int[size];
+        int count = withinRadius(latitudes, longitudes, size, centerLatitude, centerLongitude, radiusMeters, matches);
+        List<T> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(items.get(matches[i]));
+        }
+        return result;
+    }
+
+    static int withinRadius(float[] latitudes, float[] longitudes, int length, double latitude, double longitude,
+                            double radiusMeters, int[] result, boolean vectorized) {
+        if (length == 0 || !(radiusMeters >= 0)) {
+            return 0;
+        }
+        double reachDegrees = radiusMeters * PREFILTER_MARGIN / GeoMath.metersPerDegreeLat() + PREFILTER_SLACK_DEGREES;
+        double farthestLatitude = Math.min(90.0, Math.abs(latitude) + reachDegrees);
+        double cosine = Math.cos(Math.toRadians(farthestLatitude));
+        // Near the antimeridian longitude differences wrap around, so only the latitude band is checked
+        float lonScale = Math.abs(longitude) + reachDegrees / cosine >= 180.0 ? 0f : (float) cosine;
+        float threshold = (float) (reachDegrees * reachDegrees);
+
+        int candidates = vectorized
+                ? VectorDistanceKernel.prefilter(latitudes, longitudes, length,
+                        (float) latitude, (float) longitude, lonScale, threshold, result)
+                : prefilter(latitudes, longitudes, length, (float) latitude, (float) longitude, lonScale, threshold, result);
+
+        // Exact distance for the survivors, compacting the result in place
+        int count = 0;
+        for (int i = 0; i < candidates; i++) {
+            int index = result[i];
+            if (GeoMath.haversineMeters(latitude, longitude, latitudes[index], longitudes[index]) <= radiusMeters) {
+                result[count++] = index;
+            }
+        }
+        return count;
+    }
+
+    static int prefilter(float[] latitudes, float[] longitudes, int length,
+                         float latitude, float longitude, float lonScale, float threshold, int[] result) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            float dy = latitudes[i] - latitude;
+            float dx = (longitudes[i] - longitude) * lonScale;
+            if (dx * dx + dy * dy <= threshold) {
+                result[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    private static boolean detectVectorSupport() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            log.info("jdk.incubator.vector is not available, using the scalar distance kernel");
+            return false;
+        }
+        try {
+            log.info("Using the vectorized distance kernel ({} float lanes)", VectorDistanceKernel.lanes());
+            return true;
+        } catch (LinkageError e) {
+            log.warn("Vector API could not be initialised, using the scalar distance kernel", e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package pl.drunkcom.core.service.geo;
+
+/**
+ * Small collection of spherical geometry helpers shared by the realtime and shape services.
+ *
+ * <p>All distances are in meters and all angles in decimal degrees unless stated otherwise.
+ * For the short distances found inside a single city the equirectangular approximation
+ * is accurate to well below GPS noise, so it is used wherever a point has to be compared
+ * against many segments.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public final class GeoMath {
+
+    public static final double EARTH_RADIUS_METERS = 6_371_000.0;
+
+    private GeoMath() {
+    }
+
+    /**
+     * Great-circle distance between two coordinates using the Haversine formula.
+     *
+     * @return distance in meters
+     */
+    public static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+
+        return 2 * EARTH_RADIUS_METERS * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    /**
+     * Number of meters per degree of longitude at the given latitude.
+     */
+    public static double metersPerDegreeLon(double latitude) {
+        return metersPerDegreeLat() * Math.cos(Math.toRadians(latitude));
+    }
+
+    /**
+     * Number of meters per degree of latitude.
+     */
+    public static double metersPerDegreeLat() {
+        return Math.toRadians(1.0) * EARTH_RADIUS_METERS;
+    }
+
+    /**
+     * Initial bearing from the first to the second coordinate.
+     *
+     * @return bearing in degrees clockwise from north, in the range [0, 360)
+     */
+    public static double bearingDegrees(double lat1, double lon1, double lat2, double lon2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double deltaLambda = Math.toRadians(lon2 - lon1);
+
+        double y = Math.sin(deltaLambda) * Math.cos(phi2);
+        double x = Math.cos(phi1) * Math.sin(phi2) - Math.sin(phi1) * Math.cos(phi2) * Math.cos(deltaLambda);
+
+        double bearing = Math.toDegrees(Math.atan2(y, x));
+        return (bearing + 360.0) % 360.0;
+    }
+}
@@ -0,0 +1,125 @@
+package pl.drunkcom.core.service.geo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Geohash encoding of coordinates and enumeration of the geohash cells covering a bounding box.
+ *
+ * <p>A geohash of {@code n} characters holds {@code 5n} bits, interleaving longitude and latitude
+ * bisections starting with longitude, so every precision defines a regular grid of
+ * {@link #cellHeight(int)} by {@link #cellWidth(int)} degrees. Cells are addressed by their row and
+ * column in that grid, which keeps box enumeration a plain double loop.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public final class Geohash {
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    /** Longest supported geohash; 12 characters are about 4 cm. */
+    public static final int MAX_PRECISION = 12;
+
+    private Geohash() {
+    }
+
+    /**
+     * Encodes a coordinate.
+     *
+     * @param latitude latitude in degrees
+     * @param longitude longitude in degrees
+     * @param precision number of characters, 1 to {@link #MAX_PRECISION}
+     * @return the geohash of the cell containing the coordinate
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        return cell(row(latitude, precision), column(longitude, precision), precision);
+    }
+
+    /**
+     * Lists the geohashes of all cells intersecting a bounding box, row by row from the south-west.
+     */
+    public static List<String> cellsInBox(double minLat, double minLon, double maxLat, double maxLon, int precision) {
+        int fromRow = row(minLat, precision), toRow = row(maxLat, precision);
+        int fromColumn = column(minLon, precision), toColumn = column(maxLon, precision);
+        List<String> cells = new ArrayList<>((toRow - fromRow + 1) * (toColumn - fromColumn + 1));
+        for (int r = fromRow; r <= toRow; r++) {
+            for (int c = fromColumn; c <= toColumn; c++) {
+                cells.add(cell(r, c, precision));
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Number of cells {@link #cellsInBox} would return, without building them.
+     */
+    public static long cellCount(double minLat, double minLon, double maxLat, double maxLon, int precision) {
+        return (long) (row(maxLat, precision) - row(minLat, precision) + 1)
+                * (column(maxLon, precision) - column(minLon, precision) + 1);
+    }
+
+    /**
+     * Height of a cell in degrees of latitude.
+     */
+    public static double cellHeight(int precision) {
+        return 180.0 / (1L << latitudeBits(precision));
+    }
+
+    /**
+     * Width of a cell in degrees of longitude.
+     */
+    public static double cellWidth(int precision) {
+        return 360.0 / (1L << longitudeBits(precision));
+    }
+
+    private static int row(double latitude, int precision) {
+        int rows = 1 << latitudeBits(precision);
+        return clamp((int) Math.floor((latitude + 90.0) / 180.0 * rows), rows);
+    }
+
+    private static int column(double longitude, int precision) {
+        int columns = 1 << longitudeBits(precision);
+        return clamp((int) Math.floor((longitude + 180.0) / 360.0 * columns), columns);
+    }
+
+    private static String cell(int row, int column, int precision) {
+        int latBits = latitudeBits(precision);
+        int lonBits = longitudeBits(precision);
+        long bits = 0;
+        // Even bit positions (counting from the most significant) hold longitude, odd ones latitude
+        for (int b = 0; b < latBits + lonBits; b++) {
+            long bit = (b & 1) == 0
+                    ? (column >>> (lonBits - 1 - b / 2)) & 1
+                    : (row >>> (latBits - 1 - b / 2)) & 1;
+            bits = (bits << 1) | bit;
+        }
+        char[] chars = new char[precision];
+        for (int i = precision - 1; i >= 0; i--) {
+            chars[i] = BASE32[(int) (bits & 31)];
+            bits >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    private static int latitudeBits(int precision) {
+        checkPrecision(precision);
+        return precision * 5 / 2;
+    }
+
+    private static int longitudeBits(int precision) {
+        checkPrecision(precision);
+        return (precision * 5 + 1) / 2;
+    }
+
+    private static void checkPrecision(int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Geohash precision must be between 1 and " + MAX_PRECISION);
+        }
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+}
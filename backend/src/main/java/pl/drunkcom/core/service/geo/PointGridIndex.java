@@ -0,0 +1,126 @@
+package pl.drunkcom.core.service.geo;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable spatial index over a set of points for bounding-box queries.
+ *
+ * <p>Points are bucketed into square cells of {@link #CELL_DEGREES} and sorted by cell, row-major.
+ * A query walks the rows of the box and binary-searches the column range of each row, so only
+ * the cells covered by the box are visited and the index needs no per-cell storage: it costs one
+ * {@code long} per point, whatever the spread of the coordinates. Points are referenced by their
+ * position in the arrays the index was built from.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public final class PointGridIndex {
+
+    /** Cell size, about 550 m north-south. */
+    static final double CELL_DEGREES = 0.005;
+
+    private static final int ID_BITS = 24;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+    private static final int COLUMN_BITS = 17;
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    /** Sorted entries of {@code row << 41 | column << 24 | id}. */
+    private final long[] entries;
+
+    /**
+     * Builds an index over the given coordinates. Points with coordinates outside of the valid
+     * range (including {@code NaN}) are left out. The arrays are not copied.
+     *
+     * @param latitudes point latitudes
+     * @param longitudes point longitudes
+     */
+    public PointGridIndex(double[] latitudes, double[] longitudes) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("Latitude and longitude arrays must have the same length");
+        }
+        if (latitudes.length > ID_MASK) {
+            throw new IllegalArgumentException("Too many points for a grid index: " + latitudes.length);
+        }
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        long[] keys = new long[latitudes.length];
+        int count = 0;
+        for (int i = 0; i < latitudes.length; i++) {
+            double lat = latitudes[i];
+            double lon = longitudes[i];
+            if (lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180) {
+                keys[count++] = cellKey(row(lat), column(lon)) | i;
+            }
+        }
+        this.entries = Arrays.copyOf(keys, count);
+        Arrays.sort(entries);
+    }
+
+    /**
+     * Number of indexed points.
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Visits every point inside the box, edges included. Points are visited ordered by cell,
+     * which is deterministic for a given index.
+     *
+     * @param minLat southern edge
+     * @param minLon western edge
+     * @param maxLat northern edge
+     * @param maxLon eastern edge
+     * @param visitor receives the array position of every point in the box
+     */
+    public void forEachInBox(double minLat, double minLon, double maxLat, double maxLon, IntConsumer visitor) {
+        if (entries.length == 0 || minLat > maxLat || minLon > maxLon) {
+            return;
+        }
+        int fromRow = row(Math.max(-90, minLat));
+        int toRow = row(Math.min(90, maxLat));
+        int fromColumn = column(Math.max(-180, minLon));
+        int toColumn = column(Math.min(180, maxLon));
+        for (int r = fromRow; r <= toRow; r++) {
+            int from = lowerBound(cellKey(r, fromColumn));
+            int to = lowerBound(cellKey(r, toColumn + 1));
+            for (int e = from; e < to; e++) {
+                int id = (int) (entries[e] & ID_MASK);
+                double lat = latitudes[id];
+                double lon = longitudes[id];
+                if (lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon) {
+                    visitor.accept(id);
+                }
+            }
+        }
+    }
+
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = entries.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long cellKey(int row, int column) {
+        return ((long) row << (COLUMN_BITS + ID_BITS)) | ((long) column << ID_BITS);
+    }
+
+    private static int row(double latitude) {
+        return (int) ((latitude + 90) / CELL_DEGREES);
+    }
+
+    private static int column(double longitude) {
+        return (int) ((longitude + 180) / CELL_DEGREES);
+    }
+}
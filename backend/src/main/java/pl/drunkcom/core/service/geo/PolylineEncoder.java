@@ -0,0 +1,46 @@
+package pl.drunkcom.core.service.geo;
+
+/**
+ * Encoder for the Google encoded polyline format with the standard precision of 5 decimals.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ * @see <a href="https://developers.google.com/maps/documentation/utilities/polylinealgorithm">Encoded Polyline Algorithm Format</a>
+ */
+public final class PolylineEncoder {
+
+    private PolylineEncoder() {
+    }
+
+    /**
+     * Encodes the selected vertices of a shape.
+     *
+     * @param geometry shape geometry
+     * @param indices indices of the vertices to encode, in travel order
+     * @return encoded polyline string
+     */
+    public static String encode(ShapeGeometry geometry, int[] indices) {
+        StringBuilder encoded = new StringBuilder(indices.length * 6);
+        long previousLat = 0;
+        long previousLon = 0;
+        for (int index : indices) {
+            long lat = Math.round(geometry.latitudeAt(index) * 1e5);
+            long lon = Math.round(geometry.longitudeAt(index) * 1e5);
+            encodeValue(lat - previousLat, encoded);
+            encodeValue(lon - previousLon, encoded);
+            previousLat = lat;
+            previousLon = lon;
+        }
+        return encoded.toString();
+    }
+
+    private static void encodeValue(long delta, StringBuilder encoded) {
+        long value = delta < 0 ? ~(delta << 1) : delta << 1;
+        while (value >= 0x20) {
+            encoded.append((char) ((0x20 | (value & 0x1f)) + 63));
+            value >>= 5;
+        }
+        encoded.append((char) (value + 63));
+    }
+}
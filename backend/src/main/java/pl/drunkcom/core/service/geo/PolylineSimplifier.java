@@ -0,0 +1,117 @@
+package pl.drunkcom.core.service.geo;
+
+/**
+ * Douglas-Peucker simplification computed once per shape for every tolerance at the same time.
+ *
+ * <p>Instead of running Douglas-Peucker separately per zoom level, {@link #importance(ShapeGeometry)}
+ * records for every vertex the largest tolerance at which Douglas-Peucker would still keep it
+ * (the split distance, capped by the split distance of every enclosing range). Simplifying for a
+ * given tolerance is then a single filter over that array and yields exactly the Douglas-Peucker
+ * result for that tolerance.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public final class PolylineSimplifier {
+
+    private PolylineSimplifier() {
+    }
+
+    /**
+     * Computes the Douglas-Peucker importance of every vertex. End points are always kept.
+     *
+     * @param geometry shape geometry
+     * @return importance in meters per vertex
+     */
+    public static float[] importance(ShapeGeometry geometry) {
+        int size = geometry.size();
+        float[] importance = new float[size];
+        if (size == 0) {
+            return importance;
+        }
+        importance[0] = Float.MAX_VALUE;
+        importance[size - 1] = Float.MAX_VALUE;
+
+        // Explicit stack of (first, last, cap) ranges avoids recursion depth issues on long shapes
+        int[] firsts = new int[size];
+        int[] lasts = new int[size];
+        float[] caps = new float[size];
+        int top = 0;
+        firsts[top] = 0;
+        lasts[top] = size - 1;
+        caps[top] = Float.MAX_VALUE;
+        top++;
+
+        while (top > 0) {
+            top--;
+            int first = firsts[top];
+            int last = lasts[top];
+            float cap = caps[top];
+            if (last - first < 2) {
+                continue;
+            }
+            int split = -1;
+            double maxDistance = -1;
+            for (int i = first + 1; i < last; i++) {
+                double distance = distanceToChord(geometry, i, first, last);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    split = i;
+                }
+            }
+            float splitImportance = (float) Math.min(maxDistance, cap);
+            importance[split] = splitImportance;
+
+            firsts[top] = first;
+            lasts[top] = split;
+            caps[top] = splitImportance;
+            top++;
+            firsts[top] = split;
+            lasts[top] = last;
+            caps[top] = splitImportance;
+            top++;
+        }
+        return importance;
+    }
+
+    /**
+     * Selects the vertices kept by Douglas-Peucker for the given tolerance.
+     *
+     * @param importance importance array from {@link #importance(ShapeGeometry)}
+     * @param toleranceMeters maximum allowed deviation; {@code 0} keeps every vertex
+     * @return indices of the kept vertices in travel order
+     */
+    public static int[] simplify(float[] importance, double toleranceMeters) {
+        int kept = 0;
+        for (float value : importance) {
+            if (value > toleranceMeters || toleranceMeters <= 0) {
+                kept++;
+            }
+        }
+        int[] indices = new int[kept];
+        int next = 0;
+        for (int i = 0; i < importance.length; i++) {
+            if (importance[i] > toleranceMeters || toleranceMeters <= 0) {
+                indices[next++] = i;
+            }
+        }
+        return indices;
+    }
+
+    private static double distanceToChord(ShapeGeometry geometry, int point, int first, int last) {
+        double latitude = geometry.latitudeAt(point);
+        double kx = GeoMath.metersPerDegreeLon(latitude);
+        double ky = GeoMath.metersPerDegreeLat();
+
+        double ax = (geometry.longitudeAt(first) - geometry.longitudeAt(point)) * kx;
+        double ay = (geometry.latitudeAt(first) - latitude) * ky;
+        double dx = (geometry.longitudeAt(last) - geometry.longitudeAt(point)) * kx - ax;
+        double dy = (geometry.latitudeAt(last) - latitude) * ky - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSquared));
+        double px = ax + t * dx;
+        double py = ay + t * dy;
+        return Math.sqrt(px * px + py * py);
+    }
+}
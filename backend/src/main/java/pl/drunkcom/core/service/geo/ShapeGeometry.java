@@ -0,0 +1,304 @@
+package pl.drunkcom.core.service.geo;
+
+import java.util.Arrays;
+
+/**
+ * Immutable, ordered polyline of a GTFS shape together with the cumulative distance
+ * travelled at every vertex.
+ *
+ * <p>Vertices are kept as integer microdegrees and distances as floats, i.e. 12 bytes per
+ * point, the same precision as the packed database representation (see {@link ShapeGeometryCodec}).
+ *
+ * <p>Instances are built once per shape and shared by every vehicle running on it, so
+ * all query methods are allocation-light and thread-safe. Point queries go through a lazily
+ * built {@link ShapeSegmentIndex}, so their cost does not grow with the number of vertices.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public final class ShapeGeometry {
+
+    /** Radius around a point in which candidate segments are looked up. */
+    static final double SEARCH_RADIUS_METERS = 150.0;
+
+    /** Backwards movement smaller than this is treated as GPS noise rather than going back. */
+    private static final double BACKWARD_TOLERANCE_METERS = 30.0;
+
+    private final String shapeId;
+    private final int[] latitudes;
+    private final int[] longitudes;
+    private final float[] cumulativeMeters;
+    private volatile ShapeSegmentIndex segmentIndex;
+
+    /**
+     * Creates a geometry from vertex coordinates already ordered by {@code shape_pt_sequence}.
+     *
+     * @param shapeId GTFS shape identifier
+     * @param latitudes vertex latitudes in degrees
+     * @param longitudes vertex longitudes in degrees
+     */
+    public ShapeGeometry(String shapeId, double[] latitudes, double[] longitudes) {
+        this(shapeId, toMicrodegrees(latitudes), toMicrodegrees(longitudes));
+    }
+
+    /**
+     * Creates a geometry from ordered vertex coordinates in microdegrees. The arrays are not copied.
+     *
+     * @param shapeId GTFS shape identifier
+     * @param latitudesE6 vertex latitudes in microdegrees
+     * @param longitudesE6 vertex longitudes in microdegrees
+     */
+    public ShapeGeometry(String shapeId, int[] latitudesE6, int[] longitudesE6) {
+        if (latitudesE6.length != longitudesE6.length) {
+            throw new IllegalArgumentException("Latitude and longitude arrays must have the same length");
+        }
+        this.shapeId = shapeId;
+        this.latitudes = latitudesE6;
+        this.longitudes = longitudesE6;
+        this.cumulativeMeters = new float[latitudesE6.length];
+        double total = 0;
+        for (int i = 1; i < latitudesE6.length; i++) {
+            total += GeoMath.haversineMeters(latitudeAt(i - 1), longitudeAt(i - 1), latitudeAt(i), longitudeAt(i));
+            cumulativeMeters[i] = (float) total;
+        }
+    }
+
+    /**
+     * Decodes a geometry stored with {@link ShapeGeometryCodec}.
+     *
+     * @param shapeId GTFS shape identifier
+     * @param packed packed geometry bytes
+     * @return the decoded geometry
+     */
+    public static ShapeGeometry fromPacked(String shapeId, byte[] packed) {
+        int[][] coordinates = ShapeGeometryCodec.decode(packed);
+        return new ShapeGeometry(shapeId, coordinates[0], coordinates[1]);
+    }
+
+    /**
+     * Packs this geometry with {@link ShapeGeometryCodec}.
+     */
+    public byte[] toPacked() {
+        return ShapeGeometryCodec.encode(latitudes, longitudes);
+    }
+
+    public String getShapeId() {
+        return shapeId;
+    }
+
+    public int size() {
+        return latitudes.length;
+    }
+
+    public double latitudeAt(int index) {
+        return ShapeGeometryCodec.fromMicrodegrees(latitudes[index]);
+    }
+
+    public double longitudeAt(int index) {
+        return ShapeGeometryCodec.fromMicrodegrees(longitudes[index]);
+    }
+
+    /**
+     * Distance from the first vertex to the vertex with the given index.
+     *
+     * @return distance in meters
+     */
+    public double distanceAt(int index) {
+        return cumulativeMeters[index];
+    }
+
+    /**
+     * Total length of the shape in meters.
+     */
+    public double length() {
+        return cumulativeMeters.length == 0 ? 0.0 : cumulativeMeters[cumulativeMeters.length - 1];
+    }
+
+    /**
+     * Snaps a coordinate onto the closest segment of the shape.
+     *
+     * @param latitude point latitude
+     * @param longitude point longitude
+     * @return projection of the point, or {@code null} for shapes with fewer than two vertices
+     */
+    public ShapeProjection project(double latitude, double longitude) {
+        return projectNear(latitude, longitude, Double.NaN);
+    }
+
+    /**
+     * Snaps a coordinate onto the shape, preferring segments consistent with a previously known
+     * position. Shapes that pass the same street twice (loops, out-and-back lines) are otherwise
+     * ambiguous, so candidates that would move the vehicle backwards from {@code hintDistanceMeters}
+     * are penalised by the distance they would go back.
+     *
+     * @param latitude point latitude
+     * @param longitude point longitude
+     * @param hintDistanceMeters previously matched distance along the shape, or {@code NaN} if unknown
+     * @return projection of the point, or {@code null} for shapes with fewer than two vertices
+     */
+    public ShapeProjection projectNear(double latitude, double longitude, double hintDistanceMeters) {
+        if (latitudes.length < 2) {
+            return null;
+        }
+        BestMatch best = new BestMatch(latitude, longitude, hintDistanceMeters);
+        segmentIndex().forEachCandidate(latitude, longitude, SEARCH_RADIUS_METERS, best::consider);
+        if (best.segment < 0 || best.offset > SEARCH_RADIUS_METERS) {
+            // The grid only guarantees the closest segment within the search radius
+            best.reset();
+            for (int i = 0; i < latitudes.length - 1; i++) {
+                best.consider(i);
+            }
+        }
+        return projectOnSegment(best.segment, latitude, longitude);
+    }
+
+    /**
+     * Approximate heap footprint of this geometry (vertex and distance arrays plus the segment
+     * index, if built) in bytes.
+     */
+    public long estimatedBytes() {
+        ShapeSegmentIndex index = segmentIndex;
+        return 12L * latitudes.length + (index != null ? index.estimatedBytes() : 0);
+    }
+
+    /**
+     * Returns the segment index of this shape, building it on first use.
+     */
+    public ShapeSegmentIndex segmentIndex() {
+        ShapeSegmentIndex index = segmentIndex;
+        if (index == null) {
+            index = new ShapeSegmentIndex(this);
+            segmentIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Projects a coordinate onto a single segment, starting at vertex {@code segment}.
+     *
+     * @param segment index of the segment's first vertex
+     * @param latitude point latitude
+     * @param longitude point longitude
+     * @return projection of the point onto that segment
+     */
+    public ShapeProjection projectOnSegment(int segment, double latitude, double longitude) {
+        double kx = GeoMath.metersPerDegreeLon(latitude);
+        double ky = GeoMath.metersPerDegreeLat();
+
+        double ax = (longitudeAt(segment) - longitude) * kx;
+        double ay = (latitudeAt(segment) - latitude) * ky;
+        double bx = (longitudeAt(segment + 1) - longitude) * kx;
+        double by = (latitudeAt(segment + 1) - latitude) * ky;
+
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : -(ax * dx + ay * dy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+
+        double px = ax + t * dx;
+        double py = ay + t * dy;
+        double offset = Math.sqrt(px * px + py * py);
+        double along = cumulativeMeters[segment] + t * (cumulativeMeters[segment + 1] - cumulativeMeters[segment]);
+        return new ShapeProjection(segment, along, offset);
+    }
+
+    /**
+     * Returns the coordinate located at the given distance along the shape.
+     * Distances outside of the shape are clamped to its end points.
+     *
+     * @param distanceMeters distance from the start of the shape
+     * @return two-element array of {latitude, longitude}
+     */
+    public double[] pointAt(double distanceMeters) {
+        int last = latitudes.length - 1;
+        if (distanceMeters <= 0 || last == 0) {
+            return new double[]{latitudeAt(0), longitudeAt(0)};
+        }
+        if (distanceMeters >= cumulativeMeters[last]) {
+            return new double[]{latitudeAt(last), longitudeAt(last)};
+        }
+        int index = Arrays.binarySearch(cumulativeMeters, (float) distanceMeters);
+        if (index >= 0) {
+            return new double[]{latitudeAt(index), longitudeAt(index)};
+        }
+        int upper = -index - 1;
+        int lower = upper - 1;
+        double span = cumulativeMeters[upper] - cumulativeMeters[lower];
+        double t = span == 0 ? 0 : (distanceMeters - cumulativeMeters[lower]) / span;
+        return new double[]{
+                latitudeAt(lower) + t * (latitudeAt(upper) - latitudeAt(lower)),
+                longitudeAt(lower) + t * (longitudeAt(upper) - longitudeAt(lower))
+        };
+    }
+
+    private static int[] toMicrodegrees(double[] degrees) {
+        int[] microdegrees = new int[degrees.length];
+        for (int i = 0; i < degrees.length; i++) {
+            microdegrees[i] = ShapeGeometryCodec.toMicrodegrees(degrees[i]);
+        }
+        return microdegrees;
+    }
+
+    /**
+     * Tracks the best scoring segment while candidates are visited, without allocating per candidate.
+     */
+    private final class BestMatch {
+        private final double latitude;
+        private final double longitude;
+        private final double hint;
+        private final double kx;
+        private final double ky;
+        private int segment = -1;
+        private double score = Double.MAX_VALUE;
+        private double offset = Double.MAX_VALUE;
+
+        private BestMatch(double latitude, double longitude, double hint) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.hint = hint;
+            this.kx = GeoMath.metersPerDegreeLon(latitude);
+            this.ky = GeoMath.metersPerDegreeLat();
+        }
+
+        private void consider(int candidate) {
+            double ax = (longitudeAt(candidate) - longitude) * kx;
+            double ay = (latitudeAt(candidate) - latitude) * ky;
+            double dx = (longitudeAt(candidate + 1) - longitude) * kx - ax;
+            double dy = (latitudeAt(candidate + 1) - latitude) * ky - ay;
+            double lengthSquared = dx * dx + dy * dy;
+            double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSquared));
+            double px = ax + t * dx;
+            double py = ay + t * dy;
+
+            double candidateOffset = Math.sqrt(px * px + py * py);
+            double candidateScore = candidateOffset;
+            if (!Double.isNaN(hint)) {
+                double along = cumulativeMeters[candidate] + t * (cumulativeMeters[candidate + 1] - cumulativeMeters[candidate]);
+                candidateScore += Math.max(0, hint - along - BACKWARD_TOLERANCE_METERS);
+            }
+            if (candidateScore < score) {
+                score = candidateScore;
+                offset = candidateOffset;
+                segment = candidate;
+            }
+        }
+
+        private void reset() {
+            segment = -1;
+            score = Double.MAX_VALUE;
+            offset = Double.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Result of snapping a coordinate onto the shape.
+     *
+     * @param segmentIndex index of the first vertex of the matched segment
+     * @param distanceAlongMeters distance travelled from the start of the shape to the snapped point
+     * @param offsetMeters perpendicular distance between the original point and the shape
+     */
+    public record ShapeProjection(int segmentIndex, double distanceAlongMeters, double offsetMeters) {
+    }
+}
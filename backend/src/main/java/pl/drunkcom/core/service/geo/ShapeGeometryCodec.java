@@ -0,0 +1,135 @@
+package pl.drunkcom.core.service.geo;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Binary codec for the packed shape geometry stored in {@code gtfs_shapes.packed_geometry}.
+ *
+ * <p>Layout (all integers are unsigned LEB128 varints):
+ * <pre>
+ *   format version (currently 1)
+ *   point count
+ *   for every point: zigzag(latE6 - previous latE6), zigzag(lonE6 - previous lonE6)
+ * </pre>
+ * Coordinates are stored as integer microdegrees (about 11 cm of precision). Consecutive shape
+ * points are close together, so most deltas fit in two bytes and a point costs about four bytes
+ * instead of a whole database row.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public final class ShapeGeometryCodec {
+
+    static final int FORMAT_VERSION = 1;
+    private static final double MICRODEGREES = 1_000_000.0;
+
+    private ShapeGeometryCodec() {
+    }
+
+    /**
+     * Converts decimal degrees to integer microdegrees.
+     */
+    public static int toMicrodegrees(double degrees) {
+        return (int) Math.round(degrees * MICRODEGREES);
+    }
+
+    /**
+     * Converts integer microdegrees to decimal degrees.
+     */
+    public static double fromMicrodegrees(int microdegrees) {
+        return microdegrees / MICRODEGREES;
+    }
+
+    /**
+     * Packs ordered coordinates into the binary format.
+     *
+     * @param latitudesE6 latitudes in microdegrees
+     * @param longitudesE6 longitudes in microdegrees
+     * @return packed geometry
+     */
+    public static byte[] encode(int[] latitudesE6, int[] longitudesE6) {
+        if (latitudesE6.length != longitudesE6.length) {
+            throw new IllegalArgumentException("Latitude and longitude arrays must have the same length");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4 + latitudesE6.length * 5);
+        writeVarint(out, FORMAT_VERSION);
+        writeVarint(out, latitudesE6.length);
+        int previousLat = 0;
+        int previousLon = 0;
+        for (int i = 0; i < latitudesE6.length; i++) {
+            writeVarint(out, zigzag(latitudesE6[i] - previousLat));
+            writeVarint(out, zigzag(longitudesE6[i] - previousLon));
+            previousLat = latitudesE6[i];
+            previousLon = longitudesE6[i];
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Unpacks a geometry produced by {@link #encode(int[], int[])}.
+     *
+     * @param packed packed geometry
+     * @return two arrays: latitudes and longitudes in microdegrees
+     * @throws IllegalArgumentException if the data is truncated or of an unknown format version
+     */
+    public static int[][] decode(byte[] packed) {
+        Reader reader = new Reader(packed);
+        int version = reader.readVarint();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported packed geometry format version " + version);
+        }
+        int count = reader.readVarint();
+        int[] latitudes = new int[count];
+        int[] longitudes = new int[count];
+        int lat = 0;
+        int lon = 0;
+        for (int i = 0; i < count; i++) {
+            lat += unzigzag(reader.readVarint());
+            lon += unzigzag(reader.readVarint());
+            latitudes[i] = lat;
+            longitudes[i] = lon;
+        }
+        return new int[][]{latitudes, longitudes};
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int position;
+
+        private Reader(byte[] data) {
+            this.data = data;
+        }
+
+        private int readVarint() {
+            int result = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                if (position >= data.length) {
+                    throw new IllegalArgumentException("Packed geometry is truncated");
+                }
+                byte b = data[position++];
+                result |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in packed geometry");
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package pl.drunkcom.core.service.geo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.drunkcom.core.interfaces.ShapeRepository;
+import pl.drunkcom.core.model.gtfs.Shape;
+import pl.drunkcom.core.model.gtfs.ShapeCoords;
+import pl.drunkcom.core.service.dataset.StaticDatasetChangedEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads GTFS shapes as ordered {@link ShapeGeometry} polylines and keeps them cached in memory.
+ *
+ * <p>Shapes are read from the single {@code packed_geometry} column of {@code gtfs_shapes}.
+ * Shapes that still only have legacy {@link ShapeCoords} rows are sorted, packed and written back
+ * once the application is ready, and whenever all shapes are loaded; a single shape read in between
+ * is packed in memory only, so reads never write. Loads run outside the cache's locks, and a load
+ * that raced with an eviction is not cached. Missing shapes are cached as well to avoid hammering
+ * the database for trips that reference unknown geometry. The whole cache is dropped when the static dataset
+ * changes, before any cache derived from the geometry is rebuilt.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class ShapeGeometryService {
+
+    private static final Logger log = LoggerFactory.getLogger(ShapeGeometryService.class);
+
+    private final ShapeRepository shapeRepository;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate readOnly;
+    private final Map<String, Optional<ShapeGeometry>> cache = new ConcurrentHashMap<>();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ShapeGeometryService(ShapeRepository shapeRepository, PlatformTransactionManager transactionManager) {
+        this.shapeRepository = shapeRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    /**
+     * Returns the geometry of a shape, loading it on first access.
+     *
+     * @param shapeId GTFS shape identifier
+     * @return the ordered geometry, or empty if the shape does not exist or has fewer than two points
+     */
+    public Optional<ShapeGeometry> find(String shapeId) {
+        if (shapeId == null || shapeId.isBlank()) {
+            return Optional.empty();
+        }
+        Optional<ShapeGeometry> cached = cache.get(shapeId);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = evictions.get();
+        // Legacy coordinates are lazy, so load inside a transaction
+        Optional<ShapeGeometry> loaded = readOnly.execute(status -> load(shapeId));
+        if (evictions.get() != generation) {
+            // evicted while loading, which may have read the previous version
+            return loaded;
+        }
+        Optional<ShapeGeometry> raced = cache.putIfAbsent(shapeId, loaded);
+        return raced != null ? raced : loaded;
+    }
+
+    /**
+     * Packs a shape's legacy coordinate rows into its packed geometry column, if it has any.
+     * Does not save the shape.
+     *
+     * @param shape the shape to update
+     * @return true if the packed geometry was (re)built
+     */
+    public boolean pack(Shape shape) {
+        if (shape.getCoords() == null || shape.getCoords().isEmpty()) {
+            return false;
+        }
+        List<ShapeCoords> coords = shape.getCoords().stream()
+                .sorted(Comparator.comparing(ShapeCoords::getShapePtSequence,
+                        Comparator.nullsLast(Comparator.naturalOrder())))
+                .toList();
+        int[] latitudes = new int[coords.size()];
+        int[] longitudes = new int[coords.size()];
+        for (int i = 0; i < coords.size(); i++) {
+            latitudes[i] = ShapeGeometryCodec.toMicrodegrees(coords.get(i).getShapePtLat());
+            longitudes[i] = ShapeGeometryCodec.toMicrodegrees(coords.get(i).getShapePtLon());
+        }
+        shape.setPackedGeometry(ShapeGeometryCodec.encode(latitudes, longitudes));
+        shape.setPointCount(coords.size());
+        return true;
+    }
+
+    /**
+     * Packs and saves every shape that still only has legacy coordinate rows.
+     *
+     * @return number of shapes migrated
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public int migrateLegacyShapes() {
+        Integer migrated = transaction.execute(status -> {
+            int count = 0;
+            for (Shape shape : shapeRepository.findByPackedGeometryIsNull()) {
+                if (pack(shape)) {
+                    shapeRepository.save(shape);
+                    count++;
+                }
+            }
+            return count;
+        });
+        if (migrated != null && migrated > 0) {
+            log.info("Packed legacy coordinates of {} shapes", migrated);
+            evictAll();
+        }
+        return migrated != null ? migrated : 0;
+    }
+
+    /**
+     * Loads every shape of the dataset into the cache in one pass and returns them, replacing
+     * whatever was cached for them.
+     *
+     * @return all shapes with at least two points
+     */
+    public List<ShapeGeometry> loadAll() {
+        List<Shape> shapes = transaction.execute(status -> {
+            List<Shape> all = shapeRepository.findAll();
+            for (Shape shape : all) {
+                if (shape.getPackedGeometry() == null && pack(shape)) {
+                    shapeRepository.save(shape);
+                }
+            }
+            return all;
+        });
+        List<ShapeGeometry> geometries = new ArrayList<>(shapes.size());
+        for (Shape shape : shapes) {
+            Optional<ShapeGeometry> geometry = decode(shape);
+            cache.put(shape.getShapeId(), geometry);
+            geometry.ifPresent(geometries::add);
+        }
+        log.info("Loaded {} shapes", geometries.size());
+        return geometries;
+    }
+
+    /**
+     * Returns all geometries currently held in memory.
+     */
+    public Collection<ShapeGeometry> cached() {
+        return cache.values().stream().flatMap(Optional::stream).toList();
+    }
+
+    /**
+     * Drops a cached geometry so it is reloaded on next access.
+     *
+     * @param shapeId GTFS shape identifier
+     */
+    public void evict(String shapeId) {
+        evictions.incrementAndGet();
+        cache.remove(shapeId);
+    }
+
+    /**
+     * Drops all cached geometries so they are reloaded on next access.
+     */
+    public void evictAll() {
+        evictions.incrementAndGet();
+        cache.clear();
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onDatasetChanged(StaticDatasetChangedEvent event) {
+        evictAll();
+    }
+
+    private Optional<ShapeGeometry> load(String shapeId) {
+        Optional<Shape> found = shapeRepository.findById(shapeId);
+        if (found.isEmpty()) {
+            log.debug("Shape {} not found", shapeId);
+            return Optional.empty();
+        }
+
+        Shape shape = found.get();
+        if (shape.getPackedGeometry() == null) {
+            // packed in memory only: the read-only transaction never flushes the change
+            if (!pack(shape)) {
+                log.debug("Shape {} has no coordinates", shapeId);
+                return Optional.empty();
+            }
+            log.debug("Packed legacy coordinates of shape {} in memory ({} points)", shapeId, shape.getPointCount());
+        }
+
+        Optional<ShapeGeometry> geometry = decode(shape);
+        geometry.ifPresent(g -> log.debug("Loaded shape {} with {} points", shapeId, g.size()));
+        return geometry;
+    }
+
+    private static Optional<ShapeGeometry> decode(Shape shape) {
+        if (shape.getPackedGeometry() == null) {
+            return Optional.empty();
+        }
+        ShapeGeometry geometry = ShapeGeometry.fromPacked(shape.getShapeId(), shape.getPackedGeometry());
+        return geometry.size() < 2 ? Optional.empty() : Optional.of(geometry);
+    }
+}
@@ -0,0 +1,104 @@
+package pl.drunkcom.core.service.geo;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.service.dataset.StaticDatasetChangedEvent;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves shapes as Google encoded polylines simplified for the zoom level they are drawn at.
+ *
+ * <p>Zoom levels are grouped into bands; every band uses a Douglas-Peucker tolerance of half a
+ * pixel at the most detailed zoom of the band, and the last band keeps every vertex. All bands of a
+ * shape are built together from one {@link PolylineSimplifier#importance(ShapeGeometry)} pass the
+ * first time the shape is requested and then served from memory. Entries remember the geometry they
+ * were built from, so they are rebuilt automatically when the shape is reloaded.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class ShapePolylineService {
+
+    /** Highest zoom level of every band except the last one, which is unbounded and not simplified. */
+    private static final int[] BAND_MAX_ZOOM = {10, 12, 14, 16};
+
+    /** Web Mercator ground resolution at zoom 0 on the equator, in meters per 256 px tile pixel. */
+    private static final double EQUATOR_METERS_PER_PIXEL = 156_543.03392;
+
+    private final ShapeGeometryService shapeGeometryService;
+    private final Map<String, ShapePolylines> cache = new ConcurrentHashMap<>();
+
+    public ShapePolylineService(ShapeGeometryService shapeGeometryService) {
+        this.shapeGeometryService = shapeGeometryService;
+    }
+
+    /**
+     * Returns the simplified, encoded polyline of a shape for a zoom level.
+     *
+     * @param shapeId GTFS shape identifier
+     * @param zoom map zoom level
+     * @return the encoded polyline, or empty if the shape does not exist
+     */
+    public Optional<EncodedPolyline> find(String shapeId, int zoom) {
+        Optional<ShapeGeometry> geometry = shapeGeometryService.find(shapeId);
+        if (geometry.isEmpty()) {
+            return Optional.empty();
+        }
+        ShapePolylines polylines = cache.get(shapeId);
+        if (polylines == null || polylines.geometry() != geometry.get()) {
+            polylines = build(geometry.get());
+            cache.put(shapeId, polylines);
+        }
+        return Optional.of(polylines.bands()[band(zoom)]);
+    }
+
+    /**
+     * Maps a zoom level onto its simplification band.
+     *
+     * @param zoom map zoom level
+     * @return band index, {@code 0} being the most simplified
+     */
+    public static int band(int zoom) {
+        for (int band = 0; band < BAND_MAX_ZOOM.length; band++) {
+            if (zoom <= BAND_MAX_ZOOM[band]) {
+                return band;
+            }
+        }
+        return BAND_MAX_ZOOM.length;
+    }
+
+    @EventListener
+    public void onDatasetChanged(StaticDatasetChangedEvent event) {
+        cache.clear();
+    }
+
+    static ShapePolylines build(ShapeGeometry geometry) {
+        float[] importance = PolylineSimplifier.importance(geometry);
+        double metersPerPixel = EQUATOR_METERS_PER_PIXEL * Math.cos(Math.toRadians(geometry.latitudeAt(0)));
+        EncodedPolyline[] bands = new EncodedPolyline[BAND_MAX_ZOOM.length + 1];
+        for (int band = 0; band < bands.length; band++) {
+            double tolerance = band < BAND_MAX_ZOOM.length ? metersPerPixel / (1 << BAND_MAX_ZOOM[band]) / 2 : 0;
+            int[] kept = PolylineSimplifier.simplify(importance, tolerance);
+            bands[band] = new EncodedPolyline(PolylineEncoder.encode(geometry, kept), kept.length, geometry.size());
+        }
+        return new ShapePolylines(geometry, bands);
+    }
+
+    /**
+     * A simplified shape in Google encoded polyline format.
+     *
+     * @param polyline encoded polyline (precision 5)
+     * @param pointCount number of vertices kept
+     * @param originalPointCount number of vertices of the full shape
+     */
+    public record EncodedPolyline(String polyline, int pointCount, int originalPointCount) {
+    }
+
+    private record ShapePolylines(ShapeGeometry geometry, EncodedPolyline[] bands) {
+    }
+}
@@ -0,0 +1,128 @@
+package pl.drunkcom.core.service.geo;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the segments of one {@link ShapeGeometry}, used to find the few segments
+ * near a point without scanning the whole polyline.
+ *
+ * <p>Segments are rasterised by their bounding box into square cells of {@link #CELL_SIZE_METERS}.
+ * The cell contents are stored in a compressed-row layout ({@code cellStart} offsets into a single
+ * {@code segments} array), so an index costs a few bytes per segment and no per-cell objects.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public final class ShapeSegmentIndex {
+
+    static final double CELL_SIZE_METERS = 100.0;
+
+    private final double minLat;
+    private final double minLon;
+    private final double cellLat;
+    private final double cellLon;
+    private final int columns;
+    private final int rows;
+    private final int[] cellStart;
+    private final int[] segments;
+
+    ShapeSegmentIndex(ShapeGeometry geometry) {
+        int segmentCount = Math.max(0, geometry.size() - 1);
+        double minLatitude = Double.MAX_VALUE, minLongitude = Double.MAX_VALUE;
+        double maxLatitude = -Double.MAX_VALUE, maxLongitude = -Double.MAX_VALUE;
+        for (int i = 0; i < geometry.size(); i++) {
+            minLatitude = Math.min(minLatitude, geometry.latitudeAt(i));
+            maxLatitude = Math.max(maxLatitude, geometry.latitudeAt(i));
+            minLongitude = Math.min(minLongitude, geometry.longitudeAt(i));
+            maxLongitude = Math.max(maxLongitude, geometry.longitudeAt(i));
+        }
+        double midLatitude = (minLatitude + maxLatitude) / 2;
+
+        this.minLat = minLatitude;
+        this.minLon = minLongitude;
+        this.cellLat = CELL_SIZE_METERS / GeoMath.metersPerDegreeLat();
+        this.cellLon = CELL_SIZE_METERS / GeoMath.metersPerDegreeLon(midLatitude);
+        this.columns = Math.max(1, (int) ((maxLongitude - minLongitude) / cellLon) + 1);
+        this.rows = Math.max(1, (int) ((maxLatitude - minLatitude) / cellLat) + 1);
+
+        // First pass counts segments per cell, second pass fills them in
+        int[] counts = new int[columns * rows + 1];
+        for (int s = 0; s < segmentCount; s++) {
+            forEachCell(geometry, s, cell -> counts[cell + 1]++);
+        }
+        for (int c = 1; c < counts.length; c++) {
+            counts[c] += counts[c - 1];
+        }
+        this.cellStart = counts;
+        this.segments = new int[counts[counts.length - 1]];
+        int[] fill = Arrays.copyOf(counts, counts.length - 1);
+        for (int s = 0; s < segmentCount; s++) {
+            final int segment = s;
+            forEachCell(geometry, s, cell -> segments[fill[cell]++] = segment);
+        }
+    }
+
+    /**
+     * Collects the segments whose cells lie within {@code radiusMeters} of the point.
+     * A segment may be reported more than once if it spans several of the visited cells.
+     *
+     * @param latitude point latitude
+     * @param longitude point longitude
+     * @param radiusMeters search radius
+     * @param visitor callback receiving each candidate segment index
+     */
+    public void forEachCandidate(double latitude, double longitude, double radiusMeters, SegmentVisitor visitor) {
+        int reachLat = (int) Math.ceil(radiusMeters / CELL_SIZE_METERS);
+        int column = (int) Math.floor((longitude - minLon) / cellLon);
+        int row = (int) Math.floor((latitude - minLat) / cellLat);
+
+        int fromRow = Math.max(0, row - reachLat);
+        int toRow = Math.min(rows - 1, row + reachLat);
+        int fromColumn = Math.max(0, column - reachLat);
+        int toColumn = Math.min(columns - 1, column + reachLat);
+        for (int r = fromRow; r <= toRow; r++) {
+            for (int c = fromColumn; c <= toColumn; c++) {
+                int cell = r * columns + c;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    visitor.visit(segments[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Approximate heap footprint of the index arrays in bytes.
+     */
+    public long estimatedBytes() {
+        return 4L * (cellStart.length + segments.length);
+    }
+
+    private void forEachCell(ShapeGeometry geometry, int segment, CellVisitor visitor) {
+        double lat1 = geometry.latitudeAt(segment), lat2 = geometry.latitudeAt(segment + 1);
+        double lon1 = geometry.longitudeAt(segment), lon2 = geometry.longitudeAt(segment + 1);
+        int fromColumn = clamp((int) ((Math.min(lon1, lon2) - minLon) / cellLon), columns);
+        int toColumn = clamp((int) ((Math.max(lon1, lon2) - minLon) / cellLon), columns);
+        int fromRow = clamp((int) ((Math.min(lat1, lat2) - minLat) / cellLat), rows);
+        int toRow = clamp((int) ((Math.max(lat1, lat2) - minLat) / cellLat), rows);
+        for (int r = fromRow; r <= toRow; r++) {
+            for (int c = fromColumn; c <= toColumn; c++) {
+                visitor.visit(r * columns + c);
+            }
+        }
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+
+    @FunctionalInterface
+    public interface SegmentVisitor {
+        void visit(int segment);
+    }
+
+    @FunctionalInterface
+    private interface CellVisitor {
+        void visit(int cell);
+    }
+}
@@ -0,0 +1,236 @@
+package pl.drunkcom.core.service.geo;
+
+import pl.drunkcom.core.service.dataset.RouteInfo;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable in-memory view of the spatial part of one static dataset version: stops with a
+ * {@link PointGridIndex} and the routes serving them, shapes with their bounding boxes in a
+ * {@link BoxGridIndex} and Douglas-Peucker importance, and the routes they belong to; a shape shared by
+ * several routes belongs to all of them. Built by {@link StaticGeoIndexService}; every array is indexed
+ * by the stop or shape position.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public final class StaticGeoIndex {
+
+    private final String version;
+    private final Map<String, RouteInfo> routes;
+
+    private final String[] stopIds;
+    private final String[] stopCodes;
+    private final String[] stopNames;
+    private final int[] stopLocationTypes;
+    private final double[] stopLatitudes;
+    private final double[] stopLongitudes;
+    private final RouteInfo[][] stopRoutes;
+    private final PointGridIndex stopGrid;
+
+    private final ShapeGeometry[] shapes;
+    private final String[][] shapeRouteIds;
+    private final Map<String, int[]> shapesByRoute;
+    private final float[][] shapeImportance;
+    private final double[] shapeBounds;
+    private final BoxGridIndex shapeGrid;
+
+    StaticGeoIndex(String version, Map<String, RouteInfo> routes, List<StopEntry> stops,
+                   Map<String, List<String>> routeIdsByStop, List<ShapeGeometry> shapes,
+                   Map<String, ? extends Collection<String>> routeIdsByShape) {
+        this.version = version;
+        this.routes = Map.copyOf(routes);
+
+        int stopCount = stops.size();
+        this.stopIds = new String[stopCount];
+        this.stopCodes = new String[stopCount];
+        this.stopNames = new String[stopCount];
+        this.stopLocationTypes = new int[stopCount];
+        this.stopLatitudes = new double[stopCount];
+        this.stopLongitudes = new double[stopCount];
+        this.stopRoutes = new RouteInfo[stopCount][];
+        for (int i = 0; i < stopCount; i++) {
+            StopEntry stop = stops.get(i);
+            stopIds[i] = stop.stopId();
+            stopCodes[i] = stop.stopCode();
+            stopNames[i] = stop.stopName();
+            stopLocationTypes[i] = stop.locationType();
+            stopLatitudes[i] = stop.latitude();
+            stopLongitudes[i] = stop.longitude();
+            stopRoutes[i] = routeIdsByStop.getOrDefault(stop.stopId(), List.of()).stream()
+                    .map(this.routes::get)
+                    .filter(Objects::nonNull)
+                    .sorted(Comparator.comparing(RouteInfo::routeId))
+                    .toArray(RouteInfo[]::new);
+        }
+        this.stopGrid = new PointGridIndex(stopLatitudes, stopLongitudes);
+
+        int shapeCount = shapes.size();
+        this.shapes = shapes.toArray(new ShapeGeometry[0]);
+        this.shapeRouteIds = new String[shapeCount][];
+        Map<String, int[]> shapesByRoute = new HashMap<>();
+        this.shapeImportance = new float[shapeCount][];
+        this.shapeBounds = new double[shapeCount * 4];
+        for (int s = 0; s < shapeCount; s++) {
+            ShapeGeometry shape = this.shapes[s];
+            Collection<String> routeIds = routeIdsByShape.get(shape.getShapeId());
+            shapeRouteIds[s] = routeIds == null ? new String[0] : routeIds.stream()
+                    .distinct()
+                    .sorted()
+                    .toArray(String[]::new);
+            for (String routeId : shapeRouteIds[s]) {
+                int[] routeShapes = shapesByRoute.getOrDefault(routeId, new int[0]);
+                routeShapes = Arrays.copyOf(routeShapes, routeShapes.length + 1);
+                routeShapes[routeShapes.length - 1] = s;
+                shapesByRoute.put(routeId, routeShapes);
+            }
+            shapeImportance[s] = PolylineSimplifier.importance(shape);
+            double minLat = Double.MAX_VALUE, minLon = Double.MAX_VALUE;
+            double maxLat = -Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+            for (int i = 0; i < shape.size(); i++) {
+                minLat = Math.min(minLat, shape.latitudeAt(i));
+                maxLat = Math.max(maxLat, shape.latitudeAt(i));
+                minLon = Math.min(minLon, shape.longitudeAt(i));
+                maxLon = Math.max(maxLon, shape.longitudeAt(i));
+            }
+            shapeBounds[s * 4] = minLat;
+            shapeBounds[s * 4 + 1] = minLon;
+            shapeBounds[s * 4 + 2] = maxLat;
+            shapeBounds[s * 4 + 3] = maxLon;
+        }
+        this.shapesByRoute = Map.copyOf(shapesByRoute);
+        this.shapeGrid = new BoxGridIndex(shapeBounds);
+    }
+
+    /**
+     * Static dataset version this index was built from.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the display attributes of a route.
+     *
+     * @param routeId GTFS route identifier, may be null
+     * @return the route, or null if unknown
+     */
+    public RouteInfo route(String routeId) {
+        return routeId == null ? null : routes.get(routeId);
+    }
+
+    public int stopCount() {
+        return stopIds.length;
+    }
+
+    public String stopId(int stop) {
+        return stopIds[stop];
+    }
+
+    public String stopCode(int stop) {
+        return stopCodes[stop];
+    }
+
+    public String stopName(int stop) {
+        return stopNames[stop];
+    }
+
+    public int stopLocationType(int stop) {
+        return stopLocationTypes[stop];
+    }
+
+    public double stopLatitude(int stop) {
+        return stopLatitudes[stop];
+    }
+
+    public double stopLongitude(int stop) {
+        return stopLongitudes[stop];
+    }
+
+    /**
+     * Routes serving a stop, ordered by route id.
+     */
+    public RouteInfo[] stopRoutes(int stop) {
+        return stopRoutes[stop];
+    }
+
+    /**
+     * Visits the stops inside a bounding box.
+     */
+    public void forEachStopInBox(double minLat, double minLon, double maxLat, double maxLon, IntConsumer visitor) {
+        stopGrid.forEachInBox(minLat, minLon, maxLat, maxLon, visitor);
+    }
+
+    public int shapeCount() {
+        return shapes.length;
+    }
+
+    public ShapeGeometry shape(int shape) {
+        return shapes[shape];
+    }
+
+    /**
+     * Primary route of a shape, the smallest id of the routes whose trips run on it.
+     *
+     * @return GTFS route identifier, or null if no trip uses the shape
+     */
+    public String shapeRouteId(int shape) {
+        String[] routeIds = shapeRouteIds[shape];
+        return routeIds.length == 0 ? null : routeIds[0];
+    }
+
+    /**
+     * Routes whose trips run on a shape, ordered by route id.
+     */
+    public String[] shapeRouteIds(int shape) {
+        return shapeRouteIds[shape];
+    }
+
+    /**
+     * Shapes run on by the trips of a route, in ascending order.
+     *
+     * @param routeId GTFS route identifier
+     * @return shape positions, empty if the route is unknown or has no shapes
+     */
+    public int[] routeShapes(String routeId) {
+        return shapesByRoute.getOrDefault(routeId, new int[0]);
+    }
+
+    /**
+     * Douglas-Peucker importance of the vertices of a shape, see {@link PolylineSimplifier#importance(ShapeGeometry)}.
+     */
+    public float[] shapeImportance(int shape) {
+        return shapeImportance[shape];
+    }
+
+    /**
+     * Bounding box of a shape.
+     *
+     * @return four-element array of {minLat, minLon, maxLat, maxLon}
+     */
+    public double[] shapeBounds(int shape) {
+        return Arrays.copyOfRange(shapeBounds, shape * 4, shape * 4 + 4);
+    }
+
+    /**
+     * Visits the shapes whose bounding box intersects the given box, each once.
+     */
+    public void forEachShapeInBox(double minLat, double minLon, double maxLat, double maxLon, IntConsumer visitor) {
+        shapeGrid.forEachIntersecting(minLat, minLon, maxLat, maxLon, visitor);
+    }
+
+    /**
+     * A stop row used to build the index.
+     */
+    record StopEntry(String stopId, String stopCode, String stopName, int locationType,
+                     double latitude, double longitude) {
+    }
+}
@@ -0,0 +1,121 @@
+package pl.drunkcom.core.service.geo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.interfaces.RouteRepository;
+import pl.drunkcom.core.interfaces.StopRepository;
+import pl.drunkcom.core.interfaces.StopTimeRepository;
+import pl.drunkcom.core.interfaces.TripsRepository;
+import pl.drunkcom.core.service.dataset.RouteInfo;
+import pl.drunkcom.core.service.dataset.StaticDatasetVersion;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Builds and holds the {@link StaticGeoIndex} of the current static dataset version.
+ *
+ * <p>The index is built on first use and rebuilt lazily after the dataset version changes. While a
+ * rebuild is running, callers keep getting the previous index instead of waiting; only the very
+ * first build blocks.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class StaticGeoIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(StaticGeoIndexService.class);
+
+    private final StaticDatasetVersion datasetVersion;
+    private final StopRepository stopRepository;
+    private final RouteRepository routeRepository;
+    private final TripsRepository tripsRepository;
+    private final StopTimeRepository stopTimeRepository;
+    private final ShapeGeometryService shapeGeometryService;
+    private final ReentrantLock buildLock = new ReentrantLock();
+
+    private volatile StaticGeoIndex index;
+
+    public StaticGeoIndexService(StaticDatasetVersion datasetVersion, StopRepository stopRepository,
+                                 RouteRepository routeRepository, TripsRepository tripsRepository,
+                                 StopTimeRepository stopTimeRepository, ShapeGeometryService shapeGeometryService) {
+        this.datasetVersion = datasetVersion;
+        this.stopRepository = stopRepository;
+        this.routeRepository = routeRepository;
+        this.tripsRepository = tripsRepository;
+        this.stopTimeRepository = stopTimeRepository;
+        this.shapeGeometryService = shapeGeometryService;
+    }
+
+    /**
+     * Returns the index of the current dataset version, building it if necessary.
+     */
+    public StaticGeoIndex current() {
+        StaticGeoIndex current = index;
+        String version = datasetVersion.current();
+        if (current != null && current.getVersion().equals(version)) {
+            return current;
+        }
+        if (current != null) {
+            // Serve the previous version while somebody else rebuilds
+            if (!buildLock.tryLock()) {
+                return current;
+            }
+        } else {
+            buildLock.lock();
+        }
+        try {
+            current = index;
+            if (current == null || !current.getVersion().equals(version)) {
+                current = build(version);
+                index = current;
+            }
+            return current;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    private StaticGeoIndex build(String version) {
+        long start = System.nanoTime();
+
+        Map<String, RouteInfo> routes = new HashMap<>();
+        routeRepository.findAll().forEach(route -> routes.put(route.getRouteId(), RouteInfo.from(route)));
+
+        List<StaticGeoIndex.StopEntry> stops = new ArrayList<>();
+        for (StopRepository.StopLocation stop : stopRepository.findAllLocations()) {
+            if (stop.getStopLat() == null || stop.getStopLon() == null) {
+                continue;
+            }
+            stops.add(new StaticGeoIndex.StopEntry(stop.getStopId(), stop.getStopCode(), stop.getStopName(),
+                    stop.getLocationType() != null ? stop.getLocationType() : 0, stop.getStopLat(), stop.getStopLon()));
+        }
+
+        Map<String, List<String>> routeIdsByStop = new HashMap<>();
+        for (StopTimeRepository.StopRoute stopRoute : stopTimeRepository.findStopRoutes()) {
+            routeIdsByStop.computeIfAbsent(stopRoute.getStopId(), id -> new ArrayList<>()).add(stopRoute.getRouteId());
+        }
+
+        // Several routes may share a shape
+        Map<String, Set<String>> routeIdsByShape = new HashMap<>();
+        for (TripsRepository.ShapeRoute shapeRoute : tripsRepository.findShapeRoutes()) {
+            routeIdsByShape.computeIfAbsent(shapeRoute.getShapeId(), id -> new TreeSet<>()).add(shapeRoute.getRouteId());
+        }
+        List<ShapeGeometry> shapes = shapeGeometryService.loadAll();
+
+        StaticGeoIndex built = new StaticGeoIndex(version, routes, stops, routeIdsByStop, shapes, routeIdsByShape);
+        log.info("Built static geo index {} with {} stops, {} shapes and {} routes in {} ms", version,
+                built.stopCount(), built.shapeCount(), routes.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return built;
+    }
+}
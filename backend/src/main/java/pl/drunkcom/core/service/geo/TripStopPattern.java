@@ -0,0 +1,84 @@
+package pl.drunkcom.core.service.geo;
+
+import java.util.Arrays;
+
+/**
+ * Ordered stops of a trip, each placed at its distance along the trip's shape.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public final class TripStopPattern {
+
+    private final String[] stopIds;
+    private final int[] stopSequences;
+    private final double[] distances;
+    private final int[] arrivalSeconds;
+
+    /**
+     * @param stopIds stop identifiers in travel order
+     * @param stopSequences GTFS stop sequences in travel order
+     * @param distances distance of each stop along the shape in meters, non-decreasing
+     */
+    public TripStopPattern(String[] stopIds, int[] stopSequences, double[] distances) {
+        this(stopIds, stopSequences, distances, null);
+    }
+
+    /**
+     * @param stopIds stop identifiers in travel order
+     * @param stopSequences GTFS stop sequences in travel order
+     * @param distances distance of each stop along the shape in meters, non-decreasing
+     * @param arrivalSeconds scheduled arrival at each stop in seconds of the service day, -1 if unknown;
+     *                       null if the trip has no times
+     */
+    public TripStopPattern(String[] stopIds, int[] stopSequences, double[] distances, int[] arrivalSeconds) {
+        this.stopIds = stopIds;
+        this.stopSequences = stopSequences;
+        this.distances = distances;
+        this.arrivalSeconds = arrivalSeconds;
+    }
+
+    public int size() {
+        return stopIds.length;
+    }
+
+    public String stopIdAt(int index) {
+        return stopIds[index];
+    }
+
+    public int stopSequenceAt(int index) {
+        return stopSequences[index];
+    }
+
+    public double distanceAt(int index) {
+        return distances[index];
+    }
+
+    /**
+     * Scheduled arrival at a stop, see {@link pl.drunkcom.core.service.dataset.GtfsTime}.
+     *
+     * @return seconds since the start of the service day, or -1 if the stop has no time
+     */
+    public int scheduledArrivalAt(int index) {
+        return arrivalSeconds != null ? arrivalSeconds[index] : -1;
+    }
+
+    /**
+     * Finds the last stop at or before the given distance along the shape.
+     *
+     * @param distanceMeters distance along the shape
+     * @return index of the previous stop, or {@code -1} if the distance lies before the first stop
+     */
+    public int previousStopIndex(double distanceMeters) {
+        int index = Arrays.binarySearch(distances, distanceMeters);
+        if (index >= 0) {
+            // Several stops may share a distance, report the last one
+            while (index + 1 < distances.length && distances[index + 1] == distanceMeters) {
+                index++;
+            }
+            return index;
+        }
+        return -index - 2;
+    }
+}
@@ -0,0 +1,69 @@
+package pl.drunkcom.core.service.geo;
+
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.interfaces.StopTimeRepository;
+import pl.drunkcom.core.model.gtfs.Stop;
+import pl.drunkcom.core.model.gtfs.StopTime;
+import pl.drunkcom.core.service.dataset.GtfsTime;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Builds {@link TripStopPattern}s by placing a trip's scheduled stops onto its shape.
+ *
+ * <p>Stops are projected in travel order and each stop is only allowed to land at or after the
+ * previous one, which keeps the pattern monotonic on shapes that revisit the same street.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class TripStopPatternService {
+
+    private final StopTimeRepository stopTimeRepository;
+
+    public TripStopPatternService(StopTimeRepository stopTimeRepository) {
+        this.stopTimeRepository = stopTimeRepository;
+    }
+
+    /**
+     * Loads the stops of a trip and places them on the given shape.
+     *
+     * @param tripId GTFS trip identifier
+     * @param geometry shape the trip runs on
+     * @return the stop pattern, or empty if the trip has no stops with coordinates
+     */
+    public Optional<TripStopPattern> load(String tripId, ShapeGeometry geometry) {
+        List<StopTime> stopTimes = stopTimeRepository.findByTripIdOrderByStopSequence(tripId).stream()
+                .filter(stopTime -> hasCoordinates(stopTime.getStop()))
+                .toList();
+        if (stopTimes.isEmpty()) {
+            return Optional.empty();
+        }
+
+        String[] stopIds = new String[stopTimes.size()];
+        int[] sequences = new int[stopTimes.size()];
+        double[] distances = new double[stopTimes.size()];
+        int[] arrivals = new int[stopTimes.size()];
+        double previous = 0;
+        for (int i = 0; i < stopTimes.size(); i++) {
+            StopTime stopTime = stopTimes.get(i);
+            Stop stop = stopTime.getStop();
+            ShapeGeometry.ShapeProjection projection = geometry.projectNear(stop.getStopLat(), stop.getStopLon(), previous);
+            previous = Math.max(previous, projection.distanceAlongMeters());
+
+            stopIds[i] = stop.getStopId();
+            sequences[i] = stopTime.getStopSequence() != null ? stopTime.getStopSequence() : i;
+            distances[i] = previous;
+            arrivals[i] = GtfsTime.toSeconds(stopTime.getArrivalTime() != null
+                    ? stopTime.getArrivalTime() : stopTime.getDepartureTime());
+        }
+        return Optional.of(new TripStopPattern(stopIds, sequences, distances, arrivals));
+    }
+
+    private static boolean hasCoordinates(Stop stop) {
+        return stop != null && stop.getStopLat() != null && stop.getStopLon() != null;
+    }
+}
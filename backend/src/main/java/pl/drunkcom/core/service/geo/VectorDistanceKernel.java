@@ -0,0 +1,60 @@
+package pl.drunkcom.core.service.geo;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API implementation of the {@link DistanceKernel} prefilter.
+ *
+ * <p>Kept in its own class so that it is only loaded when {@code jdk.incubator.vector} is resolved
+ * in the running JVM; referencing it otherwise fails with a {@link NoClassDefFoundError}.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+final class VectorDistanceKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private VectorDistanceKernel() {
+    }
+
+    static int lanes() {
+        return SPECIES.length();
+    }
+
+    /**
+     * Same contract as {@link DistanceKernel#prefilter}, processing {@link #lanes()} points per step.
+     */
+    static int prefilter(float[] latitudes, float[] longitudes, int length,
+                         float latitude, float longitude, float lonScale, float threshold, int[] result) {
+        FloatVector centerLat = FloatVector.broadcast(SPECIES, latitude);
+        FloatVector centerLon = FloatVector.broadcast(SPECIES, longitude);
+        FloatVector scale = FloatVector.broadcast(SPECIES, lonScale);
+        FloatVector limit = FloatVector.broadcast(SPECIES, threshold);
+
+        int count = 0;
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector dy = FloatVector.fromArray(SPECIES, latitudes, i).sub(centerLat);
+            FloatVector dx = FloatVector.fromArray(SPECIES, longitudes, i).sub(centerLon).mul(scale);
+            long inside = dx.fma(dx, dy.mul(dy)).compare(VectorOperators.LE, limit).toLong();
+            // Most blocks are empty; otherwise walk the set bits in ascending lane order
+            while (inside != 0) {
+                result[count++] = i + Long.numberOfTrailingZeros(inside);
+                inside &= inside - 1;
+            }
+        }
+        for (; i < length; i++) {
+            float dy = latitudes[i] - latitude;
+            float dx = (longitudes[i] - longitude) * lonScale;
+            if (dx * dx + dy * dy <= threshold) {
+                result[count++] = i;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,285 @@
+package pl.drunkcom.core.service.history;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Time-ordered positions of one vehicle in a compact, delta-encoded columnar form.
+ *
+ * <p>Points are grouped in blocks of at most {@link #BLOCK_POINTS} points of the same trip. A block
+ * stores its first point verbatim and every further point as zigzag varint deltas of time (seconds),
+ * latitude and longitude (1e-5 degree, about one metre) and delay (seconds); a typical point takes
+ * five to six bytes. The start times of all blocks form the vehicle's time index: a lookup binary
+ * searches it and decodes a single block.
+ *
+ * <p>All methods are synchronized: the realtime poller appends, request threads read.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+final class CompactTrack {
+
+    static final int BLOCK_POINTS = 128;
+    static final double SCALE = 1e5;
+
+    private long[] blockStarts = new long[4];
+    private Block[] blocks = new Block[4];
+    private int blockCount;
+
+    /**
+     * Appends a point newer than every point already stored; older or equal points are ignored.
+     *
+     * @return whether the point was stored
+     */
+    synchronized boolean append(long time, float latitude, float longitude, int delay, String tripId, String routeId) {
+        Block last = blockCount > 0 ? blocks[blockCount - 1] : null;
+        if (last != null && time <= last.lastTime) {
+            return false;
+        }
+        int lat = (int) Math.round(latitude * SCALE);
+        int lon = (int) Math.round(longitude * SCALE);
+        if (last == null || last.count >= BLOCK_POINTS || !sameTrip(last, tripId, routeId)) {
+            if (last != null) {
+                last.seal();
+            }
+            addBlock(new Block(time, lat, lon, delay, tripId, routeId));
+        } else {
+            last.append(time, lat, lon, delay);
+        }
+        return true;
+    }
+
+    /**
+     * Places the points of {@code older} that precede this track's first point in front of it.
+     * {@code older} must not be shared with other threads.
+     */
+    synchronized void prepend(CompactTrack older) {
+        if (older.blockCount == 0) {
+            return;
+        }
+        if (blockCount > 0 && older.blocks[older.blockCount - 1].lastTime >= blockStarts[0]) {
+            CompactTrack trimmed = new CompactTrack();
+            older.range(Long.MIN_VALUE, blockStarts[0] - 1, trimmed::append);
+            older = trimmed;
+            if (older.blockCount == 0) {
+                return;
+            }
+        }
+        older.blocks[older.blockCount - 1].seal();
+        Block[] merged = new Block[Math.max(4, older.blockCount + blockCount)];
+        System.arraycopy(older.blocks, 0, merged, 0, older.blockCount);
+        System.arraycopy(blocks, 0, merged, older.blockCount, blockCount);
+        blocks = merged;
+        blockCount += older.blockCount;
+        blockStarts = new long[blocks.length];
+        for (int i = 0; i < blockCount; i++) {
+            blockStarts[i] = blocks[i].firstTime;
+        }
+    }
+
+    /**
+     * Decodes every point with {@code from <= time <= to} in time order.
+     */
+    synchronized void range(long from, long to, PointConsumer consumer) {
+        int first = Math.max(0, blockAtOrBefore(from));
+        for (int i = first; i < blockCount && blockStarts[i] <= to; i++) {
+            Block block = blocks[i];
+            if (block.lastTime >= from) {
+                block.decode(from, to, consumer);
+            }
+        }
+    }
+
+    /**
+     * Decodes the latest point with {@code time <= at}.
+     *
+     * @return whether such a point exists
+     */
+    synchronized boolean latestAtOrBefore(long at, PointConsumer consumer) {
+        int index = blockAtOrBefore(at);
+        if (index < 0) {
+            return false;
+        }
+        blocks[index].decodeLatest(at, consumer);
+        return true;
+    }
+
+    /**
+     * Drops whole blocks whose points are all older than {@code cutoff}.
+     *
+     * @return whether the track is now empty
+     */
+    synchronized boolean evictBefore(long cutoff) {
+        int keep = 0;
+        while (keep < blockCount && blocks[keep].lastTime < cutoff) {
+            keep++;
+        }
+        if (keep > 0) {
+            System.arraycopy(blocks, keep, blocks, 0, blockCount - keep);
+            System.arraycopy(blockStarts, keep, blockStarts, 0, blockCount - keep);
+            Arrays.fill(blocks, blockCount - keep, blockCount, null);
+            blockCount -= keep;
+        }
+        return blockCount == 0;
+    }
+
+    synchronized long pointCount() {
+        long points = 0;
+        for (int i = 0; i < blockCount; i++) {
+            points += blocks[i].count;
+        }
+        return points;
+    }
+
+    synchronized long estimatedBytes() {
+        long bytes = 16L * blocks.length;
+        for (int i = 0; i < blockCount; i++) {
+            bytes += 64 + blocks[i].data.length;
+        }
+        return bytes;
+    }
+
+    /** Index of the last block starting at or before {@code time}, or -1. */
+    private int blockAtOrBefore(long time) {
+        int index = Arrays.binarySearch(blockStarts, 0, blockCount, time);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private void addBlock(Block block) {
+        if (blockCount == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blockCount * 2);
+            blockStarts = Arrays.copyOf(blockStarts, blockCount * 2);
+        }
+        blocks[blockCount] = block;
+        blockStarts[blockCount] = block.firstTime;
+        blockCount++;
+    }
+
+    private static boolean sameTrip(Block block, String tripId, String routeId) {
+        return Objects.equals(block.tripId, tripId) && Objects.equals(block.routeId, routeId);
+    }
+
+    /**
+     * Receives decoded points.
+     */
+    @FunctionalInterface
+    interface PointConsumer {
+        void accept(long time, float latitude, float longitude, int delay, String tripId, String routeId);
+    }
+
+    private static final class Block {
+        private final long firstTime;
+        private final int firstLat;
+        private final int firstLon;
+        private final int firstDelay;
+        private final String tripId;
+        private final String routeId;
+        private byte[] data = new byte[64];
+        private int length;
+        private int count = 1;
+        private long lastTime;
+        private int lastLat;
+        private int lastLon;
+        private int lastDelay;
+
+        private Block(long time, int lat, int lon, int delay, String tripId, String routeId) {
+            this.firstTime = time;
+            this.firstLat = lat;
+            this.firstLon = lon;
+            this.firstDelay = delay;
+            this.tripId = tripId;
+            this.routeId = routeId;
+            this.lastTime = time;
+            this.lastLat = lat;
+            this.lastLon = lon;
+            this.lastDelay = delay;
+        }
+
+        private void append(long time, int lat, int lon, int delay) {
+            if (length + 4 * 10 > data.length) {
+                data = Arrays.copyOf(data, Math.max(length + 4 * 10, data.length * 2));
+            }
+            writeVarLong(time - lastTime);
+            writeVarLong(zigzag(lat - lastLat));
+            writeVarLong(zigzag(lon - lastLon));
+            writeVarLong(zigzag(delay - lastDelay));
+            lastTime = time;
+            lastLat = lat;
+            lastLon = lon;
+            lastDelay = delay;
+            count++;
+        }
+
+        private void seal() {
+            if (data.length != length) {
+                data = Arrays.copyOf(data, length);
+            }
+        }
+
+        private void decode(long from, long to, PointConsumer consumer) {
+            long time = firstTime;
+            int lat = firstLat, lon = firstLon, delay = firstDelay;
+            int[] position = {0};
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    time += readVarLong(position);
+                    lat += unzigzag(readVarLong(position));
+                    lon += unzigzag(readVarLong(position));
+                    delay += unzigzag(readVarLong(position));
+                }
+                if (time > to) {
+                    return;
+                }
+                if (time >= from) {
+                    consumer.accept(time, (float) (lat / SCALE), (float) (lon / SCALE), delay, tripId, routeId);
+                }
+            }
+        }
+
+        private void decodeLatest(long at, PointConsumer consumer) {
+            long time = firstTime;
+            int lat = firstLat, lon = firstLon, delay = firstDelay;
+            int[] position = {0};
+            for (int i = 1; i < count; i++) {
+                long nextTime = time + readVarLong(position);
+                if (nextTime > at) {
+                    break;
+                }
+                time = nextTime;
+                lat += unzigzag(readVarLong(position));
+                lon += unzigzag(readVarLong(position));
+                delay += unzigzag(readVarLong(position));
+            }
+            consumer.accept(time, (float) (lat / SCALE), (float) (lon / SCALE), delay, tripId, routeId);
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+
+        private long readVarLong(int[] position) {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position[0]++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+
+        private static int unzigzag(long value) {
+            return (int) ((value >>> 1) ^ -(value & 1));
+        }
+    }
+}
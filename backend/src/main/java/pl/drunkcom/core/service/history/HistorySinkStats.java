@@ -0,0 +1,26 @@
+package pl.drunkcom.core.service.history;
+
+/**
+ * Counters of the position history write-behind sink since startup.
+ *
+ * @param enabled whether the sink accepts rows
+ * @param store storage in use, e.g. {@code postgres-copy} or {@code jdbc-batch}; null before first connect
+ * @param queuedRows rows waiting to be written
+ * @param queueCapacityRows maximum rows the queue holds before dropping
+ * @param highWaterRows highest queue depth observed
+ * @param acceptedRows rows accepted into the queue
+ * @param droppedRows rows rejected because the queue was full
+ * @param writtenRows rows written to the database
+ * @param failedRows rows lost because a write failed
+ * @param flushes number of successful writes
+ * @param lastFlushRows rows in the last successful write
+ * @param lastFlushMillis duration of the last successful write
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record HistorySinkStats(boolean enabled, String store, long queuedRows, long queueCapacityRows,
+                               long highWaterRows, long acceptedRows, long droppedRows, long writtenRows,
+                               long failedRows, long flushes, long lastFlushRows, long lastFlushMillis) {
+}
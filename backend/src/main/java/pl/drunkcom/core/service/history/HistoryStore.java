@@ -0,0 +1,35 @@
+package pl.drunkcom.core.service.history;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Database specific storage of the position history table {@value #TABLE}.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+interface HistoryStore {
+
+    String TABLE = "vehicle_position_history";
+
+    String COLUMNS = "recorded_at, vehicle_id, trip_id, route_id, latitude, longitude, delay_seconds, "
+            + "previous_stop_id, distance_along_m";
+
+    /**
+     * Creates the table and its indexes if they do not exist yet.
+     */
+    void ensureSchema() throws SQLException;
+
+    /**
+     * Appends rows, creating day partitions where needed.
+     */
+    void write(List<PositionRow> rows) throws SQLException;
+
+    /**
+     * Removes all rows recorded before the start of a day (UTC).
+     */
+    void dropBefore(LocalDate day) throws SQLException;
+}
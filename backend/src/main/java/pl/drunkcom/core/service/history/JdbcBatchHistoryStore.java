@@ -0,0 +1,94 @@
+package pl.drunkcom.core.service.history;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Portable history store for databases without {@code COPY} or declarative partitioning (H2 in tests
+ * and development): a single table with a B-tree index on {@code recorded_at}, filled with JDBC batch
+ * inserts in one transaction per flush.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+final class JdbcBatchHistoryStore implements HistoryStore {
+
+    private static final int JDBC_BATCH_SIZE = 1000;
+
+    private final DataSource dataSource;
+
+    JdbcBatchHistoryStore(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void ensureSchema() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " ("
+                    + "recorded_at TIMESTAMP WITH TIME ZONE NOT NULL, vehicle_id VARCHAR(64) NOT NULL, "
+                    + "trip_id VARCHAR(64), route_id VARCHAR(64), latitude REAL NOT NULL, longitude REAL NOT NULL, "
+                    + "delay_seconds INTEGER NOT NULL, previous_stop_id VARCHAR(64), distance_along_m REAL)");
+            statement.execute("CREATE INDEX IF NOT EXISTS " + TABLE + "_recorded_at ON " + TABLE + " (recorded_at)");
+        }
+    }
+
+    @Override
+    public void write(List<PositionRow> rows) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO " + TABLE + " (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                int pending = 0;
+                for (PositionRow row : rows) {
+                    insert.setObject(1, OffsetDateTime.ofInstant(Instant.ofEpochSecond(row.recordedAt()), ZoneOffset.UTC));
+                    insert.setString(2, row.vehicleId());
+                    insert.setString(3, row.tripId());
+                    insert.setString(4, row.routeId());
+                    insert.setFloat(5, row.latitude());
+                    insert.setFloat(6, row.longitude());
+                    insert.setInt(7, row.delaySeconds());
+                    insert.setString(8, row.previousStopId());
+                    if (row.distanceAlongMeters() != null) {
+                        insert.setFloat(9, row.distanceAlongMeters());
+                    } else {
+                        insert.setNull(9, Types.REAL);
+                    }
+                    insert.addBatch();
+                    if (++pending == JDBC_BATCH_SIZE) {
+                        insert.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    insert.executeBatch();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    @Override
+    public void dropBefore(LocalDate day) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement delete = connection.prepareStatement("DELETE FROM " + TABLE + " WHERE recorded_at < ?")) {
+            delete.setObject(1, day.atStartOfDay().atOffset(ZoneOffset.UTC));
+            delete.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package pl.drunkcom.core.service.history;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.realtime.MapMatchingService;
+import pl.drunkcom.core.service.realtime.RealtimeAnalyticsListener;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.VehicleProgress;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind sink appending every observed vehicle position and delay to the position history.
+ *
+ * <p>The realtime poller only converts a snapshot into rows and enqueues them; a dedicated writer
+ * thread coalesces queued snapshots into batches of up to {@code history.max-batch-rows} and writes
+ * them with {@link PostgresHistoryStore} ({@code COPY} into day partitions) or, on other databases,
+ * {@link JdbcBatchHistoryStore}. A vehicle is only written again once its feed timestamp has changed.
+ * The same rows are appended to the in-memory {@link TrajectoryStore}, also when the sink is disabled.
+ *
+ * <p>The queue is bounded to {@code history.queue-capacity} rows. When the database falls behind, new
+ * snapshots are dropped rather than blocking ingestion, and the drop is counted in
+ * {@link #getStats()}. A failed write is logged and its rows are counted as failed, not retried.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+@Order(110)
+public class PositionHistorySink implements RealtimeAnalyticsListener {
+
+    private static final Logger log = LoggerFactory.getLogger(PositionHistorySink.class);
+
+    private static final long RETRY_DELAY_MILLIS = 5_000L;
+
+    private final DataSource dataSource;
+    private final MapMatchingService mapMatchingService;
+    private final TrajectoryStore trajectoryStore;
+    private final boolean enabled;
+    private final long queueCapacityRows;
+    private final int maxBatchRows;
+    private final int retentionDays;
+
+    private final BlockingQueue<List<PositionRow>> queue = new LinkedBlockingQueue<>();
+    private final Map<String, Long> lastWrittenTimestamps = new HashMap<>();
+    private final AtomicLong queuedRows = new AtomicLong();
+    private final AtomicLong highWaterRows = new AtomicLong();
+    private final AtomicLong acceptedRows = new AtomicLong();
+    private final AtomicLong droppedRows = new AtomicLong();
+    private final AtomicLong writtenRows = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private volatile long lastFlushRows;
+    private volatile long lastFlushMillis;
+    private volatile String storeName;
+
+    private Thread writer;
+    private volatile boolean running;
+
+    public PositionHistorySink(DataSource dataSource, MapMatchingService mapMatchingService,
+                               TrajectoryStore trajectoryStore,
+                               @Value("${history.enabled:true}") boolean enabled,
+                               @Value("${history.queue-capacity:200000}") long queueCapacityRows,
+                               @Value("${history.max-batch-rows:20000}") int maxBatchRows,
+                               @Value("${history.retention-days:30}") int retentionDays) {
+        this.dataSource = dataSource;
+        this.mapMatchingService = mapMatchingService;
+        this.trajectoryStore = trajectoryStore;
+        this.enabled = enabled;
+        this.queueCapacityRows = queueCapacityRows;
+        this.maxBatchRows = maxBatchRows;
+        this.retentionDays = retentionDays;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Position history sink disabled");
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "history-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void onSnapshot(RealtimeSnapshot snapshot) {
+        long fallback = snapshot.getPublishedAtMillis() / 1000;
+        List<PositionRow> rows = new ArrayList<>(snapshot.getVehicles().size());
+        for (VehicleCurrentState vehicle : snapshot.getVehicles()) {
+            long recordedAt = vehicle.timestamp() > 0 ? vehicle.timestamp() : fallback;
+            Long previous = lastWrittenTimestamps.put(vehicle.vehicleId(), recordedAt);
+            if (previous != null && previous == recordedAt) {
+                continue;
+            }
+            Optional<VehicleProgress> progress = mapMatchingService.find(vehicle.vehicleId())
+                    .filter(p -> p.tripId() != null && p.tripId().equals(vehicle.tripId()));
+            rows.add(new PositionRow(recordedAt, vehicle.vehicleId(), vehicle.tripId(), vehicle.routeId(),
+                    vehicle.latitude(), vehicle.longitude(), vehicle.delay(),
+                    progress.map(VehicleProgress::previousStopId).orElse(null),
+                    progress.map(p -> (float) p.distanceAlongMeters()).orElse(null)));
+        }
+        if (lastWrittenTimestamps.size() > 2 * snapshot.getVehicles().size() + 1000) {
+            lastWrittenTimestamps.keySet().retainAll(snapshot.getVehicles().stream()
+                    .map(VehicleCurrentState::vehicleId).toList());
+        }
+        trajectoryStore.append(rows);
+        if (running && !rows.isEmpty()) {
+            enqueue(rows);
+        }
+    }
+
+    /**
+     * Remembers the feed timestamps of the restored snapshot, whose positions were written before the
+     * restart, so that only vehicles that reported since are written again.
+     */
+    @Override
+    public void onRestoredSnapshot(RealtimeSnapshot snapshot) {
+        long fallback = snapshot.getPublishedAtMillis() / 1000;
+        for (VehicleCurrentState vehicle : snapshot.getVehicles()) {
+            lastWrittenTimestamps.put(vehicle.vehicleId(), vehicle.timestamp() > 0 ? vehicle.timestamp() : fallback);
+        }
+    }
+
+    /**
+     * Enqueues rows unless that would exceed the queue capacity.
+     *
+     * @return false if the rows were dropped
+     */
+    boolean enqueue(List<PositionRow> rows) {
+        long depth = queuedRows.addAndGet(rows.size());
+        if (depth > queueCapacityRows) {
+            queuedRows.addAndGet(-rows.size());
+            long dropped = droppedRows.addAndGet(rows.size());
+            log.warn("Position history queue full ({} rows), dropped {} rows, {} in total",
+                    depth - rows.size(), rows.size(), dropped);
+            return false;
+        }
+        highWaterRows.accumulateAndGet(depth, Math::max);
+        acceptedRows.addAndGet(rows.size());
+        queue.add(rows);
+        return true;
+    }
+
+    public HistorySinkStats getStats() {
+        return new HistorySinkStats(running, storeName, queuedRows.get(), queueCapacityRows, highWaterRows.get(),
+                acceptedRows.get(), droppedRows.get(), writtenRows.get(), failedRows.get(), flushes.get(),
+                lastFlushRows, lastFlushMillis);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.interrupt();
+        writer.join(10_000);
+    }
+
+    private void writeLoop() {
+        HistoryStore store = null;
+        LocalDate retainedFrom = null;
+        List<PositionRow> batch = new ArrayList<>(maxBatchRows);
+        while (running || !queue.isEmpty()) {
+            try {
+                if (store == null) {
+                    store = openStore();
+                }
+                List<PositionRow> first = running ? queue.poll(1, TimeUnit.SECONDS) : queue.poll();
+                if (first == null) {
+                    continue;
+                }
+                batch.addAll(first);
+                List<PositionRow> next;
+                while (batch.size() < maxBatchRows && (next = queue.poll()) != null) {
+                    batch.addAll(next);
+                }
+                queuedRows.addAndGet(-batch.size());
+                flush(store, batch);
+                batch.clear();
+
+                LocalDate cutoff = LocalDate.now(ZoneOffset.UTC).minusDays(retentionDays);
+                if (!cutoff.equals(retainedFrom)) {
+                    store.dropBefore(cutoff);
+                    retainedFrom = cutoff;
+                }
+            } catch (InterruptedException e) {
+                // stop() interrupts the wait; remaining rows are drained without blocking
+            } catch (SQLException | RuntimeException e) {
+                log.warn("Position history store unavailable: {}", e.getMessage());
+                if (!running) {
+                    failedRows.addAndGet(queuedRows.getAndSet(0));
+                    break;
+                }
+                store = null;
+                pause();
+            }
+        }
+        log.info("Position history writer stopped, {} rows written", writtenRows.get());
+    }
+
+    private HistoryStore openStore() throws SQLException {
+        HistoryStore store;
+        try (Connection connection = dataSource.getConnection()) {
+            String product = connection.getMetaData().getDatabaseProductName();
+            store = "PostgreSQL".equalsIgnoreCase(product)
+                    ? new PostgresHistoryStore(dataSource)
+                    : new JdbcBatchHistoryStore(dataSource);
+        }
+        store.ensureSchema();
+        storeName = store instanceof PostgresHistoryStore ? "postgres-copy" : "jdbc-batch";
+        log.info("Position history sink writing to {} using {}", HistoryStore.TABLE, storeName);
+        return store;
+    }
+
+    private void flush(HistoryStore store, List<PositionRow> batch) {
+        long started = System.nanoTime();
+        try {
+            store.write(batch);
+            lastFlushMillis = (System.nanoTime() - started) / 1_000_000;
+            lastFlushRows = batch.size();
+            writtenRows.addAndGet(batch.size());
+            flushes.incrementAndGet();
+        } catch (SQLException | RuntimeException e) {
+            failedRows.addAndGet(batch.size());
+            log.warn("Failed to write {} history rows: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(RETRY_DELAY_MILLIS);
+        } catch (InterruptedException e) {
+            // stopping
+        }
+    }
+}
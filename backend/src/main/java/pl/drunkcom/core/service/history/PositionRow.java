@@ -0,0 +1,23 @@
+package pl.drunkcom.core.service.history;
+
+/**
+ * One observed vehicle position as written to the position history.
+ *
+ * @param recordedAt epoch seconds of the observation
+ * @param vehicleId vehicle identifier
+ * @param tripId trip being served, may be null
+ * @param routeId route being served, may be null
+ * @param latitude WGS84 latitude
+ * @param longitude WGS84 longitude
+ * @param delaySeconds reported delay
+ * @param previousStopId last stop passed according to map matching, may be null
+ * @param distanceAlongMeters distance along the trip shape according to map matching, may be null
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record PositionRow(long recordedAt, String vehicleId, String tripId, String routeId,
+                          float latitude, float longitude, int delaySeconds,
+                          String previousStopId, Float distanceAlongMeters) {
+}
@@ -0,0 +1,165 @@
+package pl.drunkcom.core.service.history;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * PostgreSQL history store: a table range-partitioned by UTC day, one partition per day with a BRIN
+ * index on {@code recorded_at}, filled with {@code COPY ... FROM STDIN}.
+ *
+ * <p>Rows arrive in time order, so BRIN ranges stay tight and the index is a few pages per day where a
+ * B-tree would be as large as a sizeable share of the table. Retention drops whole partitions, which
+ * costs no vacuum.
+ *
+ * <p>Not thread-safe; used only by the history writer thread.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+final class PostgresHistoryStore implements HistoryStore {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final String PARTITION_PREFIX = TABLE + "_p";
+    private static final int CHUNK_CHARS = 64 * 1024;
+
+    private final DataSource dataSource;
+    private final Set<LocalDate> partitions = new TreeSet<>();
+
+    PostgresHistoryStore(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void ensureSchema() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " ("
+                    + "recorded_at timestamptz NOT NULL, vehicle_id varchar(64) NOT NULL, trip_id varchar(64), "
+                    + "route_id varchar(64), latitude real NOT NULL, longitude real NOT NULL, "
+                    + "delay_seconds integer NOT NULL, previous_stop_id varchar(64), distance_along_m real"
+                    + ") PARTITION BY RANGE (recorded_at)");
+            try (ResultSet partitionNames = statement.executeQuery("SELECT c.relname FROM pg_inherits i "
+                    + "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent "
+                    + "WHERE p.relname = '" + TABLE + "'")) {
+                while (partitionNames.next()) {
+                    String name = partitionNames.getString(1);
+                    if (name.startsWith(PARTITION_PREFIX)) {
+                        partitions.add(LocalDate.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX));
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void write(List<PositionRow> rows) throws SQLException {
+        Set<LocalDate> days = new HashSet<>();
+        for (PositionRow row : rows) {
+            days.add(LocalDate.ofEpochDay(Math.floorDiv(row.recordedAt(), 86_400L)));
+        }
+        days.removeAll(partitions);
+        try (Connection connection = dataSource.getConnection()) {
+            for (LocalDate day : days) {
+                createPartition(connection, day);
+            }
+            CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("COPY " + TABLE + " (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)");
+            try {
+                StringBuilder csv = new StringBuilder(CHUNK_CHARS + 512);
+                for (PositionRow row : rows) {
+                    appendCsv(csv, row);
+                    if (csv.length() >= CHUNK_CHARS) {
+                        writeChunk(copy, csv);
+                    }
+                }
+                writeChunk(copy, csv);
+                copy.endCopy();
+            } finally {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            }
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        }
+    }
+
+    @Override
+    public void dropBefore(LocalDate day) throws SQLException {
+        List<LocalDate> expired = partitions.stream().filter(partition -> partition.isBefore(day)).toList();
+        if (expired.isEmpty()) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (LocalDate partition : expired) {
+                statement.execute("DROP TABLE IF EXISTS " + partitionName(partition));
+                partitions.remove(partition);
+            }
+        }
+    }
+
+    private void createPartition(Connection connection, LocalDate day) throws SQLException {
+        String name = partitionName(day);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + TABLE
+                    + " FOR VALUES FROM ('" + day.atStartOfDay(ZoneOffset.UTC).toInstant()
+                    + "') TO ('" + day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant() + "')");
+            statement.execute("CREATE INDEX IF NOT EXISTS " + name + "_recorded_at_brin ON " + name
+                    + " USING brin (recorded_at) WITH (pages_per_range = 32)");
+        }
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+        partitions.add(day);
+    }
+
+    private static String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + PARTITION_SUFFIX.format(day);
+    }
+
+    private static void writeChunk(CopyIn copy, StringBuilder csv) throws SQLException {
+        byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+        copy.writeToCopy(bytes, 0, bytes.length);
+        csv.setLength(0);
+    }
+
+    static void appendCsv(StringBuilder csv, PositionRow row) {
+        csv.append(Instant.ofEpochSecond(row.recordedAt())).append(',');
+        appendText(csv, row.vehicleId());
+        csv.append(',');
+        appendText(csv, row.tripId());
+        csv.append(',');
+        appendText(csv, row.routeId());
+        csv.append(',').append(row.latitude()).append(',').append(row.longitude())
+                .append(',').append(row.delaySeconds()).append(',');
+        appendText(csv, row.previousStopId());
+        csv.append(',');
+        if (row.distanceAlongMeters() != null) {
+            csv.append(row.distanceAlongMeters().floatValue());
+        }
+        csv.append('\n');
+    }
+
+    private static void appendText(StringBuilder csv, String value) {
+        // An unquoted empty field is NULL in CSV mode, so every non-null value is quoted
+        if (value != null) {
+            csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package pl.drunkcom.core.service.history;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory trajectories of every vehicle over the last {@code trajectories.retention-hours}, kept as
+ * {@link CompactTrack}s for trail and time-travel queries.
+ *
+ * <p>{@link PositionHistorySink} appends the same rows it persists, so both stores see identical data.
+ * After a restart the window is backfilled from the position history table in the background; until
+ * that finishes, queries only see positions observed since startup.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class TrajectoryStore {
+
+    private static final Logger log = LoggerFactory.getLogger(TrajectoryStore.class);
+
+    private final DataSource dataSource;
+    private final long retentionSeconds;
+    private final boolean backfill;
+    private final long startedAt = Instant.now().getEpochSecond();
+
+    private final Map<String, CompactTrack> tracks = new ConcurrentHashMap<>();
+
+    public TrajectoryStore(DataSource dataSource,
+                           @Value("${trajectories.retention-hours:24}") int retentionHours,
+                           @Value("${trajectories.backfill:true}") boolean backfill) {
+        this.dataSource = dataSource;
+        this.retentionSeconds = retentionHours * 3600L;
+        this.backfill = backfill;
+    }
+
+    /**
+     * Appends observed positions; rows older than a vehicle's latest stored point are ignored.
+     */
+    public void append(List<PositionRow> rows) {
+        for (PositionRow row : rows) {
+            tracks.computeIfAbsent(row.vehicleId(), id -> new CompactTrack())
+                    .append(row.recordedAt(), row.latitude(), row.longitude(), row.delaySeconds(),
+                            row.tripId(), row.routeId());
+        }
+    }
+
+    /**
+     * Returns the trail of a vehicle between two instants, both inclusive.
+     *
+     * @return the trajectory, or empty if the vehicle has no stored positions at all
+     */
+    public Optional<VehicleTrajectory> trajectory(String vehicleId, long from, long to) {
+        CompactTrack track = tracks.get(vehicleId);
+        if (track == null) {
+            return Optional.empty();
+        }
+        Columns columns = new Columns();
+        track.range(from, to, columns::add);
+        return Optional.of(columns.toTrajectory(vehicleId, from, to));
+    }
+
+    /**
+     * Reconstructs the fleet at a past instant from each vehicle's latest observation before it.
+     *
+     * @param at the instant, epoch seconds
+     * @param maxAgeSeconds vehicles last seen longer than this before {@code at} are left out
+     * @return one state per vehicle, ordered by vehicle id
+     */
+    public List<VehicleStateAt> stateAt(long at, long maxAgeSeconds) {
+        List<VehicleStateAt> states = new ArrayList<>();
+        tracks.forEach((vehicleId, track) -> track.latestAtOrBefore(at, (time, lat, lon, delay, tripId, routeId) -> {
+            if (at - time <= maxAgeSeconds) {
+                states.add(new VehicleStateAt(vehicleId, tripId, routeId, time, at - time, lat, lon, delay));
+            }
+        }));
+        states.sort(Comparator.comparing(VehicleStateAt::vehicleId));
+        return states;
+    }
+
+    public long getRetentionSeconds() {
+        return retentionSeconds;
+    }
+
+    @Scheduled(fixedDelay = 600_000L, initialDelay = 600_000L)
+    public void evict() {
+        long cutoff = Instant.now().getEpochSecond() - retentionSeconds;
+        tracks.entrySet().removeIf(entry -> entry.getValue().evictBefore(cutoff));
+        if (log.isDebugEnabled()) {
+            log.debug("Trajectories: {} vehicles, {} points, ~{} KiB", tracks.size(),
+                    tracks.values().stream().mapToLong(CompactTrack::pointCount).sum(),
+                    tracks.values().stream().mapToLong(CompactTrack::estimatedBytes).sum() / 1024);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBackfill() {
+        if (!backfill) {
+            return;
+        }
+        Thread thread = new Thread(this::backfill, "trajectory-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void backfill() {
+        long started = System.nanoTime();
+        long from = startedAt - retentionSeconds;
+        long rows = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            // PostgreSQL only streams with a cursor inside a transaction
+            connection.setAutoCommit(false);
+            try (PreparedStatement query = connection.prepareStatement("SELECT vehicle_id, recorded_at, latitude, "
+                    + "longitude, delay_seconds, trip_id, route_id FROM " + HistoryStore.TABLE
+                    + " WHERE recorded_at >= ? AND recorded_at < ? ORDER BY vehicle_id, recorded_at")) {
+                query.setFetchSize(10_000);
+                query.setObject(1, OffsetDateTime.ofInstant(Instant.ofEpochSecond(from), ZoneOffset.UTC));
+                query.setObject(2, OffsetDateTime.ofInstant(Instant.ofEpochSecond(startedAt), ZoneOffset.UTC));
+                try (ResultSet result = query.executeQuery()) {
+                    String vehicleId = null;
+                    CompactTrack track = null;
+                    while (result.next()) {
+                        String id = result.getString(1);
+                        if (!id.equals(vehicleId)) {
+                            merge(vehicleId, track);
+                            vehicleId = id;
+                            track = new CompactTrack();
+                        }
+                        track.append(result.getObject(2, OffsetDateTime.class).toEpochSecond(), result.getFloat(3),
+                                result.getFloat(4), result.getInt(5), result.getString(6), result.getString(7));
+                        rows++;
+                    }
+                    merge(vehicleId, track);
+                }
+            } finally {
+                connection.rollback();
+            }
+            log.info("Backfilled {} trajectory points from the position history in {} ms",
+                    rows, (System.nanoTime() - started) / 1_000_000);
+        } catch (SQLException e) {
+            log.info("Trajectory backfill skipped: {}", e.getMessage());
+        }
+    }
+
+    private void merge(String vehicleId, CompactTrack older) {
+        if (vehicleId != null) {
+            tracks.computeIfAbsent(vehicleId, id -> new CompactTrack()).prepend(older);
+        }
+    }
+
+    /**
+     * Collects decoded points into growable column arrays.
+     */
+    private static final class Columns {
+        private long[] times = new long[64];
+        private float[] latitudes = new float[64];
+        private float[] longitudes = new float[64];
+        private int[] delays = new int[64];
+        private final List<TripSpan> trips = new ArrayList<>();
+        private int size;
+
+        private void add(long time, float latitude, float longitude, int delay, String tripId, String routeId) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                latitudes = Arrays.copyOf(latitudes, size * 2);
+                longitudes = Arrays.copyOf(longitudes, size * 2);
+                delays = Arrays.copyOf(delays, size * 2);
+            }
+            TripSpan last = trips.isEmpty() ? null : trips.get(trips.size() - 1);
+            if (last == null || !Objects.equals(last.tripId(), tripId) || !Objects.equals(last.routeId(), routeId)) {
+                trips.add(new TripSpan(size, tripId, routeId));
+            }
+            times[size] = time;
+            latitudes[size] = latitude;
+            longitudes[size] = longitude;
+            delays[size] = delay;
+            size++;
+        }
+
+        private VehicleTrajectory toTrajectory(String vehicleId, long from, long to) {
+            return new VehicleTrajectory(vehicleId, from, to, Arrays.copyOf(times, size),
+                    Arrays.copyOf(latitudes, size), Arrays.copyOf(longitudes, size), Arrays.copyOf(delays, size),
+                    List.copyOf(trips));
+        }
+    }
+}
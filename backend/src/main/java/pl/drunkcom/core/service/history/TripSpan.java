@@ -0,0 +1,15 @@
+package pl.drunkcom.core.service.history;
+
+/**
+ * Trip a vehicle served from a point of its trajectory onwards.
+ *
+ * @param fromIndex index of the first trajectory point of the span
+ * @param tripId trip identifier, may be null
+ * @param routeId route identifier, may be null
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record TripSpan(int fromIndex, String tripId, String routeId) {
+}
@@ -0,0 +1,21 @@
+package pl.drunkcom.core.service.history;
+
+/**
+ * Last known state of a vehicle at a past instant.
+ *
+ * @param vehicleId vehicle identifier
+ * @param tripId trip being served, may be null
+ * @param routeId route being served, may be null
+ * @param recordedAt time of the observation, epoch seconds
+ * @param ageSeconds how long before the requested instant the observation was made
+ * @param latitude WGS84 latitude
+ * @param longitude WGS84 longitude
+ * @param delaySeconds reported delay
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record VehicleStateAt(String vehicleId, String tripId, String routeId, long recordedAt, long ageSeconds,
+                             float latitude, float longitude, int delaySeconds) {
+}
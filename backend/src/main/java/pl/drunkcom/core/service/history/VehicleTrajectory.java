@@ -0,0 +1,24 @@
+package pl.drunkcom.core.service.history;
+
+import java.util.List;
+
+/**
+ * Trail of one vehicle over a time range in columnar form: the i-th point is
+ * ({@code times[i]}, {@code latitudes[i]}, {@code longitudes[i]}, {@code delays[i]}).
+ *
+ * @param vehicleId vehicle identifier
+ * @param from start of the requested range, epoch seconds
+ * @param to end of the requested range, epoch seconds
+ * @param times observation times, epoch seconds, ascending
+ * @param latitudes WGS84 latitudes, rounded to 1e-5 degree
+ * @param longitudes WGS84 longitudes, rounded to 1e-5 degree
+ * @param delays reported delays in seconds
+ * @param trips trips served along the trail, in order
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record VehicleTrajectory(String vehicleId, long from, long to, long[] times, float[] latitudes,
+                                float[] longitudes, int[] delays, List<TripSpan> trips) {
+}
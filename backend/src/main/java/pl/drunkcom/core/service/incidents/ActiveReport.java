@@ -0,0 +1,38 @@
+package pl.drunkcom.core.service.incidents;
+
+import pl.drunkcom.core.enums.Incidents;
+import pl.drunkcom.core.model.Raport;
+
+/**
+ * Detached, immutable copy of an active incident report with a location, used by in-memory indexes.
+ *
+ * @param id report identifier
+ * @param type incident type
+ * @param emergency whether the report is an emergency
+ * @param routeId route the report refers to, may be null
+ * @param latitude report latitude
+ * @param longitude report longitude
+ * @param timestampMillis moment the report was made, epoch milliseconds
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record ActiveReport(long id, Incidents type, boolean emergency, String routeId,
+                           double latitude, double longitude, long timestampMillis) {
+
+    /**
+     * Copies a report, if it has an id, a location and a timestamp.
+     *
+     * @param raport the report entity
+     * @return the copy, or null if the report cannot be placed on the map
+     */
+    public static ActiveReport from(Raport raport) {
+        if (raport.getId() == null || raport.getLatitude() == null || raport.getLongitude() == null
+                || raport.getTimestamp() == null) {
+            return null;
+        }
+        return new ActiveReport(raport.getId(), raport.getType(), raport.isEmergency(), raport.getRouteId(),
+                raport.getLatitude(), raport.getLongitude(), raport.getTimestamp().getTime());
+    }
+}
@@ -0,0 +1,115 @@
+package pl.drunkcom.core.service.incidents;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.interfaces.RaportRepository;
+import pl.drunkcom.core.model.Raport;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Keeps the currently active incident reports in memory.
+ *
+ * <p>A report is active if it was made within the last {@code reports.active-window-minutes}.
+ * Newly created reports are appended as they are saved and announced as an incremental change;
+ * updates, deletions and expiry cause a reload from the database, which also runs periodically.
+ * Consumers react to {@link ActiveReportsChangedEvent}.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class ActiveReportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ActiveReportService.class);
+
+    private final RaportRepository raportRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long activeWindowMillis;
+
+    private volatile List<ActiveReport> reports = List.of();
+
+    public ActiveReportService(RaportRepository raportRepository, ApplicationEventPublisher eventPublisher,
+                               @Value("${reports.active-window-minutes:120}") long activeWindowMinutes) {
+        this.raportRepository = raportRepository;
+        this.eventPublisher = eventPublisher;
+        this.activeWindowMillis = activeWindowMinutes * 60_000;
+    }
+
+    /**
+     * Returns the active reports ordered by id.
+     */
+    public List<ActiveReport> getReports() {
+        return reports;
+    }
+
+    /**
+     * Whether a report made at the given time is still active.
+     */
+    public boolean isActive(long timestampMillis, long nowMillis) {
+        return nowMillis - timestampMillis <= activeWindowMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        reload();
+    }
+
+    @EventListener
+    public synchronized void onRaportChanged(RaportChangedEvent event) {
+        List<ActiveReport> current = reports;
+        long now = System.currentTimeMillis();
+        List<ActiveReport> added = event.saved().stream()
+                .map(ActiveReport::from)
+                .filter(Objects::nonNull)
+                .filter(report -> isActive(report.timestampMillis(), now))
+                .toList();
+        long lastId = current.isEmpty() ? Long.MIN_VALUE : current.get(current.size() - 1).id();
+        boolean onlyNew = !event.saved().isEmpty()
+                && event.saved().stream().allMatch(raport -> raport.getId() != null && raport.getId() > lastId);
+        if (!onlyNew) {
+            reload();
+            return;
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        List<ActiveReport> next = new ArrayList<>(current.size() + added.size());
+        next.addAll(current);
+        next.addAll(added);
+        next.sort(Comparator.comparingLong(ActiveReport::id));
+        reports = List.copyOf(next);
+        eventPublisher.publishEvent(new ActiveReportsChangedEvent(reports, added, false));
+    }
+
+    /**
+     * Reloads the active reports from the database, dropping expired ones.
+     */
+    @Scheduled(fixedDelayString = "${reports.refresh-interval-ms:60000}", initialDelayString = "${reports.refresh-interval-ms:60000}")
+    public synchronized void reload() {
+        long now = System.currentTimeMillis();
+        List<Raport> recent = raportRepository.findSinceWithRoute(new Timestamp(now - activeWindowMillis));
+        List<ActiveReport> loaded = recent.stream()
+                .map(ActiveReport::from)
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparingLong(ActiveReport::id))
+                .toList();
+        boolean changed = !loaded.equals(reports);
+        reports = loaded;
+        if (changed) {
+            log.debug("Loaded {} active reports", loaded.size());
+            eventPublisher.publishEvent(new ActiveReportsChangedEvent(loaded, List.of(), true));
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package pl.drunkcom.core.service.incidents;
+
+import java.util.List;
+
+/**
+ * Published by {@link ActiveReportService} whenever the set of active reports changes.
+ *
+ * @param reports all active reports after the change
+ * @param added the reports that were appended, when {@code reloaded} is false
+ * @param reloaded true if the set was reloaded (reports expired, were updated or deleted) and
+ *                 indexes should be rebuilt rather than updated incrementally
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record ActiveReportsChangedEvent(List<ActiveReport> reports, List<ActiveReport> added, boolean reloaded) {
+}
@@ -0,0 +1,14 @@
+package pl.drunkcom.core.service.incidents;
+
+/**
+ * Published by {@link IncidentImpactService} when a report starts affecting new trips or a
+ * delay spike on one of its routes appears or disappears.
+ *
+ * @param impact the updated impact of the report
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record IncidentImpactChangedEvent(ReportImpact impact) {
+}
@@ -0,0 +1,177 @@
+package pl.drunkcom.core.service.incidents;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.geo.GeoMath;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshotListener;
+import pl.drunkcom.core.service.realtime.VehicleSpatialIndex;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Correlates the active incident reports with the live fleet on every realtime snapshot.
+ *
+ * <p>For each report the vehicles within {@code incidents.impact-radius-meters} are looked up in
+ * {@link VehicleSpatialIndex}. Their delays are compared, route by route, with the delays of the
+ * same route's vehicles elsewhere in the network; a difference of at least
+ * {@code incidents.delay-spike-seconds} flags a delay spike. The trips seen near a report are
+ * accumulated for as long as the report is active.
+ *
+ * <p>The results are kept as immutable {@link ReportImpact}s that the API and push channels read
+ * directly; an {@link IncidentImpactChangedEvent} is published when a report's impact changes in
+ * a way worth notifying about.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+@Order(80)
+public class IncidentImpactService implements RealtimeSnapshotListener {
+
+    private static final Logger log = LoggerFactory.getLogger(IncidentImpactService.class);
+
+    private final ActiveReportService activeReportService;
+    private final VehicleSpatialIndex vehicleSpatialIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final double impactRadiusMeters;
+    private final double delaySpikeSeconds;
+
+    private volatile Map<Long, ReportImpact> impacts = Map.of();
+
+    public IncidentImpactService(ActiveReportService activeReportService, VehicleSpatialIndex vehicleSpatialIndex,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${incidents.impact-radius-meters:300}") double impactRadiusMeters,
+                                 @Value("${incidents.delay-spike-seconds:180}") double delaySpikeSeconds) {
+        this.activeReportService = activeReportService;
+        this.vehicleSpatialIndex = vehicleSpatialIndex;
+        this.eventPublisher = eventPublisher;
+        this.impactRadiusMeters = impactRadiusMeters;
+        this.delaySpikeSeconds = delaySpikeSeconds;
+    }
+
+    @Override
+    public void onSnapshot(RealtimeSnapshot snapshot) {
+        VehicleSpatialIndex.IndexedSnapshot indexed = vehicleSpatialIndex.current();
+        if (indexed == null || indexed.snapshot() != snapshot) {
+            return;
+        }
+        Map<String, DelayTotal> delaysByRoute = new HashMap<>();
+        for (VehicleCurrentState vehicle : snapshot.getVehicles()) {
+            if (vehicle.routeId() != null) {
+                delaysByRoute.computeIfAbsent(vehicle.routeId(), id -> new DelayTotal()).add(vehicle.delay());
+            }
+        }
+
+        Map<Long, ReportImpact> previous = impacts;
+        Map<Long, ReportImpact> next = new HashMap<>();
+        List<ReportImpact> changed = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (ActiveReport report : activeReportService.getReports()) {
+            if (!activeReportService.isActive(report.timestampMillis(), now)) {
+                continue;
+            }
+            ReportImpact before = previous.get(report.id());
+            ReportImpact impact = correlate(report, indexed, delaysByRoute, before, snapshot.getSequence());
+            next.put(report.id(), impact);
+            if (before == null ? !impact.impactedTrips().isEmpty() || impact.delaySpike()
+                    : before.impactedTrips().size() != impact.impactedTrips().size()
+                            || before.delaySpike() != impact.delaySpike()) {
+                changed.add(impact);
+            }
+        }
+        impacts = Map.copyOf(next);
+        for (ReportImpact impact : changed) {
+            eventPublisher.publishEvent(new IncidentImpactChangedEvent(impact));
+        }
+        if (!changed.isEmpty()) {
+            log.debug("Impact of {} of {} active reports changed in snapshot {}",
+                    changed.size(), next.size(), snapshot.getSequence());
+        }
+    }
+
+    /**
+     * Returns the impact of an active report.
+     *
+     * @param reportId report identifier
+     * @return the impact, or empty if the report is not active or no snapshot has been correlated yet
+     */
+    public Optional<ReportImpact> find(long reportId) {
+        return Optional.ofNullable(impacts.get(reportId));
+    }
+
+    /**
+     * Returns the impacts of all active reports, ordered by report id.
+     */
+    public List<ReportImpact> findAll() {
+        return impacts.values().stream()
+                .sorted(Comparator.comparingLong(ReportImpact::reportId))
+                .toList();
+    }
+
+    private ReportImpact correlate(ActiveReport report, VehicleSpatialIndex.IndexedSnapshot indexed,
+                                   Map<String, DelayTotal> delaysByRoute, ReportImpact previous, long sequence) {
+        double reachLat = impactRadiusMeters / GeoMath.metersPerDegreeLat();
+        double reachLon = impactRadiusMeters / GeoMath.metersPerDegreeLon(Math.min(89.0, Math.abs(report.latitude()) + reachLat));
+
+        TreeSet<String> vehicles = new TreeSet<>();
+        TreeSet<String> trips = new TreeSet<>(previous != null ? previous.impactedTrips() : List.of());
+        Map<String, DelayTotal> nearbyByRoute = new TreeMap<>();
+        indexed.forEachInBox(report.latitude() - reachLat, report.longitude() - reachLon,
+                report.latitude() + reachLat, report.longitude() + reachLon, vehicle -> {
+                    if (GeoMath.haversineMeters(report.latitude(), report.longitude(),
+                            vehicle.latitude(), vehicle.longitude()) > impactRadiusMeters) {
+                        return;
+                    }
+                    vehicles.add(vehicle.vehicleId());
+                    if (vehicle.tripId() != null) {
+                        trips.add(vehicle.tripId());
+                    }
+                    if (vehicle.routeId() != null) {
+                        nearbyByRoute.computeIfAbsent(vehicle.routeId(), id -> new DelayTotal()).add(vehicle.delay());
+                    }
+                });
+
+        List<RouteImpact> routes = new ArrayList<>(nearbyByRoute.size());
+        boolean spike = false;
+        for (Map.Entry<String, DelayTotal> entry : nearbyByRoute.entrySet()) {
+            DelayTotal nearby = entry.getValue();
+            DelayTotal route = delaysByRoute.get(entry.getKey());
+            int othersCount = route.count - nearby.count;
+            // without vehicles elsewhere on the route there is nothing to compare the nearby delay with
+            Double elsewhere = othersCount > 0 ? (route.sum - nearby.sum) / othersCount : null;
+            boolean routeSpike = elsewhere != null && nearby.mean() - elsewhere >= delaySpikeSeconds;
+            spike |= routeSpike;
+            routes.add(new RouteImpact(entry.getKey(), nearby.count, nearby.mean(), elsewhere, routeSpike));
+        }
+        return new ReportImpact(report.id(), sequence, List.copyOf(vehicles), List.copyOf(trips),
+                List.copyOf(routes), spike);
+    }
+
+    private static final class DelayTotal {
+        private int count;
+        private double sum;
+
+        private void add(int delaySeconds) {
+            count++;
+            sum += delaySeconds;
+        }
+
+        private double mean() {
+            return count == 0 ? 0.0 : sum / count;
+        }
+    }
+}
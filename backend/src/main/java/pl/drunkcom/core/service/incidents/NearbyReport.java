@@ -0,0 +1,16 @@
+package pl.drunkcom.core.service.incidents;
+
+/**
+ * An active report found by a spatial query.
+ *
+ * @param report the report
+ * @param distanceMeters distance from the query point, or from the route shape for corridor queries
+ * @param shapeId shape the report was matched against, null for point queries
+ * @param distanceAlongMeters position of the report along that shape, null for point queries
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record NearbyReport(ActiveReport report, double distanceMeters, String shapeId, Double distanceAlongMeters) {
+}
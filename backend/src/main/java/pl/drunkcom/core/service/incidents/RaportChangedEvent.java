@@ -0,0 +1,17 @@
+package pl.drunkcom.core.service.incidents;
+
+import pl.drunkcom.core.model.Raport;
+
+import java.util.List;
+
+/**
+ * Published after incident reports were saved or deleted through {@code RaportService}.
+ *
+ * @param saved the saved reports; empty when reports were deleted
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record RaportChangedEvent(List<Raport> saved) {
+}
@@ -0,0 +1,21 @@
+package pl.drunkcom.core.service.incidents;
+
+import java.util.List;
+
+/**
+ * Live vehicles and trips affected by an active incident report.
+ *
+ * @param reportId report identifier
+ * @param snapshotSequence realtime snapshot the impact was last computed from
+ * @param vehiclesNearby vehicles currently within the impact radius, sorted
+ * @param impactedTrips every trip seen within the impact radius since the report became active, sorted
+ * @param routes per-route impact of the vehicles currently nearby, ordered by route id
+ * @param delaySpike whether any of the routes shows a delay spike
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record ReportImpact(long reportId, long snapshotSequence, List<String> vehiclesNearby,
+                           List<String> impactedTrips, List<RouteImpact> routes, boolean delaySpike) {
+}
@@ -0,0 +1,174 @@
+package pl.drunkcom.core.service.incidents;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.service.geo.GeoMath;
+import pl.drunkcom.core.service.geo.Geohash;
+import pl.drunkcom.core.service.geo.ShapeGeometry;
+import pl.drunkcom.core.service.geo.StaticGeoIndex;
+import pl.drunkcom.core.service.geo.StaticGeoIndexService;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Geohash index over the active incident reports, answering "what is near me" and
+ * "what is on my line" without scanning the report table.
+ *
+ * <p>Reports are bucketed by their geohash of {@link #PRECISION} characters (cells of about
+ * 1.2 x 0.6 km). The buckets are an immutable map swapped on every change: reloads of
+ * {@link ActiveReportService} rebuild it, newly created reports are copied in incrementally.
+ * Queries read whatever map is current and never block.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class ReportSpatialIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportSpatialIndex.class);
+
+    static final int PRECISION = 6;
+
+    private final StaticGeoIndexService geoIndexService;
+
+    private volatile Map<String, List<ActiveReport>> cells = Map.of();
+
+    public ReportSpatialIndex(StaticGeoIndexService geoIndexService) {
+        this.geoIndexService = geoIndexService;
+    }
+
+    @EventListener
+    public synchronized void onReportsChanged(ActiveReportsChangedEvent event) {
+        Map<String, List<ActiveReport>> next;
+        List<ActiveReport> reports;
+        if (event.reloaded()) {
+            next = new HashMap<>();
+            reports = event.reports();
+        } else {
+            next = new HashMap<>(cells);
+            reports = event.added();
+        }
+        for (ActiveReport report : reports) {
+            String cell = Geohash.encode(report.latitude(), report.longitude(), PRECISION);
+            List<ActiveReport> bucket = new ArrayList<>(next.getOrDefault(cell, List.of()));
+            bucket.add(report);
+            next.put(cell, List.copyOf(bucket));
+        }
+        cells = Map.copyOf(next);
+        log.debug("Report spatial index holds {} cells", next.size());
+    }
+
+    /**
+     * Finds the active reports within a radius of a point.
+     *
+     * @param latitude query latitude
+     * @param longitude query longitude
+     * @param radiusMeters search radius
+     * @return matching reports ordered by distance, then id
+     */
+    public List<NearbyReport> findNear(double latitude, double longitude, double radiusMeters) {
+        double reachLat = radiusMeters / GeoMath.metersPerDegreeLat();
+        double reachLon = radiusMeters / GeoMath.metersPerDegreeLon(Math.min(89.0, Math.abs(latitude) + reachLat));
+        List<NearbyReport> found = new ArrayList<>();
+        forEachInBox(latitude - reachLat, longitude - reachLon, latitude + reachLat, longitude + reachLon, report -> {
+            double distance = GeoMath.haversineMeters(latitude, longitude, report.latitude(), report.longitude());
+            if (distance <= radiusMeters) {
+                found.add(new NearbyReport(report, distance, null, null));
+            }
+        });
+        found.sort(Comparator.comparingDouble(NearbyReport::distanceMeters)
+                .thenComparingLong(nearby -> nearby.report().id()));
+        return found;
+    }
+
+    /**
+     * Finds the active reports within a corridor around the shapes of a route.
+     *
+     * <p>Every report is matched against the closest shape of the route; a report close to several
+     * shapes (e.g. both directions) is returned once.
+     *
+     * @param routeId GTFS route identifier
+     * @param widthMeters maximum distance between a report and the route's shape
+     * @return matching reports ordered by shape and position along it, or empty if the route is unknown
+     */
+    public Optional<List<NearbyReport>> findAlongRoute(String routeId, double widthMeters) {
+        StaticGeoIndex geoIndex = geoIndexService.current();
+        if (geoIndex.route(routeId) == null) {
+            return Optional.empty();
+        }
+        Map<Long, NearbyReport> best = new HashMap<>();
+        for (int s : geoIndex.routeShapes(routeId)) {
+            ShapeGeometry shape = geoIndex.shape(s);
+            double[] box = expand(geoIndex.shapeBounds(s), widthMeters);
+            forEachInBox(box[0], box[1], box[2], box[3], report -> {
+                ShapeGeometry.ShapeProjection projection = shape.project(report.latitude(), report.longitude());
+                if (projection == null || projection.offsetMeters() > widthMeters) {
+                    return;
+                }
+                NearbyReport current = best.get(report.id());
+                if (current == null || projection.offsetMeters() < current.distanceMeters()) {
+                    best.put(report.id(), new NearbyReport(report, projection.offsetMeters(),
+                            shape.getShapeId(), projection.distanceAlongMeters()));
+                }
+            });
+        }
+        List<NearbyReport> found = new ArrayList<>(best.values());
+        found.sort(Comparator.comparing(NearbyReport::shapeId)
+                .thenComparingDouble(NearbyReport::distanceAlongMeters)
+                .thenComparingLong(nearby -> nearby.report().id()));
+        return Optional.of(found);
+    }
+
+    /**
+     * Number of indexed reports.
+     */
+    public int size() {
+        return cells.values().stream().mapToInt(List::size).sum();
+    }
+
+    private void forEachInBox(double minLat, double minLon, double maxLat, double maxLon, Consumer<ActiveReport> visitor) {
+        Map<String, List<ActiveReport>> current = cells;
+        if (current.isEmpty()) {
+            return;
+        }
+        if (Geohash.cellCount(minLat, minLon, maxLat, maxLon, PRECISION) > current.size()) {
+            // Fewer occupied cells than cells in the box, so walking the buckets is cheaper
+            for (List<ActiveReport> bucket : current.values()) {
+                visitInBox(bucket, minLat, minLon, maxLat, maxLon, visitor);
+            }
+            return;
+        }
+        for (String cell : Geohash.cellsInBox(minLat, minLon, maxLat, maxLon, PRECISION)) {
+            List<ActiveReport> bucket = current.get(cell);
+            if (bucket != null) {
+                visitInBox(bucket, minLat, minLon, maxLat, maxLon, visitor);
+            }
+        }
+    }
+
+    private static void visitInBox(List<ActiveReport> bucket, double minLat, double minLon, double maxLat, double maxLon,
+                                   Consumer<ActiveReport> visitor) {
+        for (ActiveReport report : bucket) {
+            if (report.latitude() >= minLat && report.latitude() <= maxLat
+                    && report.longitude() >= minLon && report.longitude() <= maxLon) {
+                visitor.accept(report);
+            }
+        }
+    }
+
+    private static double[] expand(double[] bounds, double marginMeters) {
+        double reachLat = marginMeters / GeoMath.metersPerDegreeLat();
+        double farthest = Math.min(89.0, Math.max(Math.abs(bounds[0]), Math.abs(bounds[2])) + reachLat);
+        double reachLon = marginMeters / GeoMath.metersPerDegreeLon(farthest);
+        return new double[]{bounds[0] - reachLat, bounds[1] - reachLon, bounds[2] + reachLat, bounds[3] + reachLon};
+    }
+}
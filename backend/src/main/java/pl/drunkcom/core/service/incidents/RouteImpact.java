@@ -0,0 +1,19 @@
+package pl.drunkcom.core.service.incidents;
+
+/**
+ * Effect of an incident on one route, as seen in the latest realtime snapshot.
+ *
+ * @param routeId GTFS route identifier
+ * @param vehiclesNearby number of the route's vehicles within the impact radius of the report
+ * @param meanDelayNearbySeconds mean delay of those vehicles
+ * @param meanDelayElsewhereSeconds mean delay of the route's other vehicles, null if there are none
+ * @param delaySpike whether the vehicles near the report are delayed markedly more than the rest of the route;
+ *                   never set when the route has no vehicles elsewhere to compare with
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record RouteImpact(String routeId, int vehiclesNearby, double meanDelayNearbySeconds,
+                          Double meanDelayElsewhereSeconds, boolean delaySpike) {
+}
@@ -0,0 +1,146 @@
+package pl.drunkcom.core.service.pipeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import pl.drunkcom.core.service.realtime.MapMatchingService;
+import pl.drunkcom.core.service.realtime.RealtimeAnalyticsListener;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+
+import javax.annotation.PreDestroy;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands the published snapshot to the {@link RealtimeAnalyticsListener}s, which run on a single
+ * consumer thread of their own, so the cycle does not wait for them.
+ *
+ * <p>Snapshots are processed in order. At most {@code realtime.analytics.queue-capacity} of them are
+ * queued or in progress; when the consumer falls that far behind, the stage waits for a free slot, so
+ * every snapshot is analysed and the pipeline slows down instead of dropping observations. Every
+ * listener is timed on its own, with the number of snapshots that were ahead of it in the queue as
+ * queue depth. The listeners read map matching as of the snapshot they process, see
+ * {@link MapMatchingService#asOf}.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+@Order(750)
+public class AnalyticsStage implements FeedStage {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsStage.class);
+    private static final long IDLE_TIMEOUT_SECONDS = 30;
+
+    private final MapMatchingService mapMatchingService;
+    private final ObjectProvider<RealtimeAnalyticsListener> listenerProvider;
+    private final int capacity;
+    private final Semaphore slots;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ExecutorService consumer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-analytics");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile ListenerFanOut listeners;
+
+    public AnalyticsStage(MapMatchingService mapMatchingService,
+                          ObjectProvider<RealtimeAnalyticsListener> listenerProvider,
+                          @Value("${realtime.analytics.queue-capacity:4}") int queueCapacity) {
+        this.mapMatchingService = mapMatchingService;
+        this.listenerProvider = listenerProvider;
+        // the matches of every queued snapshot, and of the one published meanwhile, must stay retained
+        this.capacity = Math.max(1, Math.min(queueCapacity, MapMatchingService.RETAINED_SNAPSHOTS - 2));
+        this.slots = new Semaphore(capacity);
+    }
+
+    @Override
+    public String stageName() {
+        return "analytics";
+    }
+
+    @Override
+    public void process(FeedCycle cycle) throws InterruptedIOException {
+        RealtimeSnapshot snapshot = cycle.getSnapshot();
+        ListenerFanOut fanOut = listeners();
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for snapshot analytics");
+        }
+        int queueDepth = queued.getAndIncrement();
+        try {
+            consumer.execute(() -> {
+                try {
+                    mapMatchingService.asOf(snapshot, () -> fanOut.deliver(snapshot, queueDepth));
+                } finally {
+                    queued.decrementAndGet();
+                    slots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            slots.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits until every snapshot handed over so far has been analysed, or gives up after a timeout.
+     */
+    @Override
+    public void awaitIdle() {
+        try {
+            if (slots.tryAcquire(capacity, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                slots.release(capacity);
+            } else {
+                log.warn("Snapshot analytics still busy after {} s, {} snapshots queued", IDLE_TIMEOUT_SECONDS,
+                        queued.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public List<StageStats> partStats() {
+        return listeners().stats();
+    }
+
+    /**
+     * Number of snapshots queued for or in analysis.
+     */
+    public int getQueuedSnapshots() {
+        return queued.get();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        // let the queued snapshots finish, their state may still be persisted for a warm restart
+        consumer.shutdown();
+        if (!consumer.awaitTermination(IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            consumer.shutdownNow();
+        }
+    }
+
+    private ListenerFanOut listeners() {
+        ListenerFanOut resolved = listeners;
+        if (resolved == null) {
+            resolved = new ListenerFanOut(listenerProvider.orderedStream().toList());
+            listeners = resolved;
+        }
+        return resolved;
+    }
+}
@@ -0,0 +1,60 @@
+package pl.drunkcom.core.service.pipeline;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import pl.drunkcom.core.service.DecodedFeed;
+import pl.drunkcom.core.service.GtfsRealTimeService;
+import pl.drunkcom.core.service.SimpleVehiclePosition;
+
+import java.io.IOException;
+
+/**
+ * Parses the fetched protobuf payloads into positions and trip updates, and notes when the upstream
+ * generated the vehicle positions feed.
+ *
+ * <p>When the header timestamps of both feeds equal those of the last ingested ones, the upstream has
+ * not published since, and the cycle ends here without decoding the entities or publishing an identical
+ * snapshot. A feed without a header timestamp is always taken to have changed.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+@Order(200)
+public class DecodeStage implements FeedStage {
+
+    private final GtfsRealTimeService gtfsRealTimeService;
+
+    public DecodeStage(GtfsRealTimeService gtfsRealTimeService) {
+        this.gtfsRealTimeService = gtfsRealTimeService;
+    }
+
+    @Override
+    public String stageName() {
+        return "decode";
+    }
+
+    @Override
+    public void process(FeedCycle cycle) throws IOException {
+        long feedTimestamp = gtfsRealTimeService.decodeHeaderTimestamp(cycle.getVehiclePositionsFeed());
+        long tripUpdatesTimestamp = gtfsRealTimeService.decodeHeaderTimestamp(cycle.getTripUpdatesFeed());
+        cycle.setTripUpdatesTimestamp(tripUpdatesTimestamp);
+        if (feedTimestamp > 0 && feedTimestamp == cycle.getLastFeedTimestamp()
+                && tripUpdatesTimestamp > 0 && tripUpdatesTimestamp == cycle.getLastTripUpdatesTimestamp()) {
+            cycle.setFeedTimestamp(feedTimestamp);
+            cycle.setVehiclePositionsFeed(null);
+            cycle.setTripUpdatesFeed(null);
+            cycle.endEarly();
+            return;
+        }
+        DecodedFeed<SimpleVehiclePosition> positions =
+                gtfsRealTimeService.decodeVehiclePositionsFeed(cycle.getVehiclePositionsFeed());
+        cycle.setFeedTimestamp(positions.headerTimestamp());
+        cycle.setPositions(positions.entities());
+        cycle.setTripUpdates(gtfsRealTimeService.decodeTripUpdates(cycle.getTripUpdatesFeed()));
+        // the decoded entities replace the payloads, which need not live until the cycle ends
+        cycle.setVehiclePositionsFeed(null);
+        cycle.setTripUpdatesFeed(null);
+    }
+}
@@ -0,0 +1,61 @@
+package pl.drunkcom.core.service.pipeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import pl.drunkcom.core.service.TripDetails;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.dataset.TripDetailsIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Attaches the static route and trip details of {@link TripDetailsIndex} to every vehicle, filling in
+ * the route of vehicles without a matching trip update. Vehicles on trips missing from the static
+ * dataset pass unchanged.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+@Order(500)
+public class EnrichStage implements FeedStage {
+
+    private static final Logger log = LoggerFactory.getLogger(EnrichStage.class);
+
+    private final TripDetailsIndex tripDetailsIndex;
+
+    public EnrichStage(TripDetailsIndex tripDetailsIndex) {
+        this.tripDetailsIndex = tripDetailsIndex;
+    }
+
+    @Override
+    public String stageName() {
+        return "enrich";
+    }
+
+    @Override
+    public void process(FeedCycle cycle) {
+        List<VehicleCurrentState> vehicles = cycle.getVehicles();
+        List<VehicleCurrentState> enriched = new ArrayList<>(vehicles.size());
+        int unknown = 0;
+        for (VehicleCurrentState vehicle : vehicles) {
+            Optional<TripDetails> details = tripDetailsIndex.find(vehicle.tripId());
+            if (details.isPresent()) {
+                enriched.add(vehicle.withTrip(details.get()));
+            } else {
+                enriched.add(vehicle);
+                unknown++;
+            }
+        }
+        if (unknown > 0 && log.isDebugEnabled()) {
+            log.debug("{} of {} vehicles run trips unknown to static dataset version {}",
+                    unknown, vehicles.size(), tripDetailsIndex.getVersion());
+        }
+        cycle.setVehicles(enriched);
+    }
+}
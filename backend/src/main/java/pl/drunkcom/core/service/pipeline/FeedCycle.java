@@ -0,0 +1,176 @@
+package pl.drunkcom.core.service.pipeline;
+
+import pl.drunkcom.core.service.SimpleTripUpdate;
+import pl.drunkcom.core.service.SimpleVehiclePosition;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+
+import java.util.List;
+
+/**
+ * Working state of one pass through the {@link FeedPipeline}, handed from stage to stage.
+ *
+ * <p>Every stage fills in the fields it produces; fields of later stages are null until they ran.
+ * Confined to the pipeline thread.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public final class FeedCycle {
+
+    private final long number;
+    private final long startedAtMillis;
+    private byte[] vehiclePositionsFeed;
+    private byte[] tripUpdatesFeed;
+    private long lastFeedTimestamp;
+    private long lastTripUpdatesTimestamp;
+    private long feedTimestamp;
+    private long tripUpdatesTimestamp;
+    private boolean endedEarly;
+    private List<SimpleVehiclePosition> positions;
+    private List<SimpleTripUpdate> tripUpdates;
+    private List<VehicleCurrentState> vehicles;
+    private RealtimeSnapshot snapshot;
+
+    public FeedCycle(long number, long startedAtMillis) {
+        this.number = number;
+        this.startedAtMillis = startedAtMillis;
+    }
+
+    /**
+     * Number of the cycle since startup, starting at 1.
+     */
+    public long getNumber() {
+        return number;
+    }
+
+    public long getStartedAtMillis() {
+        return startedAtMillis;
+    }
+
+    public byte[] getVehiclePositionsFeed() {
+        return vehiclePositionsFeed;
+    }
+
+    public void setVehiclePositionsFeed(byte[] vehiclePositionsFeed) {
+        this.vehiclePositionsFeed = vehiclePositionsFeed;
+    }
+
+    public byte[] getTripUpdatesFeed() {
+        return tripUpdatesFeed;
+    }
+
+    public void setTripUpdatesFeed(byte[] tripUpdatesFeed) {
+        this.tripUpdatesFeed = tripUpdatesFeed;
+    }
+
+    /**
+     * Header timestamp of the feed the last completed cycle ingested, see
+     * {@link FeedPipeline#getLastFeedTimestamp()}.
+     */
+    public long getLastFeedTimestamp() {
+        return lastFeedTimestamp;
+    }
+
+    void setLastFeedTimestamp(long lastFeedTimestamp) {
+        this.lastFeedTimestamp = lastFeedTimestamp;
+    }
+
+    /**
+     * Header timestamp of the trip updates feed the last completed cycle ingested, in epoch seconds.
+     */
+    public long getLastTripUpdatesTimestamp() {
+        return lastTripUpdatesTimestamp;
+    }
+
+    void setLastTripUpdatesTimestamp(long lastTripUpdatesTimestamp) {
+        this.lastTripUpdatesTimestamp = lastTripUpdatesTimestamp;
+    }
+
+    /**
+     * Header timestamp of the decoded vehicle positions feed in epoch seconds, 0 if absent.
+     */
+    public long getFeedTimestamp() {
+        return feedTimestamp;
+    }
+
+    public void setFeedTimestamp(long feedTimestamp) {
+        this.feedTimestamp = feedTimestamp;
+    }
+
+    /**
+     * Header timestamp of the decoded trip updates feed in epoch seconds, 0 if absent.
+     */
+    public long getTripUpdatesTimestamp() {
+        return tripUpdatesTimestamp;
+    }
+
+    public void setTripUpdatesTimestamp(long tripUpdatesTimestamp) {
+        this.tripUpdatesTimestamp = tripUpdatesTimestamp;
+    }
+
+    public List<SimpleVehiclePosition> getPositions() {
+        return positions;
+    }
+
+    public void setPositions(List<SimpleVehiclePosition> positions) {
+        this.positions = positions;
+    }
+
+    public List<SimpleTripUpdate> getTripUpdates() {
+        return tripUpdates;
+    }
+
+    public void setTripUpdates(List<SimpleTripUpdate> tripUpdates) {
+        this.tripUpdates = tripUpdates;
+    }
+
+    /**
+     * Joined vehicle states; stages after the join may replace the list with a filtered or enriched one.
+     */
+    public List<VehicleCurrentState> getVehicles() {
+        return vehicles;
+    }
+
+    public void setVehicles(List<VehicleCurrentState> vehicles) {
+        this.vehicles = vehicles;
+    }
+
+    public RealtimeSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(RealtimeSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Ends the cycle after the current stage: the remaining stages are skipped and the previous
+     * snapshot stays current.
+     */
+    public void endEarly() {
+        endedEarly = true;
+    }
+
+    public boolean isEndedEarly() {
+        return endedEarly;
+    }
+
+    /**
+     * Number of items the next stage has to work through: vehicles once joined, otherwise decoded
+     * positions and trip updates, otherwise fetched payloads.
+     */
+    int pendingItems() {
+        if (snapshot != null) {
+            return snapshot.size();
+        }
+        if (vehicles != null) {
+            return vehicles.size();
+        }
+        if (positions != null || tripUpdates != null) {
+            return (positions == null ? 0 : positions.size()) + (tripUpdates == null ? 0 : tripUpdates.size());
+        }
+        return (vehiclePositionsFeed == null ? 0 : 1) + (tripUpdatesFeed == null ? 0 : 1);
+    }
+}
@@ -0,0 +1,50 @@
+package pl.drunkcom.core.service.pipeline;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * One step of the realtime ingestion pipeline run by {@link FeedPipeline}.
+ *
+ * <p>Stages are Spring beans, run in {@link org.springframework.core.annotation.Order} on every feed
+ * refresh. Each reads what the earlier stages left in the {@link FeedCycle} and adds its own result.
+ * The built-in stages use these orders, leaving room in between:
+ * <ul>
+ *   <li>100 {@code fetch} - downloads the vehicle positions and trip updates feeds;</li>
+ *   <li>200 {@code decode} - parses both protobuf payloads;</li>
+ *   <li>300 {@code join} - combines positions with the trip updates of their trips;</li>
+ *   <li>400 {@code validate} - drops implausible reports;</li>
+ *   <li>500 {@code enrich} - attaches static route and trip details;</li>
+ *   <li>600 {@code index} - estimates motion and builds the snapshot arrays;</li>
+ *   <li>700 {@code publish} - replaces the current snapshot and runs the listeners indexing it;</li>
+ *   <li>750 {@code analytics} - queues the snapshot for the analytics listeners on their own thread;</li>
+ *   <li>800 {@code persist} - saves the snapshot and analytics state for a warm restart.</li>
+ * </ul>
+ * A stage that throws aborts the cycle and the previous snapshot stays current.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public interface FeedStage {
+
+    /**
+     * Short name under which the stage's metrics are reported.
+     */
+    String stageName();
+
+    void process(FeedCycle cycle) throws IOException;
+
+    /**
+     * Timings of the parts of the stage's work, such as each snapshot listener it runs; none by default.
+     */
+    default List<StageStats> partStats() {
+        return List.of();
+    }
+
+    /**
+     * Waits until the work the stage handed off to other threads has completed; returns at once by default.
+     */
+    default void awaitIdle() {
+    }
+}
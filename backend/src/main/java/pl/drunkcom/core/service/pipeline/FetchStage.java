@@ -0,0 +1,34 @@
+package pl.drunkcom.core.service.pipeline;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import pl.drunkcom.core.service.GtfsRealTimeService;
+
+/**
+ * Downloads the vehicle positions and trip updates feeds.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+@Order(100)
+public class FetchStage implements FeedStage {
+
+    private final GtfsRealTimeService gtfsRealTimeService;
+
+    public FetchStage(GtfsRealTimeService gtfsRealTimeService) {
+        this.gtfsRealTimeService = gtfsRealTimeService;
+    }
+
+    @Override
+    public String stageName() {
+        return "fetch";
+    }
+
+    @Override
+    public void process(FeedCycle cycle) {
+        cycle.setVehiclePositionsFeed(gtfsRealTimeService.fetchVehiclePositionsFeed());
+        cycle.setTripUpdatesFeed(gtfsRealTimeService.fetchTripUpdatesFeed());
+    }
+}
@@ -0,0 +1,46 @@
+package pl.drunkcom.core.service.pipeline;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshotStore;
+import pl.drunkcom.core.service.realtime.VehicleMotionEstimator;
+
+import java.util.List;
+
+/**
+ * Builds the next {@link RealtimeSnapshot}: its coordinate arrays and the speed and heading estimated by
+ * {@link VehicleMotionEstimator}.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+@Order(600)
+public class IndexStage implements FeedStage {
+
+    private final RealtimeSnapshotStore snapshotStore;
+    private final VehicleMotionEstimator motionEstimator;
+
+    public IndexStage(RealtimeSnapshotStore snapshotStore, VehicleMotionEstimator motionEstimator) {
+        this.snapshotStore = snapshotStore;
+        this.motionEstimator = motionEstimator;
+    }
+
+    @Override
+    public String stageName() {
+        return "index";
+    }
+
+    @Override
+    public void process(FeedCycle cycle) {
+        List<VehicleCurrentState> vehicles = cycle.getVehicles();
+        float[] speeds = new float[vehicles.size()];
+        float[] headings = new float[vehicles.size()];
+        motionEstimator.estimate(vehicles, cycle.getStartedAtMillis(), speeds, headings);
+        cycle.setSnapshot(new RealtimeSnapshot(snapshotStore.nextSequence(), cycle.getStartedAtMillis(), vehicles,
+                speeds, headings));
+    }
+}
@@ -0,0 +1,33 @@
+package pl.drunkcom.core.service.pipeline;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import pl.drunkcom.core.service.GtfsRealTimeService;
+
+/**
+ * Combines every vehicle position with the trip update of its trip.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+@Order(300)
+public class JoinStage implements FeedStage {
+
+    private final GtfsRealTimeService gtfsRealTimeService;
+
+    public JoinStage(GtfsRealTimeService gtfsRealTimeService) {
+        this.gtfsRealTimeService = gtfsRealTimeService;
+    }
+
+    @Override
+    public String stageName() {
+        return "join";
+    }
+
+    @Override
+    public void process(FeedCycle cycle) {
+        cycle.setVehicles(gtfsRealTimeService.join(cycle.getPositions(), cycle.getTripUpdates()));
+    }
+}
@@ -0,0 +1,79 @@
+package pl.drunkcom.core.service.pipeline;
+
+/**
+ * Log-linear histogram of durations in microseconds.
+ *
+ * <p>Every power of two is split into four buckets, so a quantile is reported within 25% of the true
+ * value, from 1 µs up to about 19 hours, in a fixed array of counters. Not thread-safe.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final long MAX_MICROS = (1L << 36) - 1;
+
+    private final long[] counts = new long[bucketOf(MAX_MICROS) + 1];
+    private long count;
+    private long sum;
+    private long max;
+
+    void record(long micros) {
+        long value = Math.max(0, Math.min(micros, MAX_MICROS));
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    long count() {
+        return count;
+    }
+
+    long mean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    long max() {
+        return max;
+    }
+
+    /**
+     * @return the upper bound of the bucket holding the quantile, at most the largest recorded value
+     */
+    long quantile(double q) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(bucket), max);
+            }
+        }
+        return max;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,57 @@
+package pl.drunkcom.core.service.pipeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ClassUtils;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshotListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands snapshots to a fixed list of {@link RealtimeSnapshotListener}s in order, timing each one into
+ * its own {@link StageMetrics} under the listener's class name. A failing listener is counted and
+ * logged and does not prevent the others from running.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+final class ListenerFanOut {
+
+    private static final Logger log = LoggerFactory.getLogger(ListenerFanOut.class);
+
+    private final List<RealtimeSnapshotListener> listeners;
+    private final List<StageMetrics> metrics = new ArrayList<>();
+
+    ListenerFanOut(List<? extends RealtimeSnapshotListener> listeners) {
+        this.listeners = List.copyOf(listeners);
+        for (RealtimeSnapshotListener listener : this.listeners) {
+            metrics.add(new StageMetrics(ClassUtils.getUserClass(listener).getSimpleName()));
+        }
+    }
+
+    /**
+     * Runs every listener on a snapshot.
+     *
+     * @param queueDepth snapshots that were waiting for the listeners when this one was handed over
+     */
+    void deliver(RealtimeSnapshot snapshot, int queueDepth) {
+        for (int i = 0; i < listeners.size(); i++) {
+            long started = System.nanoTime();
+            try {
+                listeners.get(i).onSnapshot(snapshot);
+                metrics.get(i).succeeded(System.nanoTime() - started, queueDepth, snapshot.size());
+            } catch (RuntimeException e) {
+                metrics.get(i).failed(System.nanoTime() - started, queueDepth);
+                log.error("Snapshot listener {} failed for snapshot {}",
+                        listeners.get(i).getClass().getSimpleName(), snapshot.getSequence(), e);
+            }
+        }
+    }
+
+    List<StageStats> stats() {
+        return metrics.stream().map(StageMetrics::stats).toList();
+    }
+}
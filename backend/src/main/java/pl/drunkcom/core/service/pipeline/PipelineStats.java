@@ -0,0 +1,21 @@
+package pl.drunkcom.core.service.pipeline;
+
+import java.util.List;
+
+/**
+ * Metrics of the realtime ingestion pipeline.
+ *
+ * @param cycles cycles started since startup
+ * @param failedCycles cycles aborted by a failing stage
+ * @param lastCompletedAtMillis epoch millis at which the latest cycle completed, 0 if none has
+ * @param cycle timings of whole cycles, under the stage name {@code cycle}
+ * @param stages timings of each stage, in pipeline order
+ * @param listeners timings of each snapshot listener under its class name, in the order they run
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record PipelineStats(long cycles, long failedCycles, long lastCompletedAtMillis, StageStats cycle,
+                            List<StageStats> stages, List<StageStats> listeners) {
+}
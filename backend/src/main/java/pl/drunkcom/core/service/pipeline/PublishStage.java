@@ -0,0 +1,69 @@
+package pl.drunkcom.core.service.pipeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import pl.drunkcom.core.service.realtime.RealtimeAnalyticsListener;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshotListener;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshotStore;
+
+import java.util.List;
+
+/**
+ * Makes the cycle's snapshot current and runs the snapshot listeners that index it for requests (map
+ * matching, the spatial index, clusters, incident impact and vehicle tracks) before the cycle moves on.
+ * Each listener is timed on its own. {@link RealtimeAnalyticsListener}s are left to the
+ * {@link AnalyticsStage}.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+@Order(700)
+public class PublishStage implements FeedStage {
+
+    private static final Logger log = LoggerFactory.getLogger(PublishStage.class);
+
+    private final RealtimeSnapshotStore snapshotStore;
+    private final ObjectProvider<RealtimeSnapshotListener> listenerProvider;
+
+    private volatile ListenerFanOut listeners;
+
+    public PublishStage(RealtimeSnapshotStore snapshotStore, ObjectProvider<RealtimeSnapshotListener> listenerProvider) {
+        this.snapshotStore = snapshotStore;
+        this.listenerProvider = listenerProvider;
+    }
+
+    @Override
+    public String stageName() {
+        return "publish";
+    }
+
+    @Override
+    public void process(FeedCycle cycle) {
+        RealtimeSnapshot snapshot = snapshotStore.publish(cycle.getSnapshot());
+        listeners().deliver(snapshot, 0);
+        log.debug("Published realtime snapshot {} with {} vehicles", snapshot.getSequence(), snapshot.size());
+    }
+
+    @Override
+    public List<StageStats> partStats() {
+        return listeners().stats();
+    }
+
+    private ListenerFanOut listeners() {
+        ListenerFanOut resolved = listeners;
+        if (resolved == null) {
+            // resolved on first use, the listeners may depend on beans built after the pipeline
+            resolved = new ListenerFanOut(listenerProvider.orderedStream()
+                    .filter(listener -> !(listener instanceof RealtimeAnalyticsListener))
+                    .toList());
+            listeners = resolved;
+        }
+        return resolved;
+    }
+}
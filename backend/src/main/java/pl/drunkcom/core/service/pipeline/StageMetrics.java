@@ -0,0 +1,44 @@
+package pl.drunkcom.core.service.pipeline;
+
+/**
+ * Running metrics of one pipeline stage. Written by the pipeline thread, read by request threads.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+final class StageMetrics {
+
+    private final String stage;
+    private final LatencyHistogram durations = new LatencyHistogram();
+    private long errors;
+    private long lastMicros;
+    private int queueDepth;
+    private int itemsOut;
+
+    StageMetrics(String stage) {
+        this.stage = stage;
+    }
+
+    synchronized void succeeded(long nanos, int queueDepth, int itemsOut) {
+        record(nanos, queueDepth);
+        this.itemsOut = itemsOut;
+    }
+
+    synchronized void failed(long nanos, int queueDepth) {
+        record(nanos, queueDepth);
+        errors++;
+    }
+
+    synchronized StageStats stats() {
+        return new StageStats(stage, durations.count(), errors, lastMicros, durations.mean(),
+                durations.quantile(0.50), durations.quantile(0.95), durations.quantile(0.99), durations.max(),
+                queueDepth, itemsOut);
+    }
+
+    private void record(long nanos, int queueDepth) {
+        lastMicros = nanos / 1000;
+        durations.record(lastMicros);
+        this.queueDepth = queueDepth;
+    }
+}
@@ -0,0 +1,24 @@
+package pl.drunkcom.core.service.pipeline;
+
+/**
+ * Timings and counters of one pipeline stage since startup.
+ *
+ * @param stage stage name
+ * @param runs number of times the stage ran
+ * @param errors number of runs that failed and aborted their cycle
+ * @param lastMicros duration of the latest run
+ * @param meanMicros mean duration
+ * @param p50Micros median duration
+ * @param p95Micros 95th percentile duration
+ * @param p99Micros 99th percentile duration
+ * @param maxMicros longest run
+ * @param queueDepth items handed to the stage in the latest run
+ * @param itemsOut items the stage handed on in its latest successful run
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record StageStats(String stage, long runs, long errors, long lastMicros, long meanMicros, long p50Micros,
+                         long p95Micros, long p99Micros, long maxMicros, int queueDepth, int itemsOut) {
+}
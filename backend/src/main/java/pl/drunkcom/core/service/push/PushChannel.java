@@ -0,0 +1,205 @@
+package pl.drunkcom.core.service.push;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import pl.drunkcom.core.service.analytics.DelayAnomaly;
+import pl.drunkcom.core.service.analytics.DelayAnomalyEvent;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-sent events channel pushing realtime notifications to subscribed clients.
+ *
+ * <p>Events are raised on the realtime poller or snapshot analytics thread and only queued there. Every
+ * subscriber has its own buffer of at most {@code push.buffer-size} events, dropping the oldest when it
+ * is full, which a pool of {@code push.dispatcher-threads} threads drains with at most one task per
+ * subscriber, so a slow client only delays its own events. A client whose send fails, or blocks for
+ * longer than {@code push.send-timeout-ms}, is dropped and has to resubscribe.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class PushChannel {
+
+    private static final Logger log = LoggerFactory.getLogger(PushChannel.class);
+
+    static final String DELAY_ANOMALY = "delay-anomaly";
+
+    private final long timeoutMillis;
+    private final int bufferSize;
+    private final long sendTimeoutNanos;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final ExecutorService dispatcher;
+
+    public PushChannel(@Value("${push.sse-timeout-ms:1800000}") long timeoutMillis,
+                       @Value("${push.buffer-size:64}") int bufferSize,
+                       @Value("${push.send-timeout-ms:5000}") long sendTimeoutMillis,
+                       @Value("${push.dispatcher-threads:4}") int dispatcherThreads) {
+        this.timeoutMillis = timeoutMillis;
+        this.bufferSize = Math.max(1, bufferSize);
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        AtomicInteger threads = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(Math.max(1, dispatcherThreads), runnable -> {
+            Thread thread = new Thread(runnable, "push-dispatcher-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Registers a new subscriber.
+     *
+     * @return the emitter to return from the controller
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Number of events discarded from full subscriber buffers since startup.
+     */
+    public long getDroppedEventCount() {
+        return droppedEvents.get();
+    }
+
+    @EventListener
+    public void onDelayAnomaly(DelayAnomalyEvent event) {
+        DelayAnomaly anomaly = event.anomaly();
+        broadcast(new PushEvent(DELAY_ANOMALY, String.valueOf(anomaly.id()), anomaly));
+    }
+
+    private void broadcast(PushEvent event) {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.stalled(now)) {
+                drop(subscriber, new IOException("Send blocked for more than "
+                        + TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos) + " ms"));
+                continue;
+            }
+            try {
+                subscriber.offer(event);
+            } catch (RejectedExecutionException e) {
+                log.debug("Push channel is shut down, {} event not sent", event.name());
+                return;
+            }
+        }
+    }
+
+    private void drop(Subscriber subscriber, Exception cause) {
+        if (subscribers.remove(subscriber)) {
+            log.debug("Dropping push subscriber: {}", cause.getMessage());
+            subscriber.emitter.completeWithError(cause);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    /**
+     * Event waiting in a subscriber buffer; the SSE event is built per send, as the builder is not reusable.
+     */
+    private record PushEvent(String name, String id, Object payload) {
+    }
+
+    /**
+     * One client with its own buffer of unsent events.
+     */
+    private final class Subscriber {
+
+        final SseEmitter emitter;
+        private final ArrayDeque<PushEvent> pending = new ArrayDeque<>();
+        private boolean draining;
+        /** {@link System#nanoTime()} at which the current send started, or 0 when not sending. */
+        private volatile long sendingSince;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(PushEvent event) {
+            synchronized (this) {
+                if (pending.size() == bufferSize) {
+                    pending.pollFirst();
+                    droppedEvents.incrementAndGet();
+                }
+                pending.addLast(event);
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            try {
+                dispatcher.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    draining = false;
+                }
+                throw e;
+            }
+        }
+
+        boolean stalled(long now) {
+            long since = sendingSince;
+            return since != 0 && now - since > sendTimeoutNanos;
+        }
+
+        private void drain() {
+            while (true) {
+                PushEvent event;
+                synchronized (this) {
+                    event = pending.pollFirst();
+                    if (event == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+                long started = System.nanoTime() | 1;
+                sendingSince = started;
+                try {
+                    emitter.send(SseEmitter.event().name(event.name()).id(event.id()).data(event.payload()));
+                } catch (IOException | RuntimeException e) {
+                    drop(this, e);
+                    return;
+                } finally {
+                    sendingSince = 0;
+                }
+                if (System.nanoTime() - started > sendTimeoutNanos) {
+                    drop(this, new IOException("Send took longer than "
+                            + TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos) + " ms"));
+                    return;
+                }
+            }
+        }
+    }
+}
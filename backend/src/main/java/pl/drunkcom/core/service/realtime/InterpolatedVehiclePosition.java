@@ -0,0 +1,40 @@
+package pl.drunkcom.core.service.realtime;
+
+/**
+ * Predicted position of a vehicle at request time, extrapolated from its last observations.
+ *
+ * <p>The {@code method} tells clients how the prediction was made:
+ * <ul>
+ *   <li>SHAPE - advanced along the trip's shape at the observed along-shape speed</li>
+ *   <li>LINEAR - extrapolated in a straight line (no usable shape)</li>
+ *   <li>STATIC - last reported position (not enough history to estimate speed)</li>
+ * </ul>
+ *
+ * @param vehicleId Unique identifier for the vehicle
+ * @param tripId Identifier for the trip
+ * @param routeId Identifier for the route
+ * @param latitude Predicted latitude
+ * @param longitude Predicted longitude
+ * @param delay Last reported delay in seconds
+ * @param speedMetersPerSecond Speed used for the prediction
+ * @param observedAtMillis Time of the last real observation (epoch milliseconds)
+ * @param predictedAtMillis Time the prediction refers to (epoch milliseconds)
+ * @param method Prediction method: SHAPE, LINEAR or STATIC
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record InterpolatedVehiclePosition(
+    String vehicleId,
+    String tripId,
+    String routeId,
+    double latitude,
+    double longitude,
+    int delay,
+    double speedMetersPerSecond,
+    long observedAtMillis,
+    long predictedAtMillis,
+    String method
+) {
+}
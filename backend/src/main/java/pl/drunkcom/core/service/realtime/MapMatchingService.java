@@ -0,0 +1,250 @@
+package pl.drunkcom.core.service.realtime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.service.TripsService;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.dataset.StaticDatasetChangedEvent;
+import pl.drunkcom.core.service.geo.ShapeGeometry;
+import pl.drunkcom.core.service.geo.ShapeGeometryService;
+import pl.drunkcom.core.service.geo.TripStopPattern;
+import pl.drunkcom.core.service.geo.TripStopPatternService;
+
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Map-matching stage: snaps every vehicle of a snapshot onto the shape of its trip and works out
+ * how far along the shape it is and which two stops it is between.
+ *
+ * <p>The stage never touches the database on the snapshot thread. Trip geometry (shape plus stop
+ * pattern) is resolved once per trip by a background loader; vehicles whose trip is still loading
+ * are simply left unmatched for that cycle. Matching itself goes through each shape's
+ * {@link pl.drunkcom.core.service.geo.ShapeSegmentIndex} and uses the vehicle's previous progress
+ * as a hint, so a full feed is matched in a few milliseconds.
+ *
+ * <p>The matches of the last {@link #RETAINED_SNAPSHOTS} snapshots are kept, so that
+ * {@link RealtimeAnalyticsListener}s processing a queued snapshot through {@link #asOf} see the matches
+ * of that snapshot rather than of the latest one.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+@Order(50)
+public class MapMatchingService implements RealtimeSnapshotListener {
+
+    private static final Logger log = LoggerFactory.getLogger(MapMatchingService.class);
+
+    /** Number of snapshots whose matches stay available to {@link #asOf}. */
+    public static final int RETAINED_SNAPSHOTS = 16;
+
+    /** Marker for trips whose geometry is known to be unavailable. */
+    private static final TripGeometry NO_GEOMETRY = new TripGeometry(null, null, null, null);
+
+    private final TripsService tripsService;
+    private final ShapeGeometryService shapeGeometryService;
+    private final TripStopPatternService stopPatternService;
+
+    /** Resolved trips of the current dataset, replaced rather than cleared when the dataset changes. */
+    private volatile Map<String, TripGeometry> tripGeometries = new ConcurrentHashMap<>();
+    private final Set<String> pendingTrips = ConcurrentHashMap.newKeySet();
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "trip-geometry-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<Long, Map<String, VehicleProgress>> progressBySnapshot = new LinkedHashMap<>();
+    private final ThreadLocal<Map<String, VehicleProgress>> pinned = new ThreadLocal<>();
+
+    private volatile Map<String, VehicleProgress> progressByVehicle = Map.of();
+    private volatile long lastCycleNanos;
+
+    public MapMatchingService(TripsService tripsService, ShapeGeometryService shapeGeometryService,
+                              TripStopPatternService stopPatternService) {
+        this.tripsService = tripsService;
+        this.shapeGeometryService = shapeGeometryService;
+        this.stopPatternService = stopPatternService;
+    }
+
+    @Override
+    public void onSnapshot(RealtimeSnapshot snapshot) {
+        long start = System.nanoTime();
+        Map<String, VehicleProgress> previous = progressByVehicle;
+        Map<String, VehicleProgress> matched = new HashMap<>(snapshot.size() * 2);
+        Map<String, TripGeometry> geometries = tripGeometries;
+        long snapshotSeconds = snapshot.getPublishedAtMillis() / 1000;
+
+        for (VehicleCurrentState vehicle : snapshot.getVehicles()) {
+            TripGeometry trip = geometries.get(vehicle.tripId());
+            if (trip == null) {
+                scheduleLoad(vehicle.tripId());
+                continue;
+            }
+            if (trip == NO_GEOMETRY) {
+                continue;
+            }
+            VehicleProgress last = previous.get(vehicle.vehicleId());
+            double hint = last != null && last.tripId().equals(vehicle.tripId()) ? last.distanceAlongMeters() : Double.NaN;
+            long timestamp = vehicle.timestamp() > 0 ? vehicle.timestamp() : snapshotSeconds;
+            matched.put(vehicle.vehicleId(), match(vehicle, trip, hint, timestamp));
+        }
+
+        progressByVehicle = Map.copyOf(matched);
+        synchronized (progressBySnapshot) {
+            progressBySnapshot.put(snapshot.getSequence(), progressByVehicle);
+            if (progressBySnapshot.size() > RETAINED_SNAPSHOTS) {
+                progressBySnapshot.remove(progressBySnapshot.keySet().iterator().next());
+            }
+        }
+        lastCycleNanos = System.nanoTime() - start;
+        log.debug("Matched {} of {} vehicles in {} us", matched.size(), snapshot.size(), lastCycleNanos / 1000);
+    }
+
+    /**
+     * Returns the matched progress of a vehicle in the latest snapshot, or in the snapshot given to
+     * {@link #asOf} when called from its task.
+     *
+     * @param vehicleId vehicle identifier
+     * @return progress along the trip's shape, or empty if the vehicle could not be matched
+     */
+    public Optional<VehicleProgress> find(String vehicleId) {
+        return Optional.ofNullable(matches().get(vehicleId));
+    }
+
+    /**
+     * Returns all vehicles matched in the latest snapshot, or in the snapshot given to {@link #asOf}
+     * when called from its task.
+     */
+    public Collection<VehicleProgress> findAll() {
+        return matches().values();
+    }
+
+    /**
+     * Runs a task on the calling thread for which {@link #find} and {@link #findAll} answer with the
+     * matches of the given snapshot. If they are no longer retained, the latest matches are used.
+     *
+     * @param snapshot a snapshot this service has matched
+     * @param task the task to run
+     */
+    public void asOf(RealtimeSnapshot snapshot, Runnable task) {
+        Map<String, VehicleProgress> matches;
+        synchronized (progressBySnapshot) {
+            matches = progressBySnapshot.get(snapshot.getSequence());
+        }
+        if (matches == null) {
+            log.debug("Matches of snapshot {} are no longer retained, using the latest", snapshot.getSequence());
+        }
+        pinned.set(matches);
+        try {
+            task.run();
+        } finally {
+            pinned.remove();
+        }
+    }
+
+    /**
+     * Returns the already loaded geometry of a trip without triggering a load.
+     *
+     * @param tripId GTFS trip identifier
+     * @return shape and stop pattern of the trip, or empty if not (yet) available
+     */
+    public Optional<TripGeometry> findTripGeometry(String tripId) {
+        TripGeometry trip = tripId == null ? null : tripGeometries.get(tripId);
+        return trip == null || trip == NO_GEOMETRY ? Optional.empty() : Optional.of(trip);
+    }
+
+    /**
+     * Duration of the last matching cycle in nanoseconds.
+     */
+    public long getLastCycleNanos() {
+        return lastCycleNanos;
+    }
+
+    /**
+     * Drops all resolved trip geometries; they are reloaded in the background as vehicles report them.
+     * A load still running for the previous dataset completes into the dropped map.
+     */
+    @EventListener
+    public void onDatasetChanged(StaticDatasetChangedEvent event) {
+        tripGeometries = new ConcurrentHashMap<>();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        loader.shutdownNow();
+        loader.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private Map<String, VehicleProgress> matches() {
+        Map<String, VehicleProgress> matches = pinned.get();
+        return matches != null ? matches : progressByVehicle;
+    }
+
+    static VehicleProgress match(VehicleCurrentState vehicle, TripGeometry trip, double hint, long timestamp) {
+        ShapeGeometry shape = trip.shape();
+        ShapeGeometry.ShapeProjection projection = shape.projectNear(vehicle.latitude(), vehicle.longitude(), hint);
+        double along = projection.distanceAlongMeters();
+
+        String previousStopId = null, nextStopId = null;
+        Integer previousSequence = null, nextSequence = null;
+        Double toNextStop = null;
+        TripStopPattern stops = trip.stops();
+        if (stops != null) {
+            int previousStop = stops.previousStopIndex(along);
+            if (previousStop >= 0) {
+                previousStopId = stops.stopIdAt(previousStop);
+                previousSequence = stops.stopSequenceAt(previousStop);
+            }
+            if (previousStop + 1 < stops.size()) {
+                nextStopId = stops.stopIdAt(previousStop + 1);
+                nextSequence = stops.stopSequenceAt(previousStop + 1);
+                toNextStop = stops.distanceAt(previousStop + 1) - along;
+            }
+        }
+
+        return new VehicleProgress(vehicle.vehicleId(), vehicle.tripId(), vehicle.routeId(), trip.shapeId(),
+                timestamp, along, shape.length(), projection.offsetMeters(), projection.segmentIndex(),
+                previousStopId, previousSequence, nextStopId, nextSequence, toNextStop);
+    }
+
+    private void scheduleLoad(String tripId) {
+        if (!pendingTrips.add(tripId)) {
+            return;
+        }
+        loader.execute(() -> {
+            Map<String, TripGeometry> geometries = tripGeometries;
+            try {
+                geometries.put(tripId, loadTripGeometry(tripId));
+            } catch (RuntimeException e) {
+                log.warn("Failed to load geometry for trip {}", tripId, e);
+            } finally {
+                pendingTrips.remove(tripId);
+            }
+        });
+    }
+
+    private TripGeometry loadTripGeometry(String tripId) {
+        Optional<String> shapeId = tripsService.findShapeId(tripId);
+        Optional<ShapeGeometry> shape = shapeId.flatMap(shapeGeometryService::find);
+        if (shape.isEmpty()) {
+            return NO_GEOMETRY;
+        }
+        TripStopPattern stops = stopPatternService.load(tripId, shape.get()).orElse(null);
+        return new TripGeometry(tripId, shapeId.get(), shape.get(), stops);
+    }
+}
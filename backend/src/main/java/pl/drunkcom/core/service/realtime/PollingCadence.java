@@ -0,0 +1,186 @@
+package pl.drunkcom.core.service.realtime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides when {@link RealtimeFeedPoller} fetches the feed next, from how often the upstream publishes.
+ *
+ * <p>Every fetch reports the {@code FeedHeader.timestamp} it found. The publishing period is the
+ * exponentially weighted mean of the differences between successive timestamps, and the availability
+ * lag is how long after its header timestamp a new version could first be fetched. The next fetch is
+ * aimed at the expected header timestamp of the next version plus that lag:
+ * <ul>
+ *   <li>if the fetch finds the new version, it may have been there earlier, so the lag is lowered by
+ *       {@link #LAG_STEP_MILLIS};</li>
+ *   <li>if it still finds the old one, it rechecks after {@code realtime.polling.min-interval-ms},
+ *       doubling the wait while the feed stays unchanged, and takes the lag at which the version
+ *       appeared.</li>
+ * </ul>
+ * So the lag tracks the real one within a recheck step, and most versions cost a single fetch. A
+ * difference spanning several periods while no unchanged fetch came in between is taken to have
+ * skipped versions. A timestamp going backwards, as after an upstream restart or rollback, is a new
+ * version too, and the period and lag are learned afresh from it. Until the period is known the feed is fetched every minimum interval, doubling the
+ * wait up to {@code realtime.polling.interval-ms} while it stays unchanged.
+ *
+ * <p>Each fetch gets up to {@code realtime.polling.jitter-ms} added. Failed cycles back off
+ * exponentially from the minimum interval, with jitter over half the delay. Every delay lies between
+ * {@code realtime.polling.min-interval-ms} and {@code realtime.polling.max-interval-ms}. With
+ * {@code realtime.polling.adaptive=false}, or for a feed without header timestamps, the feed is fetched
+ * every {@code realtime.polling.interval-ms} as before. The statistics count fetches per new version
+ * and the age of each version when it was fetched, which can be compared between both modes.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class PollingCadence {
+
+    /** Amount the availability lag is lowered by after each fetch that found a new version. */
+    static final long LAG_STEP_MILLIS = 250;
+    private static final double PERIOD_ALPHA = 0.3;
+    private static final int MAX_BACKOFF_SHIFT = 16;
+
+    private final boolean adaptive;
+    private final long intervalMillis;
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    private final long jitterMillis;
+
+    private long lastFeedTimestamp;
+    private boolean lastFetchUnchanged;
+    private double periodMillis;
+    private long lagMillis;
+    private boolean lagKnown;
+    private int unchangedStreak;
+    private int consecutiveErrors;
+
+    private long fetches;
+    private long newVersions;
+    private long unchangedFetches;
+    private long errors;
+    private long lastDelayMillis;
+    private long lastStalenessMillis;
+    private long maxStalenessMillis;
+    private double stalenessSumMillis;
+
+    public PollingCadence(@Value("${realtime.polling.adaptive:true}") boolean adaptive,
+                          @Value("${realtime.polling.interval-ms:15000}") long intervalMillis,
+                          @Value("${realtime.polling.min-interval-ms:1000}") long minIntervalMillis,
+                          @Value("${realtime.polling.max-interval-ms:60000}") long maxIntervalMillis,
+                          @Value("${realtime.polling.jitter-ms:500}") long jitterMillis) {
+        this.adaptive = adaptive;
+        this.intervalMillis = intervalMillis;
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxIntervalMillis = Math.max(minIntervalMillis, maxIntervalMillis);
+        this.jitterMillis = jitterMillis;
+    }
+
+    /**
+     * Records the outcome of a fetch and returns how long to wait before the next one.
+     *
+     * @param succeeded whether the cycle completed
+     * @param feedTimestamp header timestamp of the feed in epoch seconds, 0 if absent
+     * @param fetchedAtMillis time the fetch started
+     * @param nowMillis time the cycle ended
+     * @return delay until the next fetch in milliseconds
+     */
+    public synchronized long completed(boolean succeeded, long feedTimestamp, long fetchedAtMillis, long nowMillis) {
+        fetches++;
+        long delay;
+        if (!succeeded) {
+            errors++;
+            consecutiveErrors++;
+            long backoff = Math.min(maxIntervalMillis,
+                    minIntervalMillis << Math.min(consecutiveErrors, MAX_BACKOFF_SHIFT));
+            delay = backoff / 2 + random(backoff / 2);
+        } else {
+            consecutiveErrors = 0;
+            if (feedTimestamp <= 0) {
+                delay = intervalMillis + random(jitterMillis);
+            } else {
+                observe(feedTimestamp, fetchedAtMillis);
+                delay = (adaptive ? adaptiveDelay(nowMillis) : intervalMillis) + random(jitterMillis);
+            }
+        }
+        lastDelayMillis = Math.max(minIntervalMillis, Math.min(maxIntervalMillis, delay));
+        return lastDelayMillis;
+    }
+
+    public synchronized PollingStats getStats() {
+        return new PollingStats(adaptive, fetches, newVersions, unchangedFetches, errors,
+                newVersions == 0 ? 0 : (double) fetches / newVersions,
+                periodMillis > 0 ? Math.round(periodMillis) : null, lagKnown ? lagMillis : null,
+                lastDelayMillis, lastStalenessMillis,
+                newVersions == 0 ? 0 : stalenessSumMillis / newVersions, maxStalenessMillis);
+    }
+
+    private void observe(long feedTimestamp, long fetchedAtMillis) {
+        if (feedTimestamp == lastFeedTimestamp) {
+            unchangedFetches++;
+            unchangedStreak++;
+            lastFetchUnchanged = true;
+            return;
+        }
+        if (feedTimestamp < lastFeedTimestamp) {
+            // the upstream restarted or rolled back: what was learned from its old clock no longer applies
+            lastFeedTimestamp = 0;
+            periodMillis = 0;
+            lagKnown = false;
+        }
+        newVersions++;
+        long staleness = fetchedAtMillis - feedTimestamp * 1000;
+        lastStalenessMillis = staleness;
+        maxStalenessMillis = Math.max(maxStalenessMillis, staleness);
+        stalenessSumMillis += staleness;
+        if (adaptive) {
+            learn(feedTimestamp, staleness);
+        }
+        lastFeedTimestamp = feedTimestamp;
+        lastFetchUnchanged = false;
+        unchangedStreak = 0;
+    }
+
+    private void learn(long feedTimestamp, long staleness) {
+        if (lastFeedTimestamp > 0) {
+            double delta = (feedTimestamp - lastFeedTimestamp) * 1000.0;
+            if (periodMillis == 0) {
+                periodMillis = delta;
+            } else {
+                if (!lastFetchUnchanged && delta > 1.5 * periodMillis) {
+                    // fetched fresh twice in a row: versions in between may have been missed
+                    delta /= Math.round(delta / periodMillis);
+                }
+                periodMillis += PERIOD_ALPHA * (delta - periodMillis);
+            }
+        }
+        if (lastFetchUnchanged || !lagKnown) {
+            lagMillis = staleness;
+            lagKnown = true;
+        } else {
+            lagMillis -= LAG_STEP_MILLIS;
+        }
+        if (periodMillis > 0) {
+            lagMillis = Math.max(lagMillis, -Math.round(periodMillis));
+        }
+    }
+
+    private long adaptiveDelay(long nowMillis) {
+        if (periodMillis == 0) {
+            return Math.min(intervalMillis, minIntervalMillis << Math.min(unchangedStreak, MAX_BACKOFF_SHIFT));
+        }
+        long expected = lastFeedTimestamp * 1000 + Math.round(periodMillis) + lagMillis;
+        if (unchangedStreak > 0 && nowMillis >= expected) {
+            return Math.min(Math.max(minIntervalMillis, Math.round(periodMillis)),
+                    minIntervalMillis << Math.min(unchangedStreak - 1, MAX_BACKOFF_SHIFT));
+        }
+        return expected - nowMillis;
+    }
+
+    private static long random(long bound) {
+        return bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+}
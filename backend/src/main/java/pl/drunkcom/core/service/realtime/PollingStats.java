@@ -0,0 +1,37 @@
+package pl.drunkcom.core.service.realtime;
+
+/**
+ * Counters and estimates of the realtime feed polling cadence since startup.
+ *
+ * @param adaptive whether fetches follow the learned publishing period
+ * @param fetches cycles run, failed ones included
+ * @param newVersions fetches that found a feed version not seen before
+ * @param unchangedFetches fetches that found the version already ingested
+ * @param errors cycles that failed
+ * @param fetchesPerVersion fetches per new version, 1 being ideal
+ * @param estimatedPeriodMillis learned publishing period of the upstream, null until known
+ * @param availabilityLagMillis learned delay between a version's header timestamp and it becoming fetchable, null until known
+ * @param lastDelayMillis delay scheduled after the latest fetch
+ * @param lastStalenessMillis age of the latest new version when it was fetched
+ * @param meanStalenessMillis mean age of new versions when they were fetched
+ * @param maxStalenessMillis maximum age of a new version when it was fetched
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record PollingStats(
+    boolean adaptive,
+    long fetches,
+    long newVersions,
+    long unchangedFetches,
+    long errors,
+    double fetchesPerVersion,
+    Long estimatedPeriodMillis,
+    Long availabilityLagMillis,
+    long lastDelayMillis,
+    long lastStalenessMillis,
+    double meanStalenessMillis,
+    long maxStalenessMillis
+) {
+}
@@ -0,0 +1,18 @@
+package pl.drunkcom.core.service.realtime;
+
+/**
+ * Snapshot listener that only derives analytics: statistics, predictions and history that requests
+ * may see a few moments late.
+ *
+ * <p>Unlike other listeners, these are not run while a snapshot is published but handed off to the
+ * {@code analytics} stage of the ingestion pipeline, which runs them on its own thread in
+ * {@link org.springframework.core.annotation.Order} order, one snapshot after the other. While they run,
+ * {@link MapMatchingService} answers with the matches of the snapshot being processed, even if newer
+ * snapshots have been published since.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public interface RealtimeAnalyticsListener extends RealtimeSnapshotListener {
+}
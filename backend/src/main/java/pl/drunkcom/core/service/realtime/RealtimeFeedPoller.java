@@ -0,0 +1,79 @@
+package pl.drunkcom.core.service.realtime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pl.drunkcom.core.service.pipeline.FeedPipeline;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshes the realtime feed in the background by running the {@link FeedPipeline}, which publishes
+ * the result as a new {@link RealtimeSnapshot}.
+ *
+ * <p>Runs on its own thread, starting once the application is ready, and so after the warm restart
+ * state has been read back. After every cycle the {@link PollingCadence} decides when to fetch next,
+ * from the publishing period it has learned from the feed's header timestamps and from recent failures.
+ * A fetch of an unchanged feed ends the cycle after decoding its header, so rechecks cost little more
+ * than the download.
+ *
+ * <p>Can be disabled with {@code realtime.polling.enabled=false}, e.g. for tests.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+@DependsOn("warmRestartService")
+@ConditionalOnProperty(prefix = "realtime.polling", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RealtimeFeedPoller {
+
+    private static final Logger log = LoggerFactory.getLogger(RealtimeFeedPoller.class);
+
+    private final FeedPipeline pipeline;
+    private final PollingCadence cadence;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "realtime-poller");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RealtimeFeedPoller(FeedPipeline pipeline, PollingCadence cadence) {
+        this.pipeline = pipeline;
+        this.cadence = cadence;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler.execute(this::poll);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    void poll() {
+        long started = System.currentTimeMillis();
+        boolean succeeded = false;
+        try {
+            succeeded = pipeline.runCycle().isPresent();
+        } catch (RuntimeException e) {
+            log.error("Realtime feed refresh failed", e);
+        }
+        long delay = cadence.completed(succeeded, succeeded ? pipeline.getLastFeedTimestamp() : 0, started,
+                System.currentTimeMillis());
+        log.debug("Next realtime feed refresh in {} ms", delay);
+        if (!scheduler.isShutdown()) {
+            scheduler.schedule(this::poll, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+}
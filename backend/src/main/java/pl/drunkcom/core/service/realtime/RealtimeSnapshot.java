@@ -0,0 +1,123 @@
+package pl.drunkcom.core.service.realtime;
+
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.geo.DistanceKernel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable view of the whole fleet as published after one realtime feed refresh.
+ *
+ * <p>Snapshots are replaced atomically, so readers always see a consistent set of vehicles
+ * and never block the poller. Vehicle coordinates are also kept as parallel {@code float} arrays
+ * so that radius queries can scan the whole fleet with {@link DistanceKernel}, next to the speed and
+ * heading estimated by {@link VehicleMotionEstimator}.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public final class RealtimeSnapshot {
+
+    private final long sequence;
+    private final long publishedAtMillis;
+    private final List<VehicleCurrentState> vehicles;
+    private final float[] latitudes;
+    private final float[] longitudes;
+    private final float[] speeds;
+    private final float[] headings;
+
+    /**
+     * Creates a snapshot without motion estimates; speed and heading are those reported by the feed.
+     */
+    public RealtimeSnapshot(long sequence, long publishedAtMillis, List<VehicleCurrentState> vehicles) {
+        this(sequence, publishedAtMillis, vehicles, reported(vehicles, false), reported(vehicles, true));
+    }
+
+    /**
+     * Creates a snapshot taking ownership of the given speed and heading arrays, index-aligned with
+     * {@code vehicles}.
+     */
+    public RealtimeSnapshot(long sequence, long publishedAtMillis, List<VehicleCurrentState> vehicles,
+                            float[] speeds, float[] headings) {
+        this.sequence = sequence;
+        this.publishedAtMillis = publishedAtMillis;
+        this.vehicles = List.copyOf(vehicles);
+        this.latitudes = new float[this.vehicles.size()];
+        this.longitudes = new float[this.vehicles.size()];
+        for (int i = 0; i < latitudes.length; i++) {
+            latitudes[i] = this.vehicles.get(i).latitude();
+            longitudes[i] = this.vehicles.get(i).longitude();
+        }
+        this.speeds = speeds;
+        this.headings = headings;
+    }
+
+    /**
+     * Monotonically increasing number of the snapshot, starting at 1.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Wall-clock time at which the snapshot was published.
+     */
+    public long getPublishedAtMillis() {
+        return publishedAtMillis;
+    }
+
+    public List<VehicleCurrentState> getVehicles() {
+        return vehicles;
+    }
+
+    public int size() {
+        return vehicles.size();
+    }
+
+    /**
+     * Speed of the vehicle at the given index.
+     *
+     * @return meters per second, or {@code NaN} if unknown
+     */
+    public float speedAt(int index) {
+        return speeds[index];
+    }
+
+    /**
+     * Heading of the vehicle at the given index.
+     *
+     * @return degrees clockwise from north, or {@code NaN} if unknown
+     */
+    public float headingAt(int index) {
+        return headings[index];
+    }
+
+    /**
+     * Returns the vehicles within a radius of a coordinate, in snapshot order.
+     *
+     * @param latitude query latitude
+     * @param longitude query longitude
+     * @param radiusMeters search radius
+     * @return vehicles whose Haversine distance from the point is at most {@code radiusMeters}
+     */
+    public List<VehicleCurrentState> withinRadius(double latitude, double longitude, double radiusMeters) {
+        int[] matches = new int[latitudes.length];
+        int count = DistanceKernel.withinRadius(latitudes, longitudes, latitudes.length,
+                latitude, longitude, radiusMeters, matches);
+        List<VehicleCurrentState> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(vehicles.get(matches[i]));
+        }
+        return result;
+    }
+
+    private static float[] reported(List<VehicleCurrentState> vehicles, boolean bearing) {
+        float[] values = new float[vehicles.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = bearing ? vehicles.get(i).feedBearing() : vehicles.get(i).feedSpeed();
+        }
+        return values;
+    }
+}
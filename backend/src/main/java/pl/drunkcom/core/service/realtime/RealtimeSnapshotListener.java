@@ -0,0 +1,34 @@
+package pl.drunkcom.core.service.realtime;
+
+/**
+ * Callback for components that derive state from each published {@link RealtimeSnapshot}.
+ *
+ * <p>Every Spring bean implementing this interface is invoked by the {@code publish} stage of the
+ * ingestion pipeline on the poller thread, in {@link org.springframework.core.annotation.Order} order,
+ * before the pipeline moves on. Implementations should be fast and must not block on I/O for long;
+ * listeners that only derive analytics implement {@link RealtimeAnalyticsListener} instead.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public interface RealtimeSnapshotListener {
+
+    /**
+     * Called after a new snapshot has become the current one.
+     *
+     * @param snapshot the newly published snapshot
+     */
+    void onSnapshot(RealtimeSnapshot snapshot);
+
+    /**
+     * Called once at startup when the snapshot persisted before a restart has become the current one.
+     * The snapshot is not a new observation: listeners that count or record observations should not
+     * count it again. By default it is handled like any other snapshot.
+     *
+     * @param snapshot the restored snapshot
+     */
+    default void onRestoredSnapshot(RealtimeSnapshot snapshot) {
+        onSnapshot(snapshot);
+    }
+}
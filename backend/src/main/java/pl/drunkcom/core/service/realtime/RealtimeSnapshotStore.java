@@ -0,0 +1,84 @@
+package pl.drunkcom.core.service.realtime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the most recent {@link RealtimeSnapshot}.
+ *
+ * <p>Snapshots built by the ingestion pipeline are handed to the {@link RealtimeSnapshotListener}
+ * beans by its {@code publish} and {@code analytics} stages. A snapshot restored at startup is handed
+ * to all of them here.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class RealtimeSnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(RealtimeSnapshotStore.class);
+
+    private final AtomicReference<RealtimeSnapshot> current = new AtomicReference<>();
+    private final ObjectProvider<RealtimeSnapshotListener> listeners;
+
+    public RealtimeSnapshotStore(ObjectProvider<RealtimeSnapshotListener> listeners) {
+        this.listeners = listeners;
+    }
+
+    /**
+     * Returns the latest published snapshot.
+     *
+     * @return the current snapshot, or empty if no feed refresh has succeeded yet
+     */
+    public Optional<RealtimeSnapshot> current() {
+        return Optional.ofNullable(current.get());
+    }
+
+    /**
+     * Sequence number the next published snapshot should carry.
+     */
+    public long nextSequence() {
+        RealtimeSnapshot previous = current.get();
+        return previous == null ? 1 : previous.getSequence() + 1;
+    }
+
+    /**
+     * Makes a snapshot built by the ingestion pipeline current. Listeners are notified by the pipeline.
+     *
+     * @param snapshot snapshot of the latest feed refresh
+     * @return the published snapshot
+     */
+    public RealtimeSnapshot publish(RealtimeSnapshot snapshot) {
+        current.set(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Makes a snapshot persisted before a restart current, unless a feed refresh has already published
+     * one, and hands it to {@link RealtimeSnapshotListener#onRestoredSnapshot} of every listener.
+     * A failing listener is logged and does not prevent the others from running.
+     *
+     * @param snapshot the persisted snapshot
+     * @return false if a newer snapshot was already current
+     */
+    public boolean restore(RealtimeSnapshot snapshot) {
+        if (!current.compareAndSet(null, snapshot)) {
+            return false;
+        }
+        listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onRestoredSnapshot(snapshot);
+            } catch (RuntimeException e) {
+                log.error("Snapshot listener {} failed for snapshot {}",
+                        listener.getClass().getSimpleName(), snapshot.getSequence(), e);
+            }
+        });
+        return true;
+    }
+}
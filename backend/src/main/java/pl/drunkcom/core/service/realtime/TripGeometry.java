@@ -0,0 +1,24 @@
+package pl.drunkcom.core.service.realtime;
+
+import pl.drunkcom.core.service.geo.ShapeGeometry;
+import pl.drunkcom.core.service.geo.TripStopPattern;
+
+/**
+ * Static geometry needed to follow a trip: its shape and its stops placed along that shape.
+ *
+ * @param tripId GTFS trip identifier
+ * @param shapeId GTFS shape identifier
+ * @param shape ordered shape geometry
+ * @param stops stops of the trip along the shape, or {@code null} if the trip has no stop times
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record TripGeometry(
+    String tripId,
+    String shapeId,
+    ShapeGeometry shape,
+    TripStopPattern stops
+) {
+}
@@ -0,0 +1,35 @@
+package pl.drunkcom.core.service.realtime;
+
+import java.util.List;
+
+/**
+ * Outcome of the latest validation cycle.
+ *
+ * @param cycle number of the cycle since startup
+ * @param received vehicles in the feed
+ * @param accepted vehicles passed on to the snapshot
+ * @param invalid reports dropped as invalid
+ * @param teleports reports dropped as implausible jumps
+ * @param ghosts reports dropped as not refreshed
+ * @param frozen reports flagged as frozen
+ * @param trackedVehicles vehicles whose last-seen state is kept
+ * @param droppedTotal reports dropped since startup
+ * @param issues every flagged or dropped report of the cycle
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record ValidationStats(
+    long cycle,
+    int received,
+    int accepted,
+    int invalid,
+    int teleports,
+    int ghosts,
+    int frozen,
+    int trackedVehicles,
+    long droppedTotal,
+    List<VehicleIssue> issues
+) {
+}
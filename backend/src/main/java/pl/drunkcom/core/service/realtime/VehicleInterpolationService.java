@@ -0,0 +1,150 @@
+package pl.drunkcom.core.service.realtime;
+
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.service.geo.GeoMath;
+import pl.drunkcom.core.service.geo.ShapeGeometry;
+import pl.drunkcom.core.service.geo.ShapeGeometryService;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Dead-reckoning interpolator that predicts where each vehicle is at an arbitrary moment
+ * between two feed refreshes.
+ *
+ * <p>The along-shape speed is derived from the last two observations. A delay that grows
+ * between the observations means the vehicle lost time (dwelling at a stop, stuck in traffic),
+ * so the speed is scaled down by the share of the interval that was lost. The position is then
+ * advanced along the trip's {@link ShapeGeometry}, falling back to straight-line extrapolation
+ * when the vehicle cannot be placed on its shape.
+ *
+ * <p>Without a usable previous observation, such as right after a vehicle appeared, the speed and
+ * heading estimated for the snapshot by {@link VehicleMotionEstimator} are used instead.
+ *
+ * <p>Predictions never run further than {@link #MAX_HORIZON_SECONDS} past the last observation,
+ * so a vehicle that stops reporting freezes instead of drifting away.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class VehicleInterpolationService {
+
+    /** Maximum time a position is extrapolated past the last observation. */
+    static final double MAX_HORIZON_SECONDS = 45;
+
+    /** Observations further apart than this are too old to estimate a speed from. */
+    private static final double MAX_OBSERVATION_GAP_SECONDS = 120;
+
+    /** Upper bound on plausible urban transit speed (90 km/h). */
+    private static final double MAX_SPEED_METERS_PER_SECOND = 25;
+
+    /** Reports further away from the shape are treated as off-route (detours, depots). */
+    private static final double MAX_SHAPE_OFFSET_METERS = 60;
+
+    private final VehicleTrackRegistry trackRegistry;
+    private final ShapeGeometryService shapeGeometryService;
+
+    public VehicleInterpolationService(VehicleTrackRegistry trackRegistry, ShapeGeometryService shapeGeometryService) {
+        this.trackRegistry = trackRegistry;
+        this.shapeGeometryService = shapeGeometryService;
+    }
+
+    /**
+     * Predicts the positions of all tracked vehicles.
+     *
+     * @param atMillis moment to predict for (epoch milliseconds)
+     * @return predicted positions ordered by vehicle ID
+     */
+    public List<InterpolatedVehiclePosition> interpolateAll(long atMillis) {
+        return trackRegistry.tracks().stream()
+                .map(track -> interpolate(track, atMillis))
+                .sorted(Comparator.comparing(InterpolatedVehiclePosition::vehicleId))
+                .toList();
+    }
+
+    /**
+     * Predicts the position of a single vehicle.
+     *
+     * @param vehicleId vehicle identifier
+     * @param atMillis moment to predict for (epoch milliseconds)
+     * @return predicted position, or empty if the vehicle is not tracked
+     */
+    public Optional<InterpolatedVehiclePosition> interpolate(String vehicleId, long atMillis) {
+        return trackRegistry.find(vehicleId).map(track -> interpolate(track, atMillis));
+    }
+
+    InterpolatedVehiclePosition interpolate(VehicleTrack track, long atMillis) {
+        VehicleTrack.Observation latest = track.latest();
+        VehicleTrack.Observation previous = track.previous();
+        double elapsed = Math.min(Math.max(0, atMillis / 1000.0 - latest.timestamp()), MAX_HORIZON_SECONDS);
+        double interval = previous == null ? 0 : latest.timestamp() - previous.timestamp();
+
+        if (previous == null || interval <= 0 || interval > MAX_OBSERVATION_GAP_SECONDS) {
+            return fromEstimatedMotion(track, latest, elapsed, atMillis);
+        }
+
+        // Share of the interval the vehicle actually spent moving according to the delay trend
+        double lostSeconds = latest.delay() - previous.delay();
+        double movingShare = Math.max(0, Math.min(1, 1 - lostSeconds / interval));
+
+        Optional<ShapeGeometry> geometry = shapeGeometryService.find(track.shapeId());
+        if (geometry.isPresent() && isUsableOnShape(previous) && isUsableOnShape(latest)) {
+            double speed = (latest.distanceAlongShape() - previous.distanceAlongShape()) / interval;
+            speed = Math.max(0, Math.min(speed, MAX_SPEED_METERS_PER_SECOND)) * movingShare;
+            double[] point = geometry.get().pointAt(latest.distanceAlongShape() + speed * elapsed);
+            return result(track, point[0], point[1], speed, atMillis, "SHAPE");
+        }
+
+        double distance = GeoMath.haversineMeters(previous.latitude(), previous.longitude(),
+                latest.latitude(), latest.longitude());
+        double speed = Math.min(distance / interval, MAX_SPEED_METERS_PER_SECOND) * movingShare;
+        double scale = distance == 0 ? 0 : speed * elapsed / distance;
+        double latitude = latest.latitude() + (latest.latitude() - previous.latitude()) * scale;
+        double longitude = latest.longitude() + (latest.longitude() - previous.longitude()) * scale;
+        return result(track, latitude, longitude, speed, atMillis, "LINEAR");
+    }
+
+    private InterpolatedVehiclePosition fromEstimatedMotion(VehicleTrack track, VehicleTrack.Observation latest,
+                                                            double elapsed, long atMillis) {
+        if (!(latest.speed() > 0)) {
+            return result(track, latest.latitude(), latest.longitude(), 0, atMillis, "STATIC");
+        }
+        double speed = Math.min(latest.speed(), MAX_SPEED_METERS_PER_SECOND);
+        Optional<ShapeGeometry> geometry = shapeGeometryService.find(track.shapeId());
+        if (geometry.isPresent() && isUsableOnShape(latest)) {
+            double[] point = geometry.get().pointAt(latest.distanceAlongShape() + speed * elapsed);
+            return result(track, point[0], point[1], speed, atMillis, "SHAPE");
+        }
+        if (Double.isNaN(latest.heading())) {
+            return result(track, latest.latitude(), latest.longitude(), 0, atMillis, "STATIC");
+        }
+        double heading = Math.toRadians(latest.heading());
+        double latitude = latest.latitude() + speed * elapsed * Math.cos(heading) / GeoMath.metersPerDegreeLat();
+        double longitude = latest.longitude()
+                + speed * elapsed * Math.sin(heading) / GeoMath.metersPerDegreeLon(latest.latitude());
+        return result(track, latitude, longitude, speed, atMillis, "LINEAR");
+    }
+
+    private static boolean isUsableOnShape(VehicleTrack.Observation observation) {
+        return observation.isOnShape() && observation.offsetFromShape() <= MAX_SHAPE_OFFSET_METERS;
+    }
+
+    private static InterpolatedVehiclePosition result(VehicleTrack track, double latitude, double longitude,
+                                                      double speed, long atMillis, String method) {
+        return new InterpolatedVehiclePosition(
+                track.vehicleId(),
+                track.tripId(),
+                track.routeId(),
+                latitude,
+                longitude,
+                track.latest().delay(),
+                speed,
+                track.latest().timestamp() * 1000,
+                atMillis,
+                method
+        );
+    }
+}
@@ -0,0 +1,17 @@
+package pl.drunkcom.core.service.realtime;
+
+/**
+ * A vehicle report flagged or dropped by validation.
+ *
+ * @param vehicleId vehicle identifier
+ * @param tripId trip the vehicle reported, may be null
+ * @param type what is wrong with the report
+ * @param dropped whether the report was removed from the snapshot
+ * @param timestamp feed timestamp of the report, epoch seconds
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record VehicleIssue(String vehicleId, String tripId, VehicleIssueType type, boolean dropped, long timestamp) {
+}
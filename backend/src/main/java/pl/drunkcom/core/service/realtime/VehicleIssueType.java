@@ -0,0 +1,19 @@
+package pl.drunkcom.core.service.realtime;
+
+/**
+ * Kind of implausible vehicle report found by {@link VehicleStateValidator}.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public enum VehicleIssueType {
+    /** Missing vehicle id or coordinates outside the valid range or at 0,0; dropped. */
+    INVALID,
+    /** Jump implying a speed above the configured maximum; dropped unless confirmed by the next report. */
+    TELEPORT,
+    /** Still listed although its report has not been refreshed for several cycles; dropped. */
+    GHOST,
+    /** Reporting regularly from the same position for a long time; flagged, dropped only if configured. */
+    FROZEN
+}
@@ -0,0 +1,189 @@
+package pl.drunkcom.core.service.realtime;
+
+import org.springframework.stereotype.Component;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.geo.GeoMath;
+import pl.drunkcom.core.service.warmstart.WarmState;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Estimates the speed and heading of every vehicle from its successive positions.
+ *
+ * <p>Per vehicle an anchor position is kept, the last one from which it moved at least
+ * {@link #MIN_MOVE_METERS}. Each report with a newer feed timestamp yields the speed as the distance
+ * from the anchor over the time since it; the heading is only taken once the vehicle moved beyond GPS
+ * noise, so a standing vehicle keeps pointing where it was going. The anchor is then moved to the
+ * report, or after {@link #MAX_WINDOW_SECONDS} regardless, so a vehicle starting after a long stop is
+ * not averaged with it. Where no estimate exists yet, the bearing and speed of the feed itself are used
+ * when present.
+ *
+ * <p>State lives in a {@link VehicleSlotTable} of primitive columns, so memory is constant per vehicle
+ * and a cycle allocates nothing once the fleet is known. The anchors are kept across restarts. Called from
+ * the pipeline thread only.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class VehicleMotionEstimator implements WarmState {
+
+    /** Moves shorter than this are GPS noise and do not set a heading. */
+    static final double MIN_MOVE_METERS = 15;
+    static final long MAX_WINDOW_SECONDS = 60;
+    private static final int EVICT_AFTER_CYCLES = 40;
+
+    private MotionTable table = new MotionTable(2048);
+    private long cycle;
+
+    /**
+     * Estimates speed and heading of one feed refresh.
+     *
+     * @param vehicles vehicle states in snapshot order
+     * @param nowMillis time of the refresh, used for reports without a timestamp
+     * @param speeds receives the speed of each vehicle in m/s, {@code NaN} if unknown
+     * @param headings receives the heading of each vehicle in degrees clockwise from north, {@code NaN} if unknown
+     */
+    public synchronized void estimate(List<VehicleCurrentState> vehicles, long nowMillis,
+                                      float[] speeds, float[] headings) {
+        cycle++;
+        long now = nowMillis / 1000;
+        MotionTable t = table;
+        for (int i = 0; i < vehicles.size(); i++) {
+            VehicleCurrentState vehicle = vehicles.get(i);
+            speeds[i] = vehicle.feedSpeed();
+            headings[i] = vehicle.feedBearing();
+            if (vehicle.vehicleId() == null) {
+                continue;
+            }
+            long timestamp = vehicle.timestamp() > 0 ? vehicle.timestamp() : now;
+            long key = VehicleSlotTable.keyOf(vehicle.vehicleId());
+            int slot = t.find(key);
+            if (slot < 0) {
+                slot = t.insert(key);
+                t.latitudes[slot] = vehicle.latitude();
+                t.longitudes[slot] = vehicle.longitude();
+                t.anchoredAt[slot] = timestamp;
+                t.timestamps[slot] = timestamp;
+                t.speeds[slot] = Float.NaN;
+                t.headings[slot] = Float.NaN;
+            } else if (timestamp > t.timestamps[slot]) {
+                update(t, slot, vehicle, timestamp);
+            }
+            t.seenCycles[slot] = cycle;
+            if (!Float.isNaN(t.speeds[slot])) {
+                speeds[i] = t.speeds[slot];
+            }
+            if (!Float.isNaN(t.headings[slot])) {
+                headings[i] = t.headings[slot];
+            }
+        }
+        t.evictSeenBefore(cycle - EVICT_AFTER_CYCLES);
+    }
+
+    @Override
+    public String stateName() {
+        return "vehicle-motion";
+    }
+
+    @Override
+    public synchronized void writeState(DataOutput out) throws IOException {
+        table.writeEntries(out);
+    }
+
+    @Override
+    public synchronized void readState(DataInput in) throws IOException {
+        MotionTable restored = new MotionTable(2048);
+        restored.readEntries(in, cycle);
+        table = restored;
+    }
+
+    private static void update(MotionTable t, int slot, VehicleCurrentState vehicle, long timestamp) {
+        t.timestamps[slot] = timestamp;
+        double distance = GeoMath.haversineMeters(t.latitudes[slot], t.longitudes[slot],
+                vehicle.latitude(), vehicle.longitude());
+        long elapsed = timestamp - t.anchoredAt[slot];
+        t.speeds[slot] = (float) (distance / elapsed);
+        boolean moved = distance >= MIN_MOVE_METERS;
+        if (moved) {
+            t.headings[slot] = (float) GeoMath.bearingDegrees(t.latitudes[slot], t.longitudes[slot],
+                    vehicle.latitude(), vehicle.longitude());
+        }
+        if (moved || elapsed >= MAX_WINDOW_SECONDS) {
+            t.latitudes[slot] = vehicle.latitude();
+            t.longitudes[slot] = vehicle.longitude();
+            t.anchoredAt[slot] = timestamp;
+        }
+    }
+
+    private static final class MotionTable extends VehicleSlotTable {
+
+        /** Anchor position the speed is measured from. */
+        float[] latitudes;
+        float[] longitudes;
+        /** Feed timestamp of the anchor, epoch seconds. */
+        long[] anchoredAt;
+        /** Feed timestamp of the last report, epoch seconds. */
+        long[] timestamps;
+        float[] speeds;
+        float[] headings;
+
+        MotionTable(int expectedVehicles) {
+            super(expectedVehicles);
+        }
+
+        @Override
+        void resizeColumns(int capacity, int[] moves) {
+            latitudes = remap(latitudes, capacity, moves);
+            longitudes = remap(longitudes, capacity, moves);
+            anchoredAt = remap(anchoredAt, capacity, moves);
+            timestamps = remap(timestamps, capacity, moves);
+            speeds = remap(speeds, capacity, moves);
+            headings = remap(headings, capacity, moves);
+        }
+
+        @Override
+        void moveColumns(int from, int to) {
+            latitudes[to] = latitudes[from];
+            longitudes[to] = longitudes[from];
+            anchoredAt[to] = anchoredAt[from];
+            timestamps[to] = timestamps[from];
+            speeds[to] = speeds[from];
+            headings[to] = headings[from];
+        }
+
+        @Override
+        void clearColumns(int slot) {
+            latitudes[slot] = 0;
+            longitudes[slot] = 0;
+            anchoredAt[slot] = 0;
+            timestamps[slot] = 0;
+            speeds[slot] = Float.NaN;
+            headings[slot] = Float.NaN;
+        }
+
+        @Override
+        void writeColumns(int slot, DataOutput out) throws IOException {
+            out.writeFloat(latitudes[slot]);
+            out.writeFloat(longitudes[slot]);
+            out.writeLong(anchoredAt[slot]);
+            out.writeLong(timestamps[slot]);
+            out.writeFloat(speeds[slot]);
+            out.writeFloat(headings[slot]);
+        }
+
+        @Override
+        void readColumns(int slot, DataInput in) throws IOException {
+            latitudes[slot] = in.readFloat();
+            longitudes[slot] = in.readFloat();
+            anchoredAt[slot] = in.readLong();
+            timestamps[slot] = in.readLong();
+            speeds[slot] = in.readFloat();
+            headings[slot] = in.readFloat();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package pl.drunkcom.core.service.realtime;
+
+/**
+ * Position of a vehicle snapped onto its trip's shape, as produced by {@link MapMatchingService}.
+ *
+ * <p>The stop segment is the pair of consecutive scheduled stops the vehicle is currently between.
+ * Before the first stop the previous stop is {@code null}, after the last stop the next stop is.
+ *
+ * @param vehicleId Unique identifier for the vehicle
+ * @param tripId Identifier for the trip
+ * @param routeId Identifier for the route
+ * @param shapeId Identifier of the trip's shape
+ * @param timestamp Position measurement time in epoch seconds
+ * @param distanceAlongMeters Distance travelled from the start of the shape
+ * @param shapeLengthMeters Total length of the shape
+ * @param offsetMeters Distance between the reported position and the shape
+ * @param segmentIndex Index of the matched shape segment
+ * @param previousStopId Last stop passed (or reached)
+ * @param previousStopSequence Stop sequence of the last stop passed
+ * @param nextStopId Next stop ahead of the vehicle
+ * @param nextStopSequence Stop sequence of the next stop
+ * @param distanceToNextStopMeters Remaining distance along the shape to the next stop
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record VehicleProgress(
+    String vehicleId,
+    String tripId,
+    String routeId,
+    String shapeId,
+    long timestamp,
+    double distanceAlongMeters,
+    double shapeLengthMeters,
+    double offsetMeters,
+    int segmentIndex,
+    String previousStopId,
+    Integer previousStopSequence,
+    String nextStopId,
+    Integer nextStopSequence,
+    Double distanceToNextStopMeters
+) {
+    /**
+     * Share of the shape already travelled, between 0 and 1.
+     */
+    public double getFractionTravelled() {
+        return shapeLengthMeters <= 0 ? 0 : Math.min(1, distanceAlongMeters / shapeLengthMeters);
+    }
+}
@@ -0,0 +1,248 @@
+package pl.drunkcom.core.service.realtime;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Per-vehicle state kept in an open-addressing hash table keyed by a 64-bit hash of the vehicle id.
+ *
+ * <p>Entries live in parallel primitive arrays indexed by slot, so looking up and updating a vehicle
+ * allocates nothing. This class manages the keys and the cycle in which each vehicle was last seen;
+ * subclasses add their own columns and keep them in step through the column hooks. Collisions are
+ * resolved by linear probing and removals shift the following run back, so no tombstones accumulate.
+ * Two distinct ids sharing a 64-bit hash would share an entry; with a few thousand vehicles that is
+ * practically impossible.
+ *
+ * <p>Fields are package-private and accessed by slot. Entries can be written to and read back from a
+ * binary stream, as used for warm restarts. Not thread-safe.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+abstract class VehicleSlotTable {
+
+    private static final long EMPTY = 0;
+
+    long[] keys;
+    /** Cycle in which the vehicle was last present in the feed. */
+    long[] seenCycles;
+
+    private int size;
+    private int mask;
+
+    /**
+     * Allocates the table. Calls {@link #resizeColumns} before the subclass constructor runs, so
+     * subclasses must not initialize their column fields in their declarations.
+     */
+    VehicleSlotTable(int expectedVehicles) {
+        int capacity = Integer.highestOneBit(Math.max(8, expectedVehicles * 2 - 1)) << 1;
+        keys = new long[capacity];
+        seenCycles = new long[capacity];
+        mask = capacity - 1;
+        resizeColumns(capacity, null);
+    }
+
+    /**
+     * Hashes a vehicle id to a non-empty key.
+     */
+    static long keyOf(String vehicleId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < vehicleId.length(); i++) {
+            hash ^= vehicleId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash == EMPTY ? 1 : hash;
+    }
+
+    /**
+     * @return the slot of the key, or a negative value if absent
+     */
+    final int find(long key) {
+        for (int slot = home(key); ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            if (keys[slot] == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Adds a key with all its columns zeroed.
+     *
+     * @return the slot of the new entry
+     */
+    final int insert(long key) {
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int slot = home(key);
+        while (keys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        seenCycles[slot] = 0;
+        clearColumns(slot);
+        size++;
+        return slot;
+    }
+
+    /**
+     * Removes every entry not seen since the given cycle.
+     *
+     * @return the number of entries removed
+     */
+    final int evictSeenBefore(long cycle) {
+        int removed = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            // removal may shift a later entry into this slot, so it is checked again
+            while (keys[slot] != EMPTY && seenCycles[slot] < cycle) {
+                removeAt(slot);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    final int size() {
+        return size;
+    }
+
+    final int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Writes the number of entries followed by the key and columns of each.
+     */
+    final void writeEntries(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                out.writeLong(keys[slot]);
+                writeColumns(slot, out);
+            }
+        }
+    }
+
+    /**
+     * Adds the entries written by {@link #writeEntries}, replacing entries with the same key.
+     *
+     * @param cycle cycle in which the read entries count as last seen
+     */
+    final void readEntries(DataInput in, long cycle) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            long key = in.readLong();
+            if (key == EMPTY) {
+                throw new IOException("Empty key in vehicle table entry " + i);
+            }
+            int slot = find(key);
+            if (slot < 0) {
+                slot = insert(key);
+            }
+            seenCycles[slot] = cycle;
+            readColumns(slot, in);
+        }
+    }
+
+    /**
+     * Replaces the columns by arrays of a new capacity.
+     *
+     * @param moves new slot of the entry in each old slot, negative for empty slots; null when the
+     *              columns are allocated for the first time
+     */
+    abstract void resizeColumns(int capacity, int[] moves);
+
+    /**
+     * Copies the columns of one slot to another.
+     */
+    abstract void moveColumns(int from, int to);
+
+    /**
+     * Resets the columns of a slot reused by a new entry.
+     */
+    abstract void clearColumns(int slot);
+
+    abstract void writeColumns(int slot, DataOutput out) throws IOException;
+
+    abstract void readColumns(int slot, DataInput in) throws IOException;
+
+    static float[] remap(float[] column, int capacity, int[] moves) {
+        float[] remapped = new float[capacity];
+        for (int from = 0; moves != null && from < moves.length; from++) {
+            if (moves[from] >= 0) {
+                remapped[moves[from]] = column[from];
+            }
+        }
+        return remapped;
+    }
+
+    static long[] remap(long[] column, int capacity, int[] moves) {
+        long[] remapped = new long[capacity];
+        for (int from = 0; moves != null && from < moves.length; from++) {
+            if (moves[from] >= 0) {
+                remapped[moves[from]] = column[from];
+            }
+        }
+        return remapped;
+    }
+
+    static int[] remap(int[] column, int capacity, int[] moves) {
+        int[] remapped = new int[capacity];
+        for (int from = 0; moves != null && from < moves.length; from++) {
+            if (moves[from] >= 0) {
+                remapped[moves[from]] = column[from];
+            }
+        }
+        return remapped;
+    }
+
+    private void removeAt(int slot) {
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = home(keys[next]);
+            // the entry may move into the hole unless its home lies cyclically in (hole, next]
+            boolean stays = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!stays) {
+                keys[hole] = keys[next];
+                seenCycles[hole] = seenCycles[next];
+                moveColumns(next, hole);
+                hole = next;
+            }
+        }
+        keys[hole] = EMPTY;
+        size--;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] moves = new int[oldKeys.length];
+        keys = new long[capacity];
+        mask = capacity - 1;
+        for (int from = 0; from < oldKeys.length; from++) {
+            if (oldKeys[from] == EMPTY) {
+                moves[from] = -1;
+                continue;
+            }
+            int to = home(oldKeys[from]);
+            while (keys[to] != EMPTY) {
+                to = (to + 1) & mask;
+            }
+            keys[to] = oldKeys[from];
+            moves[from] = to;
+        }
+        seenCycles = remap(seenCycles, capacity, moves);
+        resizeColumns(capacity, moves);
+    }
+
+    private int home(long key) {
+        long mixed = key ^ (key >>> 33);
+        mixed *= 0xff51afd7ed558ccdL;
+        mixed ^= mixed >>> 33;
+        return (int) mixed & mask;
+    }
+}
@@ -0,0 +1,67 @@
+package pl.drunkcom.core.service.realtime;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.geo.PointGridIndex;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Spatial index over the vehicles of the current snapshot, rebuilt once per snapshot so viewport
+ * and tile queries never scan the whole feed.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+@Order(60)
+public class VehicleSpatialIndex implements RealtimeSnapshotListener {
+
+    private volatile IndexedSnapshot current;
+
+    @Override
+    public void onSnapshot(RealtimeSnapshot snapshot) {
+        current = IndexedSnapshot.of(snapshot);
+    }
+
+    /**
+     * Returns the index of the latest snapshot.
+     *
+     * @return the indexed snapshot, or null before the first snapshot was published
+     */
+    public IndexedSnapshot current() {
+        return current;
+    }
+
+    /**
+     * A snapshot together with a grid index over its vehicle positions.
+     *
+     * @param snapshot the indexed snapshot
+     * @param grid grid over the snapshot's vehicles, by position in {@link RealtimeSnapshot#getVehicles()}
+     */
+    public record IndexedSnapshot(RealtimeSnapshot snapshot, PointGridIndex grid) {
+
+        static IndexedSnapshot of(RealtimeSnapshot snapshot) {
+            List<VehicleCurrentState> vehicles = snapshot.getVehicles();
+            double[] latitudes = new double[vehicles.size()];
+            double[] longitudes = new double[vehicles.size()];
+            for (int i = 0; i < vehicles.size(); i++) {
+                latitudes[i] = vehicles.get(i).latitude();
+                longitudes[i] = vehicles.get(i).longitude();
+            }
+            return new IndexedSnapshot(snapshot, new PointGridIndex(latitudes, longitudes));
+        }
+
+        /**
+         * Visits the vehicles inside a bounding box, in a deterministic order.
+         */
+        public void forEachInBox(double minLat, double minLon, double maxLat, double maxLon,
+                                 Consumer<VehicleCurrentState> visitor) {
+            List<VehicleCurrentState> vehicles = snapshot.getVehicles();
+            grid.forEachInBox(minLat, minLon, maxLat, maxLon, i -> visitor.accept(vehicles.get(i)));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package pl.drunkcom.core.service.realtime;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Last accepted report of every vehicle in the feed, as checked by {@link VehicleStateValidator}.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+final class VehicleStateTable extends VehicleSlotTable {
+
+    float[] latitudes;
+    float[] longitudes;
+    /** Feed timestamp of the last accepted report, epoch seconds. */
+    long[] timestamps;
+    /** Feed timestamp at which the position last changed, epoch seconds. */
+    long[] movedAt;
+    /** Consecutive cycles in which the feed timestamp did not advance. */
+    int[] staleCycles;
+    /** Position of the last report rejected as an implausible jump, awaiting confirmation. */
+    float[] candidateLatitudes;
+    float[] candidateLongitudes;
+    /** Feed timestamp of the candidate, epoch seconds, or 0 if there is none. */
+    long[] candidateTimestamps;
+
+    VehicleStateTable(int expectedVehicles) {
+        super(expectedVehicles);
+    }
+
+    @Override
+    void resizeColumns(int capacity, int[] moves) {
+        latitudes = remap(latitudes, capacity, moves);
+        longitudes = remap(longitudes, capacity, moves);
+        timestamps = remap(timestamps, capacity, moves);
+        movedAt = remap(movedAt, capacity, moves);
+        staleCycles = remap(staleCycles, capacity, moves);
+        candidateLatitudes = remap(candidateLatitudes, capacity, moves);
+        candidateLongitudes = remap(candidateLongitudes, capacity, moves);
+        candidateTimestamps = remap(candidateTimestamps, capacity, moves);
+    }
+
+    @Override
+    void moveColumns(int from, int to) {
+        latitudes[to] = latitudes[from];
+        longitudes[to] = longitudes[from];
+        timestamps[to] = timestamps[from];
+        movedAt[to] = movedAt[from];
+        staleCycles[to] = staleCycles[from];
+        candidateLatitudes[to] = candidateLatitudes[from];
+        candidateLongitudes[to] = candidateLongitudes[from];
+        candidateTimestamps[to] = candidateTimestamps[from];
+    }
+
+    @Override
+    void clearColumns(int slot) {
+        latitudes[slot] = 0;
+        longitudes[slot] = 0;
+        timestamps[slot] = 0;
+        movedAt[slot] = 0;
+        staleCycles[slot] = 0;
+        candidateLatitudes[slot] = 0;
+        candidateLongitudes[slot] = 0;
+        candidateTimestamps[slot] = 0;
+    }
+
+    @Override
+    void writeColumns(int slot, DataOutput out) throws IOException {
+        out.writeFloat(latitudes[slot]);
+        out.writeFloat(longitudes[slot]);
+        out.writeLong(timestamps[slot]);
+        out.writeLong(movedAt[slot]);
+        out.writeInt(staleCycles[slot]);
+        out.writeFloat(candidateLatitudes[slot]);
+        out.writeFloat(candidateLongitudes[slot]);
+        out.writeLong(candidateTimestamps[slot]);
+    }
+
+    @Override
+    void readColumns(int slot, DataInput in) throws IOException {
+        latitudes[slot] = in.readFloat();
+        longitudes[slot] = in.readFloat();
+        timestamps[slot] = in.readLong();
+        movedAt[slot] = in.readLong();
+        staleCycles[slot] = in.readInt();
+        candidateLatitudes[slot] = in.readFloat();
+        candidateLongitudes[slot] = in.readFloat();
+        candidateTimestamps[slot] = in.readLong();
+    }
+}
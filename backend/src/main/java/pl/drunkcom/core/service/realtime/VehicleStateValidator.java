@@ -0,0 +1,223 @@
+package pl.drunkcom.core.service.realtime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.geo.GeoMath;
+import pl.drunkcom.core.service.pipeline.FeedCycle;
+import pl.drunkcom.core.service.pipeline.FeedStage;
+import pl.drunkcom.core.service.warmstart.WarmState;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Validation stage between the feed and the snapshot: drops or flags implausible vehicle reports before
+ * any listener indexes them.
+ *
+ * <p>Per vehicle the last accepted position and feed timestamp are kept in a {@link VehicleStateTable}.
+ * Each cycle a report is checked against that state:
+ * <ul>
+ *   <li>missing ids and coordinates out of range or at 0,0 are dropped as invalid;</li>
+ *   <li>a move implying more than {@code validation.max-speed-kmh} is dropped as a teleport and kept as a
+ *       candidate position; when the next report is a plausible move from the candidate, the vehicle is
+ *       taken to really be there, otherwise that report becomes the candidate in turn;</li>
+ *   <li>a vehicle whose feed timestamp has not advanced for {@code validation.ghost-cycles} cycles is
+ *       dropped as a ghost;</li>
+ *   <li>a vehicle reporting from the same spot for {@code validation.frozen-after-seconds} is flagged as
+ *       frozen, and dropped if {@code validation.drop-frozen} is set, since vehicles legitimately wait
+ *       at termini.</li>
+ * </ul>
+ * Vehicles absent from the feed for {@code validation.evict-after-cycles} cycles are forgotten.
+ *
+ * <p>Runs as the {@code validate} stage of the ingestion pipeline. The table is kept across restarts, so
+ * the first refresh after one is already checked against the reports before it.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+@Order(400)
+public class VehicleStateValidator implements FeedStage, WarmState {
+
+    private static final Logger log = LoggerFactory.getLogger(VehicleStateValidator.class);
+
+    /** Moves shorter than this are GPS noise, for both the speed and the frozen check. */
+    static final double JITTER_METERS = 30;
+
+    private final boolean enabled;
+    private final double maxSpeedMps;
+    private final int ghostCycles;
+    private final long frozenAfterSeconds;
+    private final boolean dropFrozen;
+    private final int evictAfterCycles;
+
+    private VehicleStateTable table = new VehicleStateTable(2048);
+    private long cycle;
+    private long droppedTotal;
+    private volatile ValidationStats lastStats = new ValidationStats(0, 0, 0, 0, 0, 0, 0, 0, 0, List.of());
+
+    public VehicleStateValidator(@Value("${validation.enabled:true}") boolean enabled,
+                                 @Value("${validation.max-speed-kmh:120}") double maxSpeedKmh,
+                                 @Value("${validation.ghost-cycles:8}") int ghostCycles,
+                                 @Value("${validation.frozen-after-seconds:900}") long frozenAfterSeconds,
+                                 @Value("${validation.drop-frozen:false}") boolean dropFrozen,
+                                 @Value("${validation.evict-after-cycles:40}") int evictAfterCycles) {
+        this.enabled = enabled;
+        this.maxSpeedMps = maxSpeedKmh / 3.6;
+        this.ghostCycles = ghostCycles;
+        this.frozenAfterSeconds = frozenAfterSeconds;
+        this.dropFrozen = dropFrozen;
+        this.evictAfterCycles = evictAfterCycles;
+    }
+
+    @Override
+    public String stageName() {
+        return "validate";
+    }
+
+    @Override
+    public void process(FeedCycle cycle) {
+        cycle.setVehicles(validate(cycle.getVehicles(), cycle.getStartedAtMillis()));
+    }
+
+    /**
+     * Validates one feed refresh.
+     *
+     * @param vehicles vehicle states as decoded from the feed
+     * @param nowMillis time of the refresh, used for reports without a timestamp
+     * @return the vehicles to publish, in feed order
+     */
+    public synchronized List<VehicleCurrentState> validate(List<VehicleCurrentState> vehicles, long nowMillis) {
+        if (!enabled) {
+            return vehicles;
+        }
+        cycle++;
+        long now = nowMillis / 1000;
+        List<VehicleCurrentState> accepted = new ArrayList<>(vehicles.size());
+        List<VehicleIssue> issues = new ArrayList<>();
+        int invalid = 0, teleports = 0, ghosts = 0, frozen = 0;
+
+        for (VehicleCurrentState vehicle : vehicles) {
+            long timestamp = vehicle.timestamp() > 0 ? vehicle.timestamp() : now;
+            VehicleIssueType issue = check(vehicle, timestamp);
+            if (issue == null) {
+                accepted.add(vehicle);
+                continue;
+            }
+            boolean dropped = issue != VehicleIssueType.FROZEN || dropFrozen;
+            switch (issue) {
+                case INVALID -> invalid++;
+                case TELEPORT -> teleports++;
+                case GHOST -> ghosts++;
+                case FROZEN -> frozen++;
+            }
+            if (!dropped) {
+                accepted.add(vehicle);
+            }
+            issues.add(new VehicleIssue(vehicle.vehicleId(), vehicle.tripId(), issue, dropped, timestamp));
+        }
+
+        int evicted = table.evictSeenBefore(cycle - evictAfterCycles);
+        droppedTotal += vehicles.size() - accepted.size();
+        lastStats = new ValidationStats(cycle, vehicles.size(), accepted.size(), invalid, teleports, ghosts, frozen,
+                table.size(), droppedTotal, List.copyOf(issues));
+        if (log.isDebugEnabled()) {
+            log.debug("Validated {} vehicles: {} invalid, {} teleports, {} ghosts, {} frozen, {} evicted",
+                    vehicles.size(), invalid, teleports, ghosts, frozen, evicted);
+        }
+        return accepted;
+    }
+
+    public ValidationStats getStats() {
+        return lastStats;
+    }
+
+    @Override
+    public String stateName() {
+        // renamed when the candidate columns were added, so tables saved in the old layout are skipped
+        return "vehicle-validation-v2";
+    }
+
+    @Override
+    public synchronized void writeState(DataOutput out) throws IOException {
+        table.writeEntries(out);
+    }
+
+    @Override
+    public synchronized void readState(DataInput in) throws IOException {
+        VehicleStateTable restored = new VehicleStateTable(2048);
+        restored.readEntries(in, cycle);
+        table = restored;
+    }
+
+    /**
+     * Checks one report against the vehicle's state and updates the state.
+     *
+     * @return the issue found, or null if the report is plausible
+     */
+    private VehicleIssueType check(VehicleCurrentState vehicle, long timestamp) {
+        float latitude = vehicle.latitude();
+        float longitude = vehicle.longitude();
+        if (vehicle.vehicleId() == null || vehicle.vehicleId().isBlank()
+                || !(latitude >= -90f && latitude <= 90f) || !(longitude >= -180f && longitude <= 180f)
+                || (latitude == 0f && longitude == 0f)) {
+            return VehicleIssueType.INVALID;
+        }
+        VehicleStateTable t = table;
+        long key = VehicleStateTable.keyOf(vehicle.vehicleId());
+        int slot = t.find(key);
+        if (slot < 0) {
+            slot = t.insert(key);
+            t.latitudes[slot] = latitude;
+            t.longitudes[slot] = longitude;
+            t.timestamps[slot] = timestamp;
+            t.movedAt[slot] = timestamp;
+            t.seenCycles[slot] = cycle;
+            return null;
+        }
+        t.seenCycles[slot] = cycle;
+
+        if (timestamp <= t.timestamps[slot]) {
+            return ++t.staleCycles[slot] >= ghostCycles ? VehicleIssueType.GHOST : null;
+        }
+        t.staleCycles[slot] = 0;
+
+        double distance = GeoMath.haversineMeters(t.latitudes[slot], t.longitudes[slot], latitude, longitude);
+        // the stored position only moves past the jitter threshold, so the time is taken from when it did
+        if (!plausible(distance, timestamp - t.movedAt[slot])) {
+            long candidateTimestamp = t.candidateTimestamps[slot];
+            boolean confirmed = candidateTimestamp > 0 && plausible(GeoMath.haversineMeters(
+                    t.candidateLatitudes[slot], t.candidateLongitudes[slot], latitude, longitude),
+                    timestamp - candidateTimestamp);
+            if (!confirmed) {
+                t.candidateLatitudes[slot] = latitude;
+                t.candidateLongitudes[slot] = longitude;
+                t.candidateTimestamps[slot] = timestamp;
+                return VehicleIssueType.TELEPORT;
+            }
+        }
+        t.candidateTimestamps[slot] = 0;
+        if (distance > JITTER_METERS) {
+            t.latitudes[slot] = latitude;
+            t.longitudes[slot] = longitude;
+            t.movedAt[slot] = timestamp;
+        }
+        t.timestamps[slot] = timestamp;
+        return timestamp - t.movedAt[slot] >= frozenAfterSeconds ? VehicleIssueType.FROZEN : null;
+    }
+
+    /**
+     * Whether a vehicle can have covered the distance in the elapsed time.
+     */
+    private boolean plausible(double distanceMeters, long elapsedSeconds) {
+        return distanceMeters <= JITTER_METERS || (elapsedSeconds > 0 && distanceMeters / elapsedSeconds <= maxSpeedMps);
+    }
+}
@@ -0,0 +1,52 @@
+package pl.drunkcom.core.service.realtime;
+
+/**
+ * The two most recent observations of a single vehicle, used for dead reckoning.
+ *
+ * @param vehicleId vehicle identifier
+ * @param tripId trip the vehicle is currently serving
+ * @param routeId route of the trip (may be empty)
+ * @param shapeId shape of the trip, or {@code null} if unknown
+ * @param previous the observation before {@code latest}, or {@code null} right after the vehicle appeared
+ * @param latest the most recent observation
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record VehicleTrack(
+    String vehicleId,
+    String tripId,
+    String routeId,
+    String shapeId,
+    Observation previous,
+    Observation latest
+) {
+
+    /**
+     * A single position report.
+     *
+     * @param timestamp measurement time in epoch seconds
+     * @param latitude GPS latitude
+     * @param longitude GPS longitude
+     * @param distanceAlongShape distance travelled along the trip's shape in meters, or {@code NaN} if unknown
+     * @param offsetFromShape distance between the report and the shape in meters, or {@code NaN} if unknown
+     * @param delay reported delay in seconds
+     * @param speed estimated speed in meters per second, or {@code NaN} if unknown
+     * @param heading estimated heading in degrees clockwise from north, or {@code NaN} if unknown
+     */
+    public record Observation(
+        long timestamp,
+        double latitude,
+        double longitude,
+        double distanceAlongShape,
+        double offsetFromShape,
+        int delay,
+        double speed,
+        double heading
+    ) {
+        public boolean isOnShape() {
+            return !Double.isNaN(distanceAlongShape);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package pl.drunkcom.core.service.realtime;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import pl.drunkcom.core.service.VehicleCurrentState;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the last two observations of every vehicle, together with their progress along the
+ * trip's shape as matched by {@link MapMatchingService}.
+ *
+ * <p>Matching happens once per snapshot, so request-time consumers such as
+ * {@link VehicleInterpolationService} only have to evaluate the shape at a distance.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+@Order(100)
+public class VehicleTrackRegistry implements RealtimeSnapshotListener {
+
+    /** Vehicles that have not reported for this long are forgotten. */
+    private static final long EVICT_AFTER_SECONDS = 10 * 60;
+
+    private final MapMatchingService mapMatchingService;
+    private final Map<String, VehicleTrack> tracks = new ConcurrentHashMap<>();
+
+    public VehicleTrackRegistry(MapMatchingService mapMatchingService) {
+        this.mapMatchingService = mapMatchingService;
+    }
+
+    @Override
+    public void onSnapshot(RealtimeSnapshot snapshot) {
+        long snapshotSeconds = snapshot.getPublishedAtMillis() / 1000;
+
+        List<VehicleCurrentState> vehicles = snapshot.getVehicles();
+        for (int i = 0; i < vehicles.size(); i++) {
+            VehicleCurrentState vehicle = vehicles.get(i);
+            long timestamp = vehicle.timestamp() > 0 ? vehicle.timestamp() : snapshotSeconds;
+            float speed = snapshot.speedAt(i);
+            float heading = snapshot.headingAt(i);
+            tracks.compute(vehicle.vehicleId(), (id, track) -> update(track, vehicle, timestamp, speed, heading));
+        }
+
+        tracks.values().removeIf(track -> snapshotSeconds - track.latest().timestamp() > EVICT_AFTER_SECONDS);
+    }
+
+    public Optional<VehicleTrack> find(String vehicleId) {
+        return Optional.ofNullable(tracks.get(vehicleId));
+    }
+
+    public Collection<VehicleTrack> tracks() {
+        return Collections.unmodifiableCollection(tracks.values());
+    }
+
+    private VehicleTrack update(VehicleTrack track, VehicleCurrentState vehicle, long timestamp,
+                                float speed, float heading) {
+        boolean sameTrip = track != null && track.tripId().equals(vehicle.tripId());
+        if (sameTrip && timestamp <= track.latest().timestamp()) {
+            // Position has not been refreshed upstream since the last snapshot
+            return track;
+        }
+
+        Optional<VehicleProgress> progress = mapMatchingService.find(vehicle.vehicleId())
+                .filter(matched -> matched.tripId().equals(vehicle.tripId()));
+        String shapeId = progress.map(VehicleProgress::shapeId).orElse(null);
+        double along = progress.map(VehicleProgress::distanceAlongMeters).orElse(Double.NaN);
+        double offset = progress.map(VehicleProgress::offsetMeters).orElse(Double.NaN);
+
+        VehicleTrack.Observation observation = new VehicleTrack.Observation(
+                timestamp, vehicle.latitude(), vehicle.longitude(), along, offset, vehicle.delay(), speed, heading);
+        return new VehicleTrack(vehicle.vehicleId(), vehicle.tripId(), vehicle.routeId(), shapeId,
+                sameTrip ? track.latest() : null, observation);
+    }
+}
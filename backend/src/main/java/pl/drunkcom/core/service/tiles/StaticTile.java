@@ -0,0 +1,15 @@
+package pl.drunkcom.core.service.tiles;
+
+/**
+ * Static layers of one tile together with the dataset version they were rendered from.
+ *
+ * @param version static dataset version of the {@code StaticGeoIndex} the tile was rendered from, which
+ *                may lag behind the current version while the index is rebuilt
+ * @param data encoded tile, empty if the tile has no features
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public record StaticTile(String version, byte[] data) {
+}
@@ -0,0 +1,86 @@
+package pl.drunkcom.core.service.tiles;
+
+/**
+ * Geographic bounds of a Web Mercator (XYZ) tile, and projection of coordinates into its
+ * {@link VectorTileEncoder#EXTENT tile-local} integer space.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public final class TileBounds {
+
+    private final int z;
+    private final int x;
+    private final int y;
+    private final double scale;
+
+    public TileBounds(int z, int x, int y) {
+        this.z = z;
+        this.x = x;
+        this.y = y;
+        this.scale = (double) (1L << z) * VectorTileEncoder.EXTENT;
+    }
+
+    /**
+     * Checks that the tile coordinates exist at the zoom level.
+     */
+    public static boolean isValid(int z, int x, int y) {
+        return z >= 0 && z <= 22 && x >= 0 && y >= 0 && x < (1 << z) && y < (1 << z);
+    }
+
+    public int getZ() {
+        return z;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Tile-local x of a longitude.
+     */
+    public double projectX(double longitude) {
+        return (longitude + 180.0) / 360.0 * scale - (double) x * VectorTileEncoder.EXTENT;
+    }
+
+    /**
+     * Tile-local y of a latitude.
+     */
+    public double projectY(double latitude) {
+        double sin = Math.sin(Math.toRadians(latitude));
+        double worldY = 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+        return worldY * scale - (double) y * VectorTileEncoder.EXTENT;
+    }
+
+    /**
+     * Longitude of a tile-local x.
+     */
+    public double longitude(double tileX) {
+        return (tileX + (double) x * VectorTileEncoder.EXTENT) / scale * 360.0 - 180.0;
+    }
+
+    /**
+     * Latitude of a tile-local y.
+     */
+    public double latitude(double tileY) {
+        double n = Math.PI * (1 - 2 * (tileY + (double) y * VectorTileEncoder.EXTENT) / scale);
+        return Math.toDegrees(Math.atan(Math.sinh(n)));
+    }
+
+    @Override
+    public String toString() {
+        return z + "/" + x + "/" + y;
+    }
+
+    /**
+     * Ground distance covered by one tile-local unit at the given latitude, in meters.
+     */
+    public double metersPerUnit(double latitude) {
+        return 2 * Math.PI * 6_378_137.0 * Math.cos(Math.toRadians(latitude)) / scale;
+    }
+}
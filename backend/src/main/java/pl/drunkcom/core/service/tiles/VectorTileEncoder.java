@@ -0,0 +1,256 @@
+package pl.drunkcom.core.service.tiles;
+
+import com.google.protobuf.CodedOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal writer for Mapbox Vector Tile (MVT 2.1) layers.
+ *
+ * <p>Layers are encoded independently: an encoded tile is just the concatenation of its encoded
+ * layers (field 3 of the {@code Tile} message), which lets static and live layers be cached and
+ * combined separately. Geometry coordinates are tile-local integers in {@code [0, extent)} with
+ * y pointing down.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ * @see <a href="https://github.com/mapbox/vector-tile-spec/tree/master/2.1">Vector Tile Specification 2.1</a>
+ */
+public final class VectorTileEncoder {
+
+    public static final int EXTENT = 4096;
+
+    private static final int GEOM_POINT = 1;
+    private static final int GEOM_LINESTRING = 2;
+    private static final int CMD_MOVE_TO = 1;
+    private static final int CMD_LINE_TO = 2;
+
+    private VectorTileEncoder() {
+    }
+
+    /**
+     * Starts a new layer.
+     *
+     * @param name layer name
+     * @return an empty layer
+     */
+    public static Layer layer(String name) {
+        return new Layer(name);
+    }
+
+    /**
+     * A layer being built. Not thread-safe.
+     */
+    public static final class Layer {
+        private final String name;
+        private final Map<String, Integer> keys = new LinkedHashMap<>();
+        private final Map<Object, Integer> values = new LinkedHashMap<>();
+        private final ByteArrayOutputStream features = new ByteArrayOutputStream();
+        private final CodedOutputStream featureOutput = CodedOutputStream.newInstance(features);
+        private int featureCount;
+
+        private Layer(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Starts a feature of this layer; it is added when {@link Feature#point} or {@link Feature#lines} is called.
+         *
+         * @param id feature id, or a negative value for none
+         */
+        public Feature feature(long id) {
+            return new Feature(this, id);
+        }
+
+        public boolean isEmpty() {
+            return featureCount == 0;
+        }
+
+        /**
+         * Encodes the layer as a {@code Tile.layers} entry, or an empty array if it has no features.
+         */
+        public byte[] encode() {
+            if (featureCount == 0) {
+                return new byte[0];
+            }
+            try {
+                featureOutput.flush();
+                ByteArrayOutputStream layer = new ByteArrayOutputStream(features.size() + 256);
+                CodedOutputStream out = CodedOutputStream.newInstance(layer);
+                out.writeUInt32(15, 2);
+                out.writeString(1, name);
+                out.writeRawBytes(features.toByteArray());
+                for (String key : keys.keySet()) {
+                    out.writeString(3, key);
+                }
+                for (Object value : values.keySet()) {
+                    out.writeByteArray(4, encodeValue(value));
+                }
+                out.writeUInt32(5, EXTENT);
+                out.flush();
+
+                ByteArrayOutputStream tile = new ByteArrayOutputStream(layer.size() + 8);
+                CodedOutputStream tileOutput = CodedOutputStream.newInstance(tile);
+                tileOutput.writeByteArray(3, layer.toByteArray());
+                tileOutput.flush();
+                return tile.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void add(long id, List<Integer> tags, int type, int[] geometry, int geometryLength) {
+            try {
+                ByteArrayOutputStream feature = new ByteArrayOutputStream(16 + geometryLength * 2);
+                CodedOutputStream out = CodedOutputStream.newInstance(feature);
+                if (id >= 0) {
+                    out.writeUInt64(1, id);
+                }
+                writePacked(out, 2, tags.stream().mapToInt(Integer::intValue).toArray(), tags.size());
+                out.writeEnum(3, type);
+                writePacked(out, 4, geometry, geometryLength);
+                out.flush();
+                featureOutput.writeByteArray(2, feature.toByteArray());
+                featureCount++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private int keyIndex(String key) {
+            return keys.computeIfAbsent(key, k -> keys.size());
+        }
+
+        private int valueIndex(Object value) {
+            return values.computeIfAbsent(value, v -> values.size());
+        }
+
+        private static void writePacked(CodedOutputStream out, int field, int[] data, int length) throws IOException {
+            if (length == 0) {
+                return;
+            }
+            int size = 0;
+            for (int i = 0; i < length; i++) {
+                size += CodedOutputStream.computeUInt32SizeNoTag(data[i]);
+            }
+            out.writeTag(field, 2);
+            out.writeUInt32NoTag(size);
+            for (int i = 0; i < length; i++) {
+                out.writeUInt32NoTag(data[i]);
+            }
+        }
+
+        private static byte[] encodeValue(Object value) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(16);
+            CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+            if (value instanceof String string) {
+                out.writeString(1, string);
+            } else if (value instanceof Double number) {
+                out.writeDouble(3, number);
+            } else if (value instanceof Long number) {
+                out.writeSInt64(6, number);
+            } else if (value instanceof Boolean flag) {
+                out.writeBool(7, flag);
+            } else {
+                throw new IllegalArgumentException("Unsupported property type " + value.getClass());
+            }
+            out.flush();
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * A feature being built: set properties, then finish it with a geometry.
+     */
+    public static final class Feature {
+        private final Layer layer;
+        private final long id;
+        private final List<Integer> tags = new ArrayList<>();
+
+        private Feature(Layer layer, long id) {
+            this.layer = layer;
+            this.id = id;
+        }
+
+        /**
+         * Adds a property. Null values are skipped; integers are stored as signed 64-bit values.
+         *
+         * @param key property name
+         * @param value a String, Number or Boolean
+         */
+        public Feature property(String key, Object value) {
+            if (value == null) {
+                return this;
+            }
+            Object normalized = value;
+            if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                normalized = ((Number) value).longValue();
+            } else if (value instanceof Float number) {
+                normalized = number.doubleValue();
+            }
+            tags.add(layer.keyIndex(key));
+            tags.add(layer.valueIndex(normalized));
+            return this;
+        }
+
+        /**
+         * Adds the feature to its layer as a point.
+         */
+        public void point(int x, int y) {
+            layer.add(id, tags, GEOM_POINT, new int[]{command(CMD_MOVE_TO, 1), zigzag(x), zigzag(y)}, 3);
+        }
+
+        /**
+         * Adds the feature to its layer as a (multi) line string.
+         *
+         * @param parts every part as interleaved x, y coordinates; parts with fewer than two points are skipped
+         * @return true if anything was added
+         */
+        public boolean lines(List<int[]> parts) {
+            int length = 0;
+            for (int[] part : parts) {
+                if (part.length >= 4) {
+                    length += part.length + 2;
+                }
+            }
+            if (length == 0) {
+                return false;
+            }
+            int[] geometry = new int[length];
+            int g = 0;
+            int cursorX = 0, cursorY = 0;
+            for (int[] part : parts) {
+                if (part.length < 4) {
+                    continue;
+                }
+                geometry[g++] = command(CMD_MOVE_TO, 1);
+                geometry[g++] = zigzag(part[0] - cursorX);
+                geometry[g++] = zigzag(part[1] - cursorY);
+                geometry[g++] = command(CMD_LINE_TO, part.length / 2 - 1);
+                for (int i = 2; i < part.length; i += 2) {
+                    geometry[g++] = zigzag(part[i] - part[i - 2]);
+                    geometry[g++] = zigzag(part[i + 1] - part[i - 1]);
+                }
+                cursorX = part[part.length - 2];
+                cursorY = part[part.length - 1];
+            }
+            layer.add(id, tags, GEOM_LINESTRING, geometry, g);
+            return true;
+        }
+
+        private static int command(int id, int count) {
+            return (id & 0x7) | (count << 3);
+        }
+
+        private static int zigzag(int value) {
+            return (value << 1) ^ (value >> 31);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package pl.drunkcom.core.service.tiles;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.dataset.RouteInfo;
+import pl.drunkcom.core.service.dataset.StaticDatasetChangedEvent;
+import pl.drunkcom.core.service.geo.PolylineSimplifier;
+import pl.drunkcom.core.service.geo.ShapeGeometry;
+import pl.drunkcom.core.service.geo.StaticGeoIndex;
+import pl.drunkcom.core.service.geo.StaticGeoIndexService;
+import pl.drunkcom.core.service.realtime.VehicleSpatialIndex;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders Mapbox Vector Tiles with a {@code shapes} and a {@code stops} layer from the static
+ * dataset and an optional {@code vehicles} layer from the latest realtime snapshot.
+ *
+ * <p>Everything is read from in-memory indexes ({@link StaticGeoIndex}, {@link VehicleSpatialIndex}),
+ * never from the database. Shapes are simplified with Douglas-Peucker to half a pixel at the tile's
+ * zoom and clipped to the tile plus a small buffer. Static layers are cached in an LRU keyed by
+ * dataset version and tile; the vehicle layer is cached per snapshot and dropped when a new snapshot
+ * arrives.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class VectorTileService {
+
+    /** Stops are only drawn from this zoom level on. */
+    static final int STOPS_MIN_ZOOM = 13;
+
+    /** Features are clipped to the tile extended by this many units on every side. */
+    private static final int BUFFER = 64;
+
+    /** Upper bound of the live layer cache, which only lives for one snapshot anyway. */
+    private static final int MAX_LIVE_TILES = 4096;
+
+    private final StaticGeoIndexService staticGeoIndexService;
+    private final VehicleSpatialIndex vehicleSpatialIndex;
+    private final Map<String, byte[]> staticTiles;
+    private volatile LiveTiles liveTiles = new LiveTiles(-1, new ConcurrentHashMap<>());
+
+    public VectorTileService(StaticGeoIndexService staticGeoIndexService, VehicleSpatialIndex vehicleSpatialIndex,
+                             @Value("${tiles.cache.max-entries:4096}") int maxCachedTiles) {
+        this.staticGeoIndexService = staticGeoIndexService;
+        this.vehicleSpatialIndex = vehicleSpatialIndex;
+        this.staticTiles = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > maxCachedTiles;
+            }
+        });
+    }
+
+    /**
+     * Returns the static layers (shapes and stops) of a tile.
+     *
+     * @param bounds the tile
+     * @return the encoded tile and the dataset version of the index it was rendered from
+     */
+    public StaticTile staticTile(TileBounds bounds) {
+        StaticGeoIndex index = staticGeoIndexService.current();
+        String key = index.getVersion() + "/" + bounds;
+        byte[] tile = staticTiles.get(key);
+        if (tile == null) {
+            tile = concat(shapesLayer(index, bounds), stopsLayer(index, bounds));
+            staticTiles.put(key, tile);
+        }
+        return new StaticTile(index.getVersion(), tile);
+    }
+
+    /**
+     * Returns the vehicle layer of a tile for the latest snapshot.
+     *
+     * @param bounds the tile
+     * @return encoded tile, empty if there is no snapshot yet or no vehicle in the tile
+     */
+    public byte[] liveTile(TileBounds bounds) {
+        VehicleSpatialIndex.IndexedSnapshot snapshot = vehicleSpatialIndex.current();
+        if (snapshot == null) {
+            return new byte[0];
+        }
+        LiveTiles live = liveTiles;
+        long sequence = snapshot.snapshot().getSequence();
+        if (live.sequence() != sequence) {
+            live = new LiveTiles(sequence, new ConcurrentHashMap<>());
+            liveTiles = live;
+        }
+        if (live.tiles().size() > MAX_LIVE_TILES) {
+            live.tiles().clear();
+        }
+        String key = bounds.toString();
+        return live.tiles().computeIfAbsent(key,
+                k -> vehiclesLayer(snapshot, staticGeoIndexService.current(), bounds));
+    }
+
+    /**
+     * Sequence of the snapshot served by {@link #liveTile}, or -1 before the first snapshot.
+     */
+    public long liveSequence() {
+        VehicleSpatialIndex.IndexedSnapshot snapshot = vehicleSpatialIndex.current();
+        return snapshot == null ? -1 : snapshot.snapshot().getSequence();
+    }
+
+    @EventListener
+    public void onDatasetChanged(StaticDatasetChangedEvent event) {
+        staticTiles.clear();
+    }
+
+    private byte[] shapesLayer(StaticGeoIndex index, TileBounds bounds) {
+        VectorTileEncoder.Layer layer = VectorTileEncoder.layer("shapes");
+        double minLon = bounds.longitude(-BUFFER), maxLon = bounds.longitude(VectorTileEncoder.EXTENT + BUFFER);
+        double maxLat = bounds.latitude(-BUFFER), minLat = bounds.latitude(VectorTileEncoder.EXTENT + BUFFER);
+        double tolerance = bounds.metersPerUnit((minLat + maxLat) / 2) * VectorTileEncoder.EXTENT / 256 / 2;
+
+        index.forEachShapeInBox(minLat, minLon, maxLat, maxLon, s -> {
+            ShapeGeometry shape = index.shape(s);
+            int[] vertices = PolylineSimplifier.simplify(index.shapeImportance(s), tolerance);
+            List<int[]> parts = clip(shape, vertices, bounds);
+            if (parts.isEmpty()) {
+                return;
+            }
+            RouteInfo route = index.route(index.shapeRouteId(s));
+            String[] routeIds = index.shapeRouteIds(s);
+            VectorTileEncoder.Feature feature = layer.feature(s)
+                    .property("shape_id", shape.getShapeId())
+                    .property("route_id", index.shapeRouteId(s))
+                    .property("route_ids", routeIds.length == 0 ? null : String.join(",", routeIds));
+            if (route != null) {
+                feature.property("route_short_name", route.shortName())
+                        .property("route_type", route.routeType())
+                        .property("route_color", route.color());
+            }
+            feature.lines(parts);
+        });
+        return layer.encode();
+    }
+
+    private byte[] stopsLayer(StaticGeoIndex index, TileBounds bounds) {
+        if (bounds.getZ() < STOPS_MIN_ZOOM) {
+            return new byte[0];
+        }
+        VectorTileEncoder.Layer layer = VectorTileEncoder.layer("stops");
+        double minLon = bounds.longitude(-BUFFER), maxLon = bounds.longitude(VectorTileEncoder.EXTENT + BUFFER);
+        double maxLat = bounds.latitude(-BUFFER), minLat = bounds.latitude(VectorTileEncoder.EXTENT + BUFFER);
+        index.forEachStopInBox(minLat, minLon, maxLat, maxLon, stop -> layer.feature(stop)
+                .property("stop_id", index.stopId(stop))
+                .property("stop_code", index.stopCode(stop))
+                .property("stop_name", index.stopName(stop))
+                .property("location_type", index.stopLocationType(stop))
+                .point((int) Math.round(bounds.projectX(index.stopLongitude(stop))),
+                        (int) Math.round(bounds.projectY(index.stopLatitude(stop)))));
+        return layer.encode();
+    }
+
+    private byte[] vehiclesLayer(VehicleSpatialIndex.IndexedSnapshot snapshot, StaticGeoIndex index, TileBounds bounds) {
+        VectorTileEncoder.Layer layer = VectorTileEncoder.layer("vehicles");
+        double minLon = bounds.longitude(-BUFFER), maxLon = bounds.longitude(VectorTileEncoder.EXTENT + BUFFER);
+        double maxLat = bounds.latitude(-BUFFER), minLat = bounds.latitude(VectorTileEncoder.EXTENT + BUFFER);
+        snapshot.forEachInBox(minLat, minLon, maxLat, maxLon, vehicle -> {
+            RouteInfo route = index.route(vehicle.routeId());
+            layer.feature(-1)
+                    .property("vehicle_id", vehicle.vehicleId())
+                    .property("trip_id", vehicle.tripId())
+                    .property("route_id", vehicle.routeId())
+                    .property("route_short_name", route != null ? route.shortName() : null)
+                    .property("route_type", route != null ? route.routeType() : null)
+                    .property("delay", vehicle.delay())
+                    .property("timestamp", vehicle.timestamp())
+                    .point((int) Math.round(bounds.projectX(vehicle.longitude())),
+                            (int) Math.round(bounds.projectY(vehicle.latitude())));
+        });
+        return layer.encode();
+    }
+
+    /**
+     * Projects the selected vertices into tile space and clips the line to the buffered tile,
+     * splitting it wherever it leaves the tile.
+     */
+    static List<int[]> clip(ShapeGeometry shape, int[] vertices, TileBounds bounds) {
+        double min = -BUFFER, max = VectorTileEncoder.EXTENT + BUFFER;
+        List<int[]> parts = new ArrayList<>();
+        IntList part = new IntList();
+        double previousX = bounds.projectX(shape.longitudeAt(vertices[0]));
+        double previousY = bounds.projectY(shape.latitudeAt(vertices[0]));
+        for (int v = 1; v < vertices.length; v++) {
+            double nextX = bounds.projectX(shape.longitudeAt(vertices[v]));
+            double nextY = bounds.projectY(shape.latitudeAt(vertices[v]));
+            double[] clipped = clipSegment(previousX, previousY, nextX, nextY, min, max);
+            if (clipped == null) {
+                part = flush(part, parts);
+            } else {
+                boolean enters = clipped[0] != previousX || clipped[1] != previousY;
+                if (enters) {
+                    part = flush(part, parts);
+                }
+                part.addPoint((int) Math.round(clipped[0]), (int) Math.round(clipped[1]));
+                part.addPoint((int) Math.round(clipped[2]), (int) Math.round(clipped[3]));
+                if (clipped[2] != nextX || clipped[3] != nextY) {
+                    part = flush(part, parts);
+                }
+            }
+            previousX = nextX;
+            previousY = nextY;
+        }
+        flush(part, parts);
+        return parts;
+    }
+
+    private static IntList flush(IntList part, List<int[]> parts) {
+        if (part.size() >= 4) {
+            parts.add(part.toArray());
+        }
+        return part.size() == 0 ? part : new IntList();
+    }
+
+    /**
+     * Liang-Barsky clipping of a segment to a square.
+     *
+     * @return the clipped segment as {x1, y1, x2, y2}, or null if it lies outside
+     */
+    private static double[] clipSegment(double x1, double y1, double x2, double y2, double min, double max) {
+        double dx = x2 - x1, dy = y2 - y1;
+        double t0 = 0, t1 = 1;
+        double[] p = {-dx, dx, -dy, dy};
+        double[] q = {x1 - min, max - x1, y1 - min, max - y1};
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                if (q[i] < 0) {
+                    return null;
+                }
+            } else {
+                double t = q[i] / p[i];
+                if (p[i] < 0) {
+                    t0 = Math.max(t0, t);
+                } else {
+                    t1 = Math.min(t1, t);
+                }
+            }
+        }
+        if (t0 > t1) {
+            return null;
+        }
+        return new double[]{x1 + t0 * dx, y1 + t0 * dy, x1 + t1 * dx, y1 + t1 * dy};
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(first.length + second.length);
+        out.writeBytes(first);
+        out.writeBytes(second);
+        return out.toByteArray();
+    }
+
+    /**
+     * Growable list of tile coordinates that drops consecutive duplicate points.
+     */
+    private static final class IntList {
+        private int[] data = new int[32];
+        private int size;
+
+        void addPoint(int x, int y) {
+            if (size >= 2 && data[size - 2] == x && data[size - 1] == y) {
+                return;
+            }
+            if (size + 2 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = x;
+            data[size++] = y;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    private record LiveTiles(long sequence, Map<String, byte[]> tiles) {
+    }
+}
@@ -0,0 +1,158 @@
+package pl.drunkcom.core.service.warmstart;
+
+import pl.drunkcom.core.service.TripDetails;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary encoding of a {@link RealtimeSnapshot} for the warm restart file.
+ *
+ * <p>Strings are written once and referred to by index afterwards, since route ids, route names,
+ * headsigns and schedule relationships repeat across the fleet. The speed and heading arrays are
+ * written as they were estimated, so the restored snapshot answers exactly like the persisted one.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+final class SnapshotCodec {
+
+    private static final int NULL_STRING = -1;
+    private static final int NULL_INTEGER = Integer.MIN_VALUE;
+
+    private SnapshotCodec() {
+    }
+
+    static void write(DataOutput out, RealtimeSnapshot snapshot) throws IOException {
+        Map<String, Integer> strings = new HashMap<>();
+        out.writeLong(snapshot.getSequence());
+        out.writeLong(snapshot.getPublishedAtMillis());
+        out.writeInt(snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            VehicleCurrentState vehicle = snapshot.getVehicles().get(i);
+            writeString(out, strings, vehicle.vehicleId());
+            writeString(out, strings, vehicle.tripId());
+            writeString(out, strings, vehicle.routeId());
+            out.writeFloat(vehicle.latitude());
+            out.writeFloat(vehicle.longitude());
+            out.writeInt(vehicle.delay());
+            writeString(out, strings, vehicle.scheduleRelationship());
+            writeString(out, strings, vehicle.delayDescription());
+            out.writeLong(vehicle.timestamp());
+            out.writeFloat(vehicle.feedBearing());
+            out.writeFloat(vehicle.feedSpeed());
+            out.writeFloat(snapshot.speedAt(i));
+            out.writeFloat(snapshot.headingAt(i));
+            writeTrip(out, strings, vehicle.trip());
+        }
+    }
+
+    static RealtimeSnapshot read(DataInput in) throws IOException {
+        List<String> strings = new ArrayList<>();
+        long sequence = in.readLong();
+        long publishedAtMillis = in.readLong();
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Negative vehicle count " + count);
+        }
+        List<VehicleCurrentState> vehicles = new ArrayList<>(count);
+        float[] speeds = new float[count];
+        float[] headings = new float[count];
+        for (int i = 0; i < count; i++) {
+            String vehicleId = readString(in, strings);
+            String tripId = readString(in, strings);
+            String routeId = readString(in, strings);
+            float latitude = in.readFloat();
+            float longitude = in.readFloat();
+            int delay = in.readInt();
+            String scheduleRelationship = readString(in, strings);
+            String delayDescription = readString(in, strings);
+            long timestamp = in.readLong();
+            float feedBearing = in.readFloat();
+            float feedSpeed = in.readFloat();
+            speeds[i] = in.readFloat();
+            headings[i] = in.readFloat();
+            TripDetails trip = readTrip(in, strings);
+            vehicles.add(new VehicleCurrentState(vehicleId, tripId, routeId, latitude, longitude, delay,
+                    scheduleRelationship, delayDescription, timestamp, feedBearing, feedSpeed, trip));
+        }
+        return new RealtimeSnapshot(sequence, publishedAtMillis, vehicles, speeds, headings);
+    }
+
+    private static void writeTrip(DataOutput out, Map<String, Integer> strings, TripDetails trip) throws IOException {
+        out.writeBoolean(trip != null);
+        if (trip == null) {
+            return;
+        }
+        writeString(out, strings, trip.routeId());
+        writeString(out, strings, trip.routeShortName());
+        writeString(out, strings, trip.routeLongName());
+        out.writeInt(trip.routeType() != null ? trip.routeType() : NULL_INTEGER);
+        writeString(out, strings, trip.routeColor());
+        writeString(out, strings, trip.routeTextColor());
+        writeString(out, strings, trip.headsign());
+        out.writeInt(trip.directionId() != null ? trip.directionId() : NULL_INTEGER);
+        writeString(out, strings, trip.shapeId());
+    }
+
+    private static TripDetails readTrip(DataInput in, List<String> strings) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        String routeId = readString(in, strings);
+        String routeShortName = readString(in, strings);
+        String routeLongName = readString(in, strings);
+        Integer routeType = readInteger(in);
+        String routeColor = readString(in, strings);
+        String routeTextColor = readString(in, strings);
+        String headsign = readString(in, strings);
+        Integer directionId = readInteger(in);
+        String shapeId = readString(in, strings);
+        return new TripDetails(routeId, routeShortName, routeLongName, routeType, routeColor, routeTextColor,
+                headsign, directionId, shapeId);
+    }
+
+    /**
+     * Writes the index of a string, followed by the string itself the first time it occurs.
+     */
+    private static void writeString(DataOutput out, Map<String, Integer> strings, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_STRING);
+            return;
+        }
+        Integer index = strings.get(value);
+        if (index != null) {
+            out.writeInt(index);
+            return;
+        }
+        out.writeInt(strings.size());
+        out.writeUTF(value);
+        strings.put(value, strings.size());
+    }
+
+    private static String readString(DataInput in, List<String> strings) throws IOException {
+        int index = in.readInt();
+        if (index == NULL_STRING) {
+            return null;
+        }
+        if (index == strings.size()) {
+            strings.add(in.readUTF());
+        } else if (index < 0 || index > strings.size()) {
+            throw new IOException("Invalid string reference " + index);
+        }
+        return strings.get(index);
+    }
+
+    private static Integer readInteger(DataInput in) throws IOException {
+        int value = in.readInt();
+        return value == NULL_INTEGER ? null : value;
+    }
+}
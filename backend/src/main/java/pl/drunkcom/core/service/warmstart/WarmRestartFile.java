@@ -0,0 +1,137 @@
+package pl.drunkcom.core.service.warmstart;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Binary file of named sections holding the state persisted for a warm restart.
+ *
+ * <p>Layout, big-endian as written by {@link java.io.DataOutput}: the magic number, the format
+ * version, the time the file was saved, the number of sections and then each section as its name,
+ * its length in bytes and its content. Sections are independent, so an unknown or damaged one can be
+ * skipped without losing the others.
+ *
+ * <p>The file is written to a temporary sibling and moved over the previous one, so a crash while
+ * saving leaves the last complete file in place. It is read by memory-mapping it: the sections are
+ * views of the mapping, and no section is copied before its owner reads it.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+final class WarmRestartFile {
+
+    private static final int MAGIC = 0x44525753;
+    private static final int VERSION = 1;
+
+    private WarmRestartFile() {
+    }
+
+    /**
+     * Contents of a warm restart file.
+     *
+     * @param savedAtMillis time the file was saved
+     * @param sections section contents by name, in file order
+     */
+    record Contents(long savedAtMillis, Map<String, ByteBuffer> sections) {
+    }
+
+    static void write(Path file, long savedAtMillis, Map<String, byte[]> sections) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(savedAtMillis);
+            out.writeInt(sections.size());
+            for (Map.Entry<String, byte[]> section : sections.entrySet()) {
+                out.writeUTF(section.getKey());
+                out.writeInt(section.getValue().length);
+                out.write(section.getValue());
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static Contents read(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        DataInput in = input(buffer);
+        if (in.readInt() != MAGIC) {
+            throw new IOException(file + " is not a warm restart file");
+        }
+        int version = in.readUnsignedShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported warm restart file version " + version);
+        }
+        long savedAtMillis = in.readLong();
+        int count = in.readInt();
+        Map<String, ByteBuffer> sections = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            int length = in.readInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IOException("Section " + name + " is truncated");
+            }
+            sections.put(name, buffer.slice(buffer.position(), length));
+            buffer.position(buffer.position() + length);
+        }
+        return new Contents(savedAtMillis, sections);
+    }
+
+    /**
+     * Reads a buffer from its position on, advancing the position as it goes.
+     */
+    static DataInput input(ByteBuffer buffer) {
+        return new DataInputStream(new ByteBufferInputStream(buffer));
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package pl.drunkcom.core.service.warmstart;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import pl.drunkcom.core.service.pipeline.FeedCycle;
+import pl.drunkcom.core.service.pipeline.FeedPipeline;
+import pl.drunkcom.core.service.pipeline.FeedStage;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshotStore;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Warm restart: persists the current snapshot and every {@link WarmState} to a local file and restores
+ * them at startup, so the service answers with the last known fleet right away and the rolling analytics
+ * carry on where they stopped instead of starting empty.
+ *
+ * <p>Runs as the {@code persist} stage of the ingestion pipeline and saves at most every
+ * {@code warm-restart.save-interval-ms}, and once more on shutdown. The file, {@code warm-restart.file},
+ * is replaced atomically; see {@link WarmRestartFile} for its layout. At startup, once all singletons
+ * exist and so before the application is ready and the {@code RealtimeFeedPoller} starts, it is
+ * memory-mapped and read back while the pipeline is held: first the state sections, then the snapshot,
+ * which becomes current unless a feed refresh got there first. A file older than
+ * {@code warm-restart.max-age-ms} is ignored, and a section that fails to read is skipped without
+ * affecting the others.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+@Order(800)
+public class WarmRestartService implements FeedStage, SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(WarmRestartService.class);
+
+    static final String SNAPSHOT_SECTION = "snapshot";
+
+    private final RealtimeSnapshotStore snapshotStore;
+    private final List<WarmState> states;
+    private final ObjectProvider<FeedPipeline> pipelineProvider;
+    private final boolean enabled;
+    private final Path file;
+    private final long saveIntervalMillis;
+    private final long maxAgeMillis;
+
+    private volatile FeedPipeline pipeline;
+    private long lastSavedAtMillis;
+
+    public WarmRestartService(RealtimeSnapshotStore snapshotStore, List<WarmState> states,
+                              ObjectProvider<FeedPipeline> pipelineProvider,
+                              @Value("${warm-restart.enabled:true}") boolean enabled,
+                              @Value("${warm-restart.file:data/warm-restart.bin}") String file,
+                              @Value("${warm-restart.save-interval-ms:60000}") long saveIntervalMillis,
+                              @Value("${warm-restart.max-age-ms:3600000}") long maxAgeMillis) {
+        this.snapshotStore = snapshotStore;
+        this.states = List.copyOf(states);
+        this.pipelineProvider = pipelineProvider;
+        this.enabled = enabled;
+        this.file = Path.of(file);
+        this.saveIntervalMillis = saveIntervalMillis;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    @Override
+    public String stageName() {
+        return "persist";
+    }
+
+    @Override
+    public void process(FeedCycle cycle) {
+        long now = System.currentTimeMillis();
+        if (enabled && now - lastSavedAtMillis >= saveIntervalMillis) {
+            // the analytics listeners must not change their state while it is written
+            FeedPipeline running = pipeline;
+            if (running != null) {
+                running.awaitIdle();
+            }
+            save(now);
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        pipeline = pipelineProvider.getObject();
+        if (enabled) {
+            pipeline.runExclusive(() -> restore(System.currentTimeMillis()));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        // the pipeline bean is already destroyed by now, but its lock still keeps a running cycle out
+        FeedPipeline held = pipeline;
+        if (held != null) {
+            held.runExclusive(() -> save(System.currentTimeMillis()));
+        } else {
+            save(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Writes the current snapshot and all states, unless no snapshot has been published yet.
+     *
+     * @return true if the file was written
+     */
+    synchronized boolean save(long nowMillis) {
+        Optional<RealtimeSnapshot> snapshot = snapshotStore.current();
+        if (snapshot.isEmpty()) {
+            return false;
+        }
+        long started = System.nanoTime();
+        Map<String, byte[]> sections = new LinkedHashMap<>();
+        for (WarmState state : states) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                state.writeState(out);
+                out.flush();
+                sections.put(state.stateName(), bytes.toByteArray());
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to persist {} for warm restart, leaving it out", state.stateName(), e);
+            }
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * snapshot.get().size() + 64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            SnapshotCodec.write(out, snapshot.get());
+            out.flush();
+            sections.put(SNAPSHOT_SECTION, bytes.toByteArray());
+            WarmRestartFile.write(file, nowMillis, sections);
+            lastSavedAtMillis = nowMillis;
+        } catch (IOException e) {
+            lastSavedAtMillis = nowMillis;
+            log.warn("Failed to write warm restart file {}: {}", file, e.getMessage());
+            return false;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Saved snapshot {} and {} states for warm restart in {} ms", snapshot.get().getSequence(),
+                    sections.size() - 1, (System.nanoTime() - started) / 1_000_000);
+        }
+        return true;
+    }
+
+    /**
+     * Restores the states and the snapshot from the file, if it exists and is recent enough. The
+     * snapshot is only restored while none has been published yet.
+     *
+     * @return the restored snapshot, or empty if no snapshot was restored
+     */
+    synchronized Optional<RealtimeSnapshot> restore(long nowMillis) {
+        if (!Files.isRegularFile(file)) {
+            log.info("No warm restart file at {}, starting empty", file.toAbsolutePath());
+            return Optional.empty();
+        }
+        long started = System.nanoTime();
+        WarmRestartFile.Contents contents;
+        try {
+            contents = WarmRestartFile.read(file);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to read warm restart file {}, starting empty: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+        long ageMillis = nowMillis - contents.savedAtMillis();
+        if (ageMillis > maxAgeMillis) {
+            log.info("Warm restart file {} is {} s old, starting empty", file, ageMillis / 1000);
+            return Optional.empty();
+        }
+        int restoredStates = 0;
+        for (WarmState state : states) {
+            ByteBuffer section = contents.sections().get(state.stateName());
+            if (section == null) {
+                continue;
+            }
+            try {
+                state.readState(WarmRestartFile.input(section));
+                restoredStates++;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to restore {} from warm restart file, starting it empty", state.stateName(), e);
+            }
+        }
+        RealtimeSnapshot snapshot = null;
+        ByteBuffer section = contents.sections().get(SNAPSHOT_SECTION);
+        if (section != null && snapshotStore.current().isEmpty()) {
+            try {
+                snapshot = SnapshotCodec.read(WarmRestartFile.input(section));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to restore snapshot from warm restart file", e);
+            }
+        }
+        if (snapshot != null && !snapshotStore.restore(snapshot)) {
+            snapshot = null;
+        }
+        log.info("Warm restart from {} saved {} s ago: snapshot {}, {} of {} states in {} ms", file,
+                ageMillis / 1000, snapshot != null ? snapshot.getSequence() + " with " + snapshot.size()
+                        + " vehicles" : "not restored", restoredStates, states.size(),
+                (System.nanoTime() - started) / 1_000_000);
+        return Optional.ofNullable(snapshot);
+    }
+}
@@ -0,0 +1,30 @@
+package pl.drunkcom.core.service.warmstart;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * In-memory state that survives a restart through {@link WarmRestartService}.
+ *
+ * <p>Every Spring bean implementing this interface is written into its own named section of the warm
+ * restart file and read back at startup, before the persisted snapshot is restored. Both methods are
+ * called while the ingestion pipeline is held, so they never run concurrently with a feed refresh.
+ * {@link #readState(DataInput)} should replace the state only once the whole section has been read, so
+ * that a damaged section leaves the component empty rather than half restored.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+public interface WarmState {
+
+    /**
+     * Name of the section holding the state; changing the format requires a new name.
+     */
+    String stateName();
+
+    void writeState(DataOutput out) throws IOException;
+
+    void readState(DataInput in) throws IOException;
+}
@@ -1,9 +1,9 @@
 package pl.drunkcom.core.service;
 
 import com.google.transit.realtime.GtfsRealtime.*;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.client.RestTemplate;
@@ -22,9 +22,13 @@ class GtfsRealTimeServiceTest {
     @Mock
     private RestTemplate restTemplate;
 
-    @InjectMocks
     private GtfsRealTimeService gtfsService;
 
+    @BeforeEach
+    void setUp() {
+        gtfsService = new GtfsRealTimeService(restTemplate);
+    }
+
     @Test
     void fetchVehiclePositions_shouldParseDataCorrectly() throws IOException {
         // 1. ARRANGE: Create a fake binary response to simulate the .pb file
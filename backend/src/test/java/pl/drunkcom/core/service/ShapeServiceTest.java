@@ -0,0 +1,93 @@
+package pl.drunkcom.core.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import pl.drunkcom.core.interfaces.ShapeCoordsRepository;
+import pl.drunkcom.core.interfaces.ShapeRepository;
+import pl.drunkcom.core.model.gtfs.Shape;
+import pl.drunkcom.core.model.gtfs.ShapeCoords;
+import pl.drunkcom.core.service.geo.ShapeGeometry;
+import pl.drunkcom.core.service.geo.ShapeGeometryService;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ShapeServiceTest {
+
+    @Mock
+    private ShapeRepository repository;
+
+    @Mock
+    private ShapeCoordsRepository shapeCoordsRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private ShapeGeometryService shapeGeometryService = new ShapeGeometryService(mock(ShapeRepository.class),
+            mock(PlatformTransactionManager.class));
+
+    @InjectMocks
+    private ShapeService shapeService;
+
+    @Test
+    void saveAll_shouldPackCoordinatesFromJson() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        Shape shape = mapper.readValue("{\"shapeId\":\"s1\",\"coords\":["
+                + "{\"shapePtSequence\":2,\"shapePtLat\":50.02,\"shapePtLon\":19.94},"
+                + "{\"shapePtSequence\":1,\"shapePtLat\":50.01,\"shapePtLon\":19.94}]}", Shape.class);
+        when(repository.saveAll(anyList())).then(returnsFirstArg());
+
+        Shape saved = shapeService.saveAll(List.of(shape)).get(0);
+
+        assertNull(saved.getCoords());
+        assertEquals(2, saved.getPointCount());
+        ShapeGeometry geometry = ShapeGeometry.fromPacked("s1", saved.getPackedGeometry());
+        assertEquals(50.01, geometry.latitudeAt(0), 1e-6);
+        assertEquals(50.02, geometry.latitudeAt(1), 1e-6);
+        assertFalse(mapper.writeValueAsString(saved).contains("coords"));
+    }
+
+    @Test
+    void save_shouldDeleteCoordinateRowsOfStoredShape() {
+        Shape stored = new Shape();
+        stored.setShapeId("s1");
+        Set<ShapeCoords> legacy = Set.of(coords(1, 50.01), coords(2, 50.02));
+        stored.setCoords(legacy);
+        when(repository.findById("s1")).thenReturn(Optional.of(stored));
+        when(repository.save(any())).then(returnsFirstArg());
+        Shape update = new Shape();
+        update.setShapeId("s1");
+
+        Shape saved = shapeService.save(update);
+
+        verify(shapeCoordsRepository).deleteAll(legacy);
+        assertEquals(2, saved.getPointCount());
+        assertNotNull(saved.getPackedGeometry());
+    }
+
+    private static ShapeCoords coords(int sequence, double latitude) {
+        ShapeCoords coords = new ShapeCoords();
+        coords.setShapePtSequence(sequence);
+        coords.setShapePtLat(latitude);
+        coords.setShapePtLon(19.94);
+        return coords;
+    }
+}
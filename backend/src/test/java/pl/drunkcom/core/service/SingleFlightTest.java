@@ -0,0 +1,83 @@
+package pl.drunkcom.core.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>(0);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> flight.get(() -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "feed";
+                })));
+            }
+            // let every caller arrive while the first load is still running
+            while (flight.loads() + flight.coalesced() < callers) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("feed", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, flight.loads());
+        assertEquals(callers - 1, flight.coalesced());
+    }
+
+    @Test
+    void reusesResultWithinWindowOnly() throws IOException {
+        AtomicInteger loads = new AtomicInteger();
+        SingleFlight.Loader<Integer> loader = loads::incrementAndGet;
+
+        SingleFlight<Integer> reusing = new SingleFlight<>(60_000);
+        assertEquals(1, reusing.get(loader));
+        assertEquals(1, reusing.get(loader));
+        assertEquals(1, reusing.coalesced());
+
+        SingleFlight<Integer> fresh = new SingleFlight<>(0);
+        assertEquals(2, fresh.get(loader));
+        assertEquals(3, fresh.get(loader));
+        assertEquals(0, fresh.coalesced());
+    }
+
+    @Test
+    void failureIsNotReused() throws IOException {
+        SingleFlight<String> flight = new SingleFlight<>(60_000);
+
+        IOException error = assertThrows(IOException.class, () -> flight.get(() -> {
+            throw new IOException("upstream down");
+        }));
+        assertEquals("upstream down", error.getMessage());
+
+        assertEquals("feed", flight.get(() -> "feed"));
+        assertEquals(2, flight.loads());
+    }
+}
@@ -0,0 +1,51 @@
+package pl.drunkcom.core.service;
+
+import org.junit.jupiter.api.Test;
+import pl.drunkcom.core.service.geo.StaticGeoIndexService;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.VehicleSpatialIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ViewportQueryServiceTest {
+
+    @Test
+    void findVehicles_shouldTruncateDeterministicallyFromTheCentre() {
+        List<VehicleCurrentState> vehicles = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            double offset = (i - 50) * 0.0005;
+            vehicles.add(vehicle("v" + i, i % 2 == 0 ? "52" : "4", 50.06 + offset, 19.94 + offset));
+        }
+        List<VehicleCurrentState> shuffled = new ArrayList<>(vehicles);
+        Collections.shuffle(shuffled);
+
+        VehicleSpatialIndex first = new VehicleSpatialIndex();
+        first.onSnapshot(new RealtimeSnapshot(1, 0, vehicles));
+        VehicleSpatialIndex second = new VehicleSpatialIndex();
+        second.onSnapshot(new RealtimeSnapshot(2, 0, shuffled));
+        StaticGeoIndexService staticIndex = mock(StaticGeoIndexService.class);
+        ViewportQueryService.Viewport viewport = new ViewportQueryService.Viewport(50.0499, 19.9299, 50.0701, 19.9501);
+
+        ViewportQueryService.ViewportResult<VehicleCurrentState> a =
+                new ViewportQueryService(first, staticIndex, 5000).findVehicles(viewport, List.of("52"), List.of(), 10).orElseThrow();
+        ViewportQueryService.ViewportResult<VehicleCurrentState> b =
+                new ViewportQueryService(second, staticIndex, 5000).findVehicles(viewport, List.of("52"), List.of(), 10).orElseThrow();
+
+        assertEquals(10, a.results().size());
+        assertEquals(a.results(), b.results());
+        assertEquals("v50", a.results().get(0).vehicleId());
+        assertTrue(a.results().stream().allMatch(vehicle -> vehicle.routeId().equals("52")));
+        // Only v30..v70 lie inside the viewport, half of them on route 52
+        assertEquals(21, a.totalCount());
+    }
+
+    private static VehicleCurrentState vehicle(String id, String routeId, double latitude, double longitude) {
+        return new VehicleCurrentState(id, "trip-" + id, routeId, (float) latitude, (float) longitude,
+                0, "SCHEDULED", "On time", 0);
+    }
+}
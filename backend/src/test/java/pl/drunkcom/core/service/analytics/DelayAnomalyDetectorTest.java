@@ -0,0 +1,121 @@
+package pl.drunkcom.core.service.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import pl.drunkcom.core.service.SimpleVehiclePosition;
+import pl.drunkcom.core.service.TripDetails;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.realtime.MapMatchingService;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.VehicleProgress;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DelayAnomalyDetectorTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    private final MapMatchingService mapMatching = mock(MapMatchingService.class);
+    private final ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+    private final DelayAnomalyDetector detector = new DelayAnomalyDetector(mapMatching, publisher, "UTC",
+            0.1, 3.0, 120, 30, 20, 300_000, 60);
+
+    @Test
+    void onSnapshot_shouldFlagTripFarAboveRouteBaseline() {
+        when(mapMatching.find(anyString())).thenReturn(Optional.empty());
+        // Half an hour of route 52 running 40-80 s late
+        for (int minute = 0; minute < 30; minute++) {
+            snapshot(START + minute * 60_000L, vehicle("v1", "t1", 40 + (minute % 5) * 10));
+        }
+        verify(publisher, never()).publishEvent(any());
+
+        long spikeAt = START + 30 * 60_000L;
+        snapshot(spikeAt, vehicle("v1", "t1", 60), vehicle("v2", "t2", 600));
+
+        ArgumentCaptor<DelayAnomalyEvent> event = ArgumentCaptor.forClass(DelayAnomalyEvent.class);
+        verify(publisher).publishEvent(event.capture());
+        DelayAnomaly anomaly = event.getValue().anomaly();
+        assertEquals(DelayAnomalyScope.ROUTE, anomaly.scope());
+        assertEquals("t2", anomaly.tripId());
+        assertEquals(600.0, anomaly.observedSeconds());
+        assertEquals(60.0, anomaly.expectedSeconds(), 15.0);
+        assertTrue(anomaly.zScore() >= 3.0);
+        assertEquals(List.of(anomaly), detector.findRecent("52", spikeAt));
+        assertTrue(detector.findRecent("4", START).isEmpty());
+    }
+
+    @Test
+    void onSnapshot_shouldFlagDelayGainedOnOneSegment() {
+        // Trips run stop A to stop B gaining 10 s, until one loses 5 minutes there
+        for (int trip = 0; trip < 22; trip++) {
+            long t = START + trip * 120_000L;
+            int gained = trip == 21 ? 300 : 10;
+            String tripId = "t" + trip;
+            when(mapMatching.find("v")).thenReturn(Optional.of(progress(tripId, "A")));
+            snapshot(t, vehicle("v", tripId, 0));
+            when(mapMatching.find("v")).thenReturn(Optional.of(progress(tripId, "B")));
+            snapshot(t + 1000, vehicle("v", tripId, gained));
+        }
+
+        List<DelayAnomaly> anomalies = detector.findRecent(null, START);
+        assertEquals(1, anomalies.size());
+        DelayAnomaly anomaly = anomalies.get(0);
+        assertEquals(DelayAnomalyScope.SEGMENT, anomaly.scope());
+        assertEquals("A", anomaly.fromStopId());
+        assertEquals("B", anomaly.toStopId());
+        assertEquals(300.0, anomaly.observedSeconds());
+        assertEquals(10.0, anomaly.expectedSeconds(), 1e-9);
+    }
+
+    @Test
+    void onSnapshot_shouldNotLearnBaselineFromVehiclesWithoutTripUpdate() {
+        when(mapMatching.find(anyString())).thenReturn(Optional.empty());
+        for (int minute = 0; minute < 30; minute++) {
+            snapshot(START + minute * 60_000L, positionOnly("v1", "t1"));
+        }
+        snapshot(START + 30 * 60_000L, vehicle("v2", "t2", 600));
+
+        verify(publisher, never()).publishEvent(any());
+        assertTrue(detector.findRecent("52", START).isEmpty());
+    }
+
+    @Test
+    void ewmaBaseline_shouldResistOutliers() {
+        EwmaBaseline baseline = new EwmaBaseline(0.1, 1.0);
+        for (int i = 0; i < 100; i++) {
+            baseline.update(i % 2 == 0 ? 50 : 70);
+        }
+        assertEquals(60.0, baseline.mean(), 1.0);
+        assertEquals(10.0, baseline.stdDev(), 1.5);
+        baseline.update(10_000);
+        assertTrue(baseline.mean() < 70.0);
+    }
+
+    private void snapshot(long millis, VehicleCurrentState... vehicles) {
+        detector.onSnapshot(new RealtimeSnapshot(millis, millis, List.of(vehicles)));
+    }
+
+    private static VehicleCurrentState vehicle(String id, String tripId, int delay) {
+        return new VehicleCurrentState(id, tripId, "52", 50.06f, 19.94f, delay, "SCHEDULED", "Delayed", 0);
+    }
+
+    private static VehicleCurrentState positionOnly(String id, String tripId) {
+        return VehicleCurrentState.from(new SimpleVehiclePosition(id, tripId, 50.06f, 19.94f, 0, Float.NaN, Float.NaN),
+                null).withTrip(new TripDetails("52", "52", null, 0, null, null, null, 0, "shape_52"));
+    }
+
+    private static VehicleProgress progress(String tripId, String previousStopId) {
+        return new VehicleProgress("v", tripId, "52", "shape_52", 0, 0, 1000, 0, 0,
+                previousStopId, null, null, null, null);
+    }
+}
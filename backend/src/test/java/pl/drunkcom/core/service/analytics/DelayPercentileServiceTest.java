@@ -0,0 +1,43 @@
+package pl.drunkcom.core.service.analytics;
+
+import org.junit.jupiter.api.Test;
+import pl.drunkcom.core.service.SimpleVehiclePosition;
+import pl.drunkcom.core.service.TripDetails;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.realtime.MapMatchingService;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.VehicleProgress;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DelayPercentileServiceTest {
+
+    private final MapMatchingService mapMatching = mock(MapMatchingService.class);
+    private final DelayPercentileService service = new DelayPercentileService(mapMatching);
+
+    @Test
+    void onSnapshot_shouldSampleOnlyVehiclesWithTripUpdate() {
+        when(mapMatching.find(anyString())).thenAnswer(call -> Optional.of(new VehicleProgress(call.getArgument(0),
+                "t" + call.<String>getArgument(0).substring(1), "52", "shape", 0, 0, 1000, 0, 0, "A",
+                null, null, null, null)));
+        VehicleCurrentState positionOnly = VehicleCurrentState.from(
+                new SimpleVehiclePosition("v1", "t1", 50.06f, 19.94f, 0, Float.NaN, Float.NaN), null)
+                .withTrip(new TripDetails("52", "52", null, 0, null, null, null, 0, "shape"));
+        VehicleCurrentState reported = new VehicleCurrentState("v2", "t2", "52", 50.06f, 19.94f, 240,
+                "SCHEDULED", "", 0);
+
+        long now = System.currentTimeMillis();
+        service.onSnapshot(new RealtimeSnapshot(1, now, List.of(positionOnly, reported)));
+
+        DelaySummary route = service.summarizeRoute("52", DelayWindow.MINUTES_15).orElseThrow();
+        assertEquals(1, route.samples());
+        assertEquals(240.0, route.meanSeconds(), 1e-9);
+        assertEquals(1, service.summarizeStop("A", DelayWindow.MINUTES_15).orElseThrow().samples());
+    }
+}
@@ -0,0 +1,52 @@
+package pl.drunkcom.core.service.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DelaySketchTest {
+
+    @Test
+    void quantile_shouldBeWithinBinResolutionOfExactValue() {
+        Random random = new Random(9);
+        int[] delays = new int[20_000];
+        DelayHistogram histogram = new DelayHistogram();
+        for (int i = 0; i < delays.length; i++) {
+            delays[i] = (int) Math.round(random.nextGaussian() * 240 + 120);
+            histogram.record(delays[i]);
+        }
+        long[] dense = new long[DelayHistogram.binCount()];
+        histogram.addTo(dense);
+        Arrays.sort(delays);
+
+        for (double q : new double[]{0.5, 0.9, 0.99}) {
+            int exact = delays[(int) Math.ceil(q * delays.length) - 1];
+            double estimate = DelayHistogram.quantile(dense, histogram.count(), q);
+            assertEquals(exact, estimate, Math.max(5, Math.abs(exact) * 0.06), "q=" + q);
+        }
+        assertTrue(histogram.estimatedBytes() < 2048);
+    }
+
+    @Test
+    void merge_shouldOnlyIncludeBucketsInsideTheWindow() {
+        DelaySketch sketch = new DelaySketch();
+        long start = 1_700_000_000_000L - 1_700_000_000_000L % DelaySketch.COARSE_BUCKET_MILLIS;
+        sketch.record(start, 600);
+        sketch.record(start + 50 * 60_000L, 60);
+        sketch.record(start + 59 * 60_000L, 0);
+
+        long now = start + 59 * 60_000L;
+        long[] lastQuarter = sketch.merge(DelayWindow.MINUTES_15, now, new long[DelayHistogram.binCount()]);
+        assertArrayEquals(new long[]{2, 60}, lastQuarter);
+        long[] lastHour = sketch.merge(DelayWindow.HOUR_1, now, new long[DelayHistogram.binCount()]);
+        assertArrayEquals(new long[]{3, 660}, lastHour);
+
+        // A day later only the hourly ring still holds the old buckets, and they have expired too
+        long nextDay = start + 25 * DelaySketch.COARSE_BUCKET_MILLIS;
+        assertArrayEquals(new long[]{0, 0}, sketch.merge(DelayWindow.DAY_1, nextDay, new long[DelayHistogram.binCount()]));
+        assertArrayEquals(new long[]{3, 660}, sketch.merge(DelayWindow.DAY_1, now, new long[DelayHistogram.binCount()]));
+    }
+}
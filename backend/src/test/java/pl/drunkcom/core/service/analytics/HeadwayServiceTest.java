@@ -0,0 +1,89 @@
+package pl.drunkcom.core.service.analytics;
+
+import org.junit.jupiter.api.Test;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.realtime.MapMatchingService;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.VehicleProgress;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HeadwayServiceTest {
+
+    private final MapMatchingService mapMatching = mock(MapMatchingService.class);
+    private final ScheduledHeadwayService scheduled = mock(ScheduledHeadwayService.class);
+    private final HeadwayService service = new HeadwayService(mapMatching, scheduled, 0.25, 2.0);
+
+    @Test
+    void onSnapshot_shouldMeasureHeadwaysFromPassagesOfTheVehicleAhead() {
+        when(scheduled.directionOf(anyString(), anyLong())).thenReturn(0);
+        when(scheduled.scheduledHeadway(any(), any(), anyLong())).thenReturn(600);
+
+        // Vehicle a leaves the terminus and passes the 100, 200 and 300 m checkpoints at 20, 40 and 60 s
+        snapshot(0, progress("a", "t1", 0, 0));
+        snapshot(60, progress("a", "t1", 60, 300), progress("b", "t2", 60, 50));
+
+        RouteHeadways route = service.findAll("52").get(0);
+        assertEquals("shape_52", route.shapeId());
+        assertEquals(0, route.directionId());
+        assertEquals(600, route.scheduledHeadwaySeconds());
+        assertEquals(List.of("a", "b"), route.vehicles().stream().map(VehicleHeadway::vehicleId).toList());
+        VehicleHeadway lead = route.vehicles().get(0);
+        assertNull(lead.gapAheadMeters());
+        assertEquals(HeadwayStatus.UNKNOWN, lead.status());
+        // b reaches 100 m 40 s after a passed it: far below a quarter of the 600 s schedule
+        VehicleHeadway follower = route.vehicles().get(1);
+        assertEquals(250.0, follower.gapAheadMeters());
+        assertEquals(40L, follower.headwaySeconds());
+        assertEquals(HeadwayStatus.BUNCHED, follower.status());
+        assertEquals(1, route.bunched());
+
+        // Much later b is 2000 s behind a at the 200 m checkpoint
+        snapshot(2000, progress("a", "t1", 2000, 400), progress("b", "t2", 2000, 160));
+        follower = service.findAll(null).get(0).vehicles().get(1);
+        assertEquals(1960L, follower.headwaySeconds());
+        assertEquals(HeadwayStatus.GAP, follower.status());
+
+        HeadwaySummary summary = service.getSummary();
+        assertEquals(3, summary.snapshotSequence());
+        assertEquals(2, summary.vehicles());
+        assertEquals(1, summary.gaps());
+        assertEquals(1, summary.unknown());
+        assertTrue(service.findAll("4").isEmpty());
+    }
+
+    @Test
+    void classify_shouldCompareAgainstScheduledHeadway() {
+        assertEquals(HeadwayStatus.UNKNOWN, service.classify(null, 600));
+        assertEquals(HeadwayStatus.UNKNOWN, service.classify(300L, null));
+        assertEquals(HeadwayStatus.BUNCHED, service.classify(149L, 600));
+        assertEquals(HeadwayStatus.NORMAL, service.classify(900L, 600));
+        assertEquals(HeadwayStatus.GAP, service.classify(1201L, 600));
+    }
+
+    private long sequence;
+
+    private void snapshot(long epochSeconds, VehicleProgress... vehicles) {
+        List<VehicleCurrentState> states = new ArrayList<>();
+        for (VehicleProgress progress : vehicles) {
+            when(mapMatching.find(progress.vehicleId())).thenReturn(Optional.of(progress));
+            states.add(new VehicleCurrentState(progress.vehicleId(), progress.tripId(), "52", 50.06f, 19.94f,
+                    0, "SCHEDULED", "On time", epochSeconds));
+        }
+        service.onSnapshot(new RealtimeSnapshot(++sequence, epochSeconds * 1000, states));
+    }
+
+    private static VehicleProgress progress(String vehicleId, String tripId, long timestamp, double distance) {
+        return new VehicleProgress(vehicleId, tripId, "52", "shape_52", timestamp, distance, 5000, 0, 0,
+                null, null, null, null, null);
+    }
+}
@@ -0,0 +1,115 @@
+package pl.drunkcom.core.service.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import pl.drunkcom.core.service.SimpleVehiclePosition;
+import pl.drunkcom.core.service.TripDetails;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.geo.TripStopPattern;
+import pl.drunkcom.core.service.realtime.MapMatchingService;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.TripGeometry;
+import pl.drunkcom.core.service.realtime.VehicleProgress;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OnTimePerformanceServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 6);
+    private static final long EIGHT = DAY.atTime(8, 0).atZone(ZoneId.of("Europe/Warsaw")).toEpochSecond();
+
+    private final MapMatchingService mapMatching = mock(MapMatchingService.class);
+    private final OnTimePerformanceService service = new OnTimePerformanceService(
+            new DriverManagerDataSource("jdbc:h2:mem:otp;DB_CLOSE_DELAY=-1", "sa", ""), mapMatching,
+            "Europe/Warsaw", true, 60, 180);
+
+    @Test
+    void rollups_shouldCountDeparturesAndCancellationsAcrossFlushes() throws Exception {
+        TripStopPattern stops = new TripStopPattern(new String[]{"A", "B", "C"}, new int[]{1, 2, 3},
+                new double[]{0, 1000, 2000}, new int[]{28800, 28920, 32400});
+        when(mapMatching.findTripGeometry(anyString())).thenAnswer(call ->
+                Optional.of(new TripGeometry(call.getArgument(0), "shape", null, stops)));
+        when(mapMatching.find(anyString())).thenReturn(Optional.empty());
+
+        // t1 waits at its first stop, which is counted once it leaves
+        at("v1", "t1", "A");
+        service.onSnapshot(snapshot(EIGHT, vehicle("v1", "t1", 0, "SCHEDULED"),
+                vehicle("v2", "t2", 0, "CANCELED")));
+        at("v1", "t1", "B");
+        service.onSnapshot(snapshot(EIGHT + 120, vehicle("v1", "t1", 30, "SCHEDULED")));
+        service.flush();
+
+        at("v1", "t1", "C");
+        // t3 is first seen past its first stop, so only the stops it passes afterwards count
+        at("v3", "t3", "B");
+        service.onSnapshot(snapshot(EIGHT + 600, vehicle("v1", "t1", 400, "SCHEDULED"),
+                vehicle("v3", "t3", -120, "SCHEDULED")));
+        at("v3", "t3", "C");
+        service.onSnapshot(snapshot(EIGHT + 660, vehicle("v3", "t3", -120, "SCHEDULED")));
+        service.flush();
+
+        OtpReport route = service.report("52", null, DAY, DAY);
+        assertEquals(2, route.total().onTime());
+        assertEquals(1, route.total().late());
+        assertEquals(1, route.total().early());
+        assertEquals(3, route.total().cancelled());
+        assertEquals(0.5, route.total().onTimeRatio(), 1e-9);
+        assertEquals(List.of(DAY), route.days().stream().map(OtpDay::date).toList());
+        // the cancelled visit of C was scheduled at 09:00
+        assertEquals(List.of(8, 9), route.hours().stream().map(OtpHour::hour).toList());
+
+        OtpReport stopC = service.report("52", "C", DAY, DAY);
+        assertEquals(1, stopC.total().late());
+        assertEquals(1, stopC.total().early());
+        assertEquals((400 - 120) / 2.0, stopC.total().meanDelaySeconds(), 1e-9);
+
+        List<OtpRouteSummary> routes = service.summarizeRoutes(DAY.minusDays(30), DAY);
+        assertEquals(1, routes.size());
+        assertEquals(3, routes.get(0).counts().cancelled());
+        assertTrue(service.summarizeRoutes(DAY.plusDays(1), DAY.plusDays(2)).isEmpty());
+    }
+
+    @Test
+    void onSnapshot_shouldIgnoreVehicleWithoutTripUpdate() throws Exception {
+        TripStopPattern stops = new TripStopPattern(new String[]{"A", "B", "C"}, new int[]{1, 2, 3},
+                new double[]{0, 1000, 2000}, new int[]{28800, 28920, 32400});
+        when(mapMatching.findTripGeometry(anyString())).thenAnswer(call ->
+                Optional.of(new TripGeometry(call.getArgument(0), "shape", null, stops)));
+        // enrichment fills the route of a position that no trip update matched
+        VehicleCurrentState positionOnly = VehicleCurrentState.from(
+                new SimpleVehiclePosition("v9", "t9", 50.06f, 19.94f, EIGHT, Float.NaN, Float.NaN), null)
+                .withTrip(new TripDetails("53", "53", null, 0, null, null, null, 0, "shape"));
+        assertEquals("53", positionOnly.routeId());
+        assertFalse(positionOnly.hasDelayData());
+
+        at("v9", "t9", "A");
+        service.onSnapshot(snapshot(EIGHT, positionOnly));
+        at("v9", "t9", "B");
+        service.onSnapshot(snapshot(EIGHT + 120, positionOnly));
+        service.flush();
+
+        assertEquals(0, service.report("53", null, DAY, DAY).total().onTime());
+        assertTrue(service.summarizeRoutes(DAY, DAY).stream().noneMatch(r -> "53".equals(r.routeId())));
+    }
+
+    private void at(String vehicleId, String tripId, String previousStopId) {
+        when(mapMatching.find(vehicleId)).thenReturn(Optional.of(new VehicleProgress(vehicleId, tripId, "52", "shape",
+                EIGHT, 0, 2000, 0, 0, previousStopId, 1, null, null, null)));
+    }
+
+    private static RealtimeSnapshot snapshot(long time, VehicleCurrentState... vehicles) {
+        return new RealtimeSnapshot(1, time * 1000, List.of(vehicles));
+    }
+
+    private static VehicleCurrentState vehicle(String vehicleId, String tripId, int delay, String relationship) {
+        return new VehicleCurrentState(vehicleId, tripId, "52", 50.06f, 19.94f, delay, relationship, "", 0);
+    }
+}
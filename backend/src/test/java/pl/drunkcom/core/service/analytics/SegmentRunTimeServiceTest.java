@@ -0,0 +1,140 @@
+package pl.drunkcom.core.service.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import pl.drunkcom.core.interfaces.StopTimeRepository;
+import pl.drunkcom.core.interfaces.TripsRepository;
+import pl.drunkcom.core.service.realtime.MapMatchingService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SegmentRunTimeServiceTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Warsaw");
+
+    private final TripsRepository tripsRepository = mock(TripsRepository.class);
+    private final StopTimeRepository stopTimeRepository = mock(StopTimeRepository.class);
+
+    @Test
+    void tracker_shouldReportRunsBetweenPassageMidpoints() {
+        StopPassageTracker tracker = new StopPassageTracker();
+        List<long[]> runs = new ArrayList<>();
+        StopPassageTracker.RunSink sink = (from, to, enteredAt, seconds) -> runs.add(new long[]{enteredAt, seconds});
+
+        tracker.observe("t1", "s1", 1000, sink);
+        tracker.observe("t1", "s2", 1020, sink);
+        tracker.observe("t1", "s2", 1100, sink);
+        tracker.observe("t1", "s3", 1120, sink);
+        // passage of s4 follows a gap too long to place it, so s3 > s4 is not reported
+        tracker.observe("t1", "s4", 1400, sink);
+
+        assertEquals(1, runs.size());
+        assertArrayEquals(new long[]{1010, 100}, runs.get(0));
+    }
+
+    @Test
+    void histogram_shouldSurviveSerializationAndMerge() throws Exception {
+        DelayHistogram first = new DelayHistogram();
+        DelayHistogram second = new DelayHistogram();
+        for (int i = 0; i < 50; i++) {
+            first.record(60 + i);
+            second.record(300 + i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        first.writeTo(new DataOutputStream(bytes));
+        DelayHistogram copy = DelayHistogram.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        copy.merge(second);
+
+        long[] dense = new long[DelayHistogram.binCount()];
+        copy.addTo(dense);
+        assertEquals(100, copy.count());
+        assertEquals(first.sum() + second.sum(), copy.sum());
+        assertEquals(325, DelayHistogram.quantile(dense, copy.count(), 0.75), 20);
+    }
+
+    @Test
+    void rebuild_shouldDeriveRunTimesFromHistoryAndPersistThem() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:runtimes;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS vehicle_position_history (recorded_at TIMESTAMP WITH TIME ZONE, "
+                + "vehicle_id VARCHAR(64), trip_id VARCHAR(64), route_id VARCHAR(64), latitude REAL, longitude REAL, "
+                + "delay_seconds INTEGER, previous_stop_id VARCHAR(64), distance_along_m REAL)");
+        LocalDate yesterday = LocalDate.now(ZONE).minusDays(1);
+        long start = yesterday.atTime(8, 0).atZone(ZONE).toEpochSecond();
+        for (int v = 0; v < 6; v++) {
+            // s2 is passed at start + 30 and s3 at start + 130 + 10 * v
+            insert(jdbc, start, "v" + v, "s1");
+            insert(jdbc, start + 20, "v" + v, "s1");
+            insert(jdbc, start + 40, "v" + v, "s2");
+            insert(jdbc, start + 120 + 10L * v, "v" + v, "s2");
+            insert(jdbc, start + 140 + 10L * v, "v" + v, "s3");
+        }
+        when(tripsRepository.findTripShapes()).thenReturn(List.of());
+        when(stopTimeRepository.findRouteDepartures("52")).thenReturn(List.of());
+
+        service(dataSource).rebuild();
+        SegmentRunTimeService restarted = service(dataSource);
+        restarted.load();
+
+        long entered = (start + 30) * 1000;
+        Optional<RunTimeStats> exact = restarted.runTime("52", "52", "s2", "s3", entered);
+        assertTrue(exact.isPresent());
+        assertEquals(6, exact.get().samples());
+        assertEquals(125, exact.get().meanSeconds(), 0.001);
+        // an hour later the neighbouring bucket is used, on other segments nothing is known
+        assertTrue(restarted.runTime("52", "52", "s2", "s3", entered + 3_600_000).isPresent());
+        assertTrue(restarted.runTime("52", "52", "s1", "s2", entered).isEmpty());
+
+        DayType dayType = DayType.of(yesterday.getDayOfWeek());
+        List<SegmentRunTime> segments = restarted.compareWithSchedule("52", dayType, 8);
+        assertEquals(1, segments.size());
+        assertEquals("s2", segments.get(0).fromStopId());
+        assertNull(segments.get(0).scheduledSeconds());
+    }
+
+    @Test
+    void rebuild_shouldDropLiveDaysOutsideWindowEvenWhenItFails() {
+        // no position history table, as when the history sink is disabled
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:runtimes-missing;DB_CLOSE_DELAY=-1", "sa", "");
+        when(tripsRepository.findTripShapes()).thenReturn(List.of());
+        SegmentRunTimeService service = service(dataSource);
+        LocalDate today = LocalDate.now(ZONE);
+        for (int age = 0; age < 10; age++) {
+            LocalDate day = today.minusDays(age);
+            service.recordLive(day, new RunTimeKey("52", "52", "s1", "s2", DayType.of(day.getDayOfWeek()), 8), 60);
+        }
+
+        service.rebuild();
+
+        // the lookback window of 3 days ends yesterday; today is kept as well
+        assertEquals(4, service.liveDays());
+    }
+
+        private SegmentRunTimeService service(DriverManagerDataSource dataSource) {
+        return new SegmentRunTimeService(dataSource, tripsRepository, stopTimeRepository,
+                mock(MapMatchingService.class), "Europe/Warsaw", true, 3, 2);
+    }
+
+    private static void insert(JdbcTemplate jdbc, long time, String vehicleId, String previousStopId) {
+        jdbc.update("INSERT INTO vehicle_position_history VALUES (?, ?, 't_' || ?, '52', 50.0, 19.9, 0, ?, NULL)",
+                OffsetDateTime.ofInstant(Instant.ofEpochSecond(time), ZONE), vehicleId, vehicleId,
+                previousStopId);
+    }
+}
@@ -0,0 +1,85 @@
+package pl.drunkcom.core.service.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterIndexTest {
+
+    @Test
+    void clusters_shouldKeepEveryPointOnEveryZoomLevel() {
+        Random random = new Random(3);
+        int points = 2000;
+        long[] ids = new long[points];
+        double[] latitudes = new double[points];
+        double[] longitudes = new double[points];
+        for (int i = 0; i < points; i++) {
+            ids[i] = i;
+            latitudes[i] = 50.0 + random.nextDouble() * 0.12;
+            longitudes[i] = 19.85 + random.nextDouble() * 0.25;
+        }
+        ClusterIndex index = ClusterIndex.build(0, 16, 40, ids, latitudes, longitudes);
+
+        int previousClusters = 0;
+        for (int zoom = 0; zoom <= 17; zoom++) {
+            List<ClusterIndex.Cluster> clusters = index.clusters(-90, -180, 90, 180, zoom);
+            assertEquals(points, clusters.stream().mapToInt(ClusterIndex.Cluster::count).sum(), "zoom " + zoom);
+            assertTrue(clusters.size() >= previousClusters, "zoom " + zoom);
+            previousClusters = clusters.size();
+        }
+        assertEquals(1, index.clusters(-90, -180, 90, 180, 0).size());
+        assertEquals(points, index.clusters(-90, -180, 90, 180, 17).size());
+    }
+
+    @Test
+    void clusters_shouldReturnTheClustersOfTheLevelInsideTheBox() {
+        Random random = new Random(5);
+        int points = 3000;
+        long[] ids = new long[points];
+        double[] latitudes = new double[points];
+        double[] longitudes = new double[points];
+        for (int i = 0; i < points; i++) {
+            ids[i] = i;
+            latitudes[i] = 50.0 + random.nextDouble() * 0.12;
+            longitudes[i] = 19.85 + random.nextDouble() * 0.25;
+        }
+        ClusterIndex index = ClusterIndex.build(0, 16, 40, ids, latitudes, longitudes);
+
+        for (int q = 0; q < 100; q++) {
+            int zoom = 8 + q % 10;
+            double minLat = 49.98 + random.nextDouble() * 0.14;
+            double minLon = 19.83 + random.nextDouble() * 0.27;
+            double maxLat = minLat + random.nextDouble() * 0.04;
+            double maxLon = minLon + random.nextDouble() * 0.06;
+
+            List<ClusterIndex.Cluster> expected = index.clusters(-90, -180, 90, 180, zoom).stream()
+                    .filter(c -> ClusterIndex.projectY(c.latitude()) >= ClusterIndex.projectY(maxLat)
+                            && ClusterIndex.projectY(c.latitude()) <= ClusterIndex.projectY(minLat)
+                            && ClusterIndex.projectX(c.longitude()) >= ClusterIndex.projectX(minLon)
+                            && ClusterIndex.projectX(c.longitude()) <= ClusterIndex.projectX(maxLon))
+                    .toList();
+            assertEquals(expected, index.clusters(minLat, minLon, maxLat, maxLon, zoom), "query " + q);
+        }
+    }
+
+    @Test
+    void add_shouldJoinNearbyClusterOrStartNewOne() {
+        ClusterIndex index = ClusterIndex.build(0, 16, 40,
+                new long[]{1, 2}, new double[]{50.06, 50.0601}, new double[]{19.94, 19.9401});
+
+        index.add(3, 50.0602, 19.9402);
+        index.add(4, 50.30, 20.50);
+
+        List<ClusterIndex.Cluster> city = index.clusters(49.9, 19.8, 50.2, 20.1, 10);
+        assertEquals(1, city.size());
+        assertEquals(3, city.get(0).count());
+        List<ClusterIndex.Cluster> far = index.clusters(50.2, 20.4, 50.4, 20.6, 10);
+        assertEquals(1, far.size());
+        assertEquals(4, far.get(0).pointId());
+        assertEquals(4, index.clusters(-90, -180, 90, 180, 17).size());
+        assertEquals(4, index.clusters(-90, -180, 90, 180, 0).get(0).count());
+    }
+}
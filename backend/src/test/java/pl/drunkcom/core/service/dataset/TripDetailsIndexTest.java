@@ -0,0 +1,82 @@
+package pl.drunkcom.core.service.dataset;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pl.drunkcom.core.interfaces.TripsRepository;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.pipeline.EnrichStage;
+import pl.drunkcom.core.service.pipeline.FeedCycle;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TripDetailsIndexTest {
+
+    @Mock
+    private TripsRepository tripsRepository;
+
+    @Mock
+    private StaticDatasetVersion datasetVersion;
+
+    @Test
+    void enrich_shouldDescribeVehiclesFromStaticTrips() {
+        List<TripsRepository.TripDescription> trips = List.of(
+                trip("t1", "r52", "52", "Os. Piastów"), trip("t2", "r52", "52", "Czerwone Maki"));
+        when(datasetVersion.current()).thenReturn("v1");
+        when(tripsRepository.findTripDescriptions()).thenReturn(trips);
+        TripDetailsIndex index = new TripDetailsIndex(tripsRepository, datasetVersion);
+        index.reload();
+
+        FeedCycle cycle = new FeedCycle(1, 0);
+        cycle.setVehicles(List.of(vehicle("v1", "t1", ""), vehicle("v2", "t2", "r52"), vehicle("v3", "t9", "")));
+        new EnrichStage(index).process(cycle);
+
+        List<VehicleCurrentState> vehicles = cycle.getVehicles();
+        assertEquals("r52", vehicles.get(0).routeId());
+        assertEquals("52", vehicles.get(0).trip().routeShortName());
+        assertEquals("Os. Piastów", vehicles.get(0).trip().headsign());
+        assertEquals("Czerwone Maki", vehicles.get(1).trip().headsign());
+        assertSame(vehicles.get(0).trip().routeShortName(), vehicles.get(1).trip().routeShortName());
+        assertNull(vehicles.get(2).trip());
+        assertEquals("", vehicles.get(2).routeId());
+        assertEquals("v1", index.getVersion());
+    }
+
+    @Test
+    void reload_shouldKeepPreviousIndexWhenLoadingFails() {
+        List<TripsRepository.TripDescription> trips = List.of(trip("t1", "r52", "52", "Os. Piastów"));
+        when(datasetVersion.current()).thenReturn("v1", "v2");
+        when(tripsRepository.findTripDescriptions())
+                .thenReturn(trips)
+                .thenThrow(new IllegalStateException("database unavailable"));
+        TripDetailsIndex index = new TripDetailsIndex(tripsRepository, datasetVersion);
+
+        index.reload();
+        index.reload();
+
+        assertEquals("v1", index.getVersion());
+        assertTrue(index.find("t1").isPresent());
+    }
+
+    private static TripsRepository.TripDescription trip(String tripId, String routeId, String shortName,
+                                                        String headsign) {
+        TripsRepository.TripDescription trip = mock(TripsRepository.TripDescription.class);
+        when(trip.getTripId()).thenReturn(tripId);
+        when(trip.getRouteId()).thenReturn(routeId);
+        // a fresh copy per row, as the JDBC driver would return
+        when(trip.getRouteShortName()).thenReturn(new String(shortName));
+        when(trip.getHeadsign()).thenReturn(headsign);
+        when(trip.getRouteType()).thenReturn(0);
+        return trip;
+    }
+
+    private static VehicleCurrentState vehicle(String vehicleId, String tripId, String routeId) {
+        return new VehicleCurrentState(vehicleId, tripId, routeId, 50.06f, 19.94f, 0, "SCHEDULED", "", 1000);
+    }
+}
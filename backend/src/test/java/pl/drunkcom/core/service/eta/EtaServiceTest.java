@@ -0,0 +1,99 @@
+package pl.drunkcom.core.service.eta;
+
+import org.junit.jupiter.api.Test;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.analytics.RunTimeStats;
+import pl.drunkcom.core.service.analytics.SegmentRunTimeService;
+import pl.drunkcom.core.service.geo.TripStopPattern;
+import pl.drunkcom.core.service.realtime.MapMatchingService;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.TripGeometry;
+import pl.drunkcom.core.service.realtime.VehicleProgress;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class EtaServiceTest {
+
+    private static final long SERVICE_DAY = LocalDate.of(2024, 5, 6).atStartOfDay(ZoneId.of("Europe/Warsaw"))
+            .toEpochSecond();
+    private static final long OBSERVED_AT = SERVICE_DAY + 28860;
+
+    private final MapMatchingService mapMatching = mock(MapMatchingService.class);
+    private final SegmentRunTimeService runTimes = mock(SegmentRunTimeService.class);
+    private final EtaService service = new EtaService(mapMatching, runTimes, "Europe/Warsaw", 6.0);
+
+    EtaServiceTest() {
+        // A 08:00, B 08:02, C 08:05; observed run times are only known between B and C
+        TripStopPattern stops = new TripStopPattern(new String[]{"A", "B", "C"}, new int[]{1, 2, 3},
+                new double[]{0, 1000, 2000}, new int[]{28800, 28920, 29100});
+        when(mapMatching.findTripGeometry("t1")).thenReturn(Optional.of(new TripGeometry("t1", "shape", null, stops)));
+        when(mapMatching.find("v1")).thenReturn(Optional.of(new VehicleProgress("v1", "t1", "52", "shape",
+                OBSERVED_AT, 500, 2000, 0, 0, "A", 1, "B", 2, 500.0)));
+        when(runTimes.runTime(anyString(), anyString(), anyString(), anyString(), anyLong()))
+                .thenReturn(Optional.empty());
+        when(runTimes.runTime(eq("52"), eq("shape"), eq("B"), eq("C"), anyLong()))
+                .thenReturn(Optional.of(new RunTimeStats(20, 200, 190, 250)));
+    }
+
+    @Test
+    void predict_shouldAddRemainingSegmentRunTimesAndWidenIntervals() {
+        service.onSnapshot(snapshot(OBSERVED_AT, 0));
+
+        TripEta trip = service.findTrip("t1").orElseThrow();
+        assertEquals(2, trip.stops().size());
+        StopEta b = trip.stops().get(0);
+        assertEquals("B", b.stopId());
+        assertEquals(EtaSource.SCHEDULE, b.source());
+        // half of the scheduled 120 s remains, with a 30 s standard deviation scaled to that half
+        assertEquals(OBSERVED_AT + 60, b.predictedArrival());
+        assertEquals(SERVICE_DAY + 28920, b.scheduledArrival());
+        assertEquals(27, b.latestArrival() - b.predictedArrival());
+
+        StopEta c = trip.stops().get(1);
+        assertEquals(EtaSource.HISTORY, c.source());
+        assertEquals(OBSERVED_AT + 260, c.predictedArrival());
+        assertTrue(c.latestArrival() - c.predictedArrival() > b.latestArrival() - b.predictedArrival());
+        assertEquals(c.predictedArrival() - c.earliestArrival(), c.latestArrival() - c.predictedArrival());
+
+        assertEquals(List.of("t1"), service.findStop("C", OBSERVED_AT, 10).stream().map(StopArrival::tripId).toList());
+        assertTrue(service.findStop("C", OBSERVED_AT + 3600, 10).isEmpty());
+    }
+
+    @Test
+    void onSnapshot_shouldOnlyRecomputeTripsWhoseInputsChanged() {
+        service.onSnapshot(snapshot(OBSERVED_AT, 0));
+        service.onSnapshot(snapshot(OBSERVED_AT, 0));
+        verify(runTimes, times(1)).runTime(eq("52"), eq("shape"), eq("B"), eq("C"), anyLong());
+
+        service.onSnapshot(snapshot(OBSERVED_AT + 10, 10));
+        verify(runTimes, times(2)).runTime(eq("52"), eq("shape"), eq("B"), eq("C"), anyLong());
+
+        service.onSnapshot(new RealtimeSnapshot(4, (OBSERVED_AT + 20) * 1000, List.of()));
+        assertTrue(service.findTrip("t1").isEmpty());
+    }
+
+    @Test
+    void predict_shouldShiftTimetableByDelayBeforeMapMatching() {
+        when(mapMatching.find("v1")).thenReturn(Optional.empty());
+        service.onSnapshot(snapshot(OBSERVED_AT, 120));
+
+        TripEta trip = service.findTrip("t1").orElseThrow();
+        // two minutes late, so A (08:00) is still ahead at 08:01
+        assertEquals(List.of("A", "B", "C"), trip.stops().stream().map(StopEta::stopId).toList());
+        assertEquals(SERVICE_DAY + 28920 + 120, trip.stops().get(1).predictedArrival());
+        assertEquals(EtaSource.DELAY, trip.stops().get(0).source());
+    }
+
+    private static RealtimeSnapshot snapshot(long timestamp, int delay) {
+        return new RealtimeSnapshot(1, timestamp * 1000, List.of(new VehicleCurrentState("v1", "t1", "52",
+                50.06f, 19.94f, delay, "SCHEDULED", "On time", timestamp)));
+    }
+}
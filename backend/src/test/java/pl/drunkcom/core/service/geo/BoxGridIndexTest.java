@@ -0,0 +1,60 @@
+package pl.drunkcom.core.service.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoxGridIndexTest {
+
+    @Test
+    void forEachIntersecting_shouldMatchBruteForceAndVisitEachBoxOnce() {
+        Random random = new Random(17);
+        int boxes = 2000;
+        double[] bounds = new double[boxes * 4];
+        for (int i = 0; i < boxes; i++) {
+            double lat = 49.95 + random.nextDouble() * 0.2;
+            double lon = 19.80 + random.nextDouble() * 0.3;
+            bounds[i * 4] = lat;
+            bounds[i * 4 + 1] = lon;
+            bounds[i * 4 + 2] = lat + random.nextDouble() * 0.1;
+            bounds[i * 4 + 3] = lon + random.nextDouble() * 0.1;
+        }
+        // A box too large for the grid, an empty one and an invalid one must not break the index
+        bounds[0] = -10;
+        bounds[1] = -10;
+        bounds[2] = 60;
+        bounds[3] = 60;
+        bounds[4] = Double.MAX_VALUE;
+        bounds[5] = Double.MAX_VALUE;
+        bounds[6] = -Double.MAX_VALUE;
+        bounds[7] = -Double.MAX_VALUE;
+        bounds[8] = Double.NaN;
+        BoxGridIndex index = new BoxGridIndex(bounds);
+
+        for (int q = 0; q < 200; q++) {
+            double minLat = 49.90 + random.nextDouble() * 0.3;
+            double minLon = 19.75 + random.nextDouble() * 0.4;
+            double maxLat = minLat + random.nextDouble() * (q % 10 == 0 ? 0.5 : 0.03);
+            double maxLon = minLon + random.nextDouble() * (q % 10 == 0 ? 0.5 : 0.03);
+
+            List<Integer> found = new ArrayList<>();
+            index.forEachIntersecting(minLat, minLon, maxLat, maxLon, found::add);
+
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < boxes; i++) {
+                int b = i * 4;
+                if (bounds[b] <= maxLat && bounds[b + 2] >= minLat && bounds[b + 1] <= maxLon && bounds[b + 3] >= minLon) {
+                    expected.add(i);
+                }
+            }
+            assertEquals(expected.size(), found.size());
+            assertEquals(new HashSet<>(expected), new HashSet<>(found));
+            assertTrue(found.contains(0));
+        }
+    }
+}
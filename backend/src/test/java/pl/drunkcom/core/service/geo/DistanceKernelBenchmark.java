@@ -0,0 +1,109 @@
+package pl.drunkcom.core.service.geo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pl.drunkcom.core.service.VehicleCurrentState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * JMH comparison of the radius filter used by the nearby endpoints: the original stream filter with
+ * a Haversine per vehicle against {@link DistanceKernel} with the scalar and the vectorized prefilter.
+ *
+ * <p>Not part of the unit test run. Start it from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=pl.drunkcom.core.service.geo.DistanceKernelBenchmark}.
+ *
+ * @author Development Team
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class DistanceKernelBenchmark {
+
+    private static final double LATITUDE = 50.0614;
+    private static final double LONGITUDE = 19.9366;
+    private static final double RADIUS_KM = 2.0;
+
+    @Param({"1000", "10000", "100000"})
+    public int points;
+
+    private List<VehicleCurrentState> vehicles;
+    private float[] latitudes;
+    private float[] longitudes;
+    private int[] result;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        vehicles = new ArrayList<>(points);
+        latitudes = new float[points];
+        longitudes = new float[points];
+        for (int i = 0; i < points; i++) {
+            latitudes[i] = (float) (49.95 + random.nextDouble() * 0.2);
+            longitudes[i] = (float) (19.75 + random.nextDouble() * 0.4);
+            vehicles.add(new VehicleCurrentState("V" + i, "T" + i, "R" + (i % 200),
+                    latitudes[i], longitudes[i], 0, "SCHEDULED", "On time", 0L));
+        }
+        result = new int[points];
+    }
+
+    @Benchmark
+    public List<VehicleCurrentState> streamFilter() {
+        return vehicles.stream()
+                .filter(vehicle -> haversineKm(LATITUDE, LONGITUDE, vehicle.latitude(), vehicle.longitude()) <= RADIUS_KM)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public int scalarKernel() {
+        return DistanceKernel.withinRadius(latitudes, longitudes, points,
+                LATITUDE, LONGITUDE, RADIUS_KM * 1000.0, result, false);
+    }
+
+    @Benchmark
+    public int vectorKernel() {
+        return DistanceKernel.withinRadius(latitudes, longitudes, points,
+                LATITUDE, LONGITUDE, RADIUS_KM * 1000.0, result, DistanceKernel.isVectorized());
+    }
+
+    @Benchmark
+    public List<VehicleCurrentState> listFilter() {
+        return DistanceKernel.filter(vehicles, VehicleCurrentState::latitude, VehicleCurrentState::longitude,
+                LATITUDE, LONGITUDE, RADIUS_KM * 1000.0);
+    }
+
+    /**
+     * The distance function previously used by {@code GtfsRealTimeService.filterVehiclesByRadius}.
+     */
+    private static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        return GeoMath.haversineMeters(lat1, lon1, lat2, lon2) / 1000.0;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DistanceKernelBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
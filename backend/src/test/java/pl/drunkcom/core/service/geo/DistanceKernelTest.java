@@ -0,0 +1,60 @@
+package pl.drunkcom.core.service.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceKernelTest {
+
+    @Test
+    void withinRadius_shouldMatchHaversineForScalarAndVectorPrefilter() {
+        Random random = new Random(5);
+        int points = 10_003;
+        float[] latitudes = new float[points];
+        float[] longitudes = new float[points];
+        for (int i = 0; i < points; i++) {
+            latitudes[i] = (float) (49.95 + random.nextDouble() * 0.2);
+            longitudes[i] = (float) (19.80 + random.nextDouble() * 0.3);
+        }
+
+        for (int q = 0; q < 50; q++) {
+            double latitude = 49.95 + random.nextDouble() * 0.2;
+            double longitude = 19.80 + random.nextDouble() * 0.3;
+            double radius = 50 + random.nextDouble() * 5000;
+
+            int[] expected = new int[points];
+            int expectedCount = 0;
+            for (int i = 0; i < points; i++) {
+                if (GeoMath.haversineMeters(latitude, longitude, latitudes[i], longitudes[i]) <= radius) {
+                    expected[expectedCount++] = i;
+                }
+            }
+
+            int[] scalar = new int[points];
+            int scalarCount = DistanceKernel.withinRadius(latitudes, longitudes, points,
+                    latitude, longitude, radius, scalar, false);
+            assertArrayEquals(Arrays.copyOf(expected, expectedCount), Arrays.copyOf(scalar, scalarCount));
+
+            if (DistanceKernel.isVectorized()) {
+                int[] vector = new int[points];
+                int vectorCount = DistanceKernel.withinRadius(latitudes, longitudes, points,
+                        latitude, longitude, radius, vector, true);
+                assertArrayEquals(Arrays.copyOf(expected, expectedCount), Arrays.copyOf(vector, vectorCount));
+            }
+        }
+    }
+
+    @Test
+    void withinRadius_shouldHandleEmptyInputAndPolarQueries() {
+        assertEquals(0, DistanceKernel.withinRadius(new float[0], new float[0], 0, 50, 20, 1000, new int[0]));
+
+        float[] latitudes = {89.999f, 89.999f, 0f};
+        float[] longitudes = {0f, 180f, 0f};
+        int[] result = new int[3];
+        assertEquals(2, DistanceKernel.withinRadius(latitudes, longitudes, 3, 90, 0, 500, result));
+        assertArrayEquals(new int[]{0, 1}, Arrays.copyOf(result, 2));
+    }
+}
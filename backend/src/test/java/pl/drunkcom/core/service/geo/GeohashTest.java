@@ -0,0 +1,34 @@
+package pl.drunkcom.core.service.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeohashTest {
+
+    @Test
+    void encode_shouldMatchReferenceGeohash() {
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+        assertEquals("u4pru", Geohash.encode(57.64911, 10.40744, 5));
+    }
+
+    @Test
+    void cellsInBox_shouldContainTheCellOfEveryPointInTheBox() {
+        Random random = new Random(3);
+        for (int q = 0; q < 200; q++) {
+            double minLat = 49.9 + random.nextDouble() * 0.2;
+            double minLon = 19.8 + random.nextDouble() * 0.2;
+            double maxLat = minLat + random.nextDouble() * 0.05;
+            double maxLon = minLon + random.nextDouble() * 0.05;
+            List<String> cells = Geohash.cellsInBox(minLat, minLon, maxLat, maxLon, 6);
+            assertEquals(cells.size(), Geohash.cellCount(minLat, minLon, maxLat, maxLon, 6));
+
+            double latitude = minLat + random.nextDouble() * (maxLat - minLat);
+            double longitude = minLon + random.nextDouble() * (maxLon - minLon);
+            assertTrue(cells.contains(Geohash.encode(latitude, longitude, 6)));
+        }
+    }
+}
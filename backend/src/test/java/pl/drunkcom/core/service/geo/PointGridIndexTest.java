@@ -0,0 +1,49 @@
+package pl.drunkcom.core.service.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PointGridIndexTest {
+
+    @Test
+    void forEachInBox_shouldMatchBruteForce() {
+        Random random = new Random(11);
+        int points = 5000;
+        double[] latitudes = new double[points];
+        double[] longitudes = new double[points];
+        for (int i = 0; i < points; i++) {
+            latitudes[i] = 49.95 + random.nextDouble() * 0.2;
+            longitudes[i] = 19.80 + random.nextDouble() * 0.3;
+        }
+        // Outliers and invalid coordinates must not break the index
+        latitudes[0] = 0;
+        longitudes[0] = 0;
+        latitudes[1] = Double.NaN;
+        PointGridIndex index = new PointGridIndex(latitudes, longitudes);
+
+        assertEquals(points - 1, index.size());
+        for (int q = 0; q < 100; q++) {
+            double minLat = 49.95 + random.nextDouble() * 0.2;
+            double minLon = 19.80 + random.nextDouble() * 0.3;
+            double maxLat = minLat + random.nextDouble() * 0.05;
+            double maxLon = minLon + random.nextDouble() * 0.05;
+
+            List<Integer> found = new ArrayList<>();
+            index.forEachInBox(minLat, minLon, maxLat, maxLon, found::add);
+
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < points; i++) {
+                if (latitudes[i] >= minLat && latitudes[i] <= maxLat && longitudes[i] >= minLon && longitudes[i] <= maxLon) {
+                    expected.add(i);
+                }
+            }
+            assertEquals(expected.size(), found.size());
+            assertTrue(found.containsAll(expected));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package pl.drunkcom.core.service.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolylineSimplifierTest {
+
+    @Test
+    void encode_shouldMatchReferenceExample() {
+        ShapeGeometry shape = new ShapeGeometry("reference",
+                new double[]{38.5, 40.7, 43.252}, new double[]{-120.2, -120.95, -126.453});
+
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", PolylineEncoder.encode(shape, new int[]{0, 1, 2}));
+    }
+
+    @Test
+    void simplify_shouldMatchRecursiveDouglasPeucker() {
+        int points = 500;
+        Random random = new Random(7);
+        double[] latitudes = new double[points];
+        double[] longitudes = new double[points];
+        for (int i = 0; i < points; i++) {
+            latitudes[i] = 50.0 + 0.0001 * i + 0.0002 * random.nextGaussian();
+            longitudes[i] = 19.9 + 0.0001 * i + 0.0002 * random.nextGaussian();
+        }
+        ShapeGeometry shape = new ShapeGeometry("noisy", latitudes, longitudes);
+        float[] importance = PolylineSimplifier.importance(shape);
+
+        for (double tolerance : new double[]{0.5, 5, 20, 100}) {
+            List<Integer> expected = new ArrayList<>();
+            expected.add(0);
+            douglasPeucker(shape, 0, points - 1, tolerance, expected);
+            expected.add(points - 1);
+
+            int[] actual = PolylineSimplifier.simplify(importance, tolerance);
+
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), actual, "tolerance " + tolerance);
+        }
+        assertEquals(points, PolylineSimplifier.simplify(importance, 0).length);
+    }
+
+    private static void douglasPeucker(ShapeGeometry shape, int first, int last, double tolerance, List<Integer> kept) {
+        int split = -1;
+        double maxDistance = -1;
+        for (int i = first + 1; i < last; i++) {
+            ShapeGeometry chord = new ShapeGeometry("chord",
+                    new double[]{shape.latitudeAt(first), shape.latitudeAt(last)},
+                    new double[]{shape.longitudeAt(first), shape.longitudeAt(last)});
+            double distance = chord.projectOnSegment(0, shape.latitudeAt(i), shape.longitudeAt(i)).offsetMeters();
+            if (distance > maxDistance) {
+                maxDistance = distance;
+                split = i;
+            }
+        }
+        if (split < 0 || maxDistance <= tolerance) {
+            return;
+        }
+        douglasPeucker(shape, first, split, tolerance, kept);
+        kept.add(split);
+        douglasPeucker(shape, split, last, tolerance, kept);
+    }
+}
@@ -0,0 +1,89 @@
+package pl.drunkcom.core.service.geo;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import pl.drunkcom.core.interfaces.ShapeRepository;
+import pl.drunkcom.core.model.gtfs.Shape;
+import pl.drunkcom.core.model.gtfs.ShapeCoords;
+import pl.drunkcom.core.service.dataset.StaticDatasetChangedEvent;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShapeGeometryServiceTest {
+
+    private final ShapeRepository repository = mock(ShapeRepository.class);
+    private final ShapeGeometryService service = new ShapeGeometryService(repository,
+            mock(PlatformTransactionManager.class));
+    private final ShapePolylineService polylines = new ShapePolylineService(service);
+
+    @Test
+    void onDatasetChanged_shouldServeReloadedGeometry() {
+        Shape before = shape(50.0, 50.01);
+        when(repository.findById("s1")).thenReturn(Optional.of(before));
+        when(repository.findAll()).thenReturn(List.of(before));
+        assertEquals(50.01, service.find("s1").orElseThrow().latitudeAt(1), 1e-6);
+        assertEquals(2, polylines.find("s1", 22).orElseThrow().pointCount());
+
+        // a GTFS reload replaces the shape with a longer one
+        Shape after = shape(50.0, 50.02, 50.03);
+        when(repository.findById("s1")).thenReturn(Optional.of(after));
+        when(repository.findAll()).thenReturn(List.of(after));
+        service.onDatasetChanged(new StaticDatasetChangedEvent("v2"));
+
+        assertEquals(3, service.find("s1").orElseThrow().size());
+        assertEquals(50.02, service.find("s1").orElseThrow().latitudeAt(1), 1e-6);
+        assertEquals(3, polylines.find("s1", 22).orElseThrow().pointCount());
+        assertEquals(3, service.loadAll().get(0).size());
+    }
+
+    @Test
+    void find_shouldPackLegacyShapeWithoutWritingIt() {
+        Shape legacy = new Shape();
+        legacy.setShapeId("s1");
+        legacy.setCoords(Set.of(point(2, 50.02), point(1, 50.01)));
+        when(repository.findById("s1")).thenReturn(Optional.of(legacy));
+
+        ShapeGeometry geometry = service.find("s1").orElseThrow();
+
+        assertEquals(50.01, geometry.latitudeAt(0), 1e-6);
+        assertSame(geometry, service.find("s1").orElseThrow());
+        verify(repository, times(1)).findById("s1");
+        verify(repository, never()).save(any());
+
+        when(repository.findByPackedGeometryIsNull()).thenReturn(List.of(legacy));
+        assertEquals(1, service.migrateLegacyShapes());
+        verify(repository).save(legacy);
+    }
+
+    private static ShapeCoords point(int sequence, double latitude) {
+        ShapeCoords point = new ShapeCoords();
+        point.setShapePtSequence(sequence);
+        point.setShapePtLat(latitude);
+        point.setShapePtLon(19.94);
+        return point;
+    }
+
+    private static Shape shape(double... latitudes) {
+        int[] latitudesE6 = new int[latitudes.length];
+        int[] longitudesE6 = new int[latitudes.length];
+        for (int i = 0; i < latitudes.length; i++) {
+            latitudesE6[i] = ShapeGeometryCodec.toMicrodegrees(latitudes[i]);
+            longitudesE6[i] = ShapeGeometryCodec.toMicrodegrees(19.94);
+        }
+        Shape shape = new Shape();
+        shape.setShapeId("s1");
+        shape.setPackedGeometry(ShapeGeometryCodec.encode(latitudesE6, longitudesE6));
+        shape.setPointCount(latitudes.length);
+        return shape;
+    }
+}
@@ -0,0 +1,107 @@
+package pl.drunkcom.core.service.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShapeGeometryTest {
+
+    @Test
+    void projectNear_shouldMatchFullScanOnLongShape() {
+        // A wiggly 2000-point shape through the city centre
+        int points = 2000;
+        double[] latitudes = new double[points];
+        double[] longitudes = new double[points];
+        for (int i = 0; i < points; i++) {
+            latitudes[i] = 50.0 + 0.00005 * i + 0.001 * Math.sin(i / 50.0);
+            longitudes[i] = 19.9 + 0.00005 * i;
+        }
+        ShapeGeometry shape = new ShapeGeometry("wiggly", latitudes, longitudes);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200; i++) {
+            double latitude = 50.0 + random.nextDouble() * 0.1;
+            double longitude = 19.9 + random.nextDouble() * 0.1;
+
+            ShapeGeometry.ShapeProjection indexed = shape.project(latitude, longitude);
+            ShapeGeometry.ShapeProjection scanned = fullScan(shape, latitude, longitude);
+
+            assertEquals(scanned.offsetMeters(), indexed.offsetMeters(), 1e-6);
+        }
+    }
+
+    @Test
+    void projectNear_shouldKeepVehicleOnItsLegOfAnOutAndBackShape() {
+        // Goes east 1 km and comes back along the same street
+        ShapeGeometry shape = new ShapeGeometry("out-and-back",
+                new double[]{50.0, 50.0, 50.0}, new double[]{19.90, 19.914, 19.90});
+        double halfway = shape.length() / 2;
+
+        ShapeGeometry.ShapeProjection outbound = shape.projectNear(50.0, 19.905, 200);
+        ShapeGeometry.ShapeProjection inbound = shape.projectNear(50.0, 19.905, halfway + 100);
+
+        assertTrue(outbound.distanceAlongMeters() < halfway);
+        assertTrue(inbound.distanceAlongMeters() > halfway);
+        assertEquals(shape.length() - outbound.distanceAlongMeters(), inbound.distanceAlongMeters(), 1.0);
+    }
+
+    @Test
+    void pointAt_shouldInvertProjection() {
+        ShapeGeometry shape = new ShapeGeometry("straight",
+                new double[]{50.0, 50.01, 50.02}, new double[]{19.90, 19.91, 19.90});
+
+        double[] point = shape.pointAt(1234.0);
+        ShapeGeometry.ShapeProjection projection = shape.project(point[0], point[1]);
+
+        assertEquals(1234.0, projection.distanceAlongMeters(), 0.5);
+        assertEquals(0.0, projection.offsetMeters(), 0.5);
+    }
+
+    @Test
+    void packed_shouldRoundTripAndStayCompact() {
+        int points = 1000;
+        double[] latitudes = new double[points];
+        double[] longitudes = new double[points];
+        for (int i = 0; i < points; i++) {
+            latitudes[i] = 50.06 + 0.0001 * Math.cos(i / 10.0) + 0.00002 * i;
+            longitudes[i] = 19.94 - 0.00003 * i;
+        }
+        ShapeGeometry shape = new ShapeGeometry("packed", latitudes, longitudes);
+
+        byte[] packed = shape.toPacked();
+        ShapeGeometry decoded = ShapeGeometry.fromPacked("packed", packed);
+
+        assertEquals(points, decoded.size());
+        assertEquals(shape.length(), decoded.length(), 1e-3);
+        for (int i = 0; i < points; i++) {
+            assertEquals(latitudes[i], decoded.latitudeAt(i), 1e-6);
+            assertEquals(longitudes[i], decoded.longitudeAt(i), 1e-6);
+        }
+        assertTrue(packed.length < points * 5, "expected about four bytes per point, got " + packed.length);
+    }
+
+    @Test
+    void previousStopIndex_shouldReturnStopSegment() {
+        TripStopPattern stops = new TripStopPattern(
+                new String[]{"A", "B", "C"}, new int[]{1, 2, 3}, new double[]{0, 500, 1200});
+
+        assertEquals(-1, stops.previousStopIndex(-5));
+        assertEquals(0, stops.previousStopIndex(0));
+        assertEquals(0, stops.previousStopIndex(499));
+        assertEquals(1, stops.previousStopIndex(500));
+        assertEquals(2, stops.previousStopIndex(5000));
+    }
+
+    private static ShapeGeometry.ShapeProjection fullScan(ShapeGeometry shape, double latitude, double longitude) {
+        ShapeGeometry.ShapeProjection best = null;
+        for (int i = 0; i < shape.size() - 1; i++) {
+            ShapeGeometry.ShapeProjection candidate = shape.projectOnSegment(i, latitude, longitude);
+            if (best == null || candidate.offsetMeters() < best.offsetMeters()) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+}
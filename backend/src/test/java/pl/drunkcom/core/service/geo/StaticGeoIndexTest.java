@@ -0,0 +1,38 @@
+package pl.drunkcom.core.service.geo;
+
+import org.junit.jupiter.api.Test;
+import pl.drunkcom.core.service.dataset.RouteInfo;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticGeoIndexTest {
+
+    @Test
+    void shapeRoutes_shouldKeepEveryRouteOfSharedShape() {
+        StaticGeoIndex index = new StaticGeoIndex("v1",
+                Map.of("52", route("52"), "4", route("4"), "8", route("8")), List.of(), Map.of(),
+                List.of(line("shared", 50.00, 19.90), line("own", 50.10, 19.90), line("unused", 50.20, 19.90)),
+                Map.of("shared", Set.of("52", "8"), "own", List.of("4")));
+
+        assertArrayEquals(new String[]{"52", "8"}, index.shapeRouteIds(0));
+        assertEquals("52", index.shapeRouteId(0));
+        assertNull(index.shapeRouteId(2));
+        assertArrayEquals(new int[]{0}, index.routeShapes("8"));
+        assertArrayEquals(new int[]{0}, index.routeShapes("52"));
+        assertArrayEquals(new int[]{1}, index.routeShapes("4"));
+        assertEquals(0, index.routeShapes("unknown").length);
+    }
+
+    private static RouteInfo route(String routeId) {
+        return new RouteInfo(routeId, routeId, null, 0, null, null);
+    }
+
+    private static ShapeGeometry line(String shapeId, double latitude, double longitude) {
+        return new ShapeGeometry(shapeId, new double[]{latitude, latitude + 0.01},
+                new double[]{longitude, longitude + 0.01});
+    }
+}
@@ -0,0 +1,79 @@
+package pl.drunkcom.core.service.history;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.realtime.MapMatchingService;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.VehicleProgress;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PositionHistorySinkTest {
+
+    private final MapMatchingService mapMatching = mock(MapMatchingService.class);
+
+    @Test
+    void onSnapshot_shouldWriteChangedPositionsInBatches() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:history;DB_CLOSE_DELAY=-1", "sa", "");
+        when(mapMatching.find(anyString())).thenReturn(Optional.empty());
+        when(mapMatching.find("a")).thenReturn(Optional.of(new VehicleProgress("a", "t1", "52", "shape_52",
+                100, 250.0, 5000, 0, 0, "stop_1", 1, "stop_2", 2, 120.0)));
+        PositionHistorySink sink = new PositionHistorySink(dataSource, mapMatching, new TrajectoryStore(dataSource, 24, false), true, 1000, 100, 30);
+        sink.start();
+
+        long now = System.currentTimeMillis() / 1000;
+        sink.onSnapshot(new RealtimeSnapshot(1, now * 1000, List.of(
+                vehicle("a", "t1", now, 60), vehicle("b", "t2", now, 0))));
+        // b has not reported since, so only a is written again
+        sink.onSnapshot(new RealtimeSnapshot(2, (now + 15) * 1000, List.of(
+                vehicle("a", "t1", now + 15, 90), vehicle("b", "t2", now, 0))));
+        sink.stop();
+
+        HistorySinkStats stats = sink.getStats();
+        assertEquals("jdbc-batch", stats.store());
+        assertEquals(3, stats.acceptedRows());
+        assertEquals(3, stats.writtenRows());
+        assertEquals(0, stats.queuedRows());
+        assertEquals(0, stats.droppedRows());
+
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        assertEquals(3, jdbc.queryForObject("SELECT COUNT(*) FROM vehicle_position_history", Integer.class));
+        assertEquals(List.of(60, 90), jdbc.queryForList("SELECT delay_seconds FROM vehicle_position_history "
+                + "WHERE vehicle_id = 'a' AND previous_stop_id = 'stop_1' ORDER BY recorded_at", Integer.class));
+    }
+
+    @Test
+    void enqueue_shouldDropWhenQueueIsFull() {
+        PositionHistorySink sink = new PositionHistorySink(null, mapMatching, new TrajectoryStore(null, 24, false), false, 2, 100, 30);
+        PositionRow row = new PositionRow(0, "a", null, null, 50f, 20f, 0, null, null);
+
+        assertTrue(sink.enqueue(List.of(row, row)));
+        assertFalse(sink.enqueue(List.of(row)));
+
+        HistorySinkStats stats = sink.getStats();
+        assertEquals(2, stats.queuedRows());
+        assertEquals(2, stats.highWaterRows());
+        assertEquals(1, stats.droppedRows());
+    }
+
+    @Test
+    void appendCsv_shouldQuoteTextAndLeaveNullsEmpty() {
+        StringBuilder csv = new StringBuilder();
+        PostgresHistoryStore.appendCsv(csv, new PositionRow(1_700_000_000L, "v\"1", "t,1", null,
+                50.5f, 19.25f, -30, null, 12.5f));
+        assertEquals("2023-11-14T22:13:20Z,\"v\"\"1\",\"t,1\",,50.5,19.25,-30,,12.5\n", csv.toString());
+    }
+
+    private static VehicleCurrentState vehicle(String id, String tripId, long timestamp, int delay) {
+        return new VehicleCurrentState(id, tripId, "52", 50.06f, 19.94f, delay, "SCHEDULED", "Delayed", timestamp);
+    }
+}
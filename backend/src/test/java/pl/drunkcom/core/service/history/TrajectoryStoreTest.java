@@ -0,0 +1,89 @@
+package pl.drunkcom.core.service.history;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrajectoryStoreTest {
+
+    @Test
+    void trajectory_shouldRoundTripPointsAcrossBlocksAndTrips() {
+        TrajectoryStore store = new TrajectoryStore(null, 24, false);
+        List<PositionRow> rows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String trip = i < 600 ? "t1" : "t2";
+            rows.add(new PositionRow(1_000_000 + i * 15L, "v1", trip, "52",
+                    50.0f + i * 0.0001f, 19.9f - i * 0.00007f, i % 300 - 100, null, null));
+        }
+        store.append(rows);
+        // Out-of-order and duplicate points are ignored
+        store.append(List.of(new PositionRow(1_000_000, "v1", "t1", "52", 0f, 0f, 0, null, null)));
+
+        VehicleTrajectory all = store.trajectory("v1", 0, Long.MAX_VALUE).orElseThrow();
+        assertEquals(1000, all.times().length);
+        for (int i = 0; i < 1000; i++) {
+            PositionRow row = rows.get(i);
+            assertEquals(row.recordedAt(), all.times()[i]);
+            assertEquals(row.latitude(), all.latitudes()[i], 1e-5);
+            assertEquals(row.longitude(), all.longitudes()[i], 1e-5);
+            assertEquals(row.delaySeconds(), all.delays()[i]);
+        }
+        assertEquals(List.of(new TripSpan(0, "t1", "52"), new TripSpan(600, "t2", "52")), all.trips());
+
+        VehicleTrajectory slice = store.trajectory("v1", 1_000_000 + 590 * 15L, 1_000_000 + 610 * 15L).orElseThrow();
+        assertEquals(21, slice.times().length);
+        assertEquals(List.of(new TripSpan(0, "t1", "52"), new TripSpan(10, "t2", "52")), slice.trips());
+        assertTrue(store.trajectory("v2", 0, Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    void stateAt_shouldReturnLatestObservationWithinMaxAge() {
+        TrajectoryStore store = new TrajectoryStore(null, 24, false);
+        store.append(List.of(
+                new PositionRow(100, "a", "t1", "52", 50.1f, 19.9f, 30, null, null),
+                new PositionRow(100, "b", "t2", "4", 50.2f, 19.8f, 0, null, null)));
+        store.append(List.of(new PositionRow(200, "a", "t1", "52", 50.2f, 19.95f, 60, null, null)));
+
+        List<VehicleStateAt> states = store.stateAt(199, 300);
+        assertEquals(2, states.size());
+        assertEquals(new VehicleStateAt("a", "t1", "52", 100, 99, 50.1f, 19.9f, 30), states.get(0));
+
+        states = store.stateAt(250, 100);
+        assertEquals(1, states.size());
+        assertEquals(200, states.get(0).recordedAt());
+        assertEquals(60, states.get(0).delaySeconds());
+        assertTrue(store.stateAt(50, 300).isEmpty());
+    }
+
+    @Test
+    void backfill_shouldPrependPersistedHistoryToLivePoints() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:trajectories;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcBatchHistoryStore history = new JdbcBatchHistoryStore(dataSource);
+        history.ensureSchema();
+        long now = Instant.now().getEpochSecond();
+        history.write(List.of(
+                new PositionRow(now - 600, "a", "t1", "52", 50.0f, 19.9f, 10, null, null),
+                new PositionRow(now - 300, "a", "t1", "52", 50.1f, 19.9f, 20, null, null),
+                new PositionRow(now - 300, "b", "t2", "4", 50.2f, 19.8f, 0, null, null),
+                new PositionRow(now - 90_000, "c", "t3", "4", 50.3f, 19.7f, 0, null, null)));
+
+        TrajectoryStore store = new TrajectoryStore(dataSource, 24, true);
+        // The feed already delivered a point of a that is also persisted, and a newer one
+        store.append(List.of(
+                new PositionRow(now - 300, "a", "t1", "52", 50.1f, 19.9f, 20, null, null),
+                new PositionRow(now - 10, "a", "t1", "52", 50.2f, 19.9f, 40, null, null)));
+        store.backfill();
+
+        VehicleTrajectory a = store.trajectory("a", 0, Long.MAX_VALUE).orElseThrow();
+        assertArrayEquals(new long[]{now - 600, now - 300, now - 10}, a.times());
+        assertArrayEquals(new int[]{10, 20, 40}, a.delays());
+        assertEquals(1, store.trajectory("b", 0, Long.MAX_VALUE).orElseThrow().times().length);
+        assertTrue(store.trajectory("c", 0, Long.MAX_VALUE).isEmpty());
+    }
+}
@@ -0,0 +1,90 @@
+package pl.drunkcom.core.service.incidents;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import pl.drunkcom.core.enums.Incidents;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.VehicleSpatialIndex;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IncidentImpactServiceTest {
+
+    @Test
+    void onSnapshot_shouldAccumulateTripsAndFlagDelaySpikes() {
+        ActiveReportService reports = mock(ActiveReportService.class);
+        when(reports.getReports()).thenReturn(List.of(
+                new ActiveReport(7, Incidents.ACCIDENT, false, null, 50.0600, 19.9400, 0)));
+        when(reports.isActive(anyLong(), anyLong())).thenReturn(true);
+        ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+        VehicleSpatialIndex vehicles = new VehicleSpatialIndex();
+        IncidentImpactService service = new IncidentImpactService(reports, vehicles, publisher, 300, 180);
+
+        // Two route 52 vehicles next to the report, 600 s late, while the rest of the route runs on time
+        RealtimeSnapshot first = new RealtimeSnapshot(1, 0, List.of(
+                vehicle("a", "t1", "52", 50.0601, 19.9401, 600),
+                vehicle("b", "t2", "52", 50.0599, 19.9399, 600),
+                vehicle("c", "t3", "52", 50.1000, 19.9000, 0),
+                vehicle("d", "t4", "4", 50.0602, 19.9402, 30)));
+        vehicles.onSnapshot(first);
+        service.onSnapshot(first);
+
+        ReportImpact impact = service.find(7).orElseThrow();
+        assertEquals(List.of("a", "b", "d"), impact.vehiclesNearby());
+        assertEquals(List.of("t1", "t2", "t4"), impact.impactedTrips());
+        assertTrue(impact.delaySpike());
+        assertEquals(List.of(
+                new RouteImpact("4", 1, 30.0, null, false),
+                new RouteImpact("52", 2, 600.0, 0.0, true)), impact.routes());
+
+        // Vehicles that have moved on stay in the impacted trips
+        RealtimeSnapshot second = new RealtimeSnapshot(2, 0, List.of(
+                vehicle("a", "t1", "52", 50.1000, 19.9000, 600),
+                vehicle("e", "t5", "52", 50.0600, 19.9400, 0)));
+        vehicles.onSnapshot(second);
+        service.onSnapshot(second);
+
+        impact = service.find(7).orElseThrow();
+        assertEquals(List.of("e"), impact.vehiclesNearby());
+        assertEquals(List.of("t1", "t2", "t4", "t5"), impact.impactedTrips());
+        assertFalse(impact.delaySpike());
+        verify(publisher, times(2)).publishEvent(any(IncidentImpactChangedEvent.class));
+    }
+
+    @Test
+    void onSnapshot_shouldNotFlagSpikeWithoutVehiclesElsewhereOnTheRoute() {
+        ActiveReportService reports = mock(ActiveReportService.class);
+        when(reports.getReports()).thenReturn(List.of(
+                new ActiveReport(8, Incidents.ACCIDENT, false, null, 50.0600, 19.9400, 0)));
+        when(reports.isActive(anyLong(), anyLong())).thenReturn(true);
+        VehicleSpatialIndex vehicles = new VehicleSpatialIndex();
+        IncidentImpactService service = new IncidentImpactService(reports, vehicles,
+                mock(ApplicationEventPublisher.class), 300, 180);
+
+        // Every route 52 vehicle is next to the report, however late they are
+        RealtimeSnapshot snapshot = new RealtimeSnapshot(1, 0, List.of(
+                vehicle("a", "t1", "52", 50.0601, 19.9401, 900),
+                vehicle("b", "t2", "52", 50.0599, 19.9399, 900)));
+        vehicles.onSnapshot(snapshot);
+        service.onSnapshot(snapshot);
+
+        ReportImpact impact = service.find(8).orElseThrow();
+        assertEquals(List.of(new RouteImpact("52", 2, 900.0, null, false)), impact.routes());
+        assertFalse(impact.delaySpike());
+    }
+
+    private static VehicleCurrentState vehicle(String id, String tripId, String routeId,
+                                               double latitude, double longitude, int delay) {
+        return new VehicleCurrentState(id, tripId, routeId, (float) latitude, (float) longitude,
+                delay, "SCHEDULED", "Delayed", 0);
+    }
+}
@@ -0,0 +1,143 @@
+package pl.drunkcom.core.service.pipeline;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.realtime.MapMatchingService;
+import pl.drunkcom.core.service.realtime.RealtimeAnalyticsListener;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshotListener;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshotStore;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AnalyticsStageTest {
+
+    private final MapMatchingService mapMatching = mock(MapMatchingService.class);
+    private final List<Long> analysed = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private AnalyticsStage stage;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        if (stage != null) {
+            stage.shutdown();
+        }
+    }
+
+    @Test
+    void process_shouldAnalyseSnapshotsInOrderOffTheCycleThread() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(mapMatching).asOf(any(), any());
+        stage = new AnalyticsStage(mapMatching, provider(new SlowListener()), 4);
+
+        for (long sequence = 1; sequence <= 3; sequence++) {
+            stage.process(cycle(sequence));
+        }
+        assertTrue(analysed.isEmpty(), "the cycle must not wait for the analytics listeners");
+        assertEquals(3, stage.getQueuedSnapshots());
+
+        release.countDown();
+        stage.awaitIdle();
+
+        assertEquals(List.of(1L, 2L, 3L), analysed);
+        assertEquals(0, stage.getQueuedSnapshots());
+        StageStats listener = stage.partStats().get(0);
+        assertEquals("SlowListener", listener.stage());
+        assertEquals(3, listener.runs());
+        assertEquals(2, listener.queueDepth());
+    }
+
+    @Test
+    void process_shouldWaitForFreeSlotWhenQueueIsFull() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(mapMatching).asOf(any(), any());
+        stage = new AnalyticsStage(mapMatching, provider(new SlowListener()), 1);
+        stage.process(cycle(1));
+
+        Thread producer = new Thread(() -> {
+            try {
+                stage.process(cycle(2));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        producer.start();
+        producer.join(200);
+        assertTrue(producer.isAlive(), "a full queue must hold the cycle back instead of dropping snapshots");
+
+        release.countDown();
+        producer.join(TimeUnit.SECONDS.toMillis(10));
+        stage.awaitIdle();
+        assertEquals(List.of(1L, 2L), analysed);
+    }
+
+    @Test
+    void publish_shouldTimeIndexingListenersAndLeaveAnalyticsToTheirStage() {
+        RealtimeSnapshotListener indexing = snapshot -> analysed.add(-snapshot.getSequence());
+        RealtimeSnapshotListener analytics = new SlowListener();
+        release.countDown();
+        RealtimeSnapshotStore store = new RealtimeSnapshotStore(provider());
+        PublishStage publish = new PublishStage(store, provider(indexing, analytics));
+
+        publish.process(cycle(7));
+
+        assertEquals(List.of(-7L), analysed);
+        assertEquals(7, store.current().orElseThrow().getSequence());
+        List<StageStats> stats = publish.partStats();
+        assertEquals(1, stats.size());
+        assertEquals(1, stats.get(0).runs());
+    }
+
+    @Test
+    void pipelineStats_shouldListEveryListener() {
+        release.countDown();
+        PublishStage publish = new PublishStage(new RealtimeSnapshotStore(provider()),
+                provider(snapshot -> { }));
+        FeedPipeline pipeline = new FeedPipeline(List.of(publish));
+
+        assertEquals(1, pipeline.getStats().listeners().size());
+    }
+
+    private class SlowListener implements RealtimeAnalyticsListener {
+        @Override
+        public void onSnapshot(RealtimeSnapshot snapshot) {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            analysed.add(snapshot.getSequence());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ObjectProvider<T> provider(T... beans) {
+        ObjectProvider<T> provider = mock(ObjectProvider.class);
+        when(provider.orderedStream()).thenAnswer(invocation -> Stream.of(beans));
+        return provider;
+    }
+
+    private static FeedCycle cycle(long sequence) {
+        FeedCycle cycle = new FeedCycle(sequence, 0);
+        cycle.setSnapshot(new RealtimeSnapshot(sequence, 0, List.of(
+                new VehicleCurrentState("v1", "t1", "52", 50.06f, 19.94f, 0, "SCHEDULED", "", 1000))));
+        return cycle;
+    }
+}
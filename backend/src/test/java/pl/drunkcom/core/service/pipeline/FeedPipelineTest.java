@@ -0,0 +1,169 @@
+package pl.drunkcom.core.service.pipeline;
+
+import com.google.transit.realtime.GtfsRealtime.FeedEntity;
+import com.google.transit.realtime.GtfsRealtime.FeedHeader;
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+import com.google.transit.realtime.GtfsRealtime.Position;
+import com.google.transit.realtime.GtfsRealtime.VehicleDescriptor;
+import com.google.transit.realtime.GtfsRealtime.VehiclePosition;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+import pl.drunkcom.core.service.GtfsRealTimeService;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class FeedPipelineTest {
+
+    private final List<String> calls = new ArrayList<>();
+
+    @Test
+    void runCycle_shouldRunStagesInOrderAndRecordQueueDepth() {
+        FeedPipeline pipeline = new FeedPipeline(List.of(
+                stage("join", cycle -> cycle.setVehicles(List.of(vehicle("v1"), vehicle("v2"), vehicle("v3")))),
+                stage("filter", cycle -> cycle.setVehicles(cycle.getVehicles().subList(0, 2))),
+                stage("index", cycle -> cycle.setSnapshot(new RealtimeSnapshot(1, 0, cycle.getVehicles())))));
+
+        Optional<FeedCycle> cycle = pipeline.runCycle();
+
+        assertEquals(List.of("join", "filter", "index"), calls);
+        assertEquals(2, cycle.orElseThrow().getSnapshot().size());
+        PipelineStats stats = pipeline.getStats();
+        assertEquals(1, stats.cycles());
+        assertEquals(0, stats.failedCycles());
+        StageStats filter = stats.stages().get(1);
+        assertEquals("filter", filter.stage());
+        assertEquals(1, filter.runs());
+        assertEquals(3, filter.queueDepth());
+        assertEquals(2, filter.itemsOut());
+        assertEquals(1, stats.cycle().runs());
+    }
+
+    @Test
+    void runCycle_shouldAbortCycleOnFailingStage() {
+        FeedPipeline pipeline = new FeedPipeline(List.of(
+                stage("fetch", cycle -> {
+                    throw new IOException("feed unavailable");
+                }),
+                stage("publish", cycle -> fail("must not run after a failed stage"))));
+
+        assertTrue(pipeline.runCycle().isEmpty());
+
+        PipelineStats stats = pipeline.getStats();
+        assertEquals(1, stats.failedCycles());
+        assertEquals(1, stats.stages().get(0).errors());
+        assertEquals(0, stats.stages().get(1).runs());
+        assertEquals(List.of("fetch"), calls);
+    }
+
+    @Test
+    void runCycle_shouldEndEarlyWhenFeedHeadersAreUnchanged() {
+        long[] headerTimestamp = {1000};
+        FeedPipeline pipeline = new FeedPipeline(List.of(
+                stage("fetch", cycle -> {
+                    cycle.setVehiclePositionsFeed(feed(headerTimestamp[0]));
+                    cycle.setTripUpdatesFeed(tripUpdatesFeed(995));
+                }),
+                new DecodeStage(new GtfsRealTimeService(mock(RestTemplate.class))),
+                stage("publish", cycle -> cycle.setSnapshot(new RealtimeSnapshot(1, 0, List.of())))));
+
+        assertNotNull(pipeline.runCycle().orElseThrow().getSnapshot());
+        FeedCycle unchanged = pipeline.runCycle().orElseThrow();
+        headerTimestamp[0] = 1010;
+        assertNotNull(pipeline.runCycle().orElseThrow().getSnapshot());
+
+        assertTrue(unchanged.isEndedEarly());
+        assertNull(unchanged.getSnapshot());
+        assertNull(unchanged.getPositions());
+        assertEquals(1000, unchanged.getFeedTimestamp());
+        assertEquals(List.of("fetch", "publish", "fetch", "fetch", "publish"), calls);
+        assertEquals(1010, pipeline.getLastFeedTimestamp());
+        assertEquals(3, pipeline.getStats().cycle().runs());
+    }
+
+    @Test
+    void runCycle_shouldRunWholeCycleWhenOnlyTripUpdatesChanged() {
+        long[] tripUpdatesTimestamp = {995};
+        FeedPipeline pipeline = new FeedPipeline(List.of(
+                stage("fetch", cycle -> {
+                    cycle.setVehiclePositionsFeed(feed(1000));
+                    cycle.setTripUpdatesFeed(tripUpdatesFeed(tripUpdatesTimestamp[0]));
+                }),
+                new DecodeStage(new GtfsRealTimeService(mock(RestTemplate.class))),
+                stage("publish", cycle -> cycle.setSnapshot(new RealtimeSnapshot(1, 0, List.of())))));
+
+        pipeline.runCycle();
+        tripUpdatesTimestamp[0] = 1003;
+        FeedCycle changed = pipeline.runCycle().orElseThrow();
+
+        assertFalse(changed.isEndedEarly());
+        assertNotNull(changed.getSnapshot());
+        assertEquals(List.of("fetch", "publish", "fetch", "publish"), calls);
+    }
+
+    @Test
+    void histogram_shouldReportQuantilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros);
+        }
+
+        assertEquals(500, histogram.quantile(0.5), 500 * 0.25);
+        assertEquals(990, histogram.quantile(0.99), 990 * 0.25);
+        assertEquals(1000, histogram.max());
+        assertEquals(500, histogram.mean());
+        for (long value = 0; value < 100_000; value += 7) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(value <= LatencyHistogram.upperBoundOf(bucket));
+            assertTrue(bucket == 0 || value > LatencyHistogram.upperBoundOf(bucket - 1));
+        }
+    }
+
+    private FeedStage stage(String name, StageBody body) {
+        return new FeedStage() {
+            @Override
+            public String stageName() {
+                return name;
+            }
+
+            @Override
+            public void process(FeedCycle cycle) throws IOException {
+                calls.add(name);
+                body.run(cycle);
+            }
+        };
+    }
+
+    private static byte[] feed(long headerTimestamp) {
+        return FeedMessage.newBuilder()
+                .setHeader(FeedHeader.newBuilder().setGtfsRealtimeVersion("2.0").setTimestamp(headerTimestamp))
+                .addEntity(FeedEntity.newBuilder().setId("1").setVehicle(VehiclePosition.newBuilder()
+                        .setVehicle(VehicleDescriptor.newBuilder().setId("v1"))
+                        .setPosition(Position.newBuilder().setLatitude(50.06f).setLongitude(19.94f))))
+                .build()
+                .toByteArray();
+    }
+
+    private static byte[] tripUpdatesFeed(long headerTimestamp) {
+        return FeedMessage.newBuilder()
+                .setHeader(FeedHeader.newBuilder().setGtfsRealtimeVersion("2.0").setTimestamp(headerTimestamp))
+                .build()
+                .toByteArray();
+    }
+
+    private static VehicleCurrentState vehicle(String id) {
+        return new VehicleCurrentState(id, "t-" + id, "52", 50.06f, 19.94f, 0, "SCHEDULED", "", 1000);
+    }
+
+    @FunctionalInterface
+    private interface StageBody {
+        void run(FeedCycle cycle) throws IOException;
+    }
+}
@@ -0,0 +1,69 @@
+package pl.drunkcom.core.service.realtime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pl.drunkcom.core.service.TripsService;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.dataset.StaticDatasetChangedEvent;
+import pl.drunkcom.core.service.geo.ShapeGeometry;
+import pl.drunkcom.core.service.geo.ShapeGeometryService;
+import pl.drunkcom.core.service.geo.TripStopPatternService;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MapMatchingServiceTest {
+
+    private final TripsService tripsService = mock(TripsService.class);
+    private final ShapeGeometryService shapeGeometryService = mock(ShapeGeometryService.class);
+    private final TripStopPatternService stopPatternService = mock(TripStopPatternService.class);
+    private final MapMatchingService service = new MapMatchingService(tripsService, shapeGeometryService,
+            stopPatternService);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.shutdown();
+    }
+
+    @Test
+    void onDatasetChanged_shouldDropGeometryLoadedForPreviousDataset() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(tripsService.findShapeId("t1")).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return Optional.of("s1");
+        });
+        when(tripsService.findShapeId("t2")).thenReturn(Optional.of("s1"));
+        when(shapeGeometryService.find("s1")).thenReturn(Optional.of(
+                new ShapeGeometry("s1", new double[]{50.00, 50.01}, new double[]{19.90, 19.91})));
+        when(stopPatternService.load(any(), any())).thenReturn(Optional.empty());
+
+        service.onSnapshot(snapshot(1, "t1"));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+        service.onDatasetChanged(new StaticDatasetChangedEvent("v2"));
+        release.countDown();
+
+        // the loader is single-threaded, so once t2 is resolved the load of t1 has completed
+        service.onSnapshot(snapshot(2, "t2"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (service.findTripGeometry("t2").isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(service.findTripGeometry("t2").isPresent());
+        assertTrue(service.findTripGeometry("t1").isEmpty());
+    }
+
+    private static RealtimeSnapshot snapshot(long sequence, String tripId) {
+        return new RealtimeSnapshot(sequence, 0, List.of(
+                new VehicleCurrentState("v" + sequence, tripId, "52", 50.005f, 19.905f, 0, "SCHEDULED", "", 1000)));
+    }
+}
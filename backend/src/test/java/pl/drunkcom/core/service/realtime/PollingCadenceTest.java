@@ -0,0 +1,98 @@
+package pl.drunkcom.core.service.realtime;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PollingCadenceTest {
+
+    private static final long START = 1_700_000_000_000L;
+    /** The simulated upstream publishes every 10 s; a version is fetchable 2 s after its timestamp. */
+    private static final long PERIOD = 10_000;
+    private static final long LAG = 2_000;
+
+    @Test
+    void completed_shouldLearnPeriodAndFetchEachVersionSoonAfterItAppears() {
+        PollingCadence adaptive = new PollingCadence(true, 15_000, 1_000, 60_000, 0);
+        PollingCadence fixed = new PollingCadence(false, 15_000, 1_000, 60_000, 0);
+
+        simulate(adaptive, 30 * 60_000L);
+        simulate(fixed, 30 * 60_000L);
+
+        PollingStats learned = adaptive.getStats();
+        assertEquals(PERIOD, learned.estimatedPeriodMillis(), 200);
+        assertEquals(LAG, learned.availabilityLagMillis(), 1_000);
+        assertTrue(learned.fetchesPerVersion() < 1.5, "fetches per version " + learned.fetchesPerVersion());
+        assertTrue(learned.meanStalenessMillis() < LAG + 1_000, "staleness " + learned.meanStalenessMillis());
+        assertEquals(0, learned.errors());
+
+        PollingStats polled = fixed.getStats();
+        assertTrue(polled.meanStalenessMillis() > learned.meanStalenessMillis() + 2_000);
+        assertTrue(polled.newVersions() < learned.newVersions());
+    }
+
+    @Test
+    void completed_shouldBackOffExponentiallyOnErrors() {
+        PollingCadence cadence = new PollingCadence(true, 15_000, 1_000, 60_000, 0);
+
+        long previousCeiling = 0;
+        for (int failures = 1; failures <= 8; failures++) {
+            long delay = cadence.completed(false, 0, START, START);
+            long ceiling = Math.min(60_000, 1_000L << failures);
+            assertTrue(delay >= ceiling / 2 && delay <= ceiling, "delay " + delay + " after " + failures);
+            assertTrue(ceiling >= previousCeiling);
+            previousCeiling = ceiling;
+        }
+        assertEquals(8, cadence.getStats().errors());
+
+        long delay = cadence.completed(true, START / 1000, START, START);
+        assertEquals(1_000, delay);
+    }
+
+    @Test
+    void completed_shouldSlowDownRechecksWhileFeedStaysUnchanged() {
+        PollingCadence cadence = new PollingCadence(true, 15_000, 1_000, 60_000, 0);
+        long header = START / 1000;
+        cadence.completed(true, header, START, START);
+        cadence.completed(true, header + 10, START + 12_000, START + 12_000);
+        assertEquals(10_000, cadence.getStats().estimatedPeriodMillis());
+
+        // the next version is overdue: rechecks double from the minimum interval up to the period
+        long now = START + 25_000;
+        assertEquals(1_000, cadence.completed(true, header + 10, now, now));
+        assertEquals(2_000, cadence.completed(true, header + 10, now, now));
+        assertEquals(4_000, cadence.completed(true, header + 10, now, now));
+        assertEquals(8_000, cadence.completed(true, header + 10, now, now));
+        assertEquals(10_000, cadence.completed(true, header + 10, now, now));
+        assertEquals(5, cadence.getStats().unchangedFetches());
+    }
+
+    @Test
+    void completed_shouldTakeTimestampGoingBackwardsAsNewVersion() {
+        PollingCadence cadence = new PollingCadence(true, 15_000, 1_000, 60_000, 0);
+        long header = START / 1000;
+        cadence.completed(true, header, START, START);
+        cadence.completed(true, header + 10, START + 12_000, START + 12_000);
+        assertEquals(10_000, cadence.getStats().estimatedPeriodMillis());
+
+        // the upstream restarted with an older clock
+        long now = START + 22_000;
+        assertEquals(1_000, cadence.completed(true, header - 300, now, now));
+
+        assertEquals(3, cadence.getStats().newVersions());
+        assertEquals(0, cadence.getStats().unchangedFetches());
+        assertNull(cadence.getStats().estimatedPeriodMillis());
+        // the following version is measured against the restarted clock
+        cadence.completed(true, header - 290, now + 10_000, now + 10_000);
+        assertEquals(10_000, cadence.getStats().estimatedPeriodMillis());
+    }
+
+        private static void simulate(PollingCadence cadence, long durationMillis) {
+        long now = START;
+        while (now < START + durationMillis) {
+            long available = (now - LAG) / PERIOD * PERIOD;
+            long delay = cadence.completed(true, available / 1000, now, now + 50);
+            now += 50 + delay;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package pl.drunkcom.core.service.realtime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pl.drunkcom.core.service.geo.GeoMath;
+import pl.drunkcom.core.service.geo.ShapeGeometry;
+import pl.drunkcom.core.service.geo.ShapeGeometryService;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class VehicleInterpolationServiceTest {
+
+    @Mock
+    private VehicleTrackRegistry trackRegistry;
+
+    @Mock
+    private ShapeGeometryService shapeGeometryService;
+
+    @InjectMocks
+    private VehicleInterpolationService interpolationService;
+
+    // A straight west-east shape roughly 1.4 km long
+    private final ShapeGeometry shape = new ShapeGeometry("shape-1",
+            new double[]{50.0, 50.0, 50.0}, new double[]{19.90, 19.91, 19.92});
+
+    @Test
+    void interpolate_shouldAdvanceAlongShapeAtObservedSpeed() {
+        when(shapeGeometryService.find("shape-1")).thenReturn(Optional.of(shape));
+        VehicleTrack track = track(observation(1000, 19.900, 0), observation(1010, shape.pointAt(100)[1], 0));
+
+        InterpolatedVehiclePosition predicted = interpolationService.interpolate(track, 1015_000L);
+
+        assertEquals("SHAPE", predicted.method());
+        assertEquals(10.0, predicted.speedMetersPerSecond(), 0.5);
+        assertEquals(shape.pointAt(150)[1], predicted.longitude(), 1e-5);
+        assertEquals(50.0, predicted.latitude(), 1e-9);
+    }
+
+    @Test
+    void interpolate_shouldHoldVehicleWhoseDelayGrowsWithTheClock() {
+        when(shapeGeometryService.find("shape-1")).thenReturn(Optional.of(shape));
+        VehicleTrack track = track(observation(1000, 19.900, 60), observation(1010, shape.pointAt(100)[1], 70));
+
+        InterpolatedVehiclePosition predicted = interpolationService.interpolate(track, 1020_000L);
+
+        assertEquals(0.0, predicted.speedMetersPerSecond(), 1e-9);
+        assertEquals(shape.pointAt(100)[1], predicted.longitude(), 1e-5);
+    }
+
+    @Test
+    void interpolate_shouldCapPredictionHorizon() {
+        when(shapeGeometryService.find("shape-1")).thenReturn(Optional.of(shape));
+        VehicleTrack track = track(observation(1000, 19.900, 0), observation(1010, shape.pointAt(100)[1], 0));
+
+        InterpolatedVehiclePosition predicted = interpolationService.interpolate(track, 2000_000L);
+
+        double maxDistance = 100 + 10.0 * VehicleInterpolationService.MAX_HORIZON_SECONDS;
+        assertEquals(shape.pointAt(maxDistance)[1], predicted.longitude(), 1e-4);
+    }
+
+    @Test
+    void interpolate_shouldReturnLastPositionWithoutHistory() {
+        VehicleTrack track = new VehicleTrack("bus-1", "trip-1", "route-1", "shape-1",
+                null, observation(1010, 19.905, 0));
+
+        InterpolatedVehiclePosition predicted = interpolationService.interpolate(track, 1015_000L);
+
+        assertEquals("STATIC", predicted.method());
+        assertEquals(19.905, predicted.longitude(), 1e-9);
+    }
+
+    @Test
+    void interpolate_shouldExtrapolateAlongEstimatedHeadingWithoutPreviousObservation() {
+        VehicleTrack.Observation latest = new VehicleTrack.Observation(1000, 50.0, 19.90, Double.NaN, Double.NaN, 0,
+                10.0, 90.0);
+        VehicleTrack track = new VehicleTrack("bus-1", "trip-1", "route-1", null, null, latest);
+
+        InterpolatedVehiclePosition predicted = interpolationService.interpolate(track, 1010_000L);
+
+        assertEquals("LINEAR", predicted.method());
+        assertEquals(10.0, predicted.speedMetersPerSecond(), 1e-9);
+        assertEquals(50.0, predicted.latitude(), 1e-9);
+        assertEquals(100.0, GeoMath.haversineMeters(50.0, 19.90, 50.0, predicted.longitude()), 1.0);
+    }
+
+    private VehicleTrack track(VehicleTrack.Observation previous, VehicleTrack.Observation latest) {
+        return new VehicleTrack("bus-1", "trip-1", "route-1", "shape-1", previous, latest);
+    }
+
+    private VehicleTrack.Observation observation(long timestamp, double longitude, int delay) {
+        ShapeGeometry.ShapeProjection projection = shape.project(50.0, longitude);
+        return new VehicleTrack.Observation(timestamp, 50.0, longitude,
+                projection.distanceAlongMeters(), projection.offsetMeters(), delay, Double.NaN, Double.NaN);
+    }
+}
@@ -0,0 +1,72 @@
+package pl.drunkcom.core.service.realtime;
+
+import org.junit.jupiter.api.Test;
+import pl.drunkcom.core.service.VehicleCurrentState;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VehicleMotionEstimatorTest {
+
+    private final VehicleMotionEstimator estimator = new VehicleMotionEstimator();
+    private final float[] speeds = new float[1];
+    private final float[] headings = new float[1];
+
+    @Test
+    void estimate_shouldDeriveSpeedAndHeadingFromSuccessivePositions() {
+        estimate(vehicle(50.000f, 19.90f, 1000));
+        assertTrue(Float.isNaN(speeds[0]));
+        assertTrue(Float.isNaN(headings[0]));
+
+        // ~111 m north in 10 s
+        estimate(vehicle(50.001f, 19.90f, 1010));
+
+        assertEquals(11.1, speeds[0], 0.2);
+        assertEquals(0.0, headings[0], 0.5);
+    }
+
+    @Test
+    void estimate_shouldKeepHeadingOfStandingVehicle() {
+        estimate(vehicle(50.000f, 19.900f, 1000));
+        estimate(vehicle(50.000f, 19.902f, 1010));
+        assertEquals(90.0, headings[0], 0.5);
+
+        // a few meters of GPS noise while waiting at a stop
+        estimate(vehicle(50.00002f, 19.902f, 1020));
+        estimate(vehicle(50.00000f, 19.90202f, 1030));
+
+        assertEquals(0.0, speeds[0], 0.3);
+        assertEquals(90.0, headings[0], 0.5);
+    }
+
+    @Test
+    void estimate_shouldFallBackToReportedValues() {
+        VehicleCurrentState reported = new VehicleCurrentState("v1", "t1", "52", 50.0f, 19.9f, 0, "SCHEDULED", "",
+                1000, 180f, 7.5f, null);
+
+        estimator.estimate(List.of(reported), 1000_000L, speeds, headings);
+
+        assertEquals(7.5f, speeds[0]);
+        assertEquals(180f, headings[0]);
+    }
+
+    @Test
+    void estimate_shouldIgnoreReportsThatWereNotRefreshed() {
+        estimate(vehicle(50.000f, 19.90f, 1000));
+        estimate(vehicle(50.001f, 19.90f, 1010));
+        float speed = speeds[0];
+
+        estimate(vehicle(50.001f, 19.90f, 1010));
+
+        assertEquals(speed, speeds[0]);
+    }
+
+    private void estimate(VehicleCurrentState vehicle) {
+        estimator.estimate(List.of(vehicle), vehicle.timestamp() * 1000, speeds, headings);
+    }
+
+    private static VehicleCurrentState vehicle(float latitude, float longitude, long timestamp) {
+        return new VehicleCurrentState("v1", "t1", "52", latitude, longitude, 0, "SCHEDULED", "", timestamp);
+    }
+}
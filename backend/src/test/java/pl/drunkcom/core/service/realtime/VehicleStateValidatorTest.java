@@ -0,0 +1,139 @@
+package pl.drunkcom.core.service.realtime;
+
+import org.junit.jupiter.api.Test;
+import pl.drunkcom.core.service.VehicleCurrentState;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VehicleStateValidatorTest {
+
+    private final VehicleStateValidator validator = new VehicleStateValidator(true, 120, 8, 900, false, 40);
+
+    @Test
+    void validate_shouldDropJumpUntilConfirmed() {
+        assertEquals(1, validate(vehicle("v1", 50.00f, 19.90f, 1000)).size());
+
+        // ~11 km in 10 s
+        assertTrue(validate(vehicle("v1", 50.10f, 19.90f, 1010)).isEmpty());
+        assertEquals(1, validator.getStats().teleports());
+        assertEquals(VehicleIssueType.TELEPORT, validator.getStats().issues().get(0).type());
+
+        // the next report from the same place confirms the move
+        assertEquals(1, validate(vehicle("v1", 50.10f, 19.90f, 1020)).size());
+        assertEquals(0, validator.getStats().teleports());
+    }
+
+    @Test
+    void validate_shouldKeepDroppingGpsAlternatingBetweenWrongPoints() {
+        validate(vehicle("v1", 50.00f, 19.90f, 1000));
+
+        // ~11 km north, then ~11 km south of the last accepted position, every 10 s
+        for (int i = 1; i <= 6; i++) {
+            float latitude = i % 2 == 0 ? 49.90f : 50.10f;
+            assertTrue(validate(vehicle("v1", latitude, 19.90f, 1000 + 10L * i)).isEmpty(), "report " + i);
+            assertEquals(VehicleIssueType.TELEPORT, validator.getStats().issues().get(0).type());
+        }
+
+        // a report near the last accepted position is still plausible
+        assertEquals(1, validate(vehicle("v1", 50.001f, 19.90f, 1070)).size());
+    }
+
+    @Test
+    void validate_shouldAcceptSteadyMoverReportingEverySecond() {
+        // ~20 m/s (72 km/h) north, below the jitter threshold between two reports
+        for (int i = 0; i <= 10; i++) {
+            assertEquals(1, validate(vehicle("v1", 50.0f + i * 0.00018f, 19.90f, 1000 + i)).size(), "report " + i);
+            assertTrue(validator.getStats().issues().isEmpty(), "report " + i);
+        }
+    }
+
+    @Test
+    void validate_shouldAcceptPlausibleMove() {
+        validate(vehicle("v1", 50.000f, 19.90f, 1000));
+
+        // ~110 m in 10 s
+        assertEquals(1, validate(vehicle("v1", 50.001f, 19.90f, 1010)).size());
+        assertTrue(validator.getStats().issues().isEmpty());
+    }
+
+    @Test
+    void validate_shouldDropGhostWhoseTimestampStopsAdvancing() {
+        validate(vehicle("v1", 50.00f, 19.90f, 1000));
+        for (int i = 1; i < 8; i++) {
+            assertEquals(1, validate(vehicle("v1", 50.00f, 19.90f, 1000)).size());
+        }
+
+        assertTrue(validate(vehicle("v1", 50.00f, 19.90f, 1000)).isEmpty());
+        assertEquals(1, validator.getStats().ghosts());
+
+        // a fresh report revives it
+        assertEquals(1, validate(vehicle("v1", 50.00f, 19.90f, 1010)).size());
+    }
+
+    @Test
+    void validate_shouldFlagButKeepFrozenVehicle() {
+        validate(vehicle("v1", 50.00f, 19.90f, 1000));
+        assertEquals(1, validate(vehicle("v1", 50.00001f, 19.90f, 1500)).size());
+        assertEquals(0, validator.getStats().frozen());
+
+        List<VehicleCurrentState> accepted = validate(vehicle("v1", 50.00f, 19.90f, 1900));
+
+        assertEquals(1, accepted.size());
+        assertEquals(1, validator.getStats().frozen());
+        assertFalse(validator.getStats().issues().get(0).dropped());
+    }
+
+    @Test
+    void validate_shouldDropInvalidCoordinates() {
+        List<VehicleCurrentState> accepted = validate(vehicle("v1", 0f, 0f, 1000), vehicle("v2", 91f, 19.9f, 1000),
+                vehicle(null, 50f, 19.9f, 1000), vehicle("v3", 50f, 19.9f, 1000));
+
+        assertEquals(List.of("v3"), accepted.stream().map(VehicleCurrentState::vehicleId).toList());
+        assertEquals(3, validator.getStats().invalid());
+        assertEquals(1, validator.getStats().trackedVehicles());
+    }
+
+    @Test
+    void validate_shouldPassEverythingWhenDisabled() {
+        VehicleStateValidator disabled = new VehicleStateValidator(false, 120, 8, 900, false, 40);
+        List<VehicleCurrentState> vehicles = List.of(vehicle("v1", 0f, 0f, 1000));
+
+        assertSame(vehicles, disabled.validate(vehicles, 1000_000L));
+    }
+
+    @Test
+    void table_shouldGrowAndEvictAbsentVehicles() {
+        VehicleStateTable table = new VehicleStateTable(8);
+        for (int i = 0; i < 1000; i++) {
+            int slot = table.insert(VehicleStateTable.keyOf("vehicle-" + i));
+            table.seenCycles[slot] = i % 2 == 0 ? 1 : 5;
+        }
+        assertEquals(1000, table.size());
+        assertTrue(table.capacity() >= 2000);
+
+        assertEquals(500, table.evictSeenBefore(2));
+
+        assertEquals(500, table.size());
+        for (int i = 0; i < 1000; i++) {
+            int slot = table.find(VehicleStateTable.keyOf("vehicle-" + i));
+            if (i % 2 == 0) {
+                assertEquals(-1, slot);
+            } else {
+                assertEquals(5, table.seenCycles[slot]);
+            }
+        }
+        assertEquals(500, table.evictSeenBefore(10));
+        assertEquals(0, table.size());
+    }
+
+    private List<VehicleCurrentState> validate(VehicleCurrentState... vehicles) {
+        return validator.validate(List.of(vehicles), 2000_000L);
+    }
+
+    private static VehicleCurrentState vehicle(String vehicleId, float latitude, float longitude, long timestamp) {
+        return new VehicleCurrentState(vehicleId, "trip-1", "route-1", latitude, longitude, 0, "SCHEDULED", null,
+                timestamp);
+    }
+}
@@ -0,0 +1,65 @@
+package pl.drunkcom.core.service.tiles;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnknownFieldSet;
+import org.junit.jupiter.api.Test;
+import pl.drunkcom.core.service.geo.ShapeGeometry;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorTileServiceTest {
+
+    @Test
+    void clip_shouldSplitLineLeavingAndReenteringTile() {
+        TileBounds bounds = new TileBounds(14, 9099, 5556);
+        double west = bounds.longitude(0), east = bounds.longitude(VectorTileEncoder.EXTENT);
+        double north = bounds.latitude(0), south = bounds.latitude(VectorTileEncoder.EXTENT);
+        double middle = (north + south) / 2;
+        double outside = north + (north - south);
+        // West to east through the middle of the tile, with a detour far to the north in between
+        ShapeGeometry shape = new ShapeGeometry("detour",
+                new double[]{middle, middle, outside, outside, middle, middle},
+                new double[]{west - 0.01, west + (east - west) * 0.3, west + (east - west) * 0.3,
+                        west + (east - west) * 0.6, west + (east - west) * 0.6, east + 0.01});
+
+        List<int[]> parts = VectorTileService.clip(shape, new int[]{0, 1, 2, 3, 4, 5}, bounds);
+
+        assertEquals(2, parts.size());
+        for (int[] part : parts) {
+            for (int coordinate : part) {
+                assertTrue(coordinate >= -64 && coordinate <= VectorTileEncoder.EXTENT + 64);
+            }
+        }
+        assertEquals(-64, parts.get(0)[0]);
+        assertEquals(VectorTileEncoder.EXTENT + 64, parts.get(1)[parts.get(1).length - 2]);
+    }
+
+    @Test
+    void encode_shouldProduceWellFormedLayer() throws Exception {
+        VectorTileEncoder.Layer layer = VectorTileEncoder.layer("stops");
+        layer.feature(7).property("stop_name", "Rondo Mogilskie").property("location_type", 0).point(100, 200);
+        layer.feature(8).property("stop_name", "Teatr Bagatela").property("location_type", 0).point(110, 190);
+
+        UnknownFieldSet tile = UnknownFieldSet.parseFrom(layer.encode());
+        List<ByteString> layers = tile.getField(3).getLengthDelimitedList();
+        assertEquals(1, layers.size());
+
+        UnknownFieldSet decoded = UnknownFieldSet.parseFrom(layers.get(0));
+        assertEquals(List.of(2L), decoded.getField(15).getVarintList());
+        assertEquals("stops", decoded.getField(1).getLengthDelimitedList().get(0).toStringUtf8());
+        assertEquals(2, decoded.getField(2).getLengthDelimitedList().size());
+        assertEquals(2, decoded.getField(3).getLengthDelimitedList().size());
+        // Two distinct names and one shared location type
+        assertEquals(3, decoded.getField(4).getLengthDelimitedList().size());
+        assertEquals(List.of((long) VectorTileEncoder.EXTENT), decoded.getField(5).getVarintList());
+
+        UnknownFieldSet feature = UnknownFieldSet.parseFrom(decoded.getField(2).getLengthDelimitedList().get(1));
+        assertEquals(List.of(8L), feature.getField(1).getVarintList());
+        assertEquals(List.of(1L), feature.getField(3).getVarintList());
+        // MoveTo(1), zigzag(110), zigzag(190)
+        assertArrayEquals(new byte[]{9, (byte) 220, 1, (byte) 252, 2},
+                feature.getField(4).getLengthDelimitedList().get(0).toByteArray());
+    }
+}
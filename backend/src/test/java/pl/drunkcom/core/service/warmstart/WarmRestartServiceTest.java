@@ -0,0 +1,157 @@
+package pl.drunkcom.core.service.warmstart;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import pl.drunkcom.core.service.TripDetails;
+import pl.drunkcom.core.service.VehicleCurrentState;
+import pl.drunkcom.core.service.analytics.DelayPercentileService;
+import pl.drunkcom.core.service.analytics.DelayWindow;
+import pl.drunkcom.core.service.pipeline.FeedPipeline;
+import pl.drunkcom.core.service.realtime.MapMatchingService;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshot;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshotListener;
+import pl.drunkcom.core.service.realtime.RealtimeSnapshotStore;
+import pl.drunkcom.core.service.realtime.VehicleMotionEstimator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WarmRestartServiceTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    @TempDir
+    Path dir;
+
+    private final MapMatchingService mapMatching = mock(MapMatchingService.class);
+
+    @Test
+    void restore_shouldBringBackSnapshotAndAnalyticsState() {
+        when(mapMatching.find(anyString())).thenReturn(Optional.empty());
+        long now = System.currentTimeMillis();
+        TripDetails trip = new TripDetails("52", "52", "Os. Piastów - Czerwone Maki", 0, "FF0000", null,
+                "Czerwone Maki", 1, "shape-1");
+        VehicleCurrentState v1 = new VehicleCurrentState("v1", "t1", "52", 50.06f, 19.94f, 240, "SCHEDULED",
+                "4 min late", now / 1000, 90f, Float.NaN, trip);
+        VehicleCurrentState v2 = new VehicleCurrentState("v2", null, "", 50.07f, 19.95f, 0, "UNKNOWN",
+                "On time", now / 1000);
+        RealtimeSnapshot snapshot = new RealtimeSnapshot(41, now, List.of(v1, v2),
+                new float[]{8.5f, Float.NaN}, new float[]{90f, Float.NaN});
+        DelayPercentileService percentiles = new DelayPercentileService(mapMatching);
+        VehicleMotionEstimator motion = new VehicleMotionEstimator();
+        motion.estimate(List.of(v1), now, new float[1], new float[1]);
+        RealtimeSnapshotStore store = store();
+        store.publish(snapshot);
+        percentiles.onSnapshot(snapshot);
+        assertTrue(service(store, percentiles, motion).save(now));
+
+        RealtimeSnapshotStore restartedStore = store();
+        DelayPercentileService restartedPercentiles = new DelayPercentileService(mapMatching);
+        VehicleMotionEstimator restartedMotion = new VehicleMotionEstimator();
+        Optional<RealtimeSnapshot> restored = service(restartedStore, restartedPercentiles, restartedMotion)
+                .restore(now + 60_000);
+
+        assertSame(restored.orElseThrow(), restartedStore.current().orElseThrow());
+        assertEquals(42, restartedStore.nextSequence());
+        assertEquals(List.of(v1.toString(), v2.toString()),
+                restored.get().getVehicles().stream().map(VehicleCurrentState::toString).toList());
+        assertEquals(8.5f, restored.get().speedAt(0));
+        assertTrue(Float.isNaN(restored.get().headingAt(1)));
+        assertEquals(1, restartedPercentiles.summarizeRoute("52", DelayWindow.HOUR_1).orElseThrow().samples());
+        // the restored anchor yields a speed on the first report after the restart: ~111 m in 10 s
+        float[] speeds = new float[1];
+        restartedMotion.estimate(List.of(new VehicleCurrentState("v1", "t1", "52", 50.061f, 19.94f, 240,
+                "SCHEDULED", "", now / 1000 + 10)), now + 70_000, speeds, new float[1]);
+        assertEquals(11.1, speeds[0], 0.2);
+    }
+
+    @Test
+    void restore_shouldRestoreStatesEvenIfSnapshotWasAlreadyPublished() {
+        when(mapMatching.find(anyString())).thenReturn(Optional.empty());
+        long now = System.currentTimeMillis();
+        RealtimeSnapshot snapshot = new RealtimeSnapshot(3, now, List.of(new VehicleCurrentState("v1", "t1", "52",
+                50.06f, 19.94f, 120, "SCHEDULED", "2 min late", now / 1000)));
+        DelayPercentileService percentiles = new DelayPercentileService(mapMatching);
+        RealtimeSnapshotStore store = store();
+        store.publish(snapshot);
+        percentiles.onSnapshot(snapshot);
+        assertTrue(service(store, percentiles).save(now));
+
+        RealtimeSnapshotStore restartedStore = store();
+        RealtimeSnapshot fresh = new RealtimeSnapshot(1, now + 1000, List.of());
+        restartedStore.publish(fresh);
+        DelayPercentileService restartedPercentiles = new DelayPercentileService(mapMatching);
+        Optional<RealtimeSnapshot> restored = service(restartedStore, restartedPercentiles).restore(now + 2000);
+
+        assertTrue(restored.isEmpty());
+        assertSame(fresh, restartedStore.current().orElseThrow());
+        assertEquals(1, restartedPercentiles.summarizeRoute("52", DelayWindow.HOUR_1).orElseThrow().samples());
+    }
+
+    @Test
+    void restore_shouldIgnoreFileOlderThanMaxAge() {
+        long now = System.currentTimeMillis();
+        RealtimeSnapshotStore store = store();
+        store.publish(new RealtimeSnapshot(1, now, List.of()));
+        assertTrue(service(store).save(now));
+
+        RealtimeSnapshotStore restartedStore = store();
+        assertTrue(service(restartedStore).restore(now + 2 * HOUR).isEmpty());
+        assertTrue(restartedStore.current().isEmpty());
+    }
+
+    @Test
+    void restore_shouldSkipDamagedSectionAndKeepTheOthers() {
+        long now = System.currentTimeMillis();
+        RealtimeSnapshotStore store = store();
+        store.publish(new RealtimeSnapshot(7, now, List.of()));
+        assertTrue(service(store, new BrokenState()).save(now));
+
+        RealtimeSnapshotStore restartedStore = store();
+        Optional<RealtimeSnapshot> restored = service(restartedStore, new BrokenState()).restore(now);
+
+        assertEquals(7, restored.orElseThrow().getSequence());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RealtimeSnapshotStore store() {
+        ObjectProvider<RealtimeSnapshotListener> listeners = mock(ObjectProvider.class);
+        when(listeners.orderedStream()).thenAnswer(invocation -> Stream.empty());
+        return new RealtimeSnapshotStore(listeners);
+    }
+
+    @SuppressWarnings("unchecked")
+    private WarmRestartService service(RealtimeSnapshotStore store, WarmState... states) {
+        return new WarmRestartService(store, List.of(states), mock(ObjectProvider.class), true,
+                dir.resolve("warm-restart.bin").toString(), 60_000, HOUR);
+    }
+
+    private static final class BrokenState implements WarmState {
+
+        @Override
+        public String stateName() {
+            return "broken";
+        }
+
+        @Override
+        public void writeState(DataOutput out) throws IOException {
+            out.writeInt(1);
+        }
+
+        @Override
+        public void readState(DataInput in) throws IOException {
+            in.readLong();
+        }
+    }
+}